@@ -0,0 +1,28 @@
+// JMH benchmarks of the :core module, run on a desktop JVM with
+//   ./gradlew :benchmarks:jmh
+// Results are written as JSON to build/results/jmh/results.json, to compare runs over time
+plugins {
+    java
+    alias(libs.plugins.jmh)
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+dependencies {
+    jmh(project(":core"))
+    jmh(libs.jmh.core)
+    jmhAnnotationProcessor(libs.jmh.generator.annprocess)
+}
+
+jmh {
+    jmhVersion.set(libs.versions.jmh)
+    fork.set(1)
+    warmupIterations.set(3)
+    iterations.set(5)
+    resultFormat.set("JSON")
+    // Narrow a run down, e.g. ./gradlew :benchmarks:jmh -Pjmh.includes=Export
+    (project.findProperty("jmh.includes") as String?)?.let { includes.set(listOf(it)) }
+}
@@ -0,0 +1,106 @@
+package hua.dit.mobdev.micalendari.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import hua.dit.mobdev.micalendari.core.ScheduledTask;
+import hua.dit.mobdev.micalendari.core.TaskSchedule;
+import hua.dit.mobdev.micalendari.core.TaskStatusRules;
+
+// Task of the benchmark data sets, with its status name
+final class BenchmarkTask implements ScheduledTask {
+    private static final String[] STATUSES = {
+            TaskStatusRules.RECORDED, TaskStatusRules.IN_PROGRESS, TaskStatusRules.EXPIRED, TaskStatusRules.COMPLETED};
+
+    final int uid;
+    final String shortName;
+    final String description;
+    final String startTime;
+    final int durationHours;
+    final String location;
+    final String date;
+    final long startAt;
+    final long endAt;
+    final String statusName;
+
+    private BenchmarkTask(int uid, String shortName, String description, String startTime, int durationHours,
+                          String location, String date, String statusName) {
+        this.uid = uid;
+        this.shortName = shortName;
+        this.description = description;
+        this.startTime = startTime;
+        this.durationHours = durationHours;
+        this.location = location;
+        this.date = date;
+        this.startAt = TaskSchedule.parseStartAt(date, startTime);
+        this.endAt = TaskSchedule.endAtOf(startAt, durationHours);
+        this.statusName = statusName;
+    }
+
+    // count tasks spread over 2025, the same ones for the same count on every run
+    // Texts include characters the export formats have to escape
+    static List<BenchmarkTask> generate(int count) {
+        SplittableRandom random = new SplittableRandom(42);
+        List<BenchmarkTask> tasks = new ArrayList<>(count);
+        for (int uid = 1; uid <= count; uid++) {
+            String date = String.format("%02d/%02d/2025", 1 + random.nextInt(28), 1 + random.nextInt(12));
+            String time = String.format("%02d:%02d", random.nextInt(24), 15 * random.nextInt(4));
+            tasks.add(new BenchmarkTask(uid, "Task " + uid + ", weekly",
+                    "Agenda: \"status\" & <plans>; notes for task " + uid, time, random.nextInt(9),
+                    uid % 3 == 0 ? "" : "Room " + random.nextInt(100), date,
+                    STATUSES[random.nextInt(STATUSES.length)]));
+        }
+        return tasks;
+    }
+
+    @Override
+    public int getUid() {
+        return uid;
+    }
+
+    @Override
+    public String getShortName() {
+        return shortName;
+    }
+
+    @Override
+    public String getDescription() {
+        return description;
+    }
+
+    @Override
+    public String getStartTime() {
+        return startTime;
+    }
+
+    @Override
+    public int getDurationHours() {
+        return durationHours;
+    }
+
+    @Override
+    public String getLocation() {
+        return location;
+    }
+
+    @Override
+    public String getDate() {
+        return date;
+    }
+
+    @Override
+    public long getStartAt() {
+        return startAt;
+    }
+
+    @Override
+    public long getEndAt() {
+        return endAt;
+    }
+
+    @Override
+    public String getRecurrenceRule() {
+        return null;
+    }
+}
@@ -0,0 +1,76 @@
+package hua.dit.mobdev.micalendari.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import hua.dit.mobdev.micalendari.export.TaskExportFormat;
+
+// Writing a whole task list in each export format, to a Writer that only counts characters,
+// so the score is the formatting and escaping work alone
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ExportBenchmark {
+    // Writer that only counts characters
+    private static final class CountingWriter extends Writer {
+        long chars;
+
+        @Override
+        public void write(int c) {
+            chars++;
+        }
+
+        @Override
+        public void write(char[] buffer, int offset, int length) {
+            chars += length;
+        }
+
+        @Override
+        public void write(String text, int offset, int length) {
+            chars += length;
+        }
+
+        @Override
+        public void flush() {}
+
+        @Override
+        public void close() {}
+    }
+
+    @Param({"1000", "10000", "100000"})
+    public int size;
+
+    // Names understood by TaskExportFormat.forName()
+    @Param({"html", "csv", "ics"})
+    public String format;
+
+    private List<BenchmarkTask> tasks;
+
+    @Setup
+    public void setUp() {
+        tasks = BenchmarkTask.generate(size);
+    }
+
+    @Benchmark
+    public long export() throws IOException {
+        TaskExportFormat exportFormat = TaskExportFormat.forName(format);
+        CountingWriter out = new CountingWriter();
+        exportFormat.writeHeader(out);
+        for (BenchmarkTask task : tasks) {
+            exportFormat.writeTask(out, task, task.statusName);
+        }
+        exportFormat.writeFooter(out);
+        return out.chars;
+    }
+}
@@ -0,0 +1,55 @@
+package hua.dit.mobdev.micalendari.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import hua.dit.mobdev.micalendari.core.TaskSchedule;
+import hua.dit.mobdev.micalendari.core.TaskStatusRules;
+
+// Date parsing and status evaluation over a whole task list, the work done per task on saves,
+// migrations and the occurrences of recurring tasks
+// Each invocation handles every task once, so scores are per list of the given size
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ScheduleBenchmark {
+    @Param({"1000", "10000", "100000"})
+    public int size;
+
+    private List<BenchmarkTask> tasks;
+    // Middle of the generated year, so every status occurs
+    private long now;
+
+    @Setup
+    public void setUp() {
+        tasks = BenchmarkTask.generate(size);
+        now = TaskSchedule.parseStartAt("01/07/2025", "12:00");
+    }
+
+    // "dd/MM/yyyy" + "HH:mm" to epoch millis, as done on every save and migration
+    @Benchmark
+    public void parseStartAt(Blackhole blackhole) {
+        for (BenchmarkTask task : tasks) {
+            blackhole.consume(TaskSchedule.parseStartAt(task.date, task.startTime));
+        }
+    }
+
+    // Status of every task at one moment, as OccurrenceExpander computes it for each occurrence
+    @Benchmark
+    public void statusAt(Blackhole blackhole) {
+        for (BenchmarkTask task : tasks) {
+            blackhole.consume(TaskStatusRules.statusAt(task.startAt, task.endAt,
+                    TaskStatusRules.COMPLETED.equals(task.statusName), now));
+        }
+    }
+}
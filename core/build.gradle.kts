@@ -0,0 +1,14 @@
+// Plain Java code shared by the app and the benchmarks: no Android classes, so it runs and is
+// measured on any JVM
+plugins {
+    `java-library`
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_1_10
+    targetCompatibility = JavaVersion.VERSION_1_10
+}
+
+dependencies {
+    testImplementation(libs.junit)
+}
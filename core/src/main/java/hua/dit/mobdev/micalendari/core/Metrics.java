@@ -0,0 +1,217 @@
+package hua.dit.mobdev.micalendari.core;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// In-process counters and histograms, named e.g. "status.sweep"
+// Recording only adds to striped LongAdders, so it never takes a lock or makes threads contend
+// on one cache line; call sites look their metrics up once and keep them in static fields
+// Reads sum the stripes without stopping writers, so a snapshot taken meanwhile may be off by
+// the few samples recorded while it was read
+public final class Metrics {
+    private static final ConcurrentMap<String, Counter> COUNTERS = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<String, Histogram> HISTOGRAMS = new ConcurrentHashMap<>();
+
+    private Metrics() {}
+
+    // The counter of that name, created on first use
+    public static Counter counter(String name) {
+        return COUNTERS.computeIfAbsent(name, n -> new Counter());
+    }
+
+    // The histogram of that name, created on first use; unit is only used in reports
+    public static Histogram histogram(String name, Unit unit) {
+        return HISTOGRAMS.computeIfAbsent(name, n -> new Histogram(unit));
+    }
+
+    // Every value as flat name -> number pairs, sorted by name, e.g. "status.sweep.p99"
+    // Durations are in microseconds
+    public static Map<String, Long> snapshot() {
+        Map<String, Long> values = new TreeMap<>();
+        for (Map.Entry<String, Counter> entry : COUNTERS.entrySet()) {
+            values.put(entry.getKey(), entry.getValue().get());
+        }
+        for (Map.Entry<String, Histogram> entry : HISTOGRAMS.entrySet()) {
+            Histogram histogram = entry.getValue();
+            String name = entry.getKey();
+            values.put(name + ".count", histogram.count());
+            values.put(name + ".sum", histogram.unit.report(histogram.sum()));
+            values.put(name + ".p50", histogram.unit.report(histogram.percentile(0.50)));
+            values.put(name + ".p90", histogram.unit.report(histogram.percentile(0.90)));
+            values.put(name + ".p99", histogram.unit.report(histogram.percentile(0.99)));
+            values.put(name + ".max", histogram.unit.report(histogram.max()));
+        }
+        return values;
+    }
+
+    // One line per metric, for the debug screen and logs
+    public static String report() {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, Counter> entry : new TreeMap<>(COUNTERS).entrySet()) {
+            sb.append(entry.getKey()).append(' ').append(entry.getValue().get()).append('\n');
+        }
+        for (Map.Entry<String, Histogram> entry : new TreeMap<>(HISTOGRAMS).entrySet()) {
+            Histogram histogram = entry.getValue();
+            Unit unit = histogram.unit;
+            sb.append(entry.getKey())
+                    .append(" n=").append(histogram.count())
+                    .append(" p50=").append(unit.report(histogram.percentile(0.50)))
+                    .append(" p90=").append(unit.report(histogram.percentile(0.90)))
+                    .append(" p99=").append(unit.report(histogram.percentile(0.99)))
+                    .append(" max=").append(unit.report(histogram.max()))
+                    .append(' ').append(unit.label).append('\n');
+        }
+        return sb.toString();
+    }
+
+    // Zero every metric; samples recorded meanwhile may survive
+    public static void reset() {
+        for (Counter counter : COUNTERS.values()) {
+            counter.reset();
+        }
+        for (Histogram histogram : HISTOGRAMS.values()) {
+            histogram.reset();
+        }
+    }
+
+    // What a histogram's samples are
+    public enum Unit {
+        // Recorded in nanoseconds, reported in microseconds
+        NANOS("us") {
+            @Override
+            long report(long value) {
+                return TimeUnit.NANOSECONDS.toMicros(value);
+            }
+        },
+        // Plain counts, e.g. rows
+        COUNT("") {
+            @Override
+            long report(long value) {
+                return value;
+            }
+        };
+
+        final String label;
+
+        Unit(String label) {
+            this.label = label;
+        }
+
+        abstract long report(long value);
+    }
+
+    // A monotonic count of events
+    public static final class Counter {
+        private final LongAdder value = new LongAdder();
+
+        Counter() {}
+
+        public void increment() {
+            value.increment();
+        }
+
+        public void add(long delta) {
+            value.add(delta);
+        }
+
+        public long get() {
+            return value.sum();
+        }
+
+        void reset() {
+            value.reset();
+        }
+    }
+
+    // Distribution of non-negative samples in power-of-two buckets
+    // Bucket 0 holds 0, bucket b holds [2^(b-1), 2^b); percentiles are the upper bound of their
+    // bucket, so they are within a factor of two, which is enough to tell 1 ms from 100 ms
+    public static final class Histogram {
+        private static final int BUCKETS = 64;
+
+        private final Unit unit;
+        private final LongAdder[] buckets = new LongAdder[BUCKETS];
+        private final LongAdder sum = new LongAdder();
+        private final AtomicLong max = new AtomicLong();
+
+        Histogram(Unit unit) {
+            this.unit = unit;
+            for (int b = 0; b < BUCKETS; b++) {
+                buckets[b] = new LongAdder();
+            }
+        }
+
+        public void record(long value) {
+            if (value < 0) value = 0;
+            buckets[bucketOf(value)].increment();
+            sum.add(value);
+            // A plain read unless the sample is a new maximum
+            long current = max.get();
+            while (value > current && !max.compareAndSet(current, value)) {
+                current = max.get();
+            }
+        }
+
+        // Record the time since a System.nanoTime() reading
+        public void recordSince(long startNanos) {
+            record(System.nanoTime() - startNanos);
+        }
+
+        public long count() {
+            long count = 0;
+            for (LongAdder bucket : buckets) {
+                count += bucket.sum();
+            }
+            return count;
+        }
+
+        public long sum() {
+            return sum.sum();
+        }
+
+        public long max() {
+            return max.get();
+        }
+
+        // Upper bound of the bucket holding the given fraction of the samples, 0 when empty
+        public long percentile(double fraction) {
+            long[] counts = new long[BUCKETS];
+            long total = 0;
+            for (int b = 0; b < BUCKETS; b++) {
+                counts[b] = buckets[b].sum();
+                total += counts[b];
+            }
+            if (total == 0) return 0;
+            long rank = (long) Math.ceil(fraction * total);
+            long seen = 0;
+            for (int b = 0; b < BUCKETS; b++) {
+                seen += counts[b];
+                if (seen >= rank && counts[b] > 0) {
+                    return Math.min(upperBoundOf(b), max.get());
+                }
+            }
+            return max.get();
+        }
+
+        void reset() {
+            for (LongAdder bucket : buckets) {
+                bucket.reset();
+            }
+            sum.reset();
+            max.set(0);
+        }
+
+        static int bucketOf(long value) {
+            return Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(value));
+        }
+
+        private static long upperBoundOf(int bucket) {
+            return bucket == 0 ? 0 : bucket >= BUCKETS - 1 ? Long.MAX_VALUE : (1L << bucket) - 1;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package hua.dit.mobdev.micalendari.core;
+
+// Change to one occurrence of a recurring task, as the export formats see it
+// Keyed by the start the rule gives the occurrence; a moved occurrence has its new start and end
+public final class OccurrenceChange {
+    private final long occurrenceAt;
+    private final boolean cancelled;
+    // New times of a moved occurrence, null when it keeps the rule's times
+    private final Long startAt;
+    private final Long endAt;
+
+    public OccurrenceChange(long occurrenceAt, boolean cancelled, Long startAt, Long endAt) {
+        this.occurrenceAt = occurrenceAt;
+        this.cancelled = cancelled;
+        this.startAt = startAt;
+        this.endAt = endAt;
+    }
+
+    // Start of the occurrence according to the rule, epoch millis
+    public long getOccurrenceAt() {
+        return occurrenceAt;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    // Whether the occurrence takes place at other times than the rule's
+    public boolean isMoved() {
+        return !cancelled && startAt != null && endAt != null;
+    }
+
+    public Long getStartAt() {
+        return startAt;
+    }
+
+    public Long getEndAt() {
+        return endAt;
+    }
+}
@@ -0,0 +1,30 @@
+package hua.dit.mobdev.micalendari.core;
+
+// Read-only view of a task, as the plain Java code of this module sees it
+// Implemented by the Room entity in the app, and by simple value classes in tests and benchmarks
+public interface ScheduledTask {
+
+    int getUid();
+
+    String getShortName();
+
+    String getDescription();
+
+    // "HH:mm"
+    String getStartTime();
+
+    int getDurationHours();
+
+    String getLocation();
+
+    // "dd/MM/yyyy"
+    String getDate();
+
+    // Epoch millis derived from the date, start time and duration, see TaskSchedule
+    long getStartAt();
+
+    long getEndAt();
+
+    // RRULE value of a recurring task, null for a one-off task
+    String getRecurrenceRule();
+}
@@ -0,0 +1,20 @@
+package hua.dit.mobdev.micalendari.core;
+
+// Status groups of the task list, which is ordered by group, then by start time, then by uid
+// Expired tasks come first, as the ones needing attention; completed ones last
+// The keyset pages of TaskDao read that order from the (status_id, start_at) index
+public final class TaskOrder {
+    // Status groups in display order
+    public static final String[] STATUS_GROUPS = {
+            TaskStatusRules.EXPIRED, TaskStatusRules.IN_PROGRESS, TaskStatusRules.RECORDED, TaskStatusRules.COMPLETED};
+
+    private TaskOrder() {}
+
+    // Position of a status in STATUS_GROUPS; unknown names sort with the first group
+    public static int groupOf(String statusName) {
+        for (int g = 0; g < STATUS_GROUPS.length; g++) {
+            if (STATUS_GROUPS[g].equals(statusName)) return g;
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,56 @@
+package hua.dit.mobdev.micalendari.core;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+// Schedule of a task in epoch millis, derived from its "dd/MM/yyyy" date, "HH:mm" start time
+// and whole hours of duration
+public final class TaskSchedule {
+    // start_at/end_at value of tasks whose date or start time cannot be parsed
+    // Sorts after every real time, so such tasks never become due
+    public static final long UNSCHEDULED = Long.MAX_VALUE;
+
+    private static final long HOUR_MILLIS = 60 * 60 * 1000;
+
+    // Dates and times that SQL date functions read the same way as parseStartAt(): a zero padded
+    // date and a 24 hour time with one or two hour digits
+    private static final Pattern STRICT_DATE = Pattern.compile("(0[1-9]|[12]\\d|3[01])/(0[1-9]|1[0-2])/\\d{4}");
+    private static final Pattern STRICT_TIME = Pattern.compile("([01]?\\d|2[0-3]):[0-5]\\d");
+
+    private TaskSchedule() {}
+
+    // Parse "dd/MM/yyyy" + "HH:mm" in the default time zone, UNSCHEDULED if not possible
+    public static long parseStartAt(String date, String startTime) {
+        if (date == null || startTime == null) {
+            return UNSCHEDULED;
+        }
+        try {
+            SimpleDateFormat dateTimeFormat = new SimpleDateFormat("dd/MM/yyyy HH:mm", Locale.getDefault());
+            Date taskDateTime = dateTimeFormat.parse(date + " " + startTime);
+            return taskDateTime != null ? taskDateTime.getTime() : UNSCHEDULED;
+        } catch (ParseException e) {
+            return UNSCHEDULED;
+        }
+    }
+
+    // Whether date is a "dd/MM/yyyy" date with every digit written out
+    public static boolean isStrictDate(String date) {
+        return date != null && STRICT_DATE.matcher(date).matches();
+    }
+
+    // Whether startTime is an "HH:mm" or "H:mm" time of day
+    public static boolean isStrictTime(String startTime) {
+        return startTime != null && STRICT_TIME.matcher(startTime).matches();
+    }
+
+    // End time of a task starting at startAt and lasting durationHours
+    public static long endAtOf(long startAt, int durationHours) {
+        if (startAt == UNSCHEDULED) {
+            return UNSCHEDULED;
+        }
+        return startAt + durationHours * HOUR_MILLIS;
+    }
+}
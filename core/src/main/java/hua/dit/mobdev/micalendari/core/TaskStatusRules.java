@@ -0,0 +1,22 @@
+package hua.dit.mobdev.micalendari.core;
+
+// Status of a task at a given time, from its start and end alone
+// The status sweep applies the same rules in SQL (see TaskDao's status UPDATEs), and the
+// occurrences of recurring tasks through statusAt()
+public final class TaskStatusRules {
+    // Status names, in state transition order
+    public static final String RECORDED = "recorded";
+    public static final String IN_PROGRESS = "in_progress";
+    public static final String EXPIRED = "expired";
+    public static final String COMPLETED = "completed";
+
+    private TaskStatusRules() {}
+
+    // Completed stays completed; otherwise not started yet, running, or over
+    // Unscheduled tasks (start at TaskSchedule.UNSCHEDULED) stay recorded
+    public static String statusAt(long startAt, long endAt, boolean completed, long now) {
+        if (completed) return COMPLETED;
+        if (startAt > now) return RECORDED;
+        return endAt <= now ? EXPIRED : IN_PROGRESS;
+    }
+}
@@ -0,0 +1,84 @@
+package hua.dit.mobdev.micalendari.export;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import hua.dit.mobdev.micalendari.core.ScheduledTask;
+
+// RFC 4180 CSV of tasks, one header row then one row per task
+public class CsvExportFormat implements TaskExportFormat {
+    public static final String NAME = "csv";
+
+    // Column names, also understood by the CSV importer
+    // recurrence is the RRULE value of a recurring task, empty for a one-off task
+    static final String HEADER = "id,shortName,description,date,startTime,durationHours,location,status,recurrence";
+
+    @Override
+    public String getFileName() {
+        return "tasks.csv";
+    }
+
+    @Override
+    public String getMimeType() {
+        return "text/csv";
+    }
+
+    @Override
+    public void writeHeader(Writer out) throws IOException {
+        out.write(HEADER);
+        out.write("\r\n");
+    }
+
+    @Override
+    public void writeTask(Writer out, ScheduledTask task, String statusName) throws IOException {
+        out.write(Integer.toString(task.getUid()));
+        out.write(',');
+        writeField(out, task.getShortName());
+        out.write(',');
+        writeField(out, task.getDescription());
+        out.write(',');
+        writeField(out, task.getDate());
+        out.write(',');
+        writeField(out, task.getStartTime());
+        out.write(',');
+        out.write(Integer.toString(task.getDurationHours()));
+        out.write(',');
+        writeField(out, task.getLocation());
+        out.write(',');
+        writeField(out, statusName);
+        out.write(',');
+        writeField(out, task.getRecurrenceRule());
+        out.write("\r\n");
+    }
+
+    @Override
+    public void writeFooter(Writer out) {
+        // CSV has no footer
+    }
+
+    // Write a field, quoted only when it contains a separator, quote or line break
+    static void writeField(Writer out, String text) throws IOException {
+        if (text == null) return;
+        boolean needsQuotes = false;
+        for (int i = 0; i < text.length() && !needsQuotes; i++) {
+            char c = text.charAt(i);
+            needsQuotes = c == ',' || c == '"' || c == '\r' || c == '\n';
+        }
+        if (!needsQuotes) {
+            out.write(text);
+            return;
+        }
+        out.write('"');
+        int start = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '"') {
+                // Quotes are doubled
+                out.write(text, start, i - start + 1);
+                out.write('"');
+                start = i + 1;
+            }
+        }
+        out.write(text, start, text.length() - start);
+        out.write('"');
+    }
+}
@@ -0,0 +1,76 @@
+package hua.dit.mobdev.micalendari.export;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import hua.dit.mobdev.micalendari.core.ScheduledTask;
+
+// HTML table of tasks, same layout as the original export, with every field escaped
+public class HtmlExportFormat implements TaskExportFormat {
+    public static final String NAME = "html";
+
+    @Override
+    public String getFileName() {
+        return "tasks.html";
+    }
+
+    @Override
+    public String getMimeType() {
+        return "text/html";
+    }
+
+    @Override
+    public void writeHeader(Writer out) throws IOException {
+        out.write("<html><head><meta charset=\"utf-8\"></head><body>");
+        out.write("<h1>Uncompleted Tasks</h1>");
+        out.write("<table border='1'>");
+        out.write("<tr><th>ID</th><th>Name</th><th>Description</th><th>Date</th><th>Time</th><th>Duration</th><th>Location</th><th>Status</th></tr>\n");
+    }
+
+    @Override
+    public void writeTask(Writer out, ScheduledTask task, String statusName) throws IOException {
+        out.write("<tr><td>");
+        out.write(Integer.toString(task.getUid()));
+        out.write("</td><td>");
+        writeEscaped(out, task.getShortName());
+        out.write("</td><td>");
+        writeEscaped(out, task.getDescription());
+        out.write("</td><td>");
+        writeEscaped(out, task.getDate());
+        out.write("</td><td>");
+        writeEscaped(out, task.getStartTime());
+        out.write("</td><td>");
+        out.write(Integer.toString(task.getDurationHours()));
+        out.write("</td><td>");
+        writeEscaped(out, task.getLocation());
+        out.write("</td><td>");
+        writeEscaped(out, statusName);
+        out.write("</td></tr>\n");
+    }
+
+    @Override
+    public void writeFooter(Writer out) throws IOException {
+        out.write("</table></body></html>\n");
+    }
+
+    // Write text with the HTML special characters escaped, nothing for null
+    static void writeEscaped(Writer out, String text) throws IOException {
+        if (text == null) return;
+        int start = 0;
+        for (int i = 0; i < text.length(); i++) {
+            String entity;
+            switch (text.charAt(i)) {
+                case '&': entity = "&amp;"; break;
+                case '<': entity = "&lt;"; break;
+                case '>': entity = "&gt;"; break;
+                case '"': entity = "&quot;"; break;
+                case '\'': entity = "&#39;"; break;
+                default: continue;
+            }
+            out.write(text, start, i - start);
+            out.write(entity);
+            start = i + 1;
+        }
+        out.write(text, start, text.length() - start);
+    }
+}
@@ -0,0 +1,247 @@
+package hua.dit.mobdev.micalendari.export;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.Month;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.zone.ZoneOffsetTransitionRule;
+import java.time.zone.ZoneRules;
+import java.util.Collections;
+import java.util.List;
+
+import hua.dit.mobdev.micalendari.core.OccurrenceChange;
+import hua.dit.mobdev.micalendari.core.ScheduledTask;
+import hua.dit.mobdev.micalendari.core.TaskSchedule;
+
+// RFC 5545 iCalendar (.ics) of tasks, one VEVENT per scheduled task
+// A recurring task is one VEVENT for its first occurrence with its RRULE; its times are local
+// times of the export time zone (DTSTART;TZID=...), described by a VTIMEZONE, so the occurrences
+// keep their wall-clock time across DST changes as they do in the app. Cancelled occurrences
+// become EXDATEs and moved ones a VEVENT with a RECURRENCE-ID; completed ones are not exported
+public class ICalendarExportFormat implements TaskExportFormat {
+    public static final String NAME = "ics";
+
+    private static final DateTimeFormatter UTC_DATE_TIME =
+            DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'").withZone(ZoneOffset.UTC);
+    private static final DateTimeFormatter LOCAL_DATE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss");
+    // UTC offset of a VTIMEZONE observance, e.g. "+0200"
+    private static final DateTimeFormatter UTC_OFFSET = DateTimeFormatter.ofPattern("xx");
+    private static final String[] WEEKDAYS = {"MO", "TU", "WE", "TH", "FR", "SA", "SU"};
+    // Content lines longer than this are folded
+    private static final int MAX_LINE_OCTETS = 75;
+
+    private final String dtStamp;
+    private final long exportedAt;
+    private final ZoneId zone;
+    private final DateTimeFormatter zonedDateTime;
+    // Reused for every content line
+    private final StringBuilder line = new StringBuilder(256);
+
+    // exportedAt becomes the DTSTAMP of every event; times of recurring tasks are written in
+    // the default time zone, the one TaskSchedule computed them in
+    public ICalendarExportFormat(long exportedAt) {
+        this(exportedAt, ZoneId.systemDefault());
+    }
+
+    public ICalendarExportFormat(long exportedAt, ZoneId zone) {
+        this.dtStamp = formatUtc(exportedAt);
+        this.exportedAt = exportedAt;
+        this.zone = zone;
+        this.zonedDateTime = LOCAL_DATE_TIME.withZone(zone);
+    }
+
+    @Override
+    public String getFileName() {
+        return "tasks.ics";
+    }
+
+    @Override
+    public String getMimeType() {
+        return "text/calendar";
+    }
+
+    @Override
+    public void writeHeader(Writer out) throws IOException {
+        out.write("BEGIN:VCALENDAR\r\n");
+        out.write("VERSION:2.0\r\n");
+        out.write("PRODID:-//MiCalendari//Task Export//EN\r\n");
+        out.write("CALSCALE:GREGORIAN\r\n");
+        // Written whether or not a recurring task follows, the file is streamed
+        writeTimeZone(out);
+    }
+
+    @Override
+    public void writeTask(Writer out, ScheduledTask task, String statusName) throws IOException {
+        writeSeries(out, task, statusName, Collections.emptyList());
+    }
+
+    @Override
+    public void writeSeries(Writer out, ScheduledTask task, String statusName,
+                            List<OccurrenceChange> changes) throws IOException {
+        // A VEVENT needs a DTSTART, tasks without a valid date and time are left out
+        if (task.getStartAt() == TaskSchedule.UNSCHEDULED) return;
+
+        String uid = "task-" + task.getUid() + "@hua.dit.mobdev.micalendari";
+        boolean recurring = task.getRecurrenceRule() != null;
+        out.write("BEGIN:VEVENT\r\n");
+        writeLine(out, "UID", uid, false);
+        writeLine(out, "DTSTAMP", dtStamp, false);
+        if (recurring) {
+            writeZoned(out, "DTSTART", task.getStartAt());
+            writeZoned(out, "DTEND", task.getEndAt());
+            writeLine(out, "RRULE", task.getRecurrenceRule(), false);
+            for (OccurrenceChange change : changes) {
+                if (change.isCancelled()) writeZoned(out, "EXDATE", change.getOccurrenceAt());
+            }
+        } else {
+            writeLine(out, "DTSTART", formatUtc(task.getStartAt()), false);
+            writeLine(out, "DTEND", formatUtc(task.getEndAt()), false);
+        }
+        writeText(out, task, statusName);
+        out.write("END:VEVENT\r\n");
+
+        if (!recurring) return;
+        for (OccurrenceChange change : changes) {
+            if (!change.isMoved()) continue;
+            out.write("BEGIN:VEVENT\r\n");
+            writeLine(out, "UID", uid, false);
+            writeLine(out, "DTSTAMP", dtStamp, false);
+            writeZoned(out, "RECURRENCE-ID", change.getOccurrenceAt());
+            writeZoned(out, "DTSTART", change.getStartAt());
+            writeZoned(out, "DTEND", change.getEndAt());
+            writeText(out, task, statusName);
+            out.write("END:VEVENT\r\n");
+        }
+    }
+
+    @Override
+    public void writeFooter(Writer out) throws IOException {
+        out.write("END:VCALENDAR\r\n");
+    }
+
+    static String formatUtc(long epochMillis) {
+        return UTC_DATE_TIME.format(Instant.ofEpochMilli(epochMillis));
+    }
+
+    private void writeText(Writer out, ScheduledTask task, String statusName) throws IOException {
+        writeLine(out, "SUMMARY", task.getShortName(), true);
+        writeLine(out, "DESCRIPTION", task.getDescription(), true);
+        writeLine(out, "LOCATION", task.getLocation(), true);
+        writeLine(out, "X-MICALENDARI-STATUS", statusName, true);
+    }
+
+    // "NAME;TZID=zone:local date-time"
+    private void writeZoned(Writer out, String name, long epochMillis) throws IOException {
+        writeLine(out, name + ";TZID=" + zone.getId(), zonedDateTime.format(Instant.ofEpochMilli(epochMillis)), false);
+    }
+
+    // VTIMEZONE of the export zone, with one observance per yearly transition rule it follows now
+    // Zones without DST get a single STANDARD observance at their current offset
+    private void writeTimeZone(Writer out) throws IOException {
+        ZoneRules rules = zone.getRules();
+        out.write("BEGIN:VTIMEZONE\r\n");
+        writeLine(out, "TZID", zone.getId(), false);
+        List<ZoneOffsetTransitionRule> transitions = rules.getTransitionRules();
+        if (transitions.isEmpty()) {
+            ZoneOffset offset = rules.getOffset(Instant.ofEpochMilli(exportedAt));
+            out.write("BEGIN:STANDARD\r\n");
+            writeLine(out, "DTSTART", "19700101T000000", false);
+            writeLine(out, "TZOFFSETFROM", UTC_OFFSET.format(offset), false);
+            writeLine(out, "TZOFFSETTO", UTC_OFFSET.format(offset), false);
+            out.write("END:STANDARD\r\n");
+        }
+        for (ZoneOffsetTransitionRule transition : transitions) {
+            String kind = transition.getOffsetAfter().getTotalSeconds()
+                    > transition.getStandardOffset().getTotalSeconds() ? "DAYLIGHT" : "STANDARD";
+            LocalDateTime first = transition.createTransition(1970).getDateTimeBefore();
+            out.write("BEGIN:" + kind + "\r\n");
+            writeLine(out, "DTSTART", LOCAL_DATE_TIME.format(first), false);
+            writeLine(out, "TZOFFSETFROM", UTC_OFFSET.format(transition.getOffsetBefore()), false);
+            writeLine(out, "TZOFFSETTO", UTC_OFFSET.format(transition.getOffsetAfter()), false);
+            writeLine(out, "RRULE", yearlyRule(transition), false);
+            out.write("END:" + kind + "\r\n");
+        }
+        out.write("END:VTIMEZONE\r\n");
+    }
+
+    // RRULE of a transition rule: a fixed day of the month, or a weekday on or after (before)
+    // a day of the month, e.g. the last Sunday of March is "BYMONTH=3;BYDAY=-1SU"
+    static String yearlyRule(ZoneOffsetTransitionRule transition) {
+        Month month = transition.getMonth();
+        int day = transition.getDayOfMonthIndicator();
+        DayOfWeek weekday = transition.getDayOfWeek();
+        StringBuilder rule = new StringBuilder("FREQ=YEARLY;BYMONTH=").append(month.getValue());
+        if (weekday == null) {
+            return rule.append(";BYMONTHDAY=").append(day).toString();
+        }
+        String byDay = WEEKDAYS[weekday.ordinal()];
+        if (day > 0 && day <= 22 && day % 7 == 1) {
+            // On or after the 1st, 8th, 15th or 22nd: the first to fourth such weekday
+            return rule.append(";BYDAY=").append(day / 7 + 1).append(byDay).toString();
+        }
+        if (day == -1 || (month != Month.FEBRUARY && day == month.maxLength() - 6)) {
+            return rule.append(";BYDAY=-1").append(byDay).toString();
+        }
+        // Any other week of days: the weekday among those seven days of the month
+        rule.append(";BYDAY=").append(byDay).append(";BYMONTHDAY=");
+        for (int i = 0; i < 7; i++) {
+            if (i > 0) rule.append(',');
+            rule.append(day > 0 ? day + i : day - i);
+        }
+        return rule.toString();
+    }
+
+    // Write "NAME:value" folded at 75 octets, skipping empty values
+    private void writeLine(Writer out, String name, String value, boolean escape) throws IOException {
+        if (value == null || value.isEmpty()) return;
+        line.setLength(0);
+        line.append(name).append(':');
+        if (escape) {
+            appendEscaped(line, value);
+        } else {
+            line.append(value);
+        }
+        writeFolded(out, line);
+    }
+
+    // TEXT value escaping: backslash, semicolon, comma and line breaks
+    static void appendEscaped(StringBuilder sb, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\': sb.append("\\\\"); break;
+                case ';': sb.append("\\;"); break;
+                case ',': sb.append("\\,"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': break;
+                default: sb.append(c);
+            }
+        }
+    }
+
+    // Fold a content line: CRLF + space before a line would exceed 75 UTF-8 octets
+    // Surrogate pairs are never split
+    static void writeFolded(Writer out, CharSequence text) throws IOException {
+        int octets = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            boolean pair = Character.isHighSurrogate(c) && i + 1 < text.length();
+            int size = pair ? 4 : c < 0x80 ? 1 : c < 0x800 ? 2 : 3;
+            if (octets + size > MAX_LINE_OCTETS) {
+                out.write("\r\n ");
+                octets = 1;
+            }
+            out.write(c);
+            if (pair) {
+                out.write(text.charAt(++i));
+            }
+            octets += size;
+        }
+        out.write("\r\n");
+    }
+}
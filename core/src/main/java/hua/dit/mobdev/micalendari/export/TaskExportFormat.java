@@ -0,0 +1,50 @@
+package hua.dit.mobdev.micalendari.export;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.time.ZoneId;
+import java.util.List;
+
+import hua.dit.mobdev.micalendari.core.OccurrenceChange;
+import hua.dit.mobdev.micalendari.core.ScheduledTask;
+
+// Output format of TaskExporter
+// Formats write straight to the given Writer, one task at a time, and keep no per-row state,
+// so an export streams in constant memory whatever the number of tasks
+public interface TaskExportFormat {
+
+    // Name of the exported file, e.g. "tasks.html"
+    String getFileName();
+
+    String getMimeType();
+
+    // Written once, before the first task
+    void writeHeader(Writer out) throws IOException;
+
+    // Written for every exported task, with the name of its status
+    void writeTask(Writer out, ScheduledTask task, String statusName) throws IOException;
+
+    // Written instead of writeTask for a recurring task, with the changes to its occurrences
+    // ordered by occurrenceAt; formats without a notion of occurrences write the task alone
+    default void writeSeries(Writer out, ScheduledTask task, String statusName,
+                             List<OccurrenceChange> changes) throws IOException {
+        writeTask(out, task, statusName);
+    }
+
+    // Written once, after the last task
+    void writeFooter(Writer out) throws IOException;
+
+    // Look up a format by the name used in ExportWorker input data
+    static TaskExportFormat forName(String name) {
+        switch (name) {
+            case HtmlExportFormat.NAME:
+                return new HtmlExportFormat();
+            case CsvExportFormat.NAME:
+                return new CsvExportFormat();
+            case ICalendarExportFormat.NAME:
+                return new ICalendarExportFormat(System.currentTimeMillis(), ZoneId.systemDefault());
+            default:
+                throw new IllegalArgumentException("Unknown export format: " + name);
+        }
+    }
+}
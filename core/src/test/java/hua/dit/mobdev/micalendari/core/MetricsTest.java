@@ -0,0 +1,45 @@
+package hua.dit.mobdev.micalendari.core;
+
+import org.junit.Test;
+
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the counters and histograms of {@link Metrics}.
+ */
+public class MetricsTest {
+
+    @Test
+    public void histogram_percentilesStayWithinTheirBucket() {
+        Metrics.Histogram histogram = Metrics.histogram("test.rows", Metrics.Unit.COUNT);
+        for (long value = 1; value <= 100; value++) {
+            histogram.record(value);
+        }
+        assertEquals(100, histogram.count());
+        assertEquals(5050, histogram.sum());
+        assertEquals(100, histogram.max());
+        // 50 falls in [32, 64), 99 and 100 in [64, 128) capped by the maximum
+        assertEquals(63, histogram.percentile(0.50));
+        assertEquals(100, histogram.percentile(0.99));
+        assertEquals(0, Metrics.Histogram.bucketOf(0));
+        assertEquals(63, Metrics.Histogram.bucketOf(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void snapshot_flattensAndReportsMicros() {
+        Metrics.counter("test.calls").add(3);
+        Metrics.histogram("test.latency", Metrics.Unit.NANOS).record(2_000_000);
+
+        Map<String, Long> values = Metrics.snapshot();
+        assertEquals(Long.valueOf(3), values.get("test.calls"));
+        assertEquals(Long.valueOf(1), values.get("test.latency.count"));
+        assertEquals(Long.valueOf(2_000), values.get("test.latency.max"));
+        assertTrue(Metrics.report().contains("test.latency n=1"));
+
+        Metrics.reset();
+        assertEquals(0, Metrics.counter("test.calls").get());
+        assertEquals(0, Metrics.histogram("test.latency", Metrics.Unit.NANOS).count());
+    }
+}
@@ -0,0 +1,37 @@
+package hua.dit.mobdev.micalendari.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the date and time formats {@link TaskSchedule} accepts as strict.
+ */
+public class TaskScheduleTest {
+
+    @Test
+    public void isStrictDate_needsEveryDigit() {
+        assertTrue(TaskSchedule.isStrictDate("01/03/2025"));
+        assertTrue(TaskSchedule.isStrictDate("31/12/2025"));
+        assertFalse(TaskSchedule.isStrictDate("1/3/2025"));
+        assertFalse(TaskSchedule.isStrictDate("01/13/2025"));
+        assertFalse(TaskSchedule.isStrictDate("2025-03-01"));
+        assertFalse(TaskSchedule.isStrictDate(null));
+    }
+
+    @Test
+    public void isStrictTime_takesOneOrTwoHourDigits() {
+        assertTrue(TaskSchedule.isStrictTime("09:30"));
+        assertTrue(TaskSchedule.isStrictTime("9:30"));
+        assertTrue(TaskSchedule.isStrictTime("23:59"));
+        assertFalse(TaskSchedule.isStrictTime("24:00"));
+        assertFalse(TaskSchedule.isStrictTime("9:5"));
+        assertFalse(TaskSchedule.isStrictTime("09:30:00"));
+        assertFalse(TaskSchedule.isStrictTime(null));
+    }
+
+    @Test
+    public void strictValues_areTheOnesTheParserReads() {
+        assertNotEquals(TaskSchedule.UNSCHEDULED, TaskSchedule.parseStartAt("01/03/2025", "9:30"));
+    }
+}
@@ -0,0 +1,31 @@
+package hua.dit.mobdev.micalendari.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link TaskStatusRules} and the group order of {@link TaskOrder}.
+ */
+public class TaskStatusRulesTest {
+    private static final long START = 1_000_000L;
+    private static final long END = 2_000_000L;
+
+    @Test
+    public void statusAt_followsTheClock() {
+        assertEquals(TaskStatusRules.RECORDED, TaskStatusRules.statusAt(START, END, false, START - 1));
+        assertEquals(TaskStatusRules.IN_PROGRESS, TaskStatusRules.statusAt(START, END, false, START));
+        assertEquals(TaskStatusRules.EXPIRED, TaskStatusRules.statusAt(START, END, false, END));
+        assertEquals(TaskStatusRules.COMPLETED, TaskStatusRules.statusAt(START, END, true, START - 1));
+        // Unscheduled tasks never become due
+        assertEquals(TaskStatusRules.RECORDED, TaskStatusRules.statusAt(
+                TaskSchedule.UNSCHEDULED, TaskSchedule.UNSCHEDULED, false, Long.MAX_VALUE - 1));
+    }
+
+    @Test
+    public void groupOf_putsExpiredFirstAndCompletedLast() {
+        assertEquals(0, TaskOrder.groupOf(TaskStatusRules.EXPIRED));
+        assertEquals(2, TaskOrder.groupOf(TaskStatusRules.RECORDED));
+        assertEquals(TaskOrder.STATUS_GROUPS.length - 1, TaskOrder.groupOf(TaskStatusRules.COMPLETED));
+    }
+}
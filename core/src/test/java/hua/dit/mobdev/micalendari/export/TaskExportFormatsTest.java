@@ -0,0 +1,214 @@
+package hua.dit.mobdev.micalendari.export;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import hua.dit.mobdev.micalendari.core.OccurrenceChange;
+import hua.dit.mobdev.micalendari.core.ScheduledTask;
+import hua.dit.mobdev.micalendari.core.TaskSchedule;
+import hua.dit.mobdev.micalendari.core.TaskStatusRules;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the {@link TaskExportFormat} implementations: escaping, line
+ * folding, and the local times, time zone and exceptions of recurring tasks in iCalendar.
+ */
+public class TaskExportFormatsTest {
+    private static final ZoneId ATHENS = ZoneId.of("Europe/Athens");
+    private static final long HOUR_MILLIS = 60 * 60 * 1000;
+
+    // Mutable task, like the Room entity the exporter fills
+    private static class Row implements ScheduledTask {
+        int uid;
+        String shortName, description, location, recurrenceRule;
+        long startAt, endAt;
+
+        @Override
+        public int getUid() {
+            return uid;
+        }
+
+        @Override
+        public String getShortName() {
+            return shortName;
+        }
+
+        @Override
+        public String getDescription() {
+            return description;
+        }
+
+        @Override
+        public String getStartTime() {
+            return "10:00";
+        }
+
+        @Override
+        public int getDurationHours() {
+            return 2;
+        }
+
+        @Override
+        public String getLocation() {
+            return location;
+        }
+
+        @Override
+        public String getDate() {
+            return "15/03/2025";
+        }
+
+        @Override
+        public long getStartAt() {
+            return startAt;
+        }
+
+        @Override
+        public long getEndAt() {
+            return endAt;
+        }
+
+        @Override
+        public String getRecurrenceRule() {
+            return recurrenceRule;
+        }
+    }
+
+    private static Row task(int uid, String name, String description, String location) {
+        Row task = new Row();
+        task.uid = uid;
+        task.shortName = name;
+        task.description = description;
+        task.location = location;
+        task.startAt = TaskSchedule.parseStartAt(task.getDate(), task.getStartTime());
+        task.endAt = TaskSchedule.endAtOf(task.startAt, task.getDurationHours());
+        return task;
+    }
+
+    // Epoch millis of a 2025 date and hour in Athens
+    private static long athens(int day, int month, int hour) {
+        return ZonedDateTime.of(2025, month, day, hour, 0, 0, 0, ATHENS).toInstant().toEpochMilli();
+    }
+
+    private static String export(TaskExportFormat format, ScheduledTask task) throws IOException {
+        StringWriter out = new StringWriter();
+        format.writeHeader(out);
+        format.writeTask(out, task, TaskStatusRules.RECORDED);
+        format.writeFooter(out);
+        return out.toString();
+    }
+
+    @Test
+    public void html_escapesMarkup() throws IOException {
+        String html = export(new HtmlExportFormat(), task(1, "<b>Tom & Jerry</b>", "\"quoted\" 'text'", "x"));
+        assertTrue(html.contains("&lt;b&gt;Tom &amp; Jerry&lt;/b&gt;"));
+        assertTrue(html.contains("&quot;quoted&quot; &#39;text&#39;"));
+        assertFalse(html.contains("<b>"));
+    }
+
+    @Test
+    public void csv_quotesSeparatorsAndQuotes() throws IOException {
+        String csv = export(new CsvExportFormat(), task(7, "Plain", "Say \"hi\", then\nleave", "Athens"));
+        assertTrue(csv.startsWith(CsvExportFormat.HEADER + "\r\n"));
+        assertTrue(csv.contains("7,Plain,\"Say \"\"hi\"\", then\nleave\",15/03/2025,10:00,2,Athens,recorded,\r\n"));
+    }
+
+    @Test
+    public void csv_writesRecurrenceRule() throws IOException {
+        Row task = task(8, "Standup", "", "");
+        task.recurrenceRule = "FREQ=WEEKLY;COUNT=4";
+        assertTrue(export(new CsvExportFormat(), task).contains(",recorded,FREQ=WEEKLY;COUNT=4\r\n"));
+    }
+
+    @Test
+    public void ics_escapesTextAndUsesUtcTimes() throws IOException {
+        Row task = task(3, "Lunch; then, coffee", "Line 1\nLine 2 \\ end", "");
+        String ics = export(new ICalendarExportFormat(0), task);
+        assertTrue(ics.startsWith("BEGIN:VCALENDAR\r\n"));
+        assertTrue(ics.endsWith("END:VCALENDAR\r\n"));
+        assertTrue(ics.contains("UID:task-3@hua.dit.mobdev.micalendari\r\n"));
+        assertTrue(ics.contains("DTSTAMP:19700101T000000Z\r\n"));
+        assertTrue(ics.contains("DTSTART:" + ICalendarExportFormat.formatUtc(task.getStartAt()) + "\r\n"));
+        assertTrue(ics.contains("SUMMARY:Lunch\\; then\\, coffee\r\n"));
+        assertTrue(ics.contains("DESCRIPTION:Line 1\\nLine 2 \\\\ end\r\n"));
+        // Empty values are left out
+        assertFalse(ics.contains("LOCATION"));
+    }
+
+    @Test
+    public void ics_writesSeriesInLocalTimeWithTheirChanges() throws IOException {
+        Row task = task(6, "Standup", "", "");
+        task.recurrenceRule = "FREQ=WEEKLY;COUNT=4";
+        task.startAt = athens(15, 3, 10);
+        task.endAt = task.startAt + 2 * HOUR_MILLIS;
+        // The 4th occurrence is after the switch to summer time on 30 March, still at 10:00
+        long fourth = athens(5, 4, 10);
+        List<OccurrenceChange> changes = Arrays.asList(
+                new OccurrenceChange(athens(22, 3, 10), true, null, null),
+                new OccurrenceChange(athens(29, 3, 10), false, null, null),
+                new OccurrenceChange(fourth, false, fourth + HOUR_MILLIS, fourth + 3 * HOUR_MILLIS));
+
+        StringWriter out = new StringWriter();
+        TaskExportFormat format = new ICalendarExportFormat(0, ATHENS);
+        format.writeHeader(out);
+        format.writeSeries(out, task, TaskStatusRules.RECORDED, changes);
+        format.writeFooter(out);
+        String ics = out.toString();
+
+        assertTrue(ics.contains("BEGIN:VTIMEZONE\r\nTZID:Europe/Athens\r\n"));
+        assertTrue(ics.contains("TZOFFSETFROM:+0200\r\nTZOFFSETTO:+0300\r\nRRULE:FREQ=YEARLY;BYMONTH=3;BYDAY=-1SU\r\n"));
+        assertTrue(ics.contains("TZOFFSETFROM:+0300\r\nTZOFFSETTO:+0200\r\nRRULE:FREQ=YEARLY;BYMONTH=10;BYDAY=-1SU\r\n"));
+        assertTrue(ics.contains("DTSTART;TZID=Europe/Athens:20250315T100000\r\n"
+                + "DTEND;TZID=Europe/Athens:20250315T120000\r\nRRULE:FREQ=WEEKLY;COUNT=4\r\n"));
+        assertTrue(ics.contains("EXDATE;TZID=Europe/Athens:20250322T100000\r\n"));
+        // A completed occurrence changes nothing in the calendar
+        assertFalse(ics.contains("20250329T100000"));
+        assertTrue(ics.contains("RECURRENCE-ID;TZID=Europe/Athens:20250405T100000\r\n"
+                + "DTSTART;TZID=Europe/Athens:20250405T110000\r\n"));
+        assertEquals(2, ics.split("BEGIN:VEVENT").length - 1);
+    }
+
+    @Test
+    public void ics_describesOtherTimeZoneRules() throws IOException {
+        StringWriter newYork = new StringWriter();
+        new ICalendarExportFormat(0, ZoneId.of("America/New_York")).writeHeader(newYork);
+        assertTrue(newYork.toString().contains("RRULE:FREQ=YEARLY;BYMONTH=3;BYDAY=2SU\r\n"));
+        assertTrue(newYork.toString().contains("RRULE:FREQ=YEARLY;BYMONTH=11;BYDAY=1SU\r\n"));
+
+        // No DST: one observance at the current offset
+        StringWriter tokyo = new StringWriter();
+        new ICalendarExportFormat(0, ZoneId.of("Asia/Tokyo")).writeHeader(tokyo);
+        assertTrue(tokyo.toString().contains("BEGIN:STANDARD\r\nDTSTART:19700101T000000\r\n"
+                + "TZOFFSETFROM:+0900\r\nTZOFFSETTO:+0900\r\nEND:STANDARD\r\n"));
+        assertFalse(tokyo.toString().contains("DAYLIGHT"));
+    }
+
+    @Test
+    public void ics_skipsUnscheduledTasks() throws IOException {
+        Row task = task(4, "No date", "", "");
+        task.startAt = TaskSchedule.UNSCHEDULED;
+        assertFalse(export(new ICalendarExportFormat(0), task).contains("BEGIN:VEVENT"));
+    }
+
+    @Test
+    public void ics_foldsLongLinesAt75Octets() throws IOException {
+        StringBuilder name = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            name.append("\u03b1"); // Greek alpha, 2 octets in UTF-8
+        }
+        String ics = export(new ICalendarExportFormat(0), task(5, name.toString(), "", ""));
+        for (String line : ics.split("\r\n")) {
+            assertTrue(line, line.getBytes(StandardCharsets.UTF_8).length <= 75);
+        }
+        // Unfolding restores the value
+        assertTrue(ics.replace("\r\n ", "").contains("SUMMARY:" + name + "\r\n"));
+    }
+}
@@ -35,6 +35,10 @@ android {
             )
         }
     }
+    // Exported Room schemas, read by the migration tests
+    sourceSets {
+        getByName("androidTest").assets.srcDir("$projectDir/schemas")
+    }
     compileOptions {
         sourceCompatibility = JavaVersion.VERSION_1_10
         targetCompatibility = JavaVersion.VERSION_1_10
@@ -42,14 +46,18 @@ android {
 }
 
 dependencies {
+    implementation(project(":core"))
     implementation(libs.work.runtime)
     implementation(libs.appcompat)
     implementation(libs.material)
     implementation(libs.activity)
     implementation(libs.constraintlayout)
+    implementation(libs.recyclerview)
     implementation(libs.room.runtime)
+    implementation(libs.sqlite.framework)
     testImplementation(libs.junit)
     androidTestImplementation(libs.ext.junit)
     androidTestImplementation(libs.espresso.core)
+    androidTestImplementation(libs.room.testing)
     annotationProcessor(libs.room.compiler)
 }
\ No newline at end of file
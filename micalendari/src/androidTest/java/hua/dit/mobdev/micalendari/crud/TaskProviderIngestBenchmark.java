@@ -0,0 +1,134 @@
+package hua.dit.mobdev.micalendari.crud;
+
+import android.content.ContentProviderOperation;
+import android.content.ContentValues;
+import android.content.Context;
+import android.content.pm.ProviderInfo;
+import android.database.Cursor;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.room.Room;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+
+import hua.dit.mobdev.micalendari.data.AppDatabase;
+import hua.dit.mobdev.micalendari.entity.Status;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Instrumented benchmark of writing 10k tasks through {@link TaskContentProvider}:
+ * one insert() per row, one bulkInsert() and one applyBatch().
+ * Skipped unless asked for, as it writes 30k rows:
+ * {@code ./gradlew connectedAndroidTest -Pandroid.testInstrumentationRunnerArguments.benchmarks=true}
+ * Runs a provider of its own over an in-memory database, never the app's; the calls are made
+ * in-process, so the Binder hop of another app is not part of the timings.
+ * Timings go to logcat under the "IngestBenchmark" tag; only the row counts are asserted.
+ */
+@RunWith(AndroidJUnit4.class)
+public class TaskProviderIngestBenchmark {
+    private static final String TAG = "IngestBenchmark";
+    // Instrumentation argument that turns the benchmark on
+    private static final String BENCHMARKS_ARGUMENT = "benchmarks";
+    private static final int ROWS = 10_000;
+
+    private AppDatabase db;
+    private AppDatabase appDb;
+    private TaskContentProvider provider;
+
+    @Before
+    public void setUp() {
+        assumeTrue("Benchmarks are off, pass the instrumentation argument " + BENCHMARKS_ARGUMENT + "=true",
+                Boolean.parseBoolean(InstrumentationRegistry.getArguments().getString(BENCHMARKS_ARGUMENT)));
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        db = Room.inMemoryDatabaseBuilder(context, AppDatabase.class).build();
+        db.statusDao().insertStatus(new Status(Status.RECORDED));
+        db.statusDao().insertStatus(new Status(Status.IN_PROGRESS));
+        db.statusDao().insertStatus(new Status(Status.EXPIRED));
+        db.statusDao().insertStatus(new Status(Status.COMPLETED));
+        db.statusRegistry().reload();
+        // The provider, and the sweeps it starts, get the in-memory database from getDatabase()
+        appDb = AppDatabase.swapInstanceForTesting(db);
+
+        provider = new TaskContentProvider();
+        ProviderInfo info = new ProviderInfo();
+        info.authority = TaskContentProvider.MY_PROVIDER;
+        provider.attachInfo(context, info);
+    }
+
+    @After
+    public void tearDown() {
+        // Skipped runs never swapped
+        if (db == null) return;
+        AppDatabase.swapInstanceForTesting(appDb);
+        db.close();
+    }
+
+    @Test
+    public void insertPerRow() {
+        long start = SystemClock.elapsedRealtime();
+        for (int i = 0; i < ROWS; i++) {
+            assertNotNull(provider.insert(TaskContentProvider.CONTENT_URI, values(i)));
+        }
+        report("insert per row", start);
+        assertEquals(ROWS, countRows());
+    }
+
+    @Test
+    public void bulkInsert() {
+        ContentValues[] rows = new ContentValues[ROWS];
+        for (int i = 0; i < ROWS; i++) {
+            rows[i] = values(i);
+        }
+        long start = SystemClock.elapsedRealtime();
+        assertEquals(ROWS, provider.bulkInsert(TaskContentProvider.CONTENT_URI, rows));
+        report("bulkInsert", start);
+        assertEquals(ROWS, countRows());
+    }
+
+    @Test
+    public void applyBatch() throws Exception {
+        ArrayList<ContentProviderOperation> operations = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            operations.add(ContentProviderOperation.newInsert(TaskContentProvider.CONTENT_URI)
+                    .withValues(values(i))
+                    .build());
+        }
+        long start = SystemClock.elapsedRealtime();
+        assertEquals(ROWS, provider.applyBatch(operations).length);
+        report("applyBatch", start);
+        assertEquals(ROWS, countRows());
+    }
+
+    private static ContentValues values(int i) {
+        ContentValues values = new ContentValues();
+        values.put("shortName", "Benchmark row " + i);
+        values.put("description", "Benchmark row " + i);
+        values.put("startTime", "10:00");
+        values.put("durationHours", 1);
+        values.put("date", "15/03/2030");
+        values.put("location", "Benchmark");
+        return values;
+    }
+
+    private static void report(String path, long startMillis) {
+        long elapsed = Math.max(1, SystemClock.elapsedRealtime() - startMillis);
+        Log.i(TAG, path + ": " + ROWS + " rows in " + elapsed + " ms, " + (ROWS * 1000L / elapsed) + " rows/s");
+    }
+
+    private int countRows() {
+        try (Cursor cursor = db.query("SELECT COUNT(*) FROM tasks", null)) {
+            cursor.moveToFirst();
+            return cursor.getInt(0);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package hua.dit.mobdev.micalendari.dao;
+
+import android.content.Context;
+
+import androidx.room.Room;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import hua.dit.mobdev.micalendari.data.AppDatabase;
+import hua.dit.mobdev.micalendari.data.TaskSearch;
+import hua.dit.mobdev.micalendari.entity.Status;
+import hua.dit.mobdev.micalendari.entity.Task;
+
+import static org.junit.Assert.*;
+
+/**
+ * Instrumented tests of {@link TaskDao#searchTasksRanked} on an in-memory database, where
+ * more rows match than {@link TaskSearch#MAX_CANDIDATES} are ranked.
+ */
+@RunWith(AndroidJUnit4.class)
+public class TaskSearchQueryTest {
+    private AppDatabase db;
+    private int statusId;
+
+    @Before
+    public void setUp() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        db = Room.inMemoryDatabaseBuilder(context, AppDatabase.class).build();
+        statusId = (int) db.statusDao().insertStatus(new Status(Status.RECORDED));
+    }
+
+    @After
+    public void tearDown() {
+        db.close();
+    }
+
+    @Test
+    public void searchTasksRanked_keepsTheBestMatchBeyondTheCandidateLimit() {
+        // The word only in the description of many newer tasks, in the name of one older task
+        Task inName = new Task("Dentist appointment", null, "10:00", 1, null, "15/03/2025", statusId);
+        db.taskDao().insertTask(inName);
+        List<Task> inDescription = new ArrayList<>();
+        for (int i = 0; i < TaskSearch.MAX_CANDIDATES + 500; i++) {
+            inDescription.add(new Task("Errand " + i, "Call the dentist first", "10:00", 1, null, "15/03/2025", statusId));
+        }
+        db.taskDao().insertTasks(inDescription);
+
+        List<Task> results = db.taskDao().searchTasksRanked("dentist");
+
+        assertEquals(TaskSearch.MAX_CANDIDATES, results.size());
+        assertEquals("Dentist appointment", results.get(0).getShortName());
+    }
+}
@@ -0,0 +1,81 @@
+package hua.dit.mobdev.micalendari.data;
+
+import android.database.Cursor;
+
+import androidx.room.testing.MigrationTestHelper;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.framework.FrameworkSQLiteOpenHelperFactory;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.util.ArrayList;
+
+import hua.dit.mobdev.micalendari.entity.ContentHash;
+import hua.dit.mobdev.micalendari.entity.Task;
+
+import static org.junit.Assert.*;
+
+/**
+ * Instrumented tests of the {@link AppDatabase} migrations, from the exported schema of the
+ * first version to the current one, with rows written before the upgrade.
+ */
+@RunWith(AndroidJUnit4.class)
+public class MigrationTest {
+    private static final String TEST_DB = "migration-test";
+
+    @Rule
+    public MigrationTestHelper helper = new MigrationTestHelper(InstrumentationRegistry.getInstrumentation(),
+            AppDatabase.class, new ArrayList<>(), new FrameworkSQLiteOpenHelperFactory());
+
+    @Test
+    public void migrate1ToLatest_keepsTasksAndFillsTheNewColumns() throws IOException {
+        try (SupportSQLiteDatabase db = helper.createDatabase(TEST_DB, 1)) {
+            db.execSQL("INSERT INTO status (id, name) VALUES (1, 'recorded'), (2, 'in_progress'), "
+                    + "(3, 'expired'), (4, 'completed')");
+            db.execSQL("INSERT INTO tasks (uid, shortName, description, startTime, durationHours, location, date, status_id) "
+                    + "VALUES (1, 'Dentist', 'Check-up', '10:00', 2, 'Athens', '15/03/2025', 1)");
+            // No date yet, so it stays unscheduled
+            db.execSQL("INSERT INTO tasks (uid, shortName, description, startTime, durationHours, location, date, status_id) "
+                    + "VALUES (2, 'Someday', NULL, NULL, 1, NULL, NULL, 1)");
+        }
+
+        SupportSQLiteDatabase db = helper.runMigrationsAndValidate(TEST_DB, 8, true,
+                AppDatabase.MIGRATION_1_2, AppDatabase.MIGRATION_2_3, AppDatabase.MIGRATION_3_4,
+                AppDatabase.MIGRATION_4_5, AppDatabase.MIGRATION_5_6, AppDatabase.MIGRATION_6_7,
+                AppDatabase.MIGRATION_7_8);
+
+        long startAt = Task.parseStartAt("15/03/2025", "10:00");
+        ContentHash contentHash = new ContentHash();
+        try (Cursor cursor = db.query("SELECT start_at, end_at, content_hash, recurrence_rule, reminder_minutes "
+                + "FROM tasks ORDER BY uid")) {
+            assertTrue(cursor.moveToNext());
+            assertEquals(startAt, cursor.getLong(0));
+            assertEquals(Task.endAtOf(startAt, 2), cursor.getLong(1));
+            assertEquals(contentHash.of("Dentist", "Check-up", "15/03/2025", "10:00", 2, "Athens", null),
+                    cursor.getString(2));
+            assertTrue(cursor.isNull(3));
+            assertTrue(cursor.isNull(4));
+
+            assertTrue(cursor.moveToNext());
+            assertEquals(Task.UNSCHEDULED, cursor.getLong(0));
+            assertEquals(Task.UNSCHEDULED, cursor.getLong(1));
+            assertEquals(contentHash.of("Someday", null, null, null, 1, null, null), cursor.getString(2));
+            assertFalse(cursor.moveToNext());
+        }
+
+        // The rows stored before v4 are in the full-text index
+        try (Cursor cursor = db.query("SELECT docid FROM tasks_fts WHERE tasks_fts MATCH 'dentist'")) {
+            assertTrue(cursor.moveToNext());
+            assertEquals(1, cursor.getInt(0));
+        }
+        try (Cursor cursor = db.query("SELECT COUNT(*) FROM reminders")) {
+            assertTrue(cursor.moveToNext());
+            assertEquals(0, cursor.getInt(0));
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package hua.dit.mobdev.micalendari;
+
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.view.MenuItem;
+import android.view.View;
+import android.widget.ImageButton;
+import android.widget.RadioGroup;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+import androidx.room.InvalidationTracker;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+import hua.dit.mobdev.micalendari.adapter.AgendaRange;
+import hua.dit.mobdev.micalendari.adapter.TaskAdapter;
+import hua.dit.mobdev.micalendari.adapter.TaskRow;
+import hua.dit.mobdev.micalendari.core.Metrics;
+import hua.dit.mobdev.micalendari.crud.TaskChangeNotifier;
+import hua.dit.mobdev.micalendari.data.AppDatabase;
+import hua.dit.mobdev.micalendari.data.DatabaseExecutors;
+import hua.dit.mobdev.micalendari.data.DatabaseExecutors.Priority;
+import hua.dit.mobdev.micalendari.data.Occurrence;
+import hua.dit.mobdev.micalendari.data.OccurrenceExpander;
+import hua.dit.mobdev.micalendari.entity.Task;
+import hua.dit.mobdev.micalendari.worker.TaskStatusScheduler;
+
+// Day, week and month agenda: the tasks of every status that overlap the shown period
+// Each period is one range query (TaskDao.getTasksOverlapping), so paging between weeks or months
+// reads only the tasks of the new period, already in start time order; recurring tasks are
+// expanded into the occurrences of that period only (OccurrenceExpander)
+public class AgendaActivity extends AppCompatActivity implements TaskAdapter.TaskAdapterListener {
+    // Saved state keys
+    private static final String STATE_MODE = "agendaMode";
+    private static final String STATE_FIRST_DAY = "agendaFirstDay";
+    // Range query and expansion of one period
+    private static final Metrics.Histogram RANGE_QUERY_TIME = Metrics.histogram("dao.agendaRange", Metrics.Unit.NANOS);
+
+    private AppDatabase db;
+    private DatabaseExecutors.Scope dbJobs;
+    private TaskAdapter taskAdapter;
+    private TextView titleText;
+    private TextView emptyText;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Runnable loadRangeRunnable = this::loadRange;
+
+    // Period on screen
+    private AgendaRange range = AgendaRange.containing(AgendaRange.Mode.WEEK, LocalDate.now());
+    // Bumped by every load so results of older ones are ignored
+    private int generation = 0;
+
+    // Reload the period when the tasks change, e.g. a status sweep or an edit, or one occurrence
+    // of a series is completed or moved (task_exceptions)
+    private final InvalidationTracker.Observer tasksObserver = new InvalidationTracker.Observer("tasks", "task_exceptions") {
+        @Override
+        public void onInvalidated(@NonNull Set<String> tables) {
+            mainHandler.removeCallbacks(loadRangeRunnable);
+            mainHandler.post(loadRangeRunnable);
+        }
+    };
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_agenda);
+        Objects.requireNonNull(getSupportActionBar()).setDisplayHomeAsUpEnabled(true);
+
+        db = AppDatabase.getDatabase(this);
+        dbJobs = DatabaseExecutors.getInstance().scope(this);
+
+        if (savedInstanceState != null) {
+            range = AgendaRange.containing(
+                    AgendaRange.Mode.valueOf(savedInstanceState.getString(STATE_MODE)),
+                    LocalDate.parse(savedInstanceState.getString(STATE_FIRST_DAY)));
+        }
+
+        titleText = findViewById(R.id.agendaTitle);
+        emptyText = findViewById(R.id.agendaEmptyText);
+
+        RecyclerView recyclerView = findViewById(R.id.agendaRecyclerView);
+        recyclerView.setLayoutManager(new LinearLayoutManager(this));
+        taskAdapter = new TaskAdapter(this);
+        recyclerView.setAdapter(taskAdapter);
+
+        setupNavigation();
+    }
+
+    // Mode switch and previous / next buttons
+    private void setupNavigation() {
+        RadioGroup modeGroup = findViewById(R.id.agendaModeGroup);
+        modeGroup.check(buttonOf(range.mode));
+        modeGroup.setOnCheckedChangeListener((group, checkedId) -> {
+            AgendaRange.Mode mode = checkedId == R.id.agendaDayButton ? AgendaRange.Mode.DAY
+                    : checkedId == R.id.agendaMonthButton ? AgendaRange.Mode.MONTH
+                    : AgendaRange.Mode.WEEK;
+            // From a month or week, start at today if it is shown, otherwise at its first day
+            LocalDate today = LocalDate.now();
+            LocalDate day = !today.isBefore(range.first) && today.isBefore(range.end()) ? today : range.first;
+            showRange(AgendaRange.containing(mode, day));
+        });
+
+        ImageButton previousButton = findViewById(R.id.agendaPreviousButton);
+        ImageButton nextButton = findViewById(R.id.agendaNextButton);
+        previousButton.setOnClickListener(v -> showRange(range.previous()));
+        nextButton.setOnClickListener(v -> showRange(range.next()));
+    }
+
+    private static int buttonOf(AgendaRange.Mode mode) {
+        switch (mode) {
+            case DAY:
+                return R.id.agendaDayButton;
+            case MONTH:
+                return R.id.agendaMonthButton;
+            default:
+                return R.id.agendaWeekButton;
+        }
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        db.getInvalidationTracker().addObserver(tasksObserver);
+        loadRange();
+    }
+
+    @Override
+    protected void onPause() {
+        super.onPause();
+        db.getInvalidationTracker().removeObserver(tasksObserver);
+        mainHandler.removeCallbacks(loadRangeRunnable);
+    }
+
+    @Override
+    protected void onSaveInstanceState(@NonNull Bundle outState) {
+        super.onSaveInstanceState(outState);
+        outState.putString(STATE_MODE, range.mode.name());
+        outState.putString(STATE_FIRST_DAY, range.first.toString());
+    }
+
+    // Show another period
+    private void showRange(AgendaRange newRange) {
+        range = newRange;
+        loadRange();
+    }
+
+    // Read the tasks of the period on screen with one range query
+    private void loadRange() {
+        final int gen = ++generation;
+        final AgendaRange shown = range;
+        titleText.setText(shown.title());
+
+        final ZoneId zone = ZoneId.systemDefault();
+        final long fromMillis = shown.fromMillis(zone);
+        final long toMillis = shown.toMillis(zone);
+        dbJobs.read(Priority.INTERACTIVE, () -> {
+            long startNanos = System.nanoTime();
+            List<Occurrence> occurrences = db.runInTransaction(() -> OccurrenceExpander.overlapping(
+                    db, fromMillis, toMillis, System.currentTimeMillis(), zone));
+            RANGE_QUERY_TIME.recordSince(startNanos);
+            List<TaskRow> rows = TaskRow.fromOccurrences(occurrences);
+            mainHandler.post(() -> {
+                if (gen != generation) return;
+                emptyText.setVisibility(rows.isEmpty() ? View.VISIBLE : View.GONE);
+                taskAdapter.submitRows(rows);
+            });
+        });
+    }
+
+    @Override
+    public void onTaskEdit(Task task) {
+        startActivity(CreateTaskActivity.editIntent(this, task));
+    }
+
+    // Same as on the main list: the change is kept even if the screen is closed
+    @Override
+    public void markTaskAsCompleted(Task task, String newStatus) {
+        DatabaseExecutors.getInstance().write(Priority.INTERACTIVE, () -> {
+            db.taskDao().updateTaskStatus(task.getUid(), db.statusRegistry().getIdByName(newStatus));
+            TaskChangeNotifier.getInstance(this).taskChanged(task.getUid());
+            TaskStatusScheduler.sweepNow(this);
+        });
+    }
+
+    // Only that occurrence is completed, as an exception row; the series goes on
+    @Override
+    public void markOccurrenceAsCompleted(Task task, long occurrenceAt) {
+        DatabaseExecutors.getInstance().write(Priority.INTERACTIVE, () -> {
+            OccurrenceExpander.markCompleted(db, task.getUid(), occurrenceAt);
+            TaskChangeNotifier.getInstance(this).taskChanged(task.getUid());
+            TaskStatusScheduler.sweepNow(this);
+        });
+    }
+
+    // Handle action bar back button
+    @Override
+    public boolean onOptionsItemSelected(MenuItem item) {
+        if (item.getItemId() == android.R.id.home) {
+            finish();
+            return true;
+        }
+        return super.onOptionsItemSelected(item);
+    }
+}
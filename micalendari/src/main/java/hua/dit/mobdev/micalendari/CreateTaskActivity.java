@@ -1,23 +1,41 @@
 package hua.dit.mobdev.micalendari;
 
+import android.Manifest;
 import android.annotation.SuppressLint;
 import android.app.TimePickerDialog;
+import android.content.pm.PackageManager;
+import android.os.Build;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.Looper;
+import android.text.Editable;
 import android.text.TextUtils;
+import android.text.TextWatcher;
 import android.view.MenuItem;
 import android.view.View;
+import android.widget.AdapterView;
 import android.widget.Button;
 import android.widget.EditText;
+import android.widget.Spinner;
+import android.widget.TextView;
 import android.widget.Toast;
 import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Locale;
 
+import hua.dit.mobdev.micalendari.crud.TaskChangeNotifier;
+import hua.dit.mobdev.micalendari.crud.TaskConflictDetector;
 import hua.dit.mobdev.micalendari.data.AppDatabase;
+import hua.dit.mobdev.micalendari.data.DatabaseExecutors;
+import hua.dit.mobdev.micalendari.data.DatabaseExecutors.Priority;
+import hua.dit.mobdev.micalendari.entity.RecurrenceRule;
+import hua.dit.mobdev.micalendari.entity.Status;
 import hua.dit.mobdev.micalendari.entity.Task;
+import hua.dit.mobdev.micalendari.worker.TaskStatusScheduler;
+import android.content.Context;
 import android.content.Intent;
 import android.net.Uri;
 
@@ -28,6 +46,13 @@ import java.util.Objects;
 
 // Activity for creating and editing tasks
 public class CreateTaskActivity extends AppCompatActivity {
+    // Frequencies of the repeat spinner entries, null for "Does not repeat"
+    private static final RecurrenceRule.Frequency[] REPEAT_FREQUENCIES =
+            {null, RecurrenceRule.Frequency.DAILY, RecurrenceRule.Frequency.WEEKLY, RecurrenceRule.Frequency.MONTHLY};
+    // Minutes before the start of the reminder spinner entries, null for "No reminder"
+    private static final Integer[] REMINDER_MINUTES = {null, 0, 5, 10, 30, 60, 24 * 60};
+    private static final int REQUEST_NOTIFICATIONS = 1;
+
     // UI elements for task input
     private EditText shortNameEditText;
     private EditText descriptionEditText;
@@ -35,10 +60,37 @@ public class CreateTaskActivity extends AppCompatActivity {
     private EditText durationEditText;
     private EditText locationEditText;
     private EditText dateEditText;
+    private TextView conflictWarningText;
+    private Spinner repeatSpinner;
+    private EditText repeatCountEditText;
+    private Spinner reminderSpinner;
 
     private AppDatabase db;
     // -1 indicates new task, otherwise stores existing task ID
     private int taskId = -1;
+    // Database jobs of this screen, cancelled when it is destroyed
+    private DatabaseExecutors.Scope dbJobs;
+    // Tasks overlapping the chosen time, from the last finished check
+    private List<Task> conflicts = new ArrayList<>();
+    // Bumped by every check so results of older ones are ignored
+    private int conflictCheckGeneration = 0;
+
+    // Intent that opens an existing task for editing
+    public static Intent editIntent(Context context, Task task) {
+        Intent intent = new Intent(context, CreateTaskActivity.class);
+        intent.putExtra("task_id", task.getUid());
+        intent.putExtra("task_name", task.getShortName());
+        intent.putExtra("task_description", task.getDescription());
+        intent.putExtra("task_date", task.getDate());
+        intent.putExtra("task_start_time", task.getStartTime());
+        intent.putExtra("task_duration", task.getDurationHours());
+        intent.putExtra("task_location", task.getLocation());
+        intent.putExtra("task_recurrence", task.getRecurrenceRule());
+        if (task.getReminderMinutes() != null) {
+            intent.putExtra("task_reminder", task.getReminderMinutes().intValue());
+        }
+        return intent;
+    }
 
     @SuppressLint("SetTextI18n")
     @Override
@@ -50,6 +102,7 @@ public class CreateTaskActivity extends AppCompatActivity {
         Objects.requireNonNull(getSupportActionBar()).setDisplayHomeAsUpEnabled(true);
 
         db = AppDatabase.getDatabase(this);
+        dbJobs = DatabaseExecutors.getInstance().scope(this);
 
         // Initialize all EditText views
         shortNameEditText   = findViewById(R.id.shortNameEditText);
@@ -58,6 +111,10 @@ public class CreateTaskActivity extends AppCompatActivity {
         durationEditText    = findViewById(R.id.durationEditText);
         locationEditText    = findViewById(R.id.locationEditText);
         dateEditText        = findViewById(R.id.dateEditText);
+        conflictWarningText = findViewById(R.id.conflictWarningText);
+        repeatSpinner       = findViewById(R.id.repeatSpinner);
+        repeatCountEditText = findViewById(R.id.repeatCountEditText);
+        reminderSpinner     = findViewById(R.id.reminderSpinner);
         Button deleteButton = findViewById(R.id.deleteButton);
         Button testLocationButton = findViewById(R.id.testLocationButton);
         Button saveButton   = findViewById(R.id.saveButton);
@@ -71,6 +128,10 @@ public class CreateTaskActivity extends AppCompatActivity {
             startTimeEditText.setText(getIntent().getStringExtra("task_start_time"));
             durationEditText.setText(String.valueOf(getIntent().getIntExtra("task_duration", 0)));
             locationEditText.setText(getIntent().getStringExtra("task_location"));
+            showRecurrence(RecurrenceRule.parseOrNull(getIntent().getStringExtra("task_recurrence")));
+            if (getIntent().hasExtra("task_reminder")) {
+                showReminder(getIntent().getIntExtra("task_reminder", 0));
+            }
             setTitle("Edit Task");
             deleteButton.setVisibility(View.VISIBLE);
             testLocationButton.setText("Location");
@@ -91,6 +152,46 @@ public class CreateTaskActivity extends AppCompatActivity {
         // Setup date picker dialog
         dateEditText.setOnClickListener(v -> showDatePickerDialog());
 
+        // The count only applies to repeating tasks
+        repeatSpinner.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
+            @Override
+            public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
+                repeatCountEditText.setEnabled(REPEAT_FREQUENCIES[position] != null);
+            }
+
+            @Override
+            public void onNothingSelected(AdapterView<?> parent) {}
+        });
+
+        // Reminders are notifications, ask for the permission when one is chosen
+        reminderSpinner.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
+            @Override
+            public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
+                if (REMINDER_MINUTES[position] != null) requestNotificationPermission();
+            }
+
+            @Override
+            public void onNothingSelected(AdapterView<?> parent) {}
+        });
+
+        // Check for overlapping tasks whenever the date, start time or duration changes
+        TextWatcher scheduleWatcher = new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {}
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {}
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                checkConflicts();
+            }
+        };
+        dateEditText.addTextChangedListener(scheduleWatcher);
+        startTimeEditText.addTextChangedListener(scheduleWatcher);
+        durationEditText.addTextChangedListener(scheduleWatcher);
+        checkConflicts();
+
         // Setup location testing with map intent
         testLocationButton.setOnClickListener(new View.OnClickListener() {
             @Override
@@ -166,10 +267,11 @@ public class CreateTaskActivity extends AppCompatActivity {
     // Delete task from database
     private void deleteTask() {
         if (taskId != -1) {
-            AppDatabase.databaseWriteExecutor.execute(() -> {
+            DatabaseExecutors.getInstance().write(Priority.INTERACTIVE, () -> {
                 Task task = db.taskDao().getTaskById(taskId); // Fetch task by ID
                 if (task != null) {
                     db.taskDao().deleteTask(task); // Delete the task
+                    TaskChangeNotifier.getInstance(this).taskChanged(taskId);
                     runOnUiThread(() -> {
                         Toast.makeText(this, "Task deleted", Toast.LENGTH_SHORT).show();
                         finish();
@@ -213,11 +315,110 @@ public class CreateTaskActivity extends AppCompatActivity {
     // Handler for UI updates
     private final Handler mainHandler = new Handler(Looper.getMainLooper());
 
-    // Save task to database
+    // Select the entry of an existing reminder
+    private void showReminder(int minutes) {
+        for (int i = 0; i < REMINDER_MINUTES.length; i++) {
+            if (REMINDER_MINUTES[i] != null && REMINDER_MINUTES[i] == minutes) reminderSpinner.setSelection(i);
+        }
+    }
+
+    // Notifications need a runtime permission from Android 13 on
+    private void requestNotificationPermission() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU
+                && checkSelfPermission(Manifest.permission.POST_NOTIFICATIONS) != PackageManager.PERMISSION_GRANTED) {
+            requestPermissions(new String[]{Manifest.permission.POST_NOTIFICATIONS}, REQUEST_NOTIFICATIONS);
+        }
+    }
+
+    // Select the frequency and count of an existing rule
+    // Rules this screen cannot express (interval, until) are kept as they are unless changed here
+    private void showRecurrence(RecurrenceRule rule) {
+        if (rule == null) return;
+        for (int i = 0; i < REPEAT_FREQUENCIES.length; i++) {
+            if (REPEAT_FREQUENCIES[i] == rule.getFrequency()) repeatSpinner.setSelection(i);
+        }
+        if (rule.getCount() > 0) {
+            repeatCountEditText.setText(String.valueOf(rule.getCount()));
+        }
+    }
+
+    // Rule of the repeat fields, null for a one-off task
+    private String recurrenceRuleOfInput() {
+        RecurrenceRule.Frequency frequency = REPEAT_FREQUENCIES[repeatSpinner.getSelectedItemPosition()];
+        if (frequency == null) return null;
+        int count = 0;
+        try {
+            count = Math.max(0, Integer.parseInt(repeatCountEditText.getText().toString()));
+        } catch (NumberFormatException e) {
+            // Empty: no end
+        }
+        RecurrenceRule original = RecurrenceRule.parseOrNull(getIntent().getStringExtra("task_recurrence"));
+        if (original != null && original.getFrequency() == frequency && original.getCount() == count) {
+            return original.toString();
+        }
+        return new RecurrenceRule(frequency, 1, count, RecurrenceRule.NO_UNTIL).toString();
+    }
+
+    // Look up the tasks overlapping the chosen schedule in TaskConflictDetector and show them
+    // Incomplete schedules clear the warning
+    private void checkConflicts() {
+        final int gen = ++conflictCheckGeneration;
+        long startAt = Task.parseStartAt(dateEditText.getText().toString(), startTimeEditText.getText().toString());
+        int duration;
+        try {
+            duration = Integer.parseInt(durationEditText.getText().toString());
+        } catch (NumberFormatException e) {
+            duration = 0;
+        }
+        if (startAt == Task.UNSCHEDULED || duration <= 0) {
+            showConflicts(new ArrayList<>());
+            return;
+        }
+        final long endAt = Task.endAtOf(startAt, duration);
+        dbJobs.read(Priority.INTERACTIVE, () -> {
+            List<Task> found = TaskConflictDetector.getInstance(this).findConflicts(startAt, endAt, taskId);
+            mainHandler.post(() -> {
+                if (gen == conflictCheckGeneration) showConflicts(found);
+            });
+        });
+    }
+
+    // Show the overlapping tasks under the schedule fields
+    private void showConflicts(List<Task> found) {
+        conflicts = found;
+        if (found.isEmpty()) {
+            conflictWarningText.setVisibility(View.GONE);
+            return;
+        }
+        StringBuilder text = new StringBuilder("Overlaps with:");
+        for (Task task : found) {
+            text.append("\n").append(task.getShortName())
+                    .append(" (").append(task.getDate()).append(' ').append(task.getStartTime())
+                    .append(", ").append(task.getDurationHours()).append("h)");
+        }
+        conflictWarningText.setText(text);
+        conflictWarningText.setVisibility(View.VISIBLE);
+    }
+
+    // Save task to database, after confirming if it overlaps other tasks
     private void saveTask() {
         if (!validateInput()) {
             return;
         }
+        if (!conflicts.isEmpty()) {
+            new AlertDialog.Builder(this)
+                    .setTitle("Overlapping Tasks")
+                    .setMessage("This task overlaps " + conflicts.size() + " other task(s). Save anyway?")
+                    .setPositiveButton("Save", (dialog, which) -> writeTask())
+                    .setNegativeButton("Cancel", null)
+                    .show();
+            return;
+        }
+        writeTask();
+    }
+
+    // Insert or update the task from the input fields
+    private void writeTask() {
 
         // Get values from input fields
         String shortName = shortNameEditText.getText().toString();
@@ -226,22 +427,43 @@ public class CreateTaskActivity extends AppCompatActivity {
         int duration = Integer.parseInt(durationEditText.getText().toString());
         String location = locationEditText.getText().toString();
         String date = dateEditText.getText().toString();
+        String recurrenceRule = recurrenceRuleOfInput();
+        Integer reminderMinutes = REMINDER_MINUTES[reminderSpinner.getSelectedItemPosition()];
 
-        // Perform database operation in background
-        AppDatabase.databaseWriteExecutor.execute(() -> {
-            int statusId = db.statusDao().getIdByName("recorded");
+        // Perform database operation on the writer thread, ahead of refreshes and exports
+        DatabaseExecutors.getInstance().write(Priority.INTERACTIVE, () -> {
+            int statusId = db.statusRegistry().getIdByName(Status.RECORDED);
 
+            // The constructor also derives start_at/end_at from date, start time and duration
             Task task = new Task(shortName, description, startTime, duration, location, date, statusId);
+            task.setRecurrenceRule(recurrenceRule);
+            task.updateSeriesEnd();
+            task.updateContentHash();
+            // Queued by ReminderScheduler once the change is announced
+            task.setReminderMinutes(reminderMinutes);
             if (taskId != -1) {
                 task.setUid(taskId);
             }
 
             // Update or insert based on whether editing existing task
+            long savedId;
             if (taskId != -1) {
-                db.taskDao().updateTask(task);
+                db.runInTransaction(() -> {
+                    // Exceptions are keyed by the occurrences of the old schedule
+                    Task old = db.taskDao().getTaskById(taskId);
+                    if (old != null && old.isRecurring() && (old.getStartAt() != task.getStartAt()
+                            || !Objects.equals(old.getRecurrenceRule(), task.getRecurrenceRule()))) {
+                        db.taskExceptionDao().deleteExceptionsOf(taskId);
+                    }
+                    db.taskDao().updateTask(task);
+                });
+                savedId = taskId;
             } else {
-                db.taskDao().insertTask(task);
+                savedId = db.taskDao().insertTask(task);
             }
+            TaskChangeNotifier.getInstance(this).taskChanged(savedId);
+            // Re-arm the status alarm for the new schedule
+            TaskStatusScheduler.sweepNow(this);
 
             // Show success message and finish activity
             mainHandler.post(() -> {
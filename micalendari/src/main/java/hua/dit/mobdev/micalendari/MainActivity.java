@@ -2,12 +2,9 @@ package hua.dit.mobdev.micalendari;
 
 import androidx.appcompat.app.AlertDialog;
 
-import java.io.OutputStream;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.time.LocalDate;
+import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
-import java.util.Date;
 
 import android.content.ContentUris;
 import android.content.ContentValues;
@@ -15,47 +12,117 @@ import android.content.Intent;
 import android.database.Cursor;
 import android.net.Uri;
 import android.os.Bundle;
-import android.os.Environment;
 import android.os.Handler;
 import android.os.Looper;
-import android.provider.MediaStore;
+import android.os.Process;
+import android.os.SystemClock;
+import android.text.Editable;
 import android.text.InputType;
+import android.text.TextWatcher;
 import android.util.Log;
+import android.view.View;
 import android.widget.ImageButton;
+import android.widget.ProgressBar;
 import android.widget.Toast;
 
+import androidx.activity.result.ActivityResultLauncher;
+import androidx.activity.result.contract.ActivityResultContracts;
+import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
-import androidx.work.ExistingPeriodicWorkPolicy;
-import androidx.work.PeriodicWorkRequest;
+import androidx.room.InvalidationTracker;
+import androidx.work.Data;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkInfo;
 import androidx.work.WorkManager;
 
-import java.util.ArrayList;
 import java.util.List;
-import java.util.Locale;
-import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
 import android.widget.EditText;
 
 import hua.dit.mobdev.micalendari.adapter.TaskAdapter;
+import hua.dit.mobdev.micalendari.adapter.TaskListSnapshot;
+import hua.dit.mobdev.micalendari.adapter.TaskPager;
+import hua.dit.mobdev.micalendari.adapter.TaskRow;
+import hua.dit.mobdev.micalendari.core.Metrics;
+import hua.dit.mobdev.micalendari.crud.TaskChangeNotifier;
 import hua.dit.mobdev.micalendari.crud.TaskContentProvider;
 import hua.dit.mobdev.micalendari.data.AppDatabase;
+import hua.dit.mobdev.micalendari.data.DatabaseExecutors;
+import hua.dit.mobdev.micalendari.data.DatabaseExecutors.Priority;
+import hua.dit.mobdev.micalendari.data.Occurrence;
+import hua.dit.mobdev.micalendari.data.OccurrenceExpander;
+import hua.dit.mobdev.micalendari.entity.Status;
 import hua.dit.mobdev.micalendari.entity.Task;
-import hua.dit.mobdev.micalendari.worker.TaskStatusWorker;
+import hua.dit.mobdev.micalendari.export.CsvExportFormat;
+import hua.dit.mobdev.micalendari.export.ExportWorker;
+import hua.dit.mobdev.micalendari.export.HtmlExportFormat;
+import hua.dit.mobdev.micalendari.export.ICalendarExportFormat;
+import hua.dit.mobdev.micalendari.importer.ImportWorker;
+import hua.dit.mobdev.micalendari.worker.TaskStatusScheduler;
 
 // Main activity for task management, handles display and CRUD operations
 public class MainActivity extends AppCompatActivity implements TaskAdapter.TaskAdapterListener {
+    // Unique name of the export work
+    private static final String EXPORT_WORK_NAME = "taskExport";
+    // Export formats offered by the download button, with their labels
+    private static final String[] EXPORT_FORMATS =
+            {HtmlExportFormat.NAME, CsvExportFormat.NAME, ICalendarExportFormat.NAME};
+    private static final String[] EXPORT_FORMAT_LABELS = {"HTML", "CSV", "iCalendar (.ics)"};
+    // Unique name of the import work
+    private static final String IMPORT_WORK_NAME = "taskImport";
+    // File types offered by the import picker
+    private static final String[] IMPORT_MIME_TYPES =
+            {"text/calendar", "text/csv", "text/comma-separated-values"};
+    // Pause in typing after which the search runs
+    private static final long SEARCH_DELAY_MS = 150;
+    // Full-text query, and from the search to its rows being handed to the adapter
+    private static final Metrics.Histogram SEARCH_QUERY_TIME = Metrics.histogram("dao.search", Metrics.Unit.NANOS);
+    private static final Metrics.Histogram SEARCH_TIME = Metrics.histogram("tasks.search", Metrics.Unit.NANOS);
+    // Time to first content of a cold start, from process start to rows handed to the adapter:
+    // from the snapshot or the database, whichever comes first, and from the database alone,
+    // the only source before the snapshot; each recorded once per process, on the main thread
+    private static final Metrics.Histogram FIRST_CONTENT_TIME =
+            Metrics.histogram("startup.firstContent", Metrics.Unit.NANOS);
+    private static final Metrics.Histogram FIRST_QUERY_CONTENT_TIME =
+            Metrics.histogram("startup.firstQueryContent", Metrics.Unit.NANOS);
+    private static boolean firstContentRecorded;
+    private static boolean firstQueryContentRecorded;
+
     private TaskAdapter taskAdapter;
+    private TaskPager taskPager;
+    // First page of the list as last shown, drawn on a cold start until the database answers
+    private TaskListSnapshot snapshot;
     private AppDatabase db;
+    // Database jobs of this screen, cancelled when it is destroyed
+    private DatabaseExecutors.Scope dbJobs;
     private final Handler mainHandler = new Handler(Looper.getMainLooper());
-    private final Handler updateHandler = new Handler(Looper.getMainLooper());
-    private Runnable updateRunnable;
-    // Update interval for refreshing task status
-    private static final long UPDATE_INTERVAL = 2000; // 2 seconds
-    // Cache current tasks to optimize UI updates
-    private List<Task> currentTasks = new ArrayList<>();
+    private final Runnable loadTasksRunnable = this::loadTasks;
+    // Text of the search box; empty shows the paged list
+    private String searchText = "";
+    // Bumped by every search so results of older ones are ignored
+    private int searchGeneration = 0;
+
+    // System file picker for the import button
+    private final ActivityResultLauncher<String[]> importPicker =
+            registerForActivityResult(new ActivityResultContracts.OpenDocument(), uri -> {
+                if (uri != null) importTasks(uri);
+            });
+
+    // Reload the list whenever Room sees a write to the tasks or task_exceptions tables, whether
+    // it comes from this app, TaskStatusWorker or a TaskContentProvider client; idle screens do no work
+    private final InvalidationTracker.Observer tasksObserver = new InvalidationTracker.Observer("tasks", "task_exceptions") {
+        @Override
+        public void onInvalidated(@NonNull Set<String> tables) {
+            // Called on a Room thread; collapse bursts of writes into one reload
+            mainHandler.removeCallbacks(loadTasksRunnable);
+            mainHandler.post(loadTasksRunnable);
+        }
+    };
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -63,60 +130,113 @@ public class MainActivity extends AppCompatActivity implements TaskAdapter.TaskA
         setContentView(R.layout.activity_main);
 
         db = AppDatabase.getDatabase(this);
+        dbJobs = DatabaseExecutors.getInstance().scope(this);
+        snapshot = new TaskListSnapshot(this);
         setupRecyclerView();
+        showSnapshot();
+        setupSearch();
         setupButtons();
-        setupPeriodicWorker();
-        setupPeriodicUIUpdates();
-    }
-
-    // Initialize periodic UI updates using Handler
-    private void setupPeriodicUIUpdates() {
-        updateRunnable = new Runnable() {
-            @Override
-            public void run() {
-                loadTasks();
-                updateHandler.postDelayed(this, UPDATE_INTERVAL);
-            }
-        };
+        setupStatusScheduler();
+        observeExport();
+        observeImport();
     }
 
+    // Load once to catch up on changes made while paused, then follow invalidations
     @Override
     protected void onResume() {
         super.onResume();
-        currentTasks.clear();
+        db.getInvalidationTracker().addObserver(tasksObserver);
         loadTasks();
-        updateHandler.post(updateRunnable);
     }
 
     // Stop UI updates when activity is not visible
     @Override
     protected void onPause() {
         super.onPause();
-        updateHandler.removeCallbacks(updateRunnable);
+        db.getInvalidationTracker().removeObserver(tasksObserver);
+        mainHandler.removeCallbacks(loadTasksRunnable);
+    }
+
+    // Keep the top of the list for the next cold start; search results and scrolled windows
+    // are not what the next start opens on
+    @Override
+    protected void onStop() {
+        super.onStop();
+        if (searchText.isEmpty() && taskPager.isAtStart()) {
+            snapshot.save(taskAdapter.getRows());
+        }
+    }
+
+    // Rows of the snapshot, if this screen has none yet; the adapter shows a first list without
+    // diffing, so they are in the first frame. The pager's first page then replaces them
+    private void showSnapshot() {
+        List<TaskRow> rows = snapshot.read();
+        if (rows.isEmpty()) return;
+        taskAdapter.submitRows(rows);
+        recordFirstContent(false);
+    }
+
+    private static void recordFirstContent(boolean fromDatabase) {
+        if (fromDatabase ? firstQueryContentRecorded : firstContentRecorded) return;
+        long sinceStartMillis = SystemClock.uptimeMillis() - Process.getStartUptimeMillis();
+        if (!firstContentRecorded) {
+            firstContentRecorded = true;
+            FIRST_CONTENT_TIME.record(TimeUnit.MILLISECONDS.toNanos(sinceStartMillis));
+        }
+        if (fromDatabase) {
+            firstQueryContentRecorded = true;
+            FIRST_QUERY_CONTENT_TIME.record(TimeUnit.MILLISECONDS.toNanos(sinceStartMillis));
+        }
+        Log.i("MainActivity", "First " + (fromDatabase ? "database" : "snapshot") + " rows "
+                + sinceStartMillis + " ms after process start");
     }
 
     // Mark task as completed in background thread and refresh UI
     @Override
     public void markTaskAsCompleted(Task task, String newStatus) {
         Log.e("MainActivity", "Marking task completed: " + task.getUid());
-        AppDatabase.databaseWriteExecutor.execute(() -> {
-            int statusId = db.statusDao().getIdByName(newStatus);
-            task.setStatus_id(statusId);
-            db.taskDao().updateTask(task);
+        // Not tied to the screen, the user expects the change to be kept
+        DatabaseExecutors.getInstance().write(Priority.INTERACTIVE, () -> {
+            if (task.isRecurring()) {
+                // A recurring task goes on: only its current or next occurrence is completed
+                Occurrence occurrence = OccurrenceExpander.currentOrNext(db, task,
+                        System.currentTimeMillis(), ZoneId.systemDefault());
+                if (occurrence != null) {
+                    OccurrenceExpander.markCompleted(db, task.getUid(), occurrence.occurrenceAt);
+                }
+            } else {
+                // Update the row only; the Task object belongs to the adapter's displayed list
+                db.taskDao().updateTaskStatus(task.getUid(), db.statusRegistry().getIdByName(newStatus));
+            }
+            TaskChangeNotifier.getInstance(this).taskChanged(task.getUid());
             Log.e("MainActivity", "Database updated for task: " + task.getUid());
-
-            currentTasks.clear();
-            runOnUiThread(this::loadTasks);
+            TaskStatusScheduler.sweepNow(this);
         });
     }
 
-    // Initialize RecyclerView with empty adapter on background thread
+    // Initialize RecyclerView with an empty adapter, rows arrive page by page from the pager
     private void setupRecyclerView() {
         RecyclerView recyclerView = findViewById(R.id.tasksRecyclerView);
-        recyclerView.setLayoutManager(new LinearLayoutManager(this));
-        AppDatabase.databaseWriteExecutor.execute(() -> {
-            taskAdapter = new TaskAdapter(new ArrayList<>(), this, this);
-            mainHandler.post(() -> recyclerView.setAdapter(taskAdapter));
+        LinearLayoutManager layoutManager = new LinearLayoutManager(this);
+        recyclerView.setLayoutManager(layoutManager);
+        taskAdapter = new TaskAdapter(this);
+        recyclerView.setAdapter(taskAdapter);
+        // Pages loaded before a search started are not shown over its results
+        taskPager = new TaskPager(db, dbJobs, rows -> {
+            if (!searchText.isEmpty()) return;
+            taskAdapter.submitRows(rows);
+            recordFirstContent(true);
+        });
+
+        // Load pages ahead of the user and drop the ones far behind
+        recyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView view, int dx, int dy) {
+                if (!searchText.isEmpty()) return;
+                taskPager.onViewportChanged(layoutManager.findFirstVisibleItemPosition(),
+                        layoutManager.findLastVisibleItemPosition(),
+                        taskAdapter.getItemCount());
+            }
         });
     }
 
@@ -126,146 +246,90 @@ public class MainActivity extends AppCompatActivity implements TaskAdapter.TaskA
         ImageButton downloadButton = findViewById(R.id.downloadButton);
         ImageButton settingsButton = findViewById(R.id.settingsButton);
         ImageButton deleteByIdButton = findViewById(R.id.deleteByIdButton);
+        ImageButton importButton = findViewById(R.id.importButton);
+        ImageButton agendaButton = findViewById(R.id.agendaButton);
 
         addButton.setOnClickListener(v -> {
             Intent intent = new Intent(MainActivity.this, CreateTaskActivity.class);
             startActivity(intent);
         });
 
-        downloadButton.setOnClickListener(v -> {
-            exportTasksToHtml();
-            Toast.makeText(MainActivity.this, "Exported tasks", Toast.LENGTH_SHORT).show();
-        });
+        agendaButton.setOnClickListener(v -> startActivity(new Intent(this, AgendaActivity.class)));
+
+        downloadButton.setOnClickListener(v -> showExportDialog());
+
+        importButton.setOnClickListener(v -> importPicker.launch(IMPORT_MIME_TYPES));
 
         settingsButton.setOnClickListener(v -> {
             Toast.makeText(MainActivity.this, "Testing CRUD", Toast.LENGTH_SHORT).show();
             testContentProvider();
         });
+        // Hidden debug screen with the runtime metrics
+        settingsButton.setOnLongClickListener(v -> {
+            startActivity(new Intent(this, MetricsActivity.class));
+            return true;
+        });
 
         deleteByIdButton.setOnClickListener(v -> showDeleteByIdDialog());
     }
 
-    // Load tasks and update UI only if changes detected
-    private void loadTasks() {
-        AppDatabase.databaseWriteExecutor.execute(() -> {
-            List<Task> allTasks = db.taskDao().getAllUncompletedTasks();
-            Log.d("TaskLoad", "Loaded " + allTasks.size() + " tasks");
-            Log.d("TaskLoad", "Current tasks size: " + currentTasks.size());
-            boolean needsUpdate = false;
-
-            // Check for status changes
-            for (Task task : allTasks) {
-                int oldStatus = task.getStatus_id();
-                updateTaskStatus(task);
-                if (oldStatus != task.getStatus_id()) {
-                    needsUpdate = true;
-                    break;
-                }
-            }
+    // Search as the user types, once they pause
+    private void setupSearch() {
+        EditText searchEditText = findViewById(R.id.searchEditText);
+        searchEditText.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {}
 
-            // Compare current and new tasks
-            if (!needsUpdate && currentTasks.size() == allTasks.size()) {
-                Log.d("TaskLoad", "Comparing tasks for changes");
-                for (int i = 0; i < allTasks.size(); i++) {
-                    if (!tasksAreEqual(currentTasks.get(i), allTasks.get(i))) {
-                        Log.d("TaskLoad", "Found difference in task comparison");
-                        needsUpdate = true;
-                        break;
-                    }
-                }
-            } else if (currentTasks.size() != allTasks.size()) {
-                needsUpdate = true;
-            }
-            else {
-                Log.d("TaskLoad", "Size mismatch or status change detected");
-                needsUpdate = true;
-            }
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {}
 
-            // Update UI only if changes detected
-            if (needsUpdate) {
-                currentTasks = new ArrayList<>(allTasks);
-                mainHandler.post(() -> taskAdapter.updateTasks(currentTasks));
+            @Override
+            public void afterTextChanged(Editable s) {
+                searchText = s.toString().trim();
+                mainHandler.removeCallbacks(loadTasksRunnable);
+                mainHandler.postDelayed(loadTasksRunnable, SEARCH_DELAY_MS);
             }
         });
     }
 
-    // Compare two tasks for equality
-    private boolean tasksAreEqual(Task t1, Task t2) {
-        boolean equal = t1.getUid() == t2.getUid() &&
-                t1.getStatus_id() == t2.getStatus_id() &&
-                Objects.equals(t1.getShortName(), t2.getShortName()) &&
-                Objects.equals(t1.getDescription(), t2.getDescription()) &&
-                Objects.equals(t1.getStartTime(), t2.getStartTime()) &&
-                Objects.equals(t1.getDate(), t2.getDate()) &&
-                t1.getDurationHours() == t2.getDurationHours() &&
-                Objects.equals(t1.getLocation(), t2.getLocation());
-
-
-        Log.d("TaskCompare", String.format("Comparing tasks: %d == %d, names: %s == %s",
-                t1.getUid(), t2.getUid(), t1.getShortName(), t2.getShortName()));
+    // Reload the pages on screen, or the search results while searching; the adapter works out what changed
+    private void loadTasks() {
+        if (searchText.isEmpty()) {
+            searchGeneration++;
+            taskPager.refresh();
+        } else {
+            searchTasks(searchText);
+        }
+    }
 
-        return equal;
+    // Show the tasks matching the text, best first, from the tasks_fts index
+    private void searchTasks(final String text) {
+        final long startNanos = System.nanoTime();
+        final int gen = ++searchGeneration;
+        dbJobs.read(Priority.INTERACTIVE, () -> {
+            long queryNanos = System.nanoTime();
+            List<Task> tasks = db.taskDao().searchTasksRanked(text);
+            SEARCH_QUERY_TIME.recordSince(queryNanos);
+            List<TaskRow> rows = TaskRow.fromTasks(tasks, db.statusRegistry());
+            mainHandler.post(() -> {
+                if (gen != searchGeneration) return;
+                taskAdapter.submitRows(rows);
+                SEARCH_TIME.recordSince(startNanos);
+            });
+        });
     }
 
     // Launch task edit activity with existing task data
     @Override
     public void onTaskEdit(Task task) {
-        Intent intent = new Intent(this, CreateTaskActivity.class);
-        intent.putExtra("task_id", task.getUid());
-        intent.putExtra("task_name", task.getShortName());
-        intent.putExtra("task_description", task.getDescription());
-        intent.putExtra("task_date", task.getDate());
-        intent.putExtra("task_start_time", task.getStartTime());
-        intent.putExtra("task_duration", task.getDurationHours());
-        intent.putExtra("task_location", task.getLocation());
-        startActivity(intent);
-        onResume();
+        startActivity(CreateTaskActivity.editIntent(this, task));
     }
 
-    // Update task status based on current time and task schedule
-    private void updateTaskStatus(Task task) {
-        try {
-            long currentTime = System.currentTimeMillis();
-            SimpleDateFormat dateTimeFormat = new SimpleDateFormat("dd/MM/yyyy HH:mm", Locale.getDefault());
-            String dateTimeStr = task.getDate() + " " + task.getStartTime();
-            Date taskDateTime = dateTimeFormat.parse(dateTimeStr);
-
-            if (taskDateTime != null) {
-                long taskStartTime = taskDateTime.getTime();
-                long taskEndTime = taskStartTime + ((long) task.getDurationHours() * 60 * 60 * 1000);
-
-                int expiredStatusId = db.statusDao().getIdByName("expired");
-                int inProgressStatusId = db.statusDao().getIdByName("in_progress");
-                int completedStatusId = db.statusDao().getIdByName("completed");
-
-                // Only update non-completed tasks
-                if (task.getStatus_id() != completedStatusId) {
-                    if (currentTime >= taskEndTime) {
-                        task.setStatus_id(expiredStatusId);
-                        db.taskDao().updateTask(task);
-                    } else if (currentTime >= taskStartTime) {
-                        task.setStatus_id(inProgressStatusId);
-                        db.taskDao().updateTask(task);
-                    }
-                }
-            }
-        } catch (ParseException e) {
-            e.printStackTrace();
-        }
-    }
-
-    // Set up periodic worker for background task status updates
-    private void setupPeriodicWorker() {
-        PeriodicWorkRequest statusCheckRequest =
-                new PeriodicWorkRequest.Builder(TaskStatusWorker.class, 1, TimeUnit.MINUTES)
-                        .build();
-
-        WorkManager.getInstance(this)
-                .enqueueUniquePeriodicWork(
-                        "taskStatusCheck",
-                        ExistingPeriodicWorkPolicy.UPDATE,
-                        statusCheckRequest
-                );
+    // Catch up on status changes missed while the app was not running
+    // The sweep arms the alarm for the next change, no periodic work is needed
+    private void setupStatusScheduler() {
+        TaskStatusScheduler.cancelLegacyPeriodicWork(this);
+        TaskStatusScheduler.sweepNow(this);
     }
 
     // Show dialog for deleting task by ID
@@ -295,66 +359,97 @@ public class MainActivity extends AppCompatActivity implements TaskAdapter.TaskA
 
     // Delete task by ID and show result toast
     private void deleteTaskById(final int taskId) {
-        AppDatabase.databaseWriteExecutor.execute(() -> {
+        DatabaseExecutors.getInstance().write(Priority.INTERACTIVE, () -> {
             final int rowsDeleted = db.taskDao().deleteTaskById(taskId);
+            if (rowsDeleted > 0) {
+                TaskChangeNotifier.getInstance(this).taskChanged(taskId);
+            }
             runOnUiThread(() -> {
                 Toast.makeText(MainActivity.this,
                         "Deleted " + rowsDeleted + " row(s)",
                         Toast.LENGTH_SHORT).show();
-                loadTasks();
             });
         });
     }
 
-    // Export uncompleted tasks to HTML file in Downloads directory
-    private void exportTasksToHtml() {
-        AppDatabase.databaseWriteExecutor.execute(() -> {
-            try {
-                List<Task> tasks = db.taskDao().getAllUncompletedTasks();
-                StringBuilder html = new StringBuilder();
-                html.append("<html><body>");
-                html.append("<h1>Uncompleted Tasks</h1>");
-                html.append("<table border='1'>");
-                html.append("<tr><th>ID</th><th>Name</th><th>Description</th><th>Date</th><th>Time</th><th>Duration</th><th>Location</th><th>Status</th></tr>");
-
-                for (Task task : tasks) {
-                    html.append("<tr>");
-                    html.append("<td>").append(task.getUid()).append("</td>");
-                    html.append("<td>").append(task.getShortName()).append("</td>");
-                    html.append("<td>").append(task.getDescription()).append("</td>");
-                    html.append("<td>").append(task.getDate()).append("</td>");
-                    html.append("<td>").append(task.getStartTime()).append("</td>");
-                    html.append("<td>").append(task.getDurationHours()).append("</td>");
-                    html.append("<td>").append(task.getLocation()).append("</td>");
-                    html.append("<td>").append(db.statusDao().getNameById(task.getStatus_id())).append("</td>");
-                    html.append("</tr>");
-                }
-                html.append("</table></body></html>");
-
-                // Set up file metadata
-                ContentValues cv = new ContentValues();
-                cv.put(MediaStore.MediaColumns.DISPLAY_NAME, "tasks.html");
-                cv.put(MediaStore.MediaColumns.MIME_TYPE, "text/html");
-                cv.put(MediaStore.MediaColumns.RELATIVE_PATH, Environment.DIRECTORY_DOWNLOADS);
-
-                // Write file to downloads directory
-                Uri fileUri = getContentResolver().insert(MediaStore.Downloads.EXTERNAL_CONTENT_URI, cv);
-                if (fileUri != null) {
-                    OutputStream os = getContentResolver().openOutputStream(fileUri, "w");
-                    if (os != null) {
-                        os.write(html.toString().getBytes());
-                        os.flush();
-                        os.close();
-                        Log.d("Export", "File successfully created!");
+    // Ask for an export format, then export in the background
+    private void showExportDialog() {
+        new AlertDialog.Builder(this)
+                .setTitle("Export Tasks")
+                .setItems(EXPORT_FORMAT_LABELS, (dialog, which) -> exportTasks(EXPORT_FORMATS[which]))
+                .setNegativeButton("Cancel", null)
+                .show();
+    }
+
+    // Export uncompleted tasks to the Downloads directory with ExportWorker
+    // A second request while one export is running is ignored
+    private void exportTasks(String formatName) {
+        OneTimeWorkRequest exportRequest = new OneTimeWorkRequest.Builder(ExportWorker.class)
+                .setInputData(ExportWorker.inputFor(formatName))
+                .build();
+        WorkManager.getInstance(this)
+                .enqueueUniqueWork(EXPORT_WORK_NAME, ExistingWorkPolicy.KEEP, exportRequest);
+        Toast.makeText(this, "Exporting tasks", Toast.LENGTH_SHORT).show();
+    }
+
+    // Show the progress of a running export, and its result once done
+    private void observeExport() {
+        ProgressBar transferProgress = findViewById(R.id.transferProgress);
+        WorkManager.getInstance(this).getWorkInfosForUniqueWorkLiveData(EXPORT_WORK_NAME)
+                .observe(this, workInfos -> {
+                    if (workInfos == null || workInfos.isEmpty()) return;
+                    WorkInfo info = workInfos.get(0);
+                    if (!info.getState().isFinished()) {
+                        Data progress = info.getProgress();
+                        int total = progress.getInt(ExportWorker.KEY_TOTAL, 0);
+                        transferProgress.setVisibility(View.VISIBLE);
+                        transferProgress.setIndeterminate(total == 0);
+                        transferProgress.setMax(Math.max(total, 1));
+                        transferProgress.setProgress(progress.getInt(ExportWorker.KEY_EXPORTED, 0));
+                    } else if (transferProgress.getVisibility() == View.VISIBLE) {
+                        // Only report exports that finished while the activity was watching
+                        transferProgress.setVisibility(View.GONE);
+                        Toast.makeText(this, info.getState() == WorkInfo.State.SUCCEEDED
+                                ? "Exported " + info.getOutputData().getInt(ExportWorker.KEY_EXPORTED, 0) + " tasks"
+                                : "Export failed", Toast.LENGTH_SHORT).show();
                     }
-                }
-            } catch (Throwable t) {
-                Log.e("Export", "Error exporting tasks", t);
-            }
-        });
+                });
     }
 
 
+    // Import an iCalendar or CSV file with ImportWorker
+    // Duplicates of stored tasks are skipped, so the same file can be imported again safely
+    private void importTasks(Uri uri) {
+        OneTimeWorkRequest importRequest = new OneTimeWorkRequest.Builder(ImportWorker.class)
+                .setInputData(ImportWorker.inputFor(uri))
+                .build();
+        WorkManager.getInstance(this)
+                .enqueueUniqueWork(IMPORT_WORK_NAME, ExistingWorkPolicy.APPEND_OR_REPLACE, importRequest);
+        Toast.makeText(this, "Importing tasks", Toast.LENGTH_SHORT).show();
+    }
+
+    // Show a running import, and its counts once done
+    private void observeImport() {
+        ProgressBar importProgress = findViewById(R.id.transferProgress);
+        WorkManager.getInstance(this).getWorkInfosForUniqueWorkLiveData(IMPORT_WORK_NAME)
+                .observe(this, workInfos -> {
+                    if (workInfos == null || workInfos.isEmpty()) return;
+                    WorkInfo info = workInfos.get(workInfos.size() - 1);
+                    if (!info.getState().isFinished()) {
+                        // The size of the file in tasks is not known up front
+                        importProgress.setVisibility(View.VISIBLE);
+                        importProgress.setIndeterminate(true);
+                    } else if (importProgress.getVisibility() == View.VISIBLE) {
+                        importProgress.setVisibility(View.GONE);
+                        Data output = info.getOutputData();
+                        Toast.makeText(this, info.getState() == WorkInfo.State.SUCCEEDED
+                                ? "Imported " + output.getInt(ImportWorker.KEY_IMPORTED, 0) + " tasks, skipped "
+                                        + output.getInt(ImportWorker.KEY_DUPLICATES, 0) + " duplicates"
+                                : "Import failed", Toast.LENGTH_SHORT).show();
+                    }
+                });
+    }
+
     private void testContentProvider() {
         new Thread(() -> {
             try {
@@ -369,27 +464,24 @@ public class MainActivity extends AppCompatActivity implements TaskAdapter.TaskA
                 values.put("durationHours", 2);
                 values.put("date", LocalDate.now().format(DateTimeFormatter.ofPattern("dd/MM/yyyy")));
                 values.put("location", "Test Location");
-                values.put("status_id", db.statusDao().getIdByName("recorded"));
+                values.put("status_id", db.statusRegistry().getIdByName(Status.RECORDED));
 
                 Uri uri = getContentResolver().insert(TASK_URI, values);
                 Log.i("ContentProvider", "INSERT: Created new task with URI: " + uri);
                 assert uri != null;
                 long taskId = ContentUris.parseId(uri);
 
-                // Force UI refresh after creation
-                currentTasks.clear();
-                mainHandler.post(() -> {
-                    loadTasks();
-                    Toast.makeText(MainActivity.this, "Created: Provider Test", Toast.LENGTH_SHORT).show();
-                });
+                mainHandler.post(() ->
+                        Toast.makeText(MainActivity.this, "Created: Provider Test", Toast.LENGTH_SHORT).show()
+                );
 
                 // Delay 5 seconds
                 Thread.sleep(5000);
 
-                // READ
+                // READ, only the created task and the columns shown below
                 Cursor cursor = getContentResolver().query(
-                        TASK_URI,
-                        null,
+                        ContentUris.withAppendedId(TASK_URI, taskId),
+                        new String[]{"shortName", "description", "startTime"},
                         null,
                         null,
                         null
@@ -429,12 +521,9 @@ public class MainActivity extends AppCompatActivity implements TaskAdapter.TaskA
 
                 Log.i("ContentProvider", "UPDATE: Updated rows: " + updatedRows);
 
-                // Force UI refresh after update
-                currentTasks.clear();
-                mainHandler.post(() -> {
-                    loadTasks();
-                    Toast.makeText(MainActivity.this, "Updated to: Provider Updated", Toast.LENGTH_SHORT).show();
-                });
+                mainHandler.post(() ->
+                        Toast.makeText(MainActivity.this, "Updated to: Provider Updated", Toast.LENGTH_SHORT).show()
+                );
 
                 // Delay 5 seconds
                 Thread.sleep(5000);
@@ -448,12 +537,9 @@ public class MainActivity extends AppCompatActivity implements TaskAdapter.TaskA
 
                 Log.i("ContentProvider", "DELETE: Deleted rows: " + deletedRows);
 
-                // Force UI refresh after deletion
-                currentTasks.clear();
-                mainHandler.post(() -> {
-                    loadTasks();
-                    Toast.makeText(MainActivity.this, "Deleted: Provider Updated", Toast.LENGTH_SHORT).show();
-                });
+                mainHandler.post(() ->
+                        Toast.makeText(MainActivity.this, "Deleted: Provider Updated", Toast.LENGTH_SHORT).show()
+                );
 
             } catch (Exception e) {
                 Log.e("ContentProvider", "Error in content provider operations", e);
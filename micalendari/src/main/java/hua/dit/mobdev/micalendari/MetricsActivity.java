@@ -0,0 +1,82 @@
+package hua.dit.mobdev.micalendari;
+
+import android.os.Bundle;
+import android.view.MenuItem;
+import android.widget.Button;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import androidx.appcompat.app.AppCompatActivity;
+
+import java.util.Objects;
+
+import hua.dit.mobdev.micalendari.crud.TaskContentProvider;
+import hua.dit.mobdev.micalendari.data.QueryTracer;
+
+// Hidden debug screen, opened by a long press on the settings button
+// Shows the runtime metrics as TaskContentProvider's "metrics" call returns them to any client,
+// followed by the per-statement report of QueryTracer when query tracing is on
+public class MetricsActivity extends AppCompatActivity {
+    private TextView reportText;
+    private Button tracingButton;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_metrics);
+        Objects.requireNonNull(getSupportActionBar()).setDisplayHomeAsUpEnabled(true);
+
+        reportText = findViewById(R.id.metricsReport);
+        Button refreshButton = findViewById(R.id.metricsRefreshButton);
+        Button resetButton = findViewById(R.id.metricsResetButton);
+        refreshButton.setOnClickListener(v -> showMetrics(null));
+        // Shows the values once more, then starts counting from zero
+        resetButton.setOnClickListener(v -> showMetrics(TaskContentProvider.METRICS_RESET));
+
+        tracingButton = findViewById(R.id.metricsTracingButton);
+        tracingButton.setOnClickListener(v -> toggleQueryTracing());
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        showMetrics(null);
+    }
+
+    // Only reads in-memory counters, cheap enough for the main thread
+    private void showMetrics(String arg) {
+        String report = reportOf(TaskContentProvider.METHOD_METRICS, arg);
+        String queries = reportOf(TaskContentProvider.METHOD_QUERY_STATS, arg);
+        StringBuilder text = new StringBuilder(report.isEmpty() ? getString(R.string.metrics_empty) : report);
+        if (!queries.isEmpty()) {
+            text.append('\n').append(getString(R.string.metrics_queries)).append("\n\n").append(queries);
+        }
+        reportText.setText(text);
+        tracingButton.setText(QueryTracer.isEnabled(this)
+                ? R.string.metrics_tracing_off : R.string.metrics_tracing_on);
+    }
+
+    private String reportOf(String method, String arg) {
+        Bundle result = getContentResolver().call(TaskContentProvider.CONTENT_URI, method, arg, null);
+        String report = result != null ? result.getString(TaskContentProvider.METRICS_REPORT) : null;
+        return report != null ? report : "";
+    }
+
+    // Takes effect when the database is next opened, i.e. after a restart of the app
+    private void toggleQueryTracing() {
+        String arg = QueryTracer.isEnabled(this) ? TaskContentProvider.QUERY_TRACING_OFF : null;
+        getContentResolver().call(TaskContentProvider.CONTENT_URI, TaskContentProvider.METHOD_QUERY_TRACING, arg, null);
+        tracingButton.setText(arg == null ? R.string.metrics_tracing_off : R.string.metrics_tracing_on);
+        Toast.makeText(this, R.string.metrics_tracing_restart, Toast.LENGTH_SHORT).show();
+    }
+
+    // Handle action bar back button
+    @Override
+    public boolean onOptionsItemSelected(MenuItem item) {
+        if (item.getItemId() == android.R.id.home) {
+            finish();
+            return true;
+        }
+        return super.onOptionsItemSelected(item);
+    }
+}
@@ -0,0 +1,18 @@
+package hua.dit.mobdev.micalendari;
+
+import android.app.Application;
+
+import hua.dit.mobdev.micalendari.worker.ReminderScheduler;
+import hua.dit.mobdev.micalendari.worker.ReminderWorker;
+
+// Process wide setup, done before any screen, worker or receiver runs
+// Components that follow every task change register with TaskChangeNotifier here, so they
+// also see the writes made while no screen is open
+public class MiCalendariApplication extends Application {
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        ReminderWorker.createNotificationChannel(this);
+        ReminderScheduler.getInstance(this);
+    }
+}
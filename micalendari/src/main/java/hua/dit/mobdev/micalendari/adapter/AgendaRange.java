@@ -0,0 +1,94 @@
+package hua.dit.mobdev.micalendari.adapter;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.TemporalAdjusters;
+import java.util.Locale;
+
+// The days shown by the agenda: one day, a Monday to Sunday week or a calendar month
+// Immutable; converted to the epoch millis range of TaskDao.getTasksOverlapping in a time zone
+public final class AgendaRange {
+    public enum Mode { DAY, WEEK, MONTH }
+
+    private static final DateTimeFormatter DAY_FORMAT = DateTimeFormatter.ofPattern("EEE dd/MM/yyyy", Locale.getDefault());
+    private static final DateTimeFormatter WEEK_START_FORMAT = DateTimeFormatter.ofPattern("dd/MM", Locale.getDefault());
+    private static final DateTimeFormatter WEEK_END_FORMAT = DateTimeFormatter.ofPattern("dd/MM/yyyy", Locale.getDefault());
+    private static final DateTimeFormatter MONTH_FORMAT = DateTimeFormatter.ofPattern("LLLL yyyy", Locale.getDefault());
+
+    public final Mode mode;
+    // First day of the range
+    public final LocalDate first;
+
+    private AgendaRange(Mode mode, LocalDate first) {
+        this.mode = mode;
+        this.first = first;
+    }
+
+    // The range of the given mode that contains day
+    public static AgendaRange containing(Mode mode, LocalDate day) {
+        switch (mode) {
+            case WEEK:
+                return new AgendaRange(mode, day.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY)));
+            case MONTH:
+                return new AgendaRange(mode, day.withDayOfMonth(1));
+            default:
+                return new AgendaRange(mode, day);
+        }
+    }
+
+    // Day after the last day of the range
+    public LocalDate end() {
+        switch (mode) {
+            case WEEK:
+                return first.plusWeeks(1);
+            case MONTH:
+                return first.plusMonths(1);
+            default:
+                return first.plusDays(1);
+        }
+    }
+
+    public AgendaRange next() {
+        return new AgendaRange(mode, end());
+    }
+
+    public AgendaRange previous() {
+        switch (mode) {
+            case WEEK:
+                return new AgendaRange(mode, first.minusWeeks(1));
+            case MONTH:
+                return new AgendaRange(mode, first.minusMonths(1));
+            default:
+                return new AgendaRange(mode, first.minusDays(1));
+        }
+    }
+
+    // Same first day, shown in another mode
+    public AgendaRange withMode(Mode mode) {
+        return containing(mode, first);
+    }
+
+    // Start of the first day, inclusive
+    public long fromMillis(ZoneId zone) {
+        return first.atStartOfDay(zone).toInstant().toEpochMilli();
+    }
+
+    // Start of the day after the range, exclusive; days are 23 or 25 hours across DST changes
+    public long toMillis(ZoneId zone) {
+        return end().atStartOfDay(zone).toInstant().toEpochMilli();
+    }
+
+    // Heading of the agenda screen
+    public String title() {
+        switch (mode) {
+            case WEEK:
+                return first.format(WEEK_START_FORMAT) + " - " + end().minusDays(1).format(WEEK_END_FORMAT);
+            case MONTH:
+                return first.format(MONTH_FORMAT);
+            default:
+                return first.format(DAY_FORMAT);
+        }
+    }
+}
@@ -1,10 +1,5 @@
 package hua.dit.mobdev.micalendari.adapter;
 
-import android.annotation.SuppressLint;
-import android.content.Context;
-import android.icu.text.SimpleDateFormat;
-import android.os.Handler;
-import android.os.Looper;
 import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -12,232 +7,171 @@ import android.view.ViewGroup;
 import android.widget.ImageButton;
 import android.widget.TextView;
 import androidx.annotation.NonNull;
-import androidx.core.net.ParseException;
+import androidx.recyclerview.widget.AsyncListDiffer;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 
-import android.graphics.Color;
-
-import java.util.ArrayList;
-import java.util.Collections;
-
-import hua.dit.mobdev.micalendari.data.AppDatabase;
-
-import java.util.Date;
 import java.util.List;
-import java.util.Locale;
-import java.util.Objects;
 
 import hua.dit.mobdev.micalendari.R;
+import hua.dit.mobdev.micalendari.core.Metrics;
+import hua.dit.mobdev.micalendari.data.Occurrence;
+import hua.dit.mobdev.micalendari.entity.Status;
 import hua.dit.mobdev.micalendari.entity.Task;
 
 // RecyclerView adapter for displaying and managing task items
 public class TaskAdapter extends RecyclerView.Adapter<TaskAdapter.TaskViewHolder> {
-    private List<Task> tasks;
+    // Change payload for rows where only the status differs, so just the status chip rebinds
+    static final Object PAYLOAD_STATUS = new Object();
+
+    // Time spent binding one row, full or status-only
+    private static final Metrics.Histogram BIND_TIME = Metrics.histogram("adapter.bind", Metrics.Unit.NANOS);
+
+    // Diffing rules, keyed on Task.uid (and the occurrence, for rows of recurring tasks)
+    private static final DiffUtil.ItemCallback<TaskRow> DIFF_CALLBACK = new DiffUtil.ItemCallback<TaskRow>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull TaskRow oldRow, @NonNull TaskRow newRow) {
+            return oldRow.itemId == newRow.itemId;
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull TaskRow oldRow, @NonNull TaskRow newRow) {
+            return oldRow.sameStatus(newRow) && oldRow.sameDetails(newRow);
+        }
+
+        @Override
+        public Object getChangePayload(@NonNull TaskRow oldRow, @NonNull TaskRow newRow) {
+            return oldRow.sameDetails(newRow) ? PAYLOAD_STATUS : null;
+        }
+    };
+
+    // Holds the displayed rows and diffs new ones on a background thread
+    private final AsyncListDiffer<TaskRow> differ = new AsyncListDiffer<>(this, DIFF_CALLBACK);
     private final TaskAdapterListener listener;
 
     // Interface for task interaction callbacks
     public interface TaskAdapterListener {
         void onTaskEdit(Task task);
         void markTaskAsCompleted(Task task, String newStatus);
-    }
-
-    private final AppDatabase db;
-    // Initialize adapter with tasks, listener and database instance
-    public TaskAdapter(List<Task> tasks, TaskAdapterListener listener, Context context) {
-        this.tasks = tasks;
-        this.listener = listener;
-        this.db = AppDatabase.getDatabase(context);
-        sortTasks();
-    }
 
-    // Helper method to get status ID from database
-    private int getStatusIdByName(String statusName) {
-        return db.statusDao().getIdByName(statusName);
+        // One occurrence of a recurring task, occurrenceAt as in task_exceptions
+        default void markOccurrenceAsCompleted(Task task, long occurrenceAt) {
+            markTaskAsCompleted(task, Status.COMPLETED);
+        }
     }
 
-    // Sort tasks by priority: expired -> in_progress -> recorded -> completed
-    private void sortTasks() {
-        if (tasks != null) {
-            AppDatabase.databaseWriteExecutor.execute(() -> {
-                // Get status IDs once to avoid multiple database calls
-                final int expiredStatusId = getStatusIdByName("expired");
-                final int inProgressStatusId = getStatusIdByName("in_progress");
-                final int completedStatusId = getStatusIdByName("completed");
-
-                ArrayList<Task> sortedTasks = new ArrayList<>(tasks);
-                Collections.sort(sortedTasks, (t1, t2) -> {
-                    // Put completed tasks at the bottom
-                    if (t1.getStatus_id() == completedStatusId && t2.getStatus_id() != completedStatusId) {
-                        return 1;
-                    } else if (t2.getStatus_id() == completedStatusId && t1.getStatus_id() != completedStatusId) {
-                        return -1;
-                    }
-
-                    // Expired tasks get highest priority
-                    if (t1.getStatus_id() == expiredStatusId && t2.getStatus_id() != expiredStatusId) {
-                        return -1;
-                    } else if (t2.getStatus_id() == expiredStatusId && t1.getStatus_id() != expiredStatusId) {
-                        return 1;
-                    }
-
-                    // In-progress tasks come next
-                    if (t1.getStatus_id() == inProgressStatusId && t2.getStatus_id() != inProgressStatusId) {
-                        return -1;
-                    } else if (t2.getStatus_id() == inProgressStatusId && t1.getStatus_id() != inProgressStatusId) {
-                        return 1;
-                    }
-
-                    // Sort by date/time if status is the same
-                    try {
-                        SimpleDateFormat sdf = new SimpleDateFormat("dd/MM/yyyy HH:mm", Locale.getDefault());
-                        Date date1 = sdf.parse(t1.getDate() + " " + t1.getStartTime());
-                        Date date2 = sdf.parse(t2.getDate() + " " + t2.getStartTime());
-                        assert date1 != null;
-                        return date1.compareTo(date2);
-                    } catch (ParseException e) {
-                        return 0;
-                    } catch (java.text.ParseException e) {
-                        throw new RuntimeException(e);
-                    }
-                });
-
-                // Update UI on main thread
-                mainHandler.post(() -> {
-                    tasks = sortedTasks;
-                    notifyDataSetChanged();
-                });
-            });
-        }
+    // Initialize adapter with its listener; rows arrive through submitRows()
+    public TaskAdapter(TaskAdapterListener listener) {
+        this.listener = listener;
+        // Rows keep their views across updates, so changes animate instead of flashing
+        setHasStableIds(true);
     }
 
     // Create new view holders
+    // Click listeners are set once here and look up the row at click time
     @NonNull
     @Override
     public TaskViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
         View view = LayoutInflater.from(parent.getContext())
                 .inflate(R.layout.item_task, parent, false);
-        return new TaskViewHolder(view);
+        TaskViewHolder holder = new TaskViewHolder(view);
+
+        // Set click listener for task editing
+        holder.itemView.setOnClickListener(v -> {
+            TaskRow row = rowAt(holder);
+            if (row != null) {
+                listener.onTaskEdit(row.task);
+            }
+        });
+
+        // Set complete button click listener
+        holder.completeButton.setOnClickListener(v -> {
+            TaskRow row = rowAt(holder);
+            if (row != null && !row.completed) {
+                Log.e("TaskAdapter", "Complete button clicked for task ID: " + row.task.getUid());
+                holder.completeButton.setImageResource(android.R.drawable.checkbox_on_background);
+                if (row.occurrenceAt != Occurrence.NONE) {
+                    listener.markOccurrenceAsCompleted(row.task, row.occurrenceAt);
+                } else {
+                    listener.markTaskAsCompleted(row.task, Status.COMPLETED);
+                }
+            }
+        });
+        return holder;
+    }
+
+    // Row currently bound to a holder, null while it is being removed
+    private TaskRow rowAt(TaskViewHolder holder) {
+        int position = holder.getBindingAdapterPosition();
+        return position != RecyclerView.NO_POSITION ? differ.getCurrentList().get(position) : null;
     }
 
-    // Handler for main thread UI updates
-    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    // Rebind only the status chip for status-only changes
+    @Override
+    public void onBindViewHolder(@NonNull TaskViewHolder holder, int position, @NonNull List<Object> payloads) {
+        long startNanos = System.nanoTime();
+        if (payloads.contains(PAYLOAD_STATUS)) {
+            bindStatus(holder, differ.getCurrentList().get(position));
+        } else {
+            onBindViewHolder(holder, position);
+        }
+        BIND_TIME.recordSince(startNanos);
+    }
 
-    // Bind task data to view holder
-    @SuppressLint("SetTextI18n")
+    // Bind task data to view holder, synchronously from the prepared row
     @Override
     public void onBindViewHolder(@NonNull TaskViewHolder holder, int position) {
-        Task task = tasks.get(position);
-        final int currentTaskId = task.getUid();
+        TaskRow row = differ.getCurrentList().get(position);
 
         // Set basic task information
-        holder.taskName.setText(task.getShortName() + " (ID: " + task.getUid() + ")");
-        holder.taskTime.setText("Start: " + task.getStartTime() + " (Duration: " + task.getDurationHours() + "h)");
+        holder.taskName.setText(row.title);
+        holder.taskTime.setText(row.timeText);
 
         // Show/hide location if available
-        holder.taskLocation.setVisibility(task.getLocation() != null && !task.getLocation().isEmpty() ? View.VISIBLE : View.GONE);
-        if (holder.taskLocation.getVisibility() == View.VISIBLE) {
-            holder.taskLocation.setText("Location: " + task.getLocation());
-        }
+        holder.taskLocation.setVisibility(row.locationText != null ? View.VISIBLE : View.GONE);
+        holder.taskLocation.setText(row.locationText);
 
         // Show/hide date if available
-        holder.taskDate.setVisibility(task.getDate() != null && !task.getDate().isEmpty() ? View.VISIBLE : View.GONE);
-        if (holder.taskDate.getVisibility() == View.VISIBLE) {
-            holder.taskDate.setText("Date: " + task.getDate());
-        }
+        holder.taskDate.setVisibility(row.dateText != null ? View.VISIBLE : View.GONE);
+        holder.taskDate.setText(row.dateText);
 
-        // Get status from database and update UI accordingly
-        AppDatabase.databaseWriteExecutor.execute(() -> {
-            final String status = db.statusDao().getNameById(task.getStatus_id());
-            final Task finalTask = task;
-
-            mainHandler.post(() -> {
-                // Set status color based on task state
-                int textColor;
-                switch (status) {
-                    case "expired":
-                        textColor = Color.RED;
-                        break;
-                    case "in_progress":
-                        textColor = Color.parseColor("#4CAF50"); // Material Green
-                        break;
-                    case "recorded":
-                        textColor = Color.parseColor("#2196F3"); // Material Blue
-                        break;
-                    default:
-                        textColor = Color.GRAY;
-                        break;
-                }
-
-                holder.taskStatus.setTextColor(textColor);
-                holder.taskStatus.setText(status);
-
-                // Grey out completed tasks
-                if (status.equals("completed")) {
-                    holder.itemView.setBackgroundColor(Color.parseColor("#E0E0E0"));
-                } else {
-                    holder.itemView.setBackgroundColor(Color.WHITE);
-                }
+        bindStatus(holder, row);
+    }
 
-                // Configure complete button state
-                if (status.equals("completed")) {
-                    holder.completeButton.setImageResource(android.R.drawable.checkbox_on_background);
-                    holder.completeButton.setEnabled(false);
-                } else {
-                    holder.completeButton.setImageResource(android.R.drawable.checkbox_off_background);
-                    holder.completeButton.setEnabled(true);
-                }
+    // Bind the status text, colours and complete button of a row
+    private void bindStatus(@NonNull TaskViewHolder holder, TaskRow row) {
+        holder.taskStatus.setTextColor(row.statusColor);
+        holder.taskStatus.setText(row.statusName);
 
-                // Set complete button click listener
-                holder.completeButton.setOnClickListener(v -> {
-                    if (!status.equals("completed")) {
-                        Log.e("TaskAdapter", "Complete button clicked for task ID: " + currentTaskId);
-                        holder.completeButton.setImageResource(android.R.drawable.checkbox_on_background);
-                        listener.markTaskAsCompleted(finalTask, "completed");
-                    }
-                });
-            });
-        });
+        // Grey out completed tasks
+        holder.itemView.setBackgroundColor(row.backgroundColor);
 
-        // Set click listener for task editing
-        holder.itemView.setOnClickListener(v -> listener.onTaskEdit(task));
+        // Configure complete button state
+        holder.completeButton.setImageResource(row.completed
+                ? android.R.drawable.checkbox_on_background
+                : android.R.drawable.checkbox_off_background);
+        holder.completeButton.setEnabled(!row.completed);
     }
 
     @Override
     public int getItemCount() {
-        return tasks != null ? tasks.size() : 0;
+        return differ.getCurrentList().size();
     }
 
-    // Update task list with optimized change detection
-    public void updateTasks(List<Task> newTasks) {
-        if (tasks == null || newTasks == null) {
-            this.tasks = newTasks != null ? new ArrayList<>(newTasks) : new ArrayList<>();
-            notifyDataSetChanged();
-            return;
-        }
+    @Override
+    public long getItemId(int position) {
+        return differ.getCurrentList().get(position).itemId;
+    }
 
-        // Check if tasks actually changed before updating
-        boolean hasChanges = tasks.size() != newTasks.size();
-        if (!hasChanges) {
-            for (int i = 0; i < tasks.size(); i++) {
-                if (!Objects.equals(tasks.get(i).getUid(), newTasks.get(i).getUid()) ||
-                        tasks.get(i).getStatus_id() != newTasks.get(i).getStatus_id() ||
-                        !Objects.equals(tasks.get(i).getShortName(), newTasks.get(i).getShortName()) ||
-                        !Objects.equals(tasks.get(i).getDescription(), newTasks.get(i).getDescription()) ||
-                        !Objects.equals(tasks.get(i).getStartTime(), newTasks.get(i).getStartTime()) ||
-                        !Objects.equals(tasks.get(i).getDate(), newTasks.get(i).getDate()) ||
-                        tasks.get(i).getDurationHours() != newTasks.get(i).getDurationHours() ||
-                        !Objects.equals(tasks.get(i).getLocation(), newTasks.get(i).getLocation())) {
-                    hasChanges = true;
-                    break;
-                }
-            }
-        }
+    // Update the displayed rows, already in display order (see TaskDao.getUncompletedTasksInDisplayOrder)
+    // Diffed against the current list off the main thread; only changed rows are rebound
+    public void submitRows(List<TaskRow> rows) {
+        differ.submitList(rows);
+    }
 
-        // Only sort and update if changes detected
-        if (hasChanges) {
-            this.tasks = new ArrayList<>(newTasks);
-            sortTasks();
-        }
+    // Rows currently displayed, in display order
+    public List<TaskRow> getRows() {
+        return differ.getCurrentList();
     }
 
     // ViewHolder class for task items
@@ -258,4 +192,4 @@ public class TaskAdapter extends RecyclerView.Adapter<TaskAdapter.TaskViewHolder
             completeButton = itemView.findViewById(R.id.completeButton);
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,164 @@
+package hua.dit.mobdev.micalendari.adapter;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import hua.dit.mobdev.micalendari.entity.Task;
+
+// Binary copy of the first page of the task list, so a cold start can draw rows before the
+// database is open; the first query result then replaces them through the adapter's diff
+// The file is memory-mapped and decoded in one pass, no parsing or database work on the way
+// Layout: magic, version, row count, then per row the Task fields the rows and the edit screen
+// use and the status name; strings are a byte length (-1 for null) and UTF-8 bytes
+public final class TaskListSnapshot {
+    private static final String TAG = "TaskListSnapshot";
+
+    static final String FILE_NAME = "task_list.snapshot";
+    private static final int MAGIC = 0x4D435453; // "MCTS"
+    private static final int VERSION = 1;
+    // Larger files are not ours or not worth mapping on the main thread
+    private static final int MAX_BYTES = 256 * 1024;
+
+    // Writes happen off the main thread, one at a time, so the last saved list wins
+    private static final ExecutorService WRITER = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "snapshot-write");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final File file;
+
+    public TaskListSnapshot(Context context) {
+        file = new File(context.getFilesDir(), FILE_NAME);
+    }
+
+    // Rows of the last saved list, empty when there is none or it cannot be read
+    // Meant for onCreate: one small mapped read on the calling thread
+    public List<TaskRow> read() {
+        if (!file.isFile()) return Collections.emptyList();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size == 0 || size > MAX_BYTES) return Collections.emptyList();
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            return decode(buffer);
+        } catch (IOException | RuntimeException e) {
+            // A stale or damaged snapshot only costs the head start
+            Log.w(TAG, "Ignoring unreadable snapshot", e);
+            return Collections.emptyList();
+        }
+    }
+
+    // Keep the first page of the given rows for the next cold start
+    // Encoded on the calling thread, written behind it through a temporary file and a rename,
+    // so read() never sees half a file
+    public void save(List<TaskRow> rows) {
+        final byte[] bytes = encode(rows.subList(0, Math.min(rows.size(), TaskPager.PAGE_SIZE)));
+        WRITER.execute(() -> {
+            File temp = new File(file.getPath() + ".tmp");
+            try (FileOutputStream out = new FileOutputStream(temp)) {
+                out.write(bytes);
+                out.getFD().sync();
+            } catch (IOException e) {
+                Log.w(TAG, "Could not write snapshot", e);
+                temp.delete();
+                return;
+            }
+            if (!temp.renameTo(file)) {
+                Log.w(TAG, "Could not replace snapshot");
+                temp.delete();
+            }
+        });
+    }
+
+    static byte[] encode(List<TaskRow> rows) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(rows.size() * 128 + 12);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(rows.size());
+            for (TaskRow row : rows) {
+                Task task = row.task;
+                out.writeInt(task.getUid());
+                out.writeInt(task.getStatus_id());
+                out.writeInt(task.getDurationHours());
+                out.writeLong(task.getStartAt());
+                out.writeLong(task.getEndAt());
+                out.writeLong(task.getSeriesEndAt() != null ? task.getSeriesEndAt() : Long.MIN_VALUE);
+                out.writeInt(task.getReminderMinutes() != null ? task.getReminderMinutes() : Integer.MIN_VALUE);
+                writeString(out, task.getShortName());
+                writeString(out, task.getDescription());
+                writeString(out, task.getStartTime());
+                writeString(out, task.getLocation());
+                writeString(out, task.getDate());
+                writeString(out, task.getRecurrenceRule());
+                writeString(out, row.statusName);
+            }
+        } catch (IOException e) {
+            // Not thrown by an in-memory stream
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    static List<TaskRow> decode(ByteBuffer buffer) {
+        if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) return Collections.emptyList();
+        int count = buffer.getInt();
+        if (count < 0 || count > TaskPager.PAGE_SIZE) return Collections.emptyList();
+        List<TaskRow> rows = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Task task = new Task();
+            task.setUid(buffer.getInt());
+            task.setStatus_id(buffer.getInt());
+            task.setDurationHours(buffer.getInt());
+            task.setStartAt(buffer.getLong());
+            task.setEndAt(buffer.getLong());
+            long seriesEndAt = buffer.getLong();
+            task.setSeriesEndAt(seriesEndAt != Long.MIN_VALUE ? seriesEndAt : null);
+            int reminderMinutes = buffer.getInt();
+            task.setReminderMinutes(reminderMinutes != Integer.MIN_VALUE ? reminderMinutes : null);
+            task.setShortName(readString(buffer));
+            task.setDescription(readString(buffer));
+            task.setStartTime(readString(buffer));
+            task.setLocation(readString(buffer));
+            task.setDate(readString(buffer));
+            task.setRecurrenceRule(readString(buffer));
+            rows.add(TaskRow.of(task, readString(buffer)));
+        }
+        return rows;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) return null;
+        if (length > buffer.remaining()) throw new IllegalArgumentException("Truncated snapshot");
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
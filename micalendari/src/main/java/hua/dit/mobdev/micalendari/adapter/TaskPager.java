@@ -0,0 +1,222 @@
+package hua.dit.mobdev.micalendari.adapter;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import hua.dit.mobdev.micalendari.core.Metrics;
+import hua.dit.mobdev.micalendari.core.TaskOrder;
+import hua.dit.mobdev.micalendari.dao.TaskDao;
+import hua.dit.mobdev.micalendari.data.AppDatabase;
+import hua.dit.mobdev.micalendari.data.DatabaseExecutors;
+import hua.dit.mobdev.micalendari.data.DatabaseExecutors.Priority;
+import hua.dit.mobdev.micalendari.entity.Status;
+import hua.dit.mobdev.micalendari.entity.Task;
+
+// Keyset-paginated source of the main task list
+// Rows are fetched by (status group, start_at, uid) cursor as the user scrolls, and only a window
+// of pages around the viewport is kept, so memory stays bounded whatever the table size
+// Methods are called on the main thread; queries run on the read pool at UI_REFRESH priority
+public class TaskPager {
+    // Receives the rows of the current window, in display order
+    public interface Listener {
+        void onRowsLoaded(List<TaskRow> rows);
+    }
+
+    // Status groups in display order
+    private static final String[] GROUPS = {Status.EXPIRED, Status.IN_PROGRESS, Status.RECORDED};
+
+    static final int PAGE_SIZE = 50;
+    // Pages kept in memory; the farthest one is dropped when a new one is loaded
+    static final int MAX_PAGES = 5;
+    // Rows left before the window edge that trigger loading the next page
+    private static final int PREFETCH_DISTANCE = 15;
+
+    // From refresh() to the reloaded window being handed to the listener
+    private static final Metrics.Histogram REFRESH_TIME = Metrics.histogram("tasks.refresh", Metrics.Unit.NANOS);
+    // One page query, across the status groups it spans
+    private static final Metrics.Histogram PAGE_QUERY_TIME = Metrics.histogram("dao.tasksPage", Metrics.Unit.NANOS);
+
+    private final AppDatabase db;
+    private final DatabaseExecutors.Scope jobs;
+    private final Listener listener;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // Loaded window, each page in display order
+    private final ArrayDeque<List<TaskRow>> pages = new ArrayDeque<>();
+    // Whether the window touches the first / last row of the whole list
+    private boolean startReached = true;
+    private boolean endReached = false;
+    private boolean loading = false;
+    // Bumped by refresh() so results of older loads are ignored
+    private int generation = 0;
+
+    // Loads run in the given scope, so they stop with the screen
+    public TaskPager(AppDatabase db, DatabaseExecutors.Scope jobs, Listener listener) {
+        this.db = db;
+        this.jobs = jobs;
+        this.listener = listener;
+    }
+
+    // Reload the current window in place, e.g. after the tasks table changed
+    // The window is re-read from its first row, so the user stays where they are
+    public void refresh() {
+        final long startNanos = System.nanoTime();
+        final int gen = ++generation;
+        loading = true;
+        final int size = Math.max(PAGE_SIZE, windowSize());
+        final TaskRow anchor = startReached ? null : pages.getFirst().get(0);
+
+        jobs.read(Priority.UI_REFRESH, () -> {
+            // Start just before the anchor, so the anchor itself is included
+            List<TaskRow> anchored = anchor == null
+                    ? null
+                    : fetchAfter(groupOf(anchor), anchor.task.getStartAt(), anchor.task.getUid() - 1, size);
+            // Nothing left from the anchor on: fall back to the top of the list
+            final boolean fromStart = anchored == null || anchored.isEmpty();
+            final List<TaskRow> rows = fromStart
+                    ? fetchAfter(0, Long.MIN_VALUE, Integer.MIN_VALUE, size)
+                    : anchored;
+
+            mainHandler.post(() -> {
+                if (gen != generation) return;
+                if (fromStart) startReached = true;
+                pages.clear();
+                for (int from = 0; from < rows.size(); from += PAGE_SIZE) {
+                    pages.addLast(rows.subList(from, Math.min(rows.size(), from + PAGE_SIZE)));
+                }
+                endReached = rows.size() < size;
+                loading = false;
+                publish();
+                REFRESH_TIME.recordSince(startNanos);
+            });
+        });
+    }
+
+    // Whether the loaded window starts at the top of the list, i.e. holds its first page
+    public boolean isAtStart() {
+        return startReached && !pages.isEmpty();
+    }
+
+    // Tell the pager which rows are on screen, so it loads or drops pages around them
+    public void onViewportChanged(int firstVisible, int lastVisible, int itemCount) {
+        if (lastVisible >= itemCount - PREFETCH_DISTANCE) {
+            loadNext();
+        } else if (firstVisible >= 0 && firstVisible < PREFETCH_DISTANCE) {
+            loadPrevious();
+        }
+    }
+
+    // Append the page after the window, dropping the first page if the window is full
+    private void loadNext() {
+        if (loading || endReached || pages.isEmpty()) return;
+        final int gen = generation;
+        loading = true;
+        final TaskRow last = lastOf(pages.getLast());
+
+        jobs.read(Priority.UI_REFRESH, () -> {
+            List<TaskRow> rows = fetchAfter(groupOf(last), last.task.getStartAt(), last.task.getUid(), PAGE_SIZE);
+
+            mainHandler.post(() -> {
+                if (gen != generation) return;
+                if (!rows.isEmpty()) pages.addLast(rows);
+                endReached = rows.size() < PAGE_SIZE;
+                while (pages.size() > MAX_PAGES) {
+                    pages.removeFirst();
+                    startReached = false;
+                }
+                loading = false;
+                publish();
+            });
+        });
+    }
+
+    // Prepend the page before the window, dropping the last page if the window is full
+    private void loadPrevious() {
+        if (loading || startReached || pages.isEmpty()) return;
+        final int gen = generation;
+        loading = true;
+        final TaskRow first = pages.getFirst().get(0);
+
+        jobs.read(Priority.UI_REFRESH, () -> {
+            List<TaskRow> rows = fetchBefore(groupOf(first), first.task.getStartAt(), first.task.getUid(), PAGE_SIZE);
+
+            mainHandler.post(() -> {
+                if (gen != generation) return;
+                if (!rows.isEmpty()) pages.addFirst(rows);
+                startReached = rows.size() < PAGE_SIZE;
+                while (pages.size() > MAX_PAGES) {
+                    pages.removeLast();
+                    endReached = false;
+                }
+                loading = false;
+                publish();
+            });
+        });
+    }
+
+    // Up to limit rows after the given key, continuing into the following status groups
+    private List<TaskRow> fetchAfter(int group, long startAt, int uid, int limit) {
+        long startNanos = System.nanoTime();
+        TaskDao taskDao = db.taskDao();
+        List<Task> tasks = db.runInTransaction(() -> {
+            List<Task> found = new ArrayList<>(limit);
+            for (int g = group; g < GROUPS.length && found.size() < limit; g++) {
+                found.addAll(g == group
+                        ? taskDao.getTasksPageAfter(GROUPS[g], startAt, uid, limit - found.size())
+                        : taskDao.getTasksPageAfter(GROUPS[g], Long.MIN_VALUE, Integer.MIN_VALUE, limit - found.size()));
+            }
+            return found;
+        });
+        PAGE_QUERY_TIME.recordSince(startNanos);
+        return TaskRow.fromTasks(tasks, db.statusRegistry());
+    }
+
+    // Up to limit rows before the given key, continuing into the preceding status groups
+    private List<TaskRow> fetchBefore(int group, long startAt, int uid, int limit) {
+        long startNanos = System.nanoTime();
+        TaskDao taskDao = db.taskDao();
+        List<Task> tasks = db.runInTransaction(() -> {
+            List<Task> found = new ArrayList<>(limit);
+            for (int g = group; g >= 0 && found.size() < limit; g--) {
+                found.addAll(g == group
+                        ? taskDao.getTasksPageBefore(GROUPS[g], startAt, uid, limit - found.size())
+                        : taskDao.getTasksPageBefore(GROUPS[g], Long.MAX_VALUE, Integer.MAX_VALUE, limit - found.size()));
+            }
+            // Queried nearest first, displayed in ascending order
+            Collections.reverse(found);
+            return found;
+        });
+        PAGE_QUERY_TIME.recordSince(startNanos);
+        return TaskRow.fromTasks(tasks, db.statusRegistry());
+    }
+
+    // Status group of a loaded row; GROUPS is the start of TaskOrder.STATUS_GROUPS
+    private static int groupOf(TaskRow row) {
+        return TaskOrder.groupOf(row.statusName);
+    }
+
+    private static TaskRow lastOf(List<TaskRow> page) {
+        return page.get(page.size() - 1);
+    }
+
+    private int windowSize() {
+        int size = 0;
+        for (List<TaskRow> page : pages) {
+            size += page.size();
+        }
+        return size;
+    }
+
+    private void publish() {
+        List<TaskRow> rows = new ArrayList<>(windowSize());
+        for (List<TaskRow> page : pages) {
+            rows.addAll(page);
+        }
+        listener.onRowsLoaded(rows);
+    }
+}
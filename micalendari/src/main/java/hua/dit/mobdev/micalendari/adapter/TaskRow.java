@@ -0,0 +1,154 @@
+package hua.dit.mobdev.micalendari.adapter;
+
+import android.graphics.Color;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+
+import hua.dit.mobdev.micalendari.data.Occurrence;
+import hua.dit.mobdev.micalendari.data.StatusRegistry;
+import hua.dit.mobdev.micalendari.entity.RecurrenceRule;
+import hua.dit.mobdev.micalendari.entity.Status;
+import hua.dit.mobdev.micalendari.entity.Task;
+
+// Display model of one task row
+// Built off the main thread, so binding is only field copies: no DB calls, parsing or string building
+public final class TaskRow {
+    // Status colours
+    private static final int COLOR_IN_PROGRESS = 0xFF4CAF50; // Material Green
+    private static final int COLOR_RECORDED = 0xFF2196F3; // Material Blue
+    private static final int COLOR_COMPLETED_BACKGROUND = 0xFFE0E0E0;
+    // Same formats as the date and start time fields of a task
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("dd/MM/yyyy", Locale.getDefault());
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm", Locale.getDefault());
+
+    final Task task;
+    // Occurrence of a recurring task shown by the row, Occurrence.NONE for a task row
+    final long occurrenceAt;
+    // Adapter id: the uid for task rows, uid and occurrence for occurrence rows
+    final long itemId;
+    final String title;
+    final String timeText;
+    final String dateText; // null when the task has no date
+    final String locationText; // null when the task has no location
+    final String statusName;
+    final int statusColor;
+    final int backgroundColor;
+    final boolean completed;
+
+    private TaskRow(Task task, String statusName) {
+        this(task, statusName, Occurrence.NONE, task.getDate(), task.getStartTime());
+    }
+
+    // date and startTime are those of the task, or of the occurrence shown
+    private TaskRow(Task task, String statusName, long occurrenceAt, String date, String startTime) {
+        this.task = task;
+        this.occurrenceAt = occurrenceAt;
+        this.itemId = occurrenceAt == Occurrence.NONE
+                ? task.getUid()
+                : (occurrenceAt / 60_000) << 32 | (task.getUid() & 0xFFFFFFFFL);
+        this.title = task.getShortName() + " (ID: " + task.getUid() + ")";
+        this.timeText = "Start: " + startTime + " (Duration: " + task.getDurationHours() + "h)"
+                + repeatTextOf(task);
+        this.dateText = date != null && !date.isEmpty()
+                ? "Date: " + date : null;
+        this.locationText = task.getLocation() != null && !task.getLocation().isEmpty()
+                ? "Location: " + task.getLocation() : null;
+        this.statusName = statusName != null ? statusName : "";
+        this.completed = Status.COMPLETED.equals(statusName);
+        this.statusColor = statusColorOf(statusName);
+        this.backgroundColor = completed ? COLOR_COMPLETED_BACKGROUND : Color.WHITE;
+    }
+
+    // Build the row of a task, resolving its status through the in-memory registry
+    public static TaskRow from(Task task, StatusRegistry statuses) {
+        return new TaskRow(task, statuses.getNameById(task.getStatus_id()));
+    }
+
+    // Build the row of a task whose status name is known already, e.g. read from a TaskListSnapshot
+    static TaskRow of(Task task, String statusName) {
+        return new TaskRow(task, statusName);
+    }
+
+    // Build the rows of a list of tasks, keeping their order
+    public static List<TaskRow> fromTasks(List<Task> tasks, StatusRegistry statuses) {
+        List<TaskRow> rows = new ArrayList<>(tasks.size());
+        for (Task task : tasks) {
+            rows.add(from(task, statuses));
+        }
+        return rows;
+    }
+
+    // Build the rows of calendar entries, keeping their order
+    // Occurrences show their own date and time and can be completed one by one
+    public static List<TaskRow> fromOccurrences(List<Occurrence> occurrences) {
+        List<TaskRow> rows = new ArrayList<>(occurrences.size());
+        ZoneId zone = ZoneId.systemDefault();
+        for (Occurrence occurrence : occurrences) {
+            if (occurrence.isRecurring()) {
+                Instant start = Instant.ofEpochMilli(occurrence.startAt);
+                rows.add(new TaskRow(occurrence.task, occurrence.statusName, occurrence.occurrenceAt,
+                        DATE_FORMAT.format(start.atZone(zone)), TIME_FORMAT.format(start.atZone(zone))));
+            } else {
+                rows.add(new TaskRow(occurrence.task, occurrence.statusName));
+            }
+        }
+        return rows;
+    }
+
+    // ", repeats weekly" and the like for recurring tasks, empty otherwise
+    private static String repeatTextOf(Task task) {
+        RecurrenceRule rule = task.getRecurrence();
+        if (rule == null) return "";
+        if (rule.getInterval() == 1) {
+            return ", repeats " + rule.getFrequency().name().toLowerCase(Locale.ROOT);
+        }
+        String units = rule.getFrequency() == RecurrenceRule.Frequency.DAILY ? "days"
+                : rule.getFrequency() == RecurrenceRule.Frequency.WEEKLY ? "weeks" : "months";
+        return ", repeats every " + rule.getInterval() + " " + units;
+    }
+
+    public Task getTask() {
+        return task;
+    }
+
+    // Set status color based on task state
+    private static int statusColorOf(String statusName) {
+        if (statusName == null) {
+            return Color.GRAY;
+        }
+        switch (statusName) {
+            case Status.EXPIRED:
+                return Color.RED;
+            case Status.IN_PROGRESS:
+                return COLOR_IN_PROGRESS;
+            case Status.RECORDED:
+                return COLOR_RECORDED;
+            default:
+                return Color.GRAY;
+        }
+    }
+
+    // Same text in every field except the status ones
+    // The description is not shown but is handed to the edit screen, so it counts too
+    boolean sameDetails(TaskRow other) {
+        return Objects.equals(task.getDescription(), other.task.getDescription()) &&
+                title.equals(other.title) &&
+                timeText.equals(other.timeText) &&
+                Objects.equals(dateText, other.dateText) &&
+                Objects.equals(locationText, other.locationText);
+    }
+
+    // Same status text, colours and button state
+    boolean sameStatus(TaskRow other) {
+        return statusName.equals(other.statusName) &&
+                statusColor == other.statusColor &&
+                backgroundColor == other.backgroundColor &&
+                completed == other.completed;
+    }
+}
@@ -0,0 +1,87 @@
+package hua.dit.mobdev.micalendari.crud;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+// Grammar check of client selections on top of the compile check of TaskContentProvider
+// A selection that compiles can still read other tables, through a subquery or "x IN table",
+// so it must not contain SELECT and IN must be followed by a parenthesized list
+final class SelectionGrammar {
+
+    private SelectionGrammar() {}
+
+    // Why selection is rejected, null when it may be used
+    static String rejectReason(String selection) {
+        List<String> tokens = tokens(selection);
+        for (int i = 0; i < tokens.size(); i++) {
+            String token = tokens.get(i);
+            if (token.equals("SELECT")) {
+                return "subquery";
+            }
+            if (token.equals("IN") && (i + 1 == tokens.size() || !tokens.get(i + 1).equals("("))) {
+                return "IN without a value list";
+            }
+        }
+        return null;
+    }
+
+    // Upper cased keywords and identifiers, and single character punctuation, of the SQL text
+    // String literals and comments are skipped, quoted identifiers are one token each
+    static List<String> tokens(String sql) {
+        List<String> tokens = new ArrayList<>();
+        int length = sql.length();
+        int i = 0;
+        while (i < length) {
+            char c = sql.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '\'') {
+                i = skipQuoted(sql, i, '\'');
+            } else if (c == '"' || c == '`') {
+                int end = skipQuoted(sql, i, c);
+                tokens.add(sql.substring(i, end));
+                i = end;
+            } else if (c == '[') {
+                int end = sql.indexOf(']', i);
+                end = end < 0 ? length : end + 1;
+                tokens.add(sql.substring(i, end));
+                i = end;
+            } else if (sql.startsWith("--", i)) {
+                int end = sql.indexOf('\n', i);
+                i = end < 0 ? length : end + 1;
+            } else if (sql.startsWith("/*", i)) {
+                int end = sql.indexOf("*/", i + 2);
+                i = end < 0 ? length : end + 2;
+            } else if (Character.isLetterOrDigit(c) || c == '_') {
+                int end = i + 1;
+                while (end < length && (Character.isLetterOrDigit(sql.charAt(end)) || sql.charAt(end) == '_'
+                        || sql.charAt(end) == '$')) {
+                    end++;
+                }
+                tokens.add(sql.substring(i, end).toUpperCase(Locale.ROOT));
+                i = end;
+            } else {
+                tokens.add(String.valueOf(c));
+                i++;
+            }
+        }
+        return tokens;
+    }
+
+    // Index after the quoted text starting at start, where a doubled quote stands for itself
+    private static int skipQuoted(String sql, int start, char quote) {
+        int i = start + 1;
+        while (i < sql.length()) {
+            if (sql.charAt(i) == quote) {
+                if (i + 1 < sql.length() && sql.charAt(i + 1) == quote) {
+                    i += 2;
+                    continue;
+                }
+                return i + 1;
+            }
+            i++;
+        }
+        return sql.length();
+    }
+}
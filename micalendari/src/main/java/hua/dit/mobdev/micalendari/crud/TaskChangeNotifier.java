@@ -0,0 +1,137 @@
+package hua.dit.mobdev.micalendari.crud;
+
+import android.content.ContentResolver;
+import android.content.ContentUris;
+import android.content.Context;
+import android.net.Uri;
+
+import androidx.annotation.Nullable;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import hua.dit.mobdev.micalendari.data.AppDatabase;
+
+// Single point through which every task write announces itself
+// Changes are sent as tasks/<uid> notifications, so observers of one task only wake up for
+// that task; inside runInTransaction() they are collected and sent once after the commit, and
+// a large batch collapses into one notification of the whole collection
+public final class TaskChangeNotifier {
+    // In-process observers, told about the same changes as ContentObservers
+    public interface Listener {
+        // uids of the changed tasks, or null when any task may have changed
+        void onTasksChanged(@Nullable long[] uids);
+    }
+
+    // Above this many tasks in one batch, a single collection notification is sent instead
+    static final int MAX_ITEM_NOTIFICATIONS = 32;
+
+    private static volatile TaskChangeNotifier INSTANCE;
+
+    private final ContentResolver resolver;
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    // Changes collected by the runInTransaction() running on the current thread
+    private final ThreadLocal<Batch> batch = new ThreadLocal<>();
+
+    private static final class Batch {
+        final Set<Long> uids = new LinkedHashSet<>();
+        boolean all;
+    }
+
+    private TaskChangeNotifier(Context context) {
+        resolver = context.getApplicationContext().getContentResolver();
+    }
+
+    public static TaskChangeNotifier getInstance(Context context) {
+        if (INSTANCE == null) {
+            synchronized (TaskChangeNotifier.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new TaskChangeNotifier(context);
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    // URI of a single task
+    public static Uri taskUri(long uid) {
+        return ContentUris.withAppendedId(TaskContentProvider.CONTENT_URI, uid);
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    // One task was inserted, updated or deleted
+    public void taskChanged(long uid) {
+        Batch current = batch.get();
+        if (current == null) {
+            dispatch(new long[]{uid});
+        } else if (!current.all) {
+            current.uids.add(uid);
+            if (current.uids.size() > MAX_ITEM_NOTIFICATIONS) {
+                current.all = true;
+                current.uids.clear();
+            }
+        }
+    }
+
+    // Several tasks changed and their uids are not known, e.g. after a set-based UPDATE
+    public void tasksChanged() {
+        Batch current = batch.get();
+        if (current == null) {
+            dispatch(null);
+        } else {
+            current.all = true;
+            current.uids.clear();
+        }
+    }
+
+    // Run body in one Room transaction and send the changes it reports once it commits
+    // Nothing is sent if it rolls back; nested calls join the outer batch
+    public <V> V runInTransaction(AppDatabase db, Callable<V> body) {
+        if (batch.get() != null) {
+            return db.runInTransaction(body);
+        }
+        Batch current = new Batch();
+        batch.set(current);
+        V result;
+        try {
+            result = db.runInTransaction(body);
+        } finally {
+            batch.remove();
+        }
+        if (current.all) {
+            dispatch(null);
+        } else if (!current.uids.isEmpty()) {
+            long[] uids = new long[current.uids.size()];
+            int i = 0;
+            for (long uid : current.uids) {
+                uids[i++] = uid;
+            }
+            dispatch(uids);
+        }
+        return result;
+    }
+
+    private void dispatch(@Nullable long[] uids) {
+        if (uids == null) {
+            // Also reaches observers of the single task URIs
+            resolver.notifyChange(TaskContentProvider.CONTENT_URI, null);
+        } else {
+            for (long uid : uids) {
+                resolver.notifyChange(taskUri(uid), null);
+            }
+        }
+        for (Listener listener : listeners) {
+            listener.onTasksChanged(uids);
+        }
+    }
+}
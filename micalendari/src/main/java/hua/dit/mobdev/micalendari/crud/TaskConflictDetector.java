@@ -0,0 +1,113 @@
+package hua.dit.mobdev.micalendari.crud;
+
+import android.content.Context;
+
+import androidx.annotation.Nullable;
+
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import hua.dit.mobdev.micalendari.data.AppDatabase;
+import hua.dit.mobdev.micalendari.data.OccurrenceExpander;
+import hua.dit.mobdev.micalendari.data.TaskIntervalIndex;
+import hua.dit.mobdev.micalendari.entity.Task;
+import hua.dit.mobdev.micalendari.entity.TaskException;
+
+// Finds the tasks a new start/end time would overlap, without scanning the tasks table
+// Keeps a TaskIntervalIndex of every scheduled task, built from the database on first use and
+// then updated from TaskChangeNotifier: changed tasks are re-read by uid, and a change of
+// unknown tasks (e.g. an import) drops the index so the next check rebuilds it
+// Recurring series are checked by expanding their occurrences over the checked window
+// Methods read the database, call them off the main thread
+public final class TaskConflictDetector implements TaskChangeNotifier.Listener {
+    // Most conflicting tasks returned by one check
+    public static final int MAX_CONFLICTS = 20;
+
+    private static volatile TaskConflictDetector INSTANCE;
+
+    private final AppDatabase db;
+    private final TaskIntervalIndex index = new TaskIntervalIndex();
+    // Guarded by this; the index is filled while loaded
+    private boolean loaded;
+
+    private TaskConflictDetector(Context context) {
+        db = AppDatabase.getDatabase(context);
+        TaskChangeNotifier.getInstance(context).addListener(this);
+    }
+
+    public static TaskConflictDetector getInstance(Context context) {
+        if (INSTANCE == null) {
+            synchronized (TaskConflictDetector.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new TaskConflictDetector(context.getApplicationContext());
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    // Tasks other than excludeUid that overlap [startAt, endAt), by start time
+    // excludeUid is the task being edited, or -1 for a new one
+    public List<Task> findConflicts(long startAt, long endAt, int excludeUid) {
+        if (startAt == Task.UNSCHEDULED) return new ArrayList<>();
+        List<Integer> uids;
+        synchronized (this) {
+            if (!loaded) {
+                index.putAll(db.taskDao().getScheduledIntervals());
+                loaded = true;
+            }
+            uids = index.findOverlapping(startAt, Math.max(endAt, startAt + 1), excludeUid, MAX_CONFLICTS);
+        }
+        List<Task> conflicts = uids.isEmpty() ? new ArrayList<>() : db.taskDao().getTasksByIds(uids);
+        conflicts.addAll(findSeriesConflicts(startAt, Math.max(endAt, startAt + 1), excludeUid,
+                MAX_CONFLICTS - conflicts.size()));
+        return conflicts;
+    }
+
+    // Recurring series with an occurrence overlapping [startAt, endAt)
+    // Series are not in the index: their few candidates come from the series_end_at index and
+    // are expanded over the window only
+    private List<Task> findSeriesConflicts(long startAt, long endAt, int excludeUid, int limit) {
+        List<Task> conflicts = new ArrayList<>();
+        if (limit <= 0) return conflicts;
+        List<Task> series = db.taskDao().getRecurringTasksOverlapping(startAt, endAt);
+        if (series.isEmpty()) return conflicts;
+        Map<Integer, Map<Long, TaskException>> exceptions =
+                OccurrenceExpander.exceptionsBetween(db.taskExceptionDao(), series, startAt, endAt);
+        long now = System.currentTimeMillis();
+        ZoneId zone = ZoneId.systemDefault();
+        for (Task task : series) {
+            if (task.getUid() == excludeUid) continue;
+            if (!OccurrenceExpander.expand(task, exceptions.get(task.getUid()), startAt, endAt, now, zone).isEmpty()) {
+                conflicts.add(task);
+                if (conflicts.size() >= limit) break;
+            }
+        }
+        return conflicts;
+    }
+
+    // Called after each committed write, on the writing thread
+    // Holding the lock while re-reading keeps a concurrent first load from overwriting newer rows
+    @Override
+    public synchronized void onTasksChanged(@Nullable long[] uids) {
+        if (!loaded) return;
+        if (uids == null) {
+            index.clear();
+            loaded = false;
+            return;
+        }
+        List<Long> changed = new ArrayList<>(uids.length);
+        for (long uid : uids) {
+            changed.add(uid);
+            // Deleted and unscheduled tasks stay out
+            index.remove((int) uid);
+        }
+        for (TaskIntervalIndex.Interval interval : db.taskDao().getIntervalsByIds(changed)) {
+            if (interval.startAt != Task.UNSCHEDULED) {
+                index.put(interval.uid, interval.startAt, interval.endAt);
+            }
+        }
+    }
+}
@@ -1,39 +1,143 @@
 package hua.dit.mobdev.micalendari.crud;
 
 import android.content.ContentProvider;
+import android.content.ContentProviderOperation;
+import android.content.ContentProviderResult;
 import android.content.ContentUris;
 import android.content.ContentValues;
+import android.content.OperationApplicationException;
 import android.content.UriMatcher;
+import android.content.pm.ApplicationInfo;
 import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.MatrixCursor;
+import android.database.SQLException;
+import android.database.sqlite.SQLiteQueryBuilder;
 import android.net.Uri;
+import android.os.Binder;
+import android.os.Bundle;
+import android.os.Process;
+import android.text.TextUtils;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.sqlite.db.SimpleSQLiteQuery;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.SupportSQLiteStatement;
 
+import java.io.IOException;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import hua.dit.mobdev.micalendari.core.Metrics;
+import hua.dit.mobdev.micalendari.core.TaskSchedule;
 import hua.dit.mobdev.micalendari.data.AppDatabase;
+import hua.dit.mobdev.micalendari.data.Occurrence;
+import hua.dit.mobdev.micalendari.data.OccurrenceExpander;
+import hua.dit.mobdev.micalendari.data.QueryTracer;
+import hua.dit.mobdev.micalendari.data.StatusRegistry;
+import hua.dit.mobdev.micalendari.entity.ContentHash;
+import hua.dit.mobdev.micalendari.entity.Status;
 import hua.dit.mobdev.micalendari.entity.Task;
+import hua.dit.mobdev.micalendari.worker.TaskStatusScheduler;
 
 // Content Provider for external access to task data
 public class TaskContentProvider extends ContentProvider {
     private static final String TAG = "TaskContentProvider";
 
     // Content Provider configuration
-    private static final String MY_PROVIDER = "hua.dit.mobdev.micalendari.provider";
+    public static final String MY_PROVIDER = "hua.dit.mobdev.micalendari.provider";
     private static final String CONTENT_URI_STR = "content://" + MY_PROVIDER + "/tasks";
     public static final Uri CONTENT_URI = Uri.parse(CONTENT_URI_STR);
 
     // URI matcher setup for request handling
+    // tasks: every task; tasks/<uid>: one task; tasks/status/<name>: tasks of one status;
+    // tasks/between/<from>/<to>: one-off tasks and occurrences of recurring ones overlapping
+    // [from, to), epoch millis, as the agenda shows them; update and delete take the one-off
+    // tasks only, with the overlap test of TaskDao.getTasksOverlapping
     private static final UriMatcher uriMatcher = new UriMatcher(UriMatcher.NO_MATCH);
     private static final int URI_CODE = 1;
+    private static final int TASK_ID_CODE = 2;
+    private static final int STATUS_CODE = 3;
+    private static final int BETWEEN_CODE = 4;
     static {
         uriMatcher.addURI(MY_PROVIDER, "tasks", URI_CODE);
+        uriMatcher.addURI(MY_PROVIDER, "tasks/#", TASK_ID_CODE);
+        uriMatcher.addURI(MY_PROVIDER, "tasks/status/*", STATUS_CODE);
+        uriMatcher.addURI(MY_PROVIDER, "tasks/between/#/#", BETWEEN_CODE);
     }
 
+    // call() method returning the runtime metrics: one long per value, e.g. "status.sweep.p99"
+    // in microseconds, plus the readable text under METRICS_REPORT; arg METRICS_RESET zeroes them after
+    public static final String METHOD_METRICS = "metrics";
+    public static final String METRICS_REPORT = "report";
+    public static final String METRICS_RESET = "reset";
+    // call() method returning QueryTracer's per-statement report under METRICS_REPORT, empty
+    // while tracing is off; arg METRICS_RESET clears it after
+    public static final String METHOD_QUERY_STATS = "queryStats";
+    // call() method turning query tracing on from the next start, arg being the slow threshold in
+    // milliseconds (default when empty), or off with arg QUERY_TRACING_OFF
+    public static final String METHOD_QUERY_TRACING = "queryTracing";
+    public static final String QUERY_TRACING_OFF = "off";
+    // call() is not covered by android:permission, so it is checked by hand
+    // The permission is signature level, which adb's shell cannot hold; debuggable builds let the
+    // shell call these methods too, see enforceCallPermission()
+    private static final String PERMISSION = "hua.dit.mobdev.micalendari.READ_WRITE_PERMISSION";
+
+    // Optional query parameter limiting the number of returned rows
+    public static final String QUERY_PARAMETER_LIMIT = "limit";
+
+    // Tasks with their status name; clients see only the columns of PROJECTION_MAP
+    private static final String TABLES = "tasks JOIN status ON status.id = tasks.status_id";
+    // COLUMN_EXPRESSIONS maps the same names to the expressions behind them, which ORDER BY can use
+    // whether or not the column is projected
+    private static final Map<String, String> PROJECTION_MAP = new LinkedHashMap<>();
+    private static final Map<String, String> COLUMN_EXPRESSIONS = new LinkedHashMap<>();
+    static {
+        COLUMN_EXPRESSIONS.put("_id", "tasks.uid");
+        for (String column : new String[]{"uid", "shortName", "description", "startTime", "durationHours",
+                "location", "date", "status_id", "start_at", "end_at", "recurrence_rule", "reminder_minutes"}) {
+            COLUMN_EXPRESSIONS.put(column, "tasks." + column);
+        }
+        COLUMN_EXPRESSIONS.put("status", "status.name");
+        for (Map.Entry<String, String> column : COLUMN_EXPRESSIONS.entrySet()) {
+            PROJECTION_MAP.put(column.getKey(), column.getValue() + " AS " + column.getKey());
+        }
+    }
+    private static final String DEFAULT_SORT_ORDER = "tasks.start_at, tasks.uid";
+    // Columns of tasks/between rows: those of PROJECTION_MAP, plus the start the rule gives an
+    // occurrence, its key in task_exceptions (NULL for one-off tasks)
+    private static final String OCCURRENCE_AT = "occurrence_at";
+    private static final Set<String> OCCURRENCE_COLUMNS = new LinkedHashSet<>(COLUMN_EXPRESSIONS.keySet());
+    static {
+        OCCURRENCE_COLUMNS.add(OCCURRENCE_AT);
+    }
+    private static final String DEFAULT_OCCURRENCE_ORDER = "start_at, uid";
+    // Columns clients may change; start_at, end_at, series_end_at and content_hash follow from them
+    // recurrence_rule and reminder_minutes are read-only here, they are set in the app
+    private static final Set<String> UPDATABLE_COLUMNS = new HashSet<>(Arrays.asList(
+            "shortName", "description", "startTime", "durationHours", "location", "date", "status_id"));
+
     private AppDatabase db;
+    private TaskChangeNotifier notifier;
+    // Set while applyBatch() runs the operations of a batch on the calling thread
+    private final ThreadLocal<Boolean> inBatch = ThreadLocal.withInitial(() -> false);
 
     @Override
     public boolean onCreate() {
         db = AppDatabase.getDatabase(getContext());
+        notifier = TaskChangeNotifier.getInstance(getContext());
         return true;
     }
 
@@ -42,80 +146,571 @@ public class TaskContentProvider extends ContentProvider {
     public Uri insert(@NonNull Uri uri, ContentValues values) {
         Log.d(TAG, "Insert Data: uri=" + uri + " , values=" + values);
         if (uriMatcher.match(uri) == URI_CODE) {
-            // Create new task from provided values
-            Task task = new Task();
-            task.setShortName(values.getAsString("shortName"));
-            task.setDescription(values.getAsString("description"));
-            task.setStartTime(values.getAsString("startTime"));
-            task.setDurationHours(values.getAsInteger("durationHours"));
-            task.setLocation(values.getAsString("location"));
-            task.setDate(values.getAsString("date"));
-            task.setStatus_id(values.getAsInteger("status_id"));
-
-            long taskId = db.taskDao().insertTask(task);
+            long taskId = db.taskDao().insertTask(taskFromValues(values, new ContentHash()));
             Log.i(TAG, "Insert Data: NEW Task ID: " + taskId);
+            notifier.taskChanged(taskId);
+            onTasksChanged();
             return ContentUris.withAppendedId(CONTENT_URI, taskId);
         }
 
         throw new RuntimeException("Insert Method - Not supported URI: " + uri);
     }
 
+    // Insert many tasks in one transaction with one prepared statement
+    // Observers get a single notification and one status sweep runs, whatever the row count
+    @Override
+    public int bulkInsert(@NonNull Uri uri, @NonNull ContentValues[] values) {
+        Log.d(TAG, "Bulk Insert Data: uri=" + uri + " , rows=" + values.length);
+        if (uriMatcher.match(uri) == URI_CODE) {
+            List<Task> tasks = new ArrayList<>(values.length);
+            ContentHash contentHash = new ContentHash();
+            for (ContentValues taskValues : values) {
+                tasks.add(taskFromValues(taskValues, contentHash));
+            }
+            notifier.runInTransaction(db, () -> {
+                for (long taskId : db.taskDao().insertTasks(tasks)) {
+                    notifier.taskChanged(taskId);
+                }
+                return null;
+            });
+            onTasksChanged();
+            return tasks.size();
+        }
+
+        throw new RuntimeException("Bulk Insert Method - Not supported URI: " + uri);
+    }
+
+    // Apply a batch of operations in one transaction: all of them or none
+    // The notifications of the operations are sent together after the commit, and one
+    // status sweep replaces the per-operation ones
+    @NonNull
+    @Override
+    public ContentProviderResult[] applyBatch(@NonNull ArrayList<ContentProviderOperation> operations)
+            throws OperationApplicationException {
+        Log.d(TAG, "Apply Batch: operations=" + operations.size());
+        ContentProviderResult[] results;
+        inBatch.set(true);
+        try {
+            results = notifier.runInTransaction(db, () -> super.applyBatch(operations));
+        } finally {
+            inBatch.set(false);
+        }
+        onTasksChanged();
+        return results;
+    }
+
+    // Task built from the values of an insert, with its schedule and content hash
+    private Task taskFromValues(ContentValues values, ContentHash contentHash) {
+        Task task = new Task();
+        task.setShortName(values.getAsString("shortName"));
+        task.setDescription(values.getAsString("description"));
+        task.setStartTime(values.getAsString("startTime"));
+        task.setDurationHours(values.getAsInteger("durationHours"));
+        task.setLocation(values.getAsString("location"));
+        task.setDate(values.getAsString("date"));
+        // New tasks default to "recorded" when the client does not pick a status
+        Integer statusId = values.getAsInteger("status_id");
+        task.setStatus_id(statusId != null ? statusId : db.statusRegistry().getIdByName(Status.RECORDED));
+        task.updateSchedule();
+        task.setContentHash(contentHash.of(task));
+        return task;
+    }
+
+    // Re-check statuses after a write, once per batch
+    private void onTasksChanged() {
+        if (inBatch.get()) return;
+        TaskStatusScheduler.sweepNow(getContext());
+    }
+
+    // Announce a write to the rows of a URI: the task itself for tasks/<uid>, else the collection
+    private void notifyWritten(int match, Uri uri) {
+        if (match == TASK_ID_CODE) {
+            notifier.taskChanged(ContentUris.parseId(uri));
+        } else {
+            notifier.tasksChanged();
+        }
+    }
+
     // Handle task query requests
+    // Projection, selection and sort order are pushed down into SQLite, restricted to the
+    // columns of PROJECTION_MAP; the URI adds its own filter on top of the selection
     @Override
     public Cursor query(@NonNull Uri uri, String[] projection, String selection,
                         String[] selectionArgs, String sortOrder) {
         Log.d(TAG, "Query Data: uri=" + uri + " ...");
-        if (uriMatcher.match(uri) == URI_CODE) {
-            // Only return recorded tasks for security/simplicity
-            return db.taskDao().getRecordedTasksCursor();
+        int match = uriMatcher.match(uri);
+        if (match == UriMatcher.NO_MATCH) {
+            throw new RuntimeException("Query Method - Not supported URI: " + uri);
+        }
+        SupportSQLiteDatabase sqlite = db.getOpenHelper().getReadableDatabase();
+        checkSelection(sqlite, TABLES, selection);
+        if (match == BETWEEN_CODE) {
+            return queryOccurrences(sqlite, uri, projection, selection, selectionArgs, sortOrder);
         }
-        throw new RuntimeException("Query Method - Not supported URI: " + uri);
+
+        SQLiteQueryBuilder builder = new SQLiteQueryBuilder();
+        builder.setTables(TABLES);
+        builder.setProjectionMap(PROJECTION_MAP);
+        // Unknown projection columns are rejected instead of passed through
+        builder.setStrictColumns(true);
+        String uriWhere = uriWhere(match);
+        if (uriWhere != null) {
+            builder.appendWhere(uriWhere);
+        }
+        String sql = builder.buildQuery(projection, selection, null, null,
+                orderBy(sortOrder), limitOf(uri));
+
+        Cursor cursor = sqlite.query(sql, DatabaseUtils.appendSelectionArgs(uriArgs(match, uri), selectionArgs));
+        cursor.setNotificationUri(getContext().getContentResolver(), uri);
+        return cursor;
+    }
+
+    // Rows of tasks/between: OccurrenceExpander.overlapping() over the window, as in the agenda, so
+    // a series started before the window shows its occurrences in it
+    // start_at, end_at, status_id and status are those of the occurrence, the other columns those
+    // of the task row; the selection filters the task rows on their stored columns, while the sort
+    // order and limit apply to the occurrences
+    private Cursor queryOccurrences(SupportSQLiteDatabase sqlite, Uri uri, String[] projection, String selection,
+                                    String[] selectionArgs, String sortOrder) {
+        String[] columns = projection != null ? projection : OCCURRENCE_COLUMNS.toArray(new String[0]);
+        for (String column : columns) {
+            if (!OCCURRENCE_COLUMNS.contains(column)) {
+                throw new IllegalArgumentException("Invalid column " + column);
+            }
+        }
+        Comparator<Map<String, Object>> order = occurrenceOrder(sortOrder);
+        String limit = limitOf(uri);
+        List<String> segments = uri.getPathSegments();
+        long fromMillis = Long.parseLong(segments.get(2));
+        long toMillis = Long.parseLong(segments.get(3));
+
+        // Task rows the selection keeps, among the candidates of both kinds of the window
+        final String matchingSql;
+        final String[] matchingArgs;
+        if (TextUtils.isEmpty(selection)) {
+            matchingSql = null;
+            matchingArgs = null;
+        } else {
+            SQLiteQueryBuilder builder = new SQLiteQueryBuilder();
+            builder.setTables(TABLES);
+            builder.setProjectionMap(PROJECTION_MAP);
+            builder.appendWhere("(" + uriWhere(BETWEEN_CODE) + ") OR (series_end_at > ? AND start_at < ?)");
+            // Every column, so the selection sees the same names as in query(); _id comes first
+            matchingSql = builder.buildQuery(null, selection, null, null, null, null);
+            String[] windowArgs = DatabaseUtils.appendSelectionArgs(uriArgs(BETWEEN_CODE, uri),
+                    new String[]{segments.get(2), segments.get(3)});
+            matchingArgs = DatabaseUtils.appendSelectionArgs(windowArgs, selectionArgs);
+        }
+
+        // In one transaction, so the selection and the expansion see the same rows
+        List<Map<String, Object>> rows = db.runInTransaction(() -> {
+            Set<Integer> matching = matchingSql != null ? new HashSet<>(queryUids(sqlite, matchingSql, matchingArgs)) : null;
+            List<Occurrence> occurrences = OccurrenceExpander.overlapping(db, fromMillis, toMillis,
+                    System.currentTimeMillis(), ZoneId.systemDefault());
+            StatusRegistry statuses = db.statusRegistry();
+            List<Map<String, Object>> result = new ArrayList<>(occurrences.size());
+            for (Occurrence occurrence : occurrences) {
+                if (matching == null || matching.contains(occurrence.task.getUid())) {
+                    result.add(occurrenceRow(occurrence, statuses));
+                }
+            }
+            return result;
+        });
+        rows.sort(order);
+        // A negative limit means none, as in SQLite
+        int max = limit != null ? Integer.parseInt(limit) : -1;
+        int count = max >= 0 ? Math.min(rows.size(), max) : rows.size();
+
+        MatrixCursor cursor = new MatrixCursor(columns, count);
+        for (Map<String, Object> row : rows.subList(0, count)) {
+            Object[] values = new Object[columns.length];
+            for (int i = 0; i < columns.length; i++) {
+                values[i] = row.get(columns[i]);
+            }
+            cursor.addRow(values);
+        }
+        cursor.setNotificationUri(getContext().getContentResolver(), uri);
+        return cursor;
+    }
+
+    // Every OCCURRENCE_COLUMNS value of one occurrence, by column
+    private static Map<String, Object> occurrenceRow(Occurrence occurrence, StatusRegistry statuses) {
+        Task task = occurrence.task;
+        Map<String, Object> row = new HashMap<>();
+        row.put("_id", task.getUid());
+        row.put("uid", task.getUid());
+        row.put("shortName", task.getShortName());
+        row.put("description", task.getDescription());
+        row.put("startTime", task.getStartTime());
+        row.put("durationHours", task.getDurationHours());
+        row.put("location", task.getLocation());
+        row.put("date", task.getDate());
+        row.put("status_id", statuses.getIdByName(occurrence.statusName));
+        row.put("start_at", occurrence.startAt);
+        row.put("end_at", occurrence.endAt);
+        row.put("recurrence_rule", task.getRecurrenceRule());
+        row.put("reminder_minutes", task.getReminderMinutes());
+        row.put("status", occurrence.statusName);
+        row.put(OCCURRENCE_AT, occurrence.isRecurring() ? occurrence.occurrenceAt : null);
+        return row;
+    }
+
+    // Provider-specific methods: METHOD_METRICS, METHOD_QUERY_STATS and METHOD_QUERY_TRACING
+    @Nullable
+    @Override
+    public Bundle call(@NonNull String method, @Nullable String arg, @Nullable Bundle extras) {
+        switch (method) {
+            case METHOD_METRICS: {
+                enforceCallPermission("Reading metrics");
+                Bundle result = new Bundle();
+                for (Map.Entry<String, Long> value : Metrics.snapshot().entrySet()) {
+                    result.putLong(value.getKey(), value.getValue());
+                }
+                result.putString(METRICS_REPORT, Metrics.report());
+                if (METRICS_RESET.equals(arg)) {
+                    Metrics.reset();
+                }
+                return result;
+            }
+            case METHOD_QUERY_STATS: {
+                enforceCallPermission("Reading query statistics");
+                QueryTracer tracer = db.getQueryTracer();
+                Bundle result = new Bundle();
+                result.putString(METRICS_REPORT, tracer != null ? tracer.report() : "");
+                if (tracer != null && METRICS_RESET.equals(arg)) {
+                    tracer.reset();
+                }
+                return result;
+            }
+            case METHOD_QUERY_TRACING: {
+                enforceCallPermission("Changing query tracing");
+                long slowMillis;
+                try {
+                    slowMillis = QUERY_TRACING_OFF.equals(arg) ? -1
+                            : TextUtils.isEmpty(arg) ? QueryTracer.DEFAULT_SLOW_MILLIS : Long.parseLong(arg);
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Query tracing - Not a threshold: " + arg);
+                }
+                QueryTracer.setEnabled(getContext(), slowMillis);
+                return null;
+            }
+            default:
+                return super.call(method, arg, extras);
+        }
+    }
+
+    // Throw SecurityException unless the caller holds PERMISSION, or is adb's shell on a
+    // debuggable build, so "adb shell content call" works during development
+    private void enforceCallPermission(String message) {
+        boolean debuggable = (getContext().getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE) != 0;
+        if (debuggable && Binder.getCallingUid() == Process.SHELL_UID) return;
+        getContext().enforceCallingOrSelfPermission(PERMISSION, message);
     }
 
     // Return MIME type for tasks
     @Override
     public String getType(@NonNull Uri uri) {
-        if (uriMatcher.match(uri) == URI_CODE)
-            return "vnd.android.cursor.dir/tasks";
-        throw new RuntimeException("Get Type Method - Not supported URI: " + uri);
+        switch (uriMatcher.match(uri)) {
+            case TASK_ID_CODE:
+                return "vnd.android.cursor.item/tasks";
+            case URI_CODE:
+            case STATUS_CODE:
+            case BETWEEN_CODE:
+                return "vnd.android.cursor.dir/tasks";
+            default:
+                throw new RuntimeException("Get Type Method - Not supported URI: " + uri);
+        }
+    }
+
+    // Filter of the rows a URI names, on tasks columns; null for the whole collection
+    private static String uriWhere(int match) {
+        switch (match) {
+            case TASK_ID_CODE:
+                return "uid = ?";
+            case STATUS_CODE:
+                return "status_id = (SELECT id FROM status WHERE name = ?)";
+            case BETWEEN_CODE:
+                // TaskDao.getTasksOverlapping: zero-length tasks count when they start inside the
+                // range, and the longest duration bounds the scan of the (start_at, end_at) index
+                return "start_at >= ? - MAX(0, IFNULL((SELECT MAX(durationHours) FROM tasks), 0)) * 3600000 "
+                        + "AND start_at < ? AND (end_at > ? OR start_at >= ?) AND series_end_at IS NULL";
+            default:
+                return null;
+        }
+    }
+
+    // Arguments of uriWhere(), taken from the URI path
+    private static String[] uriArgs(int match, Uri uri) {
+        List<String> segments = uri.getPathSegments();
+        switch (match) {
+            case TASK_ID_CODE:
+                return new String[]{segments.get(1)};
+            case STATUS_CODE:
+                return new String[]{segments.get(2)};
+            case BETWEEN_CODE:
+                // from, to, from, from
+                return new String[]{segments.get(2), segments.get(3), segments.get(2), segments.get(2)};
+            default:
+                return null;
+        }
+    }
+
+    // Reject selections that are not a single expression over the given tables, like
+    // "1) UNION SELECT ... (" which would escape the parentheses the query wraps it in, and
+    // expressions that read other tables, see SelectionGrammar
+    private static void checkSelection(SupportSQLiteDatabase sqlite, String tables, String selection) {
+        if (TextUtils.isEmpty(selection)) return;
+        String reason = SelectionGrammar.rejectReason(selection);
+        if (reason != null) {
+            throw new IllegalArgumentException("Invalid selection (" + reason + "): " + selection);
+        }
+        try {
+            sqlite.compileStatement("SELECT 1 FROM " + tables + " WHERE " + selection).close();
+        } catch (SQLException | IOException e) {
+            throw new IllegalArgumentException("Invalid selection: " + selection, e);
+        }
+    }
+
+    // ORDER BY clause of a client sort order: projection columns, each optionally ASC or DESC
+    // Sorts on the expressions behind the names, so "_id" and "status" work without being projected
+    private static String orderBy(String sortOrder) {
+        if (TextUtils.isEmpty(sortOrder)) return DEFAULT_SORT_ORDER;
+        StringBuilder orderBy = new StringBuilder();
+        for (String term : sortOrder.split(",")) {
+            String[] parts = sortTerm(term, sortOrder, COLUMN_EXPRESSIONS.keySet());
+            if (orderBy.length() > 0) orderBy.append(", ");
+            orderBy.append(COLUMN_EXPRESSIONS.get(parts[0]));
+            if (parts.length == 2) orderBy.append(' ').append(parts[1].toUpperCase(Locale.ROOT));
+        }
+        return orderBy.toString();
+    }
+
+    // The same sort order over tasks/between rows, compared in Java as SQLite would: NULL first
+    private static Comparator<Map<String, Object>> occurrenceOrder(String sortOrder) {
+        String terms = TextUtils.isEmpty(sortOrder) ? DEFAULT_OCCURRENCE_ORDER : sortOrder;
+        Comparator<Map<String, Object>> order = null;
+        for (String term : terms.split(",")) {
+            String[] parts = sortTerm(term, sortOrder, OCCURRENCE_COLUMNS);
+            String column = parts[0];
+            Comparator<Map<String, Object>> byColumn = (a, b) -> compareValues(a.get(column), b.get(column));
+            if (parts.length == 2 && parts[1].equalsIgnoreCase("DESC")) {
+                byColumn = byColumn.reversed();
+            }
+            order = order == null ? byColumn : order.thenComparing(byColumn);
+        }
+        return order;
+    }
+
+    // Column and optional direction of one sort term, rejected unless the column is one of columns
+    private static String[] sortTerm(String term, String sortOrder, Set<String> columns) {
+        String[] parts = term.trim().split("\\s+");
+        boolean valid = columns.contains(parts[0]) && (parts.length == 1 ||
+                (parts.length == 2 && (parts[1].equalsIgnoreCase("ASC") || parts[1].equalsIgnoreCase("DESC"))));
+        if (!valid) {
+            throw new IllegalArgumentException("Invalid sort order: " + sortOrder);
+        }
+        return parts;
+    }
+
+    // Order of two values of one column: NULL first, then numbers by value or text by code unit
+    private static int compareValues(Object a, Object b) {
+        if (a == null || b == null) return a == null ? (b == null ? 0 : -1) : 1;
+        if (a instanceof Number && b instanceof Number) {
+            return Long.compare(((Number) a).longValue(), ((Number) b).longValue());
+        }
+        return a.toString().compareTo(b.toString());
+    }
+
+    // Value of the limit query parameter, null when absent
+    private static String limitOf(Uri uri) {
+        String limit = uri.getQueryParameter(QUERY_PARAMETER_LIMIT);
+        if (limit == null) return null;
+        try {
+            return Integer.toString(Integer.parseInt(limit));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid limit: " + limit, e);
+        }
     }
 
     // Handle task update requests
+    // One UPDATE over the rows of the URI that match the selection, setting only the given
+    // columns; start_at/end_at are recomputed in the same statement when the schedule changes
+    // and content_hash of the edited rows right after it, in the same transaction
+    // Returns the number of updated rows
     @Override
     public int update(@NonNull Uri uri, ContentValues values, String selection, String[] selectionArgs) {
-        if (uriMatcher.match(uri) == URI_CODE && values != null && selectionArgs != null) {
-            int taskId = Integer.parseInt(selectionArgs[0]);
-            Task task = db.taskDao().getTaskById(taskId);
-            if (task != null) {
-                // Update only provided fields
-                if (values.containsKey("shortName"))
-                    task.setShortName(values.getAsString("shortName"));
-                if (values.containsKey("description"))
-                    task.setDescription(values.getAsString("description"));
-                if (values.containsKey("startTime"))
-                    task.setStartTime(values.getAsString("startTime"));
-                if (values.containsKey("durationHours"))
-                    task.setDurationHours(values.getAsInteger("durationHours"));
-                if (values.containsKey("location"))
-                    task.setLocation(values.getAsString("location"));
-                if (values.containsKey("date"))
-                    task.setDate(values.getAsString("date"));
-                if (values.containsKey("status_id"))
-                    task.setStatus_id(values.getAsInteger("status_id"));
-
-                db.taskDao().updateTask(task);
-                return 1;
+        int match = uriMatcher.match(uri);
+        if (match == UriMatcher.NO_MATCH) {
+            throw new RuntimeException("Update Method - Not supported URI: " + uri);
+        }
+        if (values == null || values.size() == 0) {
+            throw new IllegalArgumentException("Update Method - No values");
+        }
+        SupportSQLiteDatabase sqlite = db.getOpenHelper().getWritableDatabase();
+        checkSelection(sqlite, "tasks", selection);
+
+        StringBuilder sql = new StringBuilder("UPDATE tasks SET ");
+        List<Object> args = new ArrayList<>(values.size() + 8);
+        boolean contentChanged = false;
+        for (String column : values.keySet()) {
+            if (!UPDATABLE_COLUMNS.contains(column)) {
+                throw new IllegalArgumentException("Update Method - Not updatable column: " + column);
             }
+            if (!args.isEmpty()) sql.append(", ");
+            sql.append(column).append(" = ?");
+            args.add(values.get(column));
+            contentChanged |= !column.equals("status_id");
+        }
+
+        // SET expressions see the old row, so changed schedule fields are bound again
+        boolean scheduleChanged = values.containsKey("date") || values.containsKey("startTime")
+                || values.containsKey("durationHours");
+        if (scheduleChanged) {
+            checkScheduleValues(values);
+            String date = values.containsKey("date") ? "?" : "date";
+            String time = values.containsKey("startTime") ? "?" : "startTime";
+            String duration = values.containsKey("durationHours") ? "?" : "durationHours";
+            String startAt = startAtSql(date, time);
+
+            sql.append(", start_at = ").append(startAt);
+            addScheduleArgs(args, values, false);
+            sql.append(", end_at = CASE WHEN ").append(startAt).append(" = ").append(Task.UNSCHEDULED)
+                    .append(" THEN ").append(Task.UNSCHEDULED)
+                    .append(" ELSE ").append(startAt).append(" + ").append(duration).append(" * 3600000 END");
+            addScheduleArgs(args, values, false);
+            addScheduleArgs(args, values, true);
+        }
+        String where = DatabaseUtils.concatenateWhere(uriWhere(match), selection);
+        if (!TextUtils.isEmpty(where)) {
+            sql.append(" WHERE ").append(where);
+        }
+        String[] whereArgs = DatabaseUtils.appendSelectionArgs(uriArgs(match, uri), selectionArgs);
+        if (whereArgs != null) {
+            args.addAll(Arrays.asList(whereArgs));
+        }
+
+        // Through Room's transaction, so its invalidation tracker sees the change
+        final String seriesSql = "SELECT uid FROM tasks WHERE recurrence_rule IS NOT NULL"
+                + (TextUtils.isEmpty(where) ? "" : " AND (" + where + ")");
+        final String editedSql = "SELECT uid FROM tasks" + (TextUtils.isEmpty(where) ? "" : " WHERE " + where);
+        final boolean rehash = contentChanged;
+        int rowsUpdated = db.runInTransaction(() -> {
+            // Rows to fix up, selected before the UPDATE may change what the selection matches
+            List<Integer> series = scheduleChanged ? queryUids(sqlite, seriesSql, whereArgs) : null;
+            List<Integer> edited = rehash ? queryUids(sqlite, editedSql, whereArgs) : null;
+            int updated;
+            try (SupportSQLiteStatement statement = sqlite.compileStatement(sql.toString())) {
+                SimpleSQLiteQuery.bind(statement, args.toArray());
+                updated = statement.executeUpdateDelete();
+            }
+            if (series != null) {
+                rescheduleSeries(series);
+            }
+            if (edited != null) {
+                updateContentHashes(edited);
+            }
+            return updated;
+        });
+        if (rowsUpdated > 0) {
+            notifyWritten(match, uri);
+            onTasksChanged();
+        }
+        return rowsUpdated;
+    }
+
+    // First column of every row of a query, as uids
+    private static List<Integer> queryUids(SupportSQLiteDatabase sqlite, String sql, String[] args) {
+        List<Integer> uids = new ArrayList<>();
+        try (Cursor cursor = sqlite.query(sql, args != null ? args : new Object[0])) {
+            while (cursor.moveToNext()) {
+                uids.add(cursor.getInt(0));
+            }
+        }
+        return uids;
+    }
+
+    // After an edit of the user visible fields: the content hash no longer matches, SQLite cannot
+    // compute it, so it is redone row by row; status changes alone keep the single UPDATE
+    private void updateContentHashes(List<Integer> uids) {
+        ContentHash contentHash = new ContentHash();
+        for (int uid : uids) {
+            Task task = db.taskDao().getTaskById(uid);
+            if (task == null) continue;
+            db.taskDao().updateContentHash(uid, contentHash.of(task));
+        }
+    }
+
+    // After a schedule change of recurring tasks: their series end moves with the first
+    // occurrence, and their exceptions, keyed by the old occurrences, no longer apply
+    private void rescheduleSeries(List<Integer> uids) {
+        for (int uid : uids) {
+            Task task = db.taskDao().getTaskById(uid);
+            if (task == null) continue;
+            task.updateSeriesEnd();
+            db.taskDao().updateSeriesEndAt(uid, task.getSeriesEndAt());
+            db.taskExceptionDao().deleteExceptionsOf(uid);
+        }
+    }
+
+    // SQL for Task.parseStartAt(): "dd/MM/yyyy" + "HH:mm" in local time to epoch millis,
+    // UNSCHEDULED when SQLite cannot read them
+    // Unlike the Java parser it needs a zero padded date, see checkScheduleValues()
+    private static String startAtSql(String date, String time) {
+        return "COALESCE(CAST(strftime('%s', substr(" + date + ", 7, 4) || '-' || substr(" + date + ", 4, 2) || '-' || " +
+                "substr(" + date + ", 1, 2) || ' ' || substr('0' || " + time + ", -5), 'utc') AS INTEGER) * 1000, " +
+                Task.UNSCHEDULED + ")";
+    }
+
+    // Reject new dates and start times that startAtSql() would read differently from the Java
+    // parser, e.g. "1/3/2025", so a task updated here is scheduled like one inserted; null
+    // clears the schedule in both
+    private static void checkScheduleValues(ContentValues values) {
+        String date = values.getAsString("date");
+        if (values.containsKey("date") && date != null && !TaskSchedule.isStrictDate(date)) {
+            throw new IllegalArgumentException("Update Method - Date is not dd/MM/yyyy: " + date);
+        }
+        String startTime = values.getAsString("startTime");
+        if (values.containsKey("startTime") && startTime != null && !TaskSchedule.isStrictTime(startTime)) {
+            throw new IllegalArgumentException("Update Method - Start time is not HH:mm: " + startTime);
+        }
+    }
+
+    // Arguments of the placeholders given to startAtSql() (3 for the date, 1 for the time),
+    // followed by the duration one when withDuration is set
+    private static void addScheduleArgs(List<Object> args, ContentValues values, boolean withDuration) {
+        if (values.containsKey("date")) {
+            Object date = values.get("date");
+            args.add(date);
+            args.add(date);
+            args.add(date);
+        }
+        if (values.containsKey("startTime")) {
+            args.add(values.get("startTime"));
+        }
+        if (withDuration && values.containsKey("durationHours")) {
+            args.add(values.get("durationHours"));
         }
-        throw new RuntimeException("Update Method - Not supported URI: " + uri);
     }
 
     // Handle task deletion requests
+    // Deletes the rows of the URI that also match the selection, in one statement
     @Override
     public int delete(@NonNull Uri uri, String selection, String[] selectionArgs) {
-        if (uriMatcher.match(uri) == URI_CODE && selectionArgs != null) {
-            return db.taskDao().deleteTaskById(Integer.parseInt(selectionArgs[0]));
+        int match = uriMatcher.match(uri);
+        if (match == UriMatcher.NO_MATCH) {
+            throw new RuntimeException("Delete Method - Not supported URI: " + uri);
+        }
+        SupportSQLiteDatabase sqlite = db.getOpenHelper().getWritableDatabase();
+        checkSelection(sqlite, "tasks", selection);
+        String where = DatabaseUtils.concatenateWhere(uriWhere(match), selection);
+        String[] whereArgs = DatabaseUtils.appendSelectionArgs(uriArgs(match, uri), selectionArgs);
+
+        // Through Room's transaction, so its invalidation tracker sees the change
+        int rowsDeleted = db.runInTransaction(() -> sqlite.delete("tasks", where, whereArgs));
+        if (rowsDeleted > 0) {
+            notifyWritten(match, uri);
+            onTasksChanged();
         }
-        throw new RuntimeException("Delete Method - Not supported URI: " + uri);
+        return rowsDeleted;
     }
 }
\ No newline at end of file
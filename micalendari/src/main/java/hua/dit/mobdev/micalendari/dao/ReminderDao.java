@@ -0,0 +1,36 @@
+package hua.dit.mobdev.micalendari.dao;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+
+import java.util.List;
+
+import hua.dit.mobdev.micalendari.entity.Reminder;
+
+// Persistent priority queue of pending reminders, ordered by fire_at through its index
+@Dao
+public interface ReminderDao {
+
+    // Queue the next reminder of a task, replacing the one it had
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void upsertReminder(Reminder reminder);
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void upsertReminders(List<Reminder> reminders);
+
+    @Query("DELETE FROM reminders WHERE task_uid = :taskUid")
+    int deleteReminderOf(int taskUid);
+
+    @Query("DELETE FROM reminders")
+    void deleteAllReminders();
+
+    // Fire time of the head of the queue, null when it is empty; one index lookup
+    @Query("SELECT MIN(fire_at) FROM reminders")
+    Long getNextFireAt();
+
+    // Reminders due at the given time, earliest first
+    @Query("SELECT * FROM reminders WHERE fire_at <= :now ORDER BY fire_at, task_uid")
+    List<Reminder> getDueReminders(long now);
+}
@@ -15,7 +15,7 @@ public interface StatusDao {
     int getIdByName(String statusName);
     // Insert a single status row
     @Insert
-    void insertStatus(Status status);
+    long insertStatus(Status status);
 
 
     // Get ALL statuses
@@ -5,28 +5,104 @@ import android.database.Cursor;
 import androidx.room.Dao;
 import androidx.room.Delete;
 import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
 import androidx.room.Query;
+import androidx.room.Transaction;
 import androidx.room.Update;
 
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
+import hua.dit.mobdev.micalendari.data.TaskIntervalIndex;
+import hua.dit.mobdev.micalendari.data.TaskSearch;
+import hua.dit.mobdev.micalendari.entity.Status;
 import hua.dit.mobdev.micalendari.entity.Task;
+import hua.dit.mobdev.micalendari.entity.TaskException;
 
 @Dao
 public interface TaskDao {
 
-    // Basically TaskProvider Cursor
-    @Query("SELECT * FROM tasks WHERE status_id = (SELECT id FROM status WHERE name = 'recorded')")
-    Cursor getRecordedTasksCursor();
-
     // Insert a task
     @Insert
     long insertTask(Task task);
 
+    // Insert many tasks with one prepared statement
+    @Insert
+    List<Long> insertTasks(List<Task> tasks);
+
+    // Which of the given content hashes are stored already, looked up in the content_hash index
+    // Keep the list under SQLite's 999 bound parameters
+    @Query("SELECT content_hash FROM tasks WHERE content_hash IN (:hashes)")
+    List<String> getExistingContentHashes(List<String> hashes);
+
+    // Exceptions of imported series, see insertNewTasks
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void insertExceptions(List<TaskException> exceptions);
+
+    // Insert the tasks whose content hash is not stored yet, nor repeated earlier in the list,
+    // with the exceptions imported along with them
+    // Runs as one transaction, returns the number of inserted tasks
+    @Transaction
+    default int insertNewTasks(List<Task> tasks) {
+        List<String> hashes = new ArrayList<>(tasks.size());
+        for (Task task : tasks) {
+            hashes.add(task.getContentHash());
+        }
+        Set<String> seen = new HashSet<>(getExistingContentHashes(hashes));
+        List<Task> newTasks = new ArrayList<>(tasks.size());
+        for (Task task : tasks) {
+            if (seen.add(task.getContentHash())) {
+                newTasks.add(task);
+            }
+        }
+        if (!newTasks.isEmpty()) {
+            List<Long> uids = insertTasks(newTasks);
+            List<TaskException> exceptions = new ArrayList<>();
+            for (int i = 0; i < newTasks.size(); i++) {
+                for (TaskException exception : newTasks.get(i).getImportedExceptions()) {
+                    exception.setTaskUid(uids.get(i).intValue());
+                    exceptions.add(exception);
+                }
+            }
+            if (!exceptions.isEmpty()) {
+                insertExceptions(exceptions);
+            }
+        }
+        return newTasks.size();
+    }
+
     // Get all tasks
     @Query("SELECT * FROM tasks")
     List<Task> getAllTasks();
 
+    // Tasks whose shortName, description or location match an FTS query, see TaskSearch.toMatchQuery
+    // Looked up in the tasks_fts index, then joined to tasks by rowid
+    // Ordered before the limit by the columns any word hits, with the weights of TaskSearch.rank
+    // (3 for shortName, 2 for location, 1 for description), each column one more lookup in the
+    // index, newest first among equals; TaskSearch.rank then orders the kept rows exactly
+    @Query("SELECT tasks.*, matchinfo(tasks_fts, 'pcx') AS match_info FROM tasks_fts " +
+            "JOIN tasks ON tasks.uid = tasks_fts.docid " +
+            "WHERE tasks_fts MATCH :matchQuery " +
+            "ORDER BY 3 * (tasks_fts.docid IN (SELECT docid FROM tasks_fts WHERE tasks_fts MATCH :nameQuery)) " +
+            "+ 2 * (tasks_fts.docid IN (SELECT docid FROM tasks_fts WHERE tasks_fts MATCH :locationQuery)) " +
+            "+ (tasks_fts.docid IN (SELECT docid FROM tasks_fts WHERE tasks_fts MATCH :descriptionQuery)) DESC, " +
+            "tasks.uid DESC LIMIT :limit")
+    List<TaskSearch.Match> searchTasks(String matchQuery, String nameQuery, String locationQuery,
+                                       String descriptionQuery, int limit);
+
+    // Best matches of the user's search text first; empty when the text has no word to look for
+    default List<Task> searchTasksRanked(String text) {
+        String matchQuery = TaskSearch.toMatchQuery(text);
+        if (matchQuery == null) return new ArrayList<>();
+        return TaskSearch.rank(searchTasks(matchQuery,
+                TaskSearch.toColumnQuery(matchQuery, TaskSearch.SHORT_NAME),
+                TaskSearch.toColumnQuery(matchQuery, TaskSearch.LOCATION),
+                TaskSearch.toColumnQuery(matchQuery, TaskSearch.DESCRIPTION),
+                TaskSearch.MAX_CANDIDATES));
+    }
+
     // Get a task by its ID
     @Query("SELECT * FROM tasks WHERE uid = :taskId")
     Task getTaskById(int taskId);
@@ -35,6 +111,10 @@ public interface TaskDao {
     @Update
     void updateTask(Task task);
 
+    // Change the status of a single task
+    @Query("UPDATE tasks SET status_id = :statusId WHERE uid = :taskId")
+    int updateTaskStatus(int taskId, int statusId);
+
     // Delete a specific task by object
     @Delete
     void deleteTask(Task task);
@@ -45,4 +125,159 @@ public interface TaskDao {
 
     @Query("SELECT * FROM tasks WHERE status_id != (SELECT id FROM status WHERE name = 'completed')")
     List<Task> getAllUncompletedTasks();
+
+    // Uncompleted tasks with their status name, streamed row by row by TaskExporter
+    @Query("SELECT tasks.*, status.name AS status_name FROM tasks " +
+            "JOIN status ON status.id = tasks.status_id " +
+            "WHERE status.name != 'completed' ORDER BY tasks.uid")
+    Cursor getExportCursor();
+
+    // Number of rows getExportCursor() returns, for export progress
+    @Query("SELECT COUNT(*) FROM tasks WHERE status_id != (SELECT id FROM status WHERE name = 'completed')")
+    int countUncompletedTasks();
+
+    // Tasks of one status by start time, read in order from the (status_id, start_at) index
+    // uid breaks ties: it is the rowid, which the index stores right after start_at
+    @Query("SELECT * FROM tasks WHERE status_id = (SELECT id FROM status WHERE name = :statusName) " +
+            "ORDER BY start_at, uid")
+    List<Task> getTasksByStatus(String statusName);
+
+    // Uncompleted tasks in display order: expired, in_progress, recorded, each by start time
+    // One index range scan per status, no sorting in SQL or Java
+    @Transaction
+    default List<Task> getUncompletedTasksInDisplayOrder() {
+        List<Task> tasks = new ArrayList<>(getTasksByStatus(Status.EXPIRED));
+        tasks.addAll(getTasksByStatus(Status.IN_PROGRESS));
+        tasks.addAll(getTasksByStatus(Status.RECORDED));
+        return tasks;
+    }
+
+    // All tasks in display order, completed ones last
+    @Transaction
+    default List<Task> getTasksInDisplayOrder() {
+        List<Task> tasks = getUncompletedTasksInDisplayOrder();
+        tasks.addAll(getTasksByStatus(Status.COMPLETED));
+        return tasks;
+    }
+
+    // One-off tasks of any status overlapping [fromMillis, toMillis), by start time
+    // Recurring series are expanded separately, see getRecurringTasksOverlapping
+    // A task overlaps when it starts before toMillis and ends after fromMillis; a zero-length one
+    // when it starts inside the range. No task is longer than the largest durationHours, so only
+    // tasks starting that far before fromMillis can reach into the range: the scan is one range of
+    // the (start_at, end_at) index, whose end_at answers the overlap test without reading rows
+    @Query("SELECT * FROM tasks " +
+            "WHERE start_at >= :fromMillis - MAX(0, IFNULL((SELECT MAX(durationHours) FROM tasks), 0)) * 3600000 " +
+            "AND start_at < :toMillis AND (end_at > :fromMillis OR start_at >= :fromMillis) " +
+            "AND series_end_at IS NULL ORDER BY start_at, uid")
+    List<Task> getTasksOverlapping(long fromMillis, long toMillis);
+
+    // Recurring series with occurrences that may overlap [fromMillis, toMillis): started before
+    // toMillis and not over by fromMillis; a range of the series_end_at index, which one-off tasks
+    // (NULL) are not part of
+    @Query("SELECT * FROM tasks WHERE series_end_at > :fromMillis AND start_at < :toMillis ORDER BY start_at, uid")
+    List<Task> getRecurringTasksOverlapping(long fromMillis, long toMillis);
+
+    // Recurring series whose status may still change at :now: running ones, and finished ones
+    // not yet marked expired; completed series are left alone
+    @Query("SELECT * FROM tasks WHERE series_end_at IS NOT NULL " +
+            "AND status_id != (SELECT id FROM status WHERE name = 'completed') " +
+            "AND (series_end_at > :now OR status_id != (SELECT id FROM status WHERE name = 'expired'))")
+    List<Task> getUnfinishedRecurringTasks(long now);
+
+    // Store a recomputed content hash, see ContentHash
+    @Query("UPDATE tasks SET content_hash = :contentHash WHERE uid = :taskId")
+    int updateContentHash(int taskId, String contentHash);
+
+    // Store a recomputed series end, see Task.updateSeriesEnd()
+    @Query("UPDATE tasks SET series_end_at = :seriesEndAt WHERE uid = :taskId")
+    int updateSeriesEndAt(int taskId, Long seriesEndAt);
+
+    // Uncompleted tasks with a reminder, to rebuild the reminder queue; a range of the
+    // reminder_minutes index, which the many tasks without one (NULL) are not part of
+    @Query("SELECT * FROM tasks WHERE reminder_minutes IS NOT NULL " +
+            "AND status_id != (SELECT id FROM status WHERE name = 'completed')")
+    List<Task> getTasksWithReminders();
+
+    // Times of every scheduled one-off task, to build a TaskIntervalIndex
+    @Query("SELECT uid, start_at, end_at FROM tasks WHERE start_at != " + Task.UNSCHEDULED + " AND series_end_at IS NULL")
+    List<TaskIntervalIndex.Interval> getScheduledIntervals();
+
+    // Times of the given one-off tasks, scheduled or not; deleted and recurring ones are missing
+    @Query("SELECT uid, start_at, end_at FROM tasks WHERE uid IN (:uids) AND series_end_at IS NULL")
+    List<TaskIntervalIndex.Interval> getIntervalsByIds(List<Long> uids);
+
+    // The given tasks by start time, looked up by primary key
+    @Query("SELECT * FROM tasks WHERE uid IN (:uids) ORDER BY start_at, uid")
+    List<Task> getTasksByIds(List<Integer> uids);
+
+    // Keyset pages of one status in (start_at, uid) order, for TaskPager
+    // The start_at bound lets SQLite seek the (status_id, start_at) index instead of skipping rows
+    // Page after the row (afterStartAt, afterUid)
+    @Query("SELECT * FROM tasks WHERE status_id = (SELECT id FROM status WHERE name = :statusName) " +
+            "AND start_at >= :afterStartAt AND (start_at > :afterStartAt OR uid > :afterUid) " +
+            "ORDER BY start_at, uid LIMIT :limit")
+    List<Task> getTasksPageAfter(String statusName, long afterStartAt, int afterUid, int limit);
+
+    // Page before the row (beforeStartAt, beforeUid), nearest row first
+    @Query("SELECT * FROM tasks WHERE status_id = (SELECT id FROM status WHERE name = :statusName) " +
+            "AND start_at <= :beforeStartAt AND (start_at < :beforeStartAt OR uid < :beforeUid) " +
+            "ORDER BY start_at DESC, uid DESC LIMIT :limit")
+    List<Task> getTasksPageBefore(String statusName, long beforeStartAt, int beforeUid, int limit);
+
+    // Status transitions of one-off tasks, one statement each; :now is epoch millis
+    // Each one is a range scan of the (status_id, start_at) index over the due rows only
+    // Recurring series follow their current occurrence instead, see TaskStatusWorker
+    // Finished tasks become expired
+    @Query("UPDATE tasks SET status_id = (SELECT id FROM status WHERE name = 'expired') " +
+            "WHERE status_id IN (SELECT id FROM status WHERE name IN ('recorded', 'in_progress')) " +
+            "AND start_at <= :now AND end_at <= :now AND series_end_at IS NULL")
+    int markEndedTasksExpired(long now);
+
+    // Started, not yet finished tasks become in_progress
+    @Query("UPDATE tasks SET status_id = (SELECT id FROM status WHERE name = 'in_progress') " +
+            "WHERE status_id IN (SELECT id FROM status WHERE name IN ('recorded', 'expired')) " +
+            "AND start_at <= :now AND end_at > :now AND series_end_at IS NULL")
+    int markStartedTasksInProgress(long now);
+
+    // Tasks moved to the future (e.g. edited) go back to recorded
+    @Query("UPDATE tasks SET status_id = (SELECT id FROM status WHERE name = 'recorded') " +
+            "WHERE status_id IN (SELECT id FROM status WHERE name IN ('in_progress', 'expired')) " +
+            "AND start_at > :now AND series_end_at IS NULL")
+    int markPendingTasksRecorded(long now);
+
+    // Earliest moment at which a task changes state, null if nothing is pending:
+    // the next start of a recorded (or edited, expired) task or the next end of a running one
+    // A value at or before :now means a transition is already due
+    @Query("SELECT MIN(next_at) FROM (" +
+            "SELECT MIN(start_at) AS next_at FROM tasks " +
+            "WHERE status_id = (SELECT id FROM status WHERE name = 'recorded') " +
+            "AND start_at != " + Task.UNSCHEDULED + " AND series_end_at IS NULL " +
+            "UNION ALL SELECT MIN(start_at) AS next_at FROM tasks " +
+            "WHERE status_id = (SELECT id FROM status WHERE name = 'expired') " +
+            "AND start_at > :now AND start_at != " + Task.UNSCHEDULED + " AND series_end_at IS NULL " +
+            "UNION ALL SELECT MIN(end_at) AS next_at FROM tasks " +
+            "WHERE status_id = (SELECT id FROM status WHERE name = 'in_progress') AND series_end_at IS NULL)")
+    Long getNextStatusChangeAt(long now);
+
+    // uids of the tasks the three transitions above would change at :now, for change notifications
+    // The conditions are disjoint, so each task appears once
+    @Query("SELECT uid FROM tasks " +
+            "WHERE status_id IN (SELECT id FROM status WHERE name IN ('recorded', 'in_progress')) " +
+            "AND start_at <= :now AND end_at <= :now AND series_end_at IS NULL " +
+            "UNION ALL SELECT uid FROM tasks " +
+            "WHERE status_id IN (SELECT id FROM status WHERE name IN ('recorded', 'expired')) " +
+            "AND start_at <= :now AND end_at > :now AND series_end_at IS NULL " +
+            "UNION ALL SELECT uid FROM tasks " +
+            "WHERE status_id IN (SELECT id FROM status WHERE name IN ('in_progress', 'expired')) " +
+            "AND start_at > :now AND series_end_at IS NULL")
+    List<Long> getTasksDueForStatusChange(long now);
+
+    // Apply every transition due at :now in one transaction, returns the number of rows changed
+    @Transaction
+    default int updateStatusesAt(long now) {
+        return markEndedTasksExpired(now)
+                + markStartedTasksInProgress(now)
+                + markPendingTasksRecorded(now);
+    }
 }
@@ -0,0 +1,40 @@
+package hua.dit.mobdev.micalendari.dao;
+
+import android.database.Cursor;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+
+import java.util.List;
+
+import hua.dit.mobdev.micalendari.entity.TaskException;
+
+@Dao
+public interface TaskExceptionDao {
+
+    // Insert or replace the exception of one occurrence
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void upsertException(TaskException exception);
+
+    // Exception of one occurrence, null if it follows the rule
+    @Query("SELECT * FROM task_exceptions WHERE task_uid = :taskUid AND occurrence_at = :occurrenceAt")
+    TaskException getException(int taskUid, long occurrenceAt);
+
+    // Exceptions of the given series whose occurrence the rule puts in [fromOccurrenceAt, toMillis),
+    // or that were moved into [fromMillis, toMillis); a range of the primary key per series
+    @Query("SELECT * FROM task_exceptions WHERE task_uid IN (:taskUids) " +
+            "AND ((occurrence_at >= :fromOccurrenceAt AND occurrence_at < :toMillis) " +
+            "OR (start_at < :toMillis AND end_at > :fromMillis))")
+    List<TaskException> getExceptionsBetween(List<Integer> taskUids, long fromOccurrenceAt, long fromMillis, long toMillis);
+
+    // Exceptions that change what an export shows, cancelled or moved occurrences, by task and
+    // occurrence in primary key order; streamed by TaskExporter next to TaskDao.getExportCursor()
+    @Query("SELECT * FROM task_exceptions WHERE cancelled OR start_at IS NOT NULL ORDER BY task_uid, occurrence_at")
+    Cursor getExportCursor();
+
+    // Forget every exception of a series, e.g. when its rule or first occurrence changes
+    @Query("DELETE FROM task_exceptions WHERE task_uid = :taskUid")
+    int deleteExceptionsOf(int taskUid);
+}
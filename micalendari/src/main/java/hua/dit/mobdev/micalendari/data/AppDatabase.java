@@ -1,65 +1,234 @@
 package hua.dit.mobdev.micalendari.data;
 
 import android.content.Context;
+import android.database.Cursor;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.room.Database;
 import androidx.room.Room;
 import androidx.room.RoomDatabase;
+import androidx.room.migration.Migration;
 import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.framework.FrameworkSQLiteOpenHelperFactory;
 
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-
+import hua.dit.mobdev.micalendari.dao.ReminderDao;
 import hua.dit.mobdev.micalendari.dao.StatusDao;
 import hua.dit.mobdev.micalendari.dao.TaskDao;
+import hua.dit.mobdev.micalendari.dao.TaskExceptionDao;
+import hua.dit.mobdev.micalendari.entity.ContentHash;
+import hua.dit.mobdev.micalendari.entity.Reminder;
 import hua.dit.mobdev.micalendari.entity.Status;
 import hua.dit.mobdev.micalendari.entity.Task;
+import hua.dit.mobdev.micalendari.entity.TaskException;
+import hua.dit.mobdev.micalendari.entity.TaskFts;
 
 // Room database class
-@Database(entities = {Status.class, Task.class}, version = 1, exportSchema = false)
+// The schema of every version is exported to schemas/, where MigrationTest reads the old ones
+@Database(entities = {Status.class, Task.class, TaskFts.class, TaskException.class, Reminder.class},
+        version = 8, exportSchema = true)
 public abstract class AppDatabase extends RoomDatabase {
     // DAOs for database access
     public abstract StatusDao statusDao();
     public abstract TaskDao taskDao();
+    public abstract TaskExceptionDao taskExceptionDao();
+    public abstract ReminderDao reminderDao();
 
     // Singleton instance of the database
     private static volatile AppDatabase INSTANCE;
 
-    // Thread pool for database operations
-    // Using 4 threads as a balanced approach for concurrent database operations
-    private static final int NUMBER_OF_THREADS = 4;
-    public static final ExecutorService databaseWriteExecutor =
-            Executors.newFixedThreadPool(NUMBER_OF_THREADS);
+    // Statement tracer, null unless query tracing was on when the database was opened
+    private QueryTracer queryTracer;
+
+    // In-memory status dictionary, shared by every component of the process
+    private volatile StatusRegistry statusRegistry;
+
+    @Nullable
+    public QueryTracer getQueryTracer() {
+        return queryTracer;
+    }
+
+    public StatusRegistry statusRegistry() {
+        if (statusRegistry == null) {
+            synchronized (this) {
+                if (statusRegistry == null) {
+                    statusRegistry = new StatusRegistry(statusDao());
+                }
+            }
+        }
+        return statusRegistry;
+    }
+
+    // v2: epoch millis start_at/end_at columns, indexed together with status_id
+    static final Migration MIGRATION_1_2 = new Migration(1, 2) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("ALTER TABLE tasks ADD COLUMN start_at INTEGER NOT NULL DEFAULT " + Task.UNSCHEDULED);
+            db.execSQL("ALTER TABLE tasks ADD COLUMN end_at INTEGER NOT NULL DEFAULT " + Task.UNSCHEDULED);
+
+            // Fill them from the string columns with the same parsing the app uses
+            try (Cursor cursor = db.query("SELECT uid, date, startTime, durationHours FROM tasks")) {
+                while (cursor.moveToNext()) {
+                    long startAt = Task.parseStartAt(cursor.getString(1), cursor.getString(2));
+                    if (startAt != Task.UNSCHEDULED) {
+                        db.execSQL("UPDATE tasks SET start_at = ?, end_at = ? WHERE uid = ?",
+                                new Object[]{startAt, Task.endAtOf(startAt, cursor.getInt(3)), cursor.getInt(0)});
+                    }
+                }
+            }
+
+            // The composite index starts with status_id, so it replaces the single column one
+            db.execSQL("DROP INDEX IF EXISTS `index_tasks_status_id`");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_tasks_status_id_start_at` ON `tasks` (`status_id`, `start_at`)");
+        }
+    };
+
+    // v3: content_hash column for import deduplication, filled for the existing rows
+    static final Migration MIGRATION_2_3 = new Migration(2, 3) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("ALTER TABLE tasks ADD COLUMN content_hash TEXT");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_tasks_content_hash` ON `tasks` (`content_hash`)");
+            fillContentHashes(db, false);
+        }
+    };
+
+    // v4: tasks_fts full-text index, filled from the existing rows
+    // The table and triggers are the ones Room creates for TaskFts on a fresh install
+    static final Migration MIGRATION_3_4 = new Migration(3, 4) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE VIRTUAL TABLE IF NOT EXISTS `tasks_fts` USING FTS4("
+                    + "`shortName` TEXT, `description` TEXT, `location` TEXT, "
+                    + "tokenize=unicode61, content=`tasks`)");
+            String deleteOld = "BEGIN DELETE FROM `tasks_fts` WHERE `docid`=OLD.`rowid`; END";
+            String insertNew = "BEGIN INSERT INTO `tasks_fts`(`docid`, `shortName`, `description`, `location`) "
+                    + "VALUES (NEW.`rowid`, NEW.`shortName`, NEW.`description`, NEW.`location`); END";
+            db.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_tasks_fts_BEFORE_UPDATE "
+                    + "BEFORE UPDATE ON `tasks` " + deleteOld);
+            db.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_tasks_fts_BEFORE_DELETE "
+                    + "BEFORE DELETE ON `tasks` " + deleteOld);
+            db.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_tasks_fts_AFTER_UPDATE "
+                    + "AFTER UPDATE ON `tasks` " + insertNew);
+            db.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_tasks_fts_AFTER_INSERT "
+                    + "AFTER INSERT ON `tasks` " + insertNew);
+            // Index the rows stored so far
+            db.execSQL("INSERT INTO `tasks_fts`(`tasks_fts`) VALUES('rebuild')");
+        }
+    };
+
+    // v5: indexes for date range queries
+    static final Migration MIGRATION_4_5 = new Migration(4, 5) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_tasks_start_at_end_at` ON `tasks` (`start_at`, `end_at`)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_tasks_durationHours` ON `tasks` (`durationHours`)");
+        }
+    };
+
+    // v6: recurring tasks and their per-occurrence exceptions
+    static final Migration MIGRATION_5_6 = new Migration(5, 6) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("ALTER TABLE tasks ADD COLUMN recurrence_rule TEXT");
+            db.execSQL("ALTER TABLE tasks ADD COLUMN series_end_at INTEGER");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_tasks_series_end_at` ON `tasks` (`series_end_at`)");
+            db.execSQL("CREATE TABLE IF NOT EXISTS `task_exceptions` (`task_uid` INTEGER NOT NULL, "
+                    + "`occurrence_at` INTEGER NOT NULL, `cancelled` INTEGER NOT NULL, `completed` INTEGER NOT NULL, "
+                    + "`start_at` INTEGER, `end_at` INTEGER, PRIMARY KEY(`task_uid`, `occurrence_at`), "
+                    + "FOREIGN KEY(`task_uid`) REFERENCES `tasks`(`uid`) ON UPDATE NO ACTION ON DELETE CASCADE )");
+        }
+    };
+
+    // v7: per-task reminder offset and the queue of pending reminders
+    // No task has a reminder yet, so the queue starts empty
+    static final Migration MIGRATION_6_7 = new Migration(6, 7) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("ALTER TABLE tasks ADD COLUMN reminder_minutes INTEGER");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_tasks_reminder_minutes` ON `tasks` (`reminder_minutes`)");
+            db.execSQL("CREATE TABLE IF NOT EXISTS `reminders` (`task_uid` INTEGER NOT NULL, "
+                    + "`occurrence_at` INTEGER NOT NULL, `start_at` INTEGER NOT NULL, `fire_at` INTEGER NOT NULL, "
+                    + "PRIMARY KEY(`task_uid`), "
+                    + "FOREIGN KEY(`task_uid`) REFERENCES `tasks`(`uid`) ON UPDATE NO ACTION ON DELETE CASCADE )");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_reminders_fire_at` ON `reminders` (`fire_at`)");
+        }
+    };
+
+    // v8: content_hash of the rows written before every insert and edit stored it
+    static final Migration MIGRATION_7_8 = new Migration(7, 8) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            fillContentHashes(db, true);
+        }
+    };
+
+    // Store the content hash of every row without one, computed as the app does (see ContentHash)
+    // Before v6 there is no recurrence_rule column, and no series
+    static void fillContentHashes(SupportSQLiteDatabase db, boolean withRecurrence) {
+        ContentHash contentHash = new ContentHash();
+        String sql = "SELECT uid, shortName, description, date, startTime, durationHours, location"
+                + (withRecurrence ? ", recurrence_rule" : "") + " FROM tasks WHERE content_hash IS NULL";
+        try (Cursor cursor = db.query(sql)) {
+            while (cursor.moveToNext()) {
+                String hash = contentHash.of(cursor.getString(1), cursor.getString(2), cursor.getString(3),
+                        cursor.getString(4), cursor.getInt(5), cursor.getString(6),
+                        withRecurrence ? cursor.getString(7) : null);
+                db.execSQL("UPDATE tasks SET content_hash = ? WHERE uid = ?", new Object[]{hash, cursor.getInt(0)});
+            }
+        }
+    }
+
+    // Make getDatabase() return database instead, e.g. an in-memory one, so instrumented benchmarks
+    // never write to the user's tasks; returns the previous instance, to be put back afterwards
+    // Only components that call getDatabase() after the swap see it
+    public static AppDatabase swapInstanceForTesting(AppDatabase database) {
+        synchronized (AppDatabase.class) {
+            AppDatabase previous = INSTANCE;
+            INSTANCE = database;
+            return previous;
+        }
+    }
 
     // Singleton pattern implementation
     public static AppDatabase getDatabase(final Context context) {
         if (INSTANCE == null) {
             synchronized (AppDatabase.class) {
                 if (INSTANCE == null) {
-                    INSTANCE = Room.databaseBuilder(context.getApplicationContext(),
+                    RoomDatabase.Builder<AppDatabase> builder = Room.databaseBuilder(context.getApplicationContext(),
                                     AppDatabase.class, "app_database")
-                            // Allows database recreation instead of migration
-                            .fallbackToDestructiveMigration()
+                            // Keep user data across schema changes
+                            .addMigrations(MIGRATION_1_2, MIGRATION_2_3, MIGRATION_3_4, MIGRATION_4_5, MIGRATION_5_6,
+                                    MIGRATION_6_7, MIGRATION_7_8)
                             // Initialize database with default status values
                             .addCallback(new RoomDatabase.Callback() {
                                 @Override
                                 public void onCreate(@NonNull SupportSQLiteDatabase db) {
                                     super.onCreate(db);
-                                    // Populate status table in background thread
-                                    databaseWriteExecutor.execute(() -> {
+                                    // Populate status table on the writer thread, ahead of any other write
+                                    DatabaseExecutors.getInstance().write(DatabaseExecutors.Priority.INTERACTIVE, () -> {
                                         AppDatabase database = getDatabase(context);
                                         StatusDao sDao = database.statusDao();
 
                                         // Order matters here as it matches the state transition
-                                        sDao.insertStatus(new Status("recorded"));
-                                        sDao.insertStatus(new Status("in_progress"));
-                                        sDao.insertStatus(new Status("expired"));
-                                        sDao.insertStatus(new Status("completed"));
+                                        sDao.insertStatus(new Status(Status.RECORDED));
+                                        sDao.insertStatus(new Status(Status.IN_PROGRESS));
+                                        sDao.insertStatus(new Status(Status.EXPIRED));
+                                        sDao.insertStatus(new Status(Status.COMPLETED));
+
+                                        // Load the seeded rows into the status dictionary
+                                        database.statusRegistry().reload();
                                     });
                                 }
-                            })
-                            .build();
+                            });
+                    // Opt-in: time every statement and explain the slow ones
+                    QueryTracer tracer = QueryTracer.fromSettings(context.getApplicationContext());
+                    if (tracer != null) {
+                        builder.openHelperFactory(new TracingOpenHelperFactory(new FrameworkSQLiteOpenHelperFactory(), tracer));
+                    }
+                    AppDatabase database = builder.build();
+                    database.queryTracer = tracer;
+                    INSTANCE = database;
                 }
             }
         }
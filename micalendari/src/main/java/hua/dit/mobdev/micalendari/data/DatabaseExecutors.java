@@ -0,0 +1,255 @@
+package hua.dit.mobdev.micalendari.data;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.DefaultLifecycleObserver;
+import androidx.lifecycle.LifecycleOwner;
+
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import hua.dit.mobdev.micalendari.core.Metrics;
+
+// Threads for database work: one writer, so writes never wait on each other's locks, and a
+// small read pool; queued jobs run by priority, then in submission order
+public final class DatabaseExecutors {
+    // Job priorities, highest first
+    public enum Priority {
+        // The user is waiting for it, e.g. a save
+        INTERACTIVE,
+        // Keeps the screen up to date, e.g. a list page or the status sweep
+        UI_REFRESH,
+        // Nobody is waiting, e.g. an export, an import or rescheduling reminders
+        BACKGROUND
+    }
+
+    private static final int READ_THREADS = 2;
+
+    private static volatile DatabaseExecutors INSTANCE;
+
+    private final Pool writer = new Pool("db-write", 1);
+    private final Pool readers = new Pool("db-read", READ_THREADS);
+    private final AtomicLong sequence = new AtomicLong();
+
+    private DatabaseExecutors() {}
+
+    public static DatabaseExecutors getInstance() {
+        if (INSTANCE == null) {
+            synchronized (DatabaseExecutors.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new DatabaseExecutors();
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    // Queue a job that writes to the database
+    public Job<Void> write(Priority priority, Runnable work) {
+        return writer.submit(new Job<>(priority, sequence.incrementAndGet(), writer, work));
+    }
+
+    // Queue a job that only reads
+    public Job<Void> read(Priority priority, Runnable work) {
+        return readers.submit(new Job<>(priority, sequence.incrementAndGet(), readers, work));
+    }
+
+    // Run a write on the writer thread and wait for its result, for callers already off the main thread
+    public <V> V writeAndWait(Priority priority, Callable<V> work) throws InterruptedException, ExecutionException {
+        return writer.submit(new Job<>(priority, sequence.incrementAndGet(), writer, work)).get();
+    }
+
+    // Run a read on the read pool and wait for its result, for callers already off the main thread
+    public <V> V readAndWait(Priority priority, Callable<V> work) throws InterruptedException, ExecutionException {
+        return readers.submit(new Job<>(priority, sequence.incrementAndGet(), readers, work)).get();
+    }
+
+    // Jobs tied to a screen: the ones not finished when it is destroyed are cancelled
+    // Create on the main thread, e.g. in onCreate()
+    public Scope scope(LifecycleOwner owner) {
+        return new Scope(owner);
+    }
+
+    // Queue depth and wait time of both pools
+    public Stats getWriterStats() {
+        return writer.stats();
+    }
+
+    public Stats getReaderStats() {
+        return readers.stats();
+    }
+
+    // A queued database job; cancelling it before it starts removes it from the queue
+    // Running jobs are never interrupted, a write is not left half done
+    public static final class Job<V> extends FutureTask<V> implements Comparable<Job<?>> {
+        private final Priority priority;
+        private final long sequence;
+        private final Pool pool;
+        private long enqueuedAtNanos;
+        private volatile Scope scope;
+
+        Job(Priority priority, long sequence, Pool pool, Callable<V> work) {
+            super(work);
+            this.priority = priority;
+            this.sequence = sequence;
+            this.pool = pool;
+        }
+
+        Job(Priority priority, long sequence, Pool pool, Runnable work) {
+            super(work, null);
+            this.priority = priority;
+            this.sequence = sequence;
+            this.pool = pool;
+        }
+
+        @Override
+        public void run() {
+            long startNanos = System.nanoTime();
+            pool.recordWait(startNanos - enqueuedAtNanos);
+            super.run();
+            pool.runTime.recordSince(startNanos);
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(false);
+            if (cancelled) {
+                pool.executor.remove(this);
+            }
+            return cancelled;
+        }
+
+        @Override
+        protected void done() {
+            Scope owner = scope;
+            if (owner != null) {
+                owner.jobs.remove(this);
+            }
+        }
+
+        @Override
+        public int compareTo(Job<?> other) {
+            int byPriority = priority.compareTo(other.priority);
+            return byPriority != 0 ? byPriority : Long.compare(sequence, other.sequence);
+        }
+    }
+
+    // Jobs submitted on behalf of one lifecycle owner
+    public final class Scope implements DefaultLifecycleObserver {
+        private final Set<Job<?>> jobs = ConcurrentHashMap.newKeySet();
+        private volatile boolean destroyed;
+
+        Scope(LifecycleOwner owner) {
+            owner.getLifecycle().addObserver(this);
+        }
+
+        public Job<Void> write(Priority priority, Runnable work) {
+            return track(new Job<>(priority, sequence.incrementAndGet(), writer, work));
+        }
+
+        public Job<Void> read(Priority priority, Runnable work) {
+            return track(new Job<>(priority, sequence.incrementAndGet(), readers, work));
+        }
+
+        private Job<Void> track(Job<Void> job) {
+            if (destroyed) {
+                job.cancel(false);
+                return job;
+            }
+            job.scope = this;
+            jobs.add(job);
+            return job.pool.submit(job);
+        }
+
+        @Override
+        public void onDestroy(@NonNull LifecycleOwner owner) {
+            destroyed = true;
+            owner.getLifecycle().removeObserver(this);
+            for (Job<?> job : jobs) {
+                job.cancel(false);
+            }
+            jobs.clear();
+        }
+    }
+
+    // Snapshot of a pool's counters
+    public static final class Stats {
+        public final int queued;
+        // Jobs started so far, and how long they waited in the queue
+        public final long started;
+        public final long totalWaitMillis;
+        public final long maxWaitMillis;
+
+        Stats(int queued, long started, long totalWaitMillis, long maxWaitMillis) {
+            this.queued = queued;
+            this.started = started;
+            this.totalWaitMillis = totalWaitMillis;
+            this.maxWaitMillis = maxWaitMillis;
+        }
+
+        public long averageWaitMillis() {
+            return started > 0 ? totalWaitMillis / started : 0;
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return "queued=" + queued + " started=" + started + " avgWaitMs=" + averageWaitMillis()
+                    + " maxWaitMs=" + maxWaitMillis;
+        }
+    }
+
+    // Fixed size pool whose queue is ordered by Job priority
+    // Also feeds the "<name>.wait" and "<name>.run" histograms, e.g. db.write.run, of Metrics
+    private static final class Pool {
+        final ThreadPoolExecutor executor;
+        final Metrics.Histogram waitTime;
+        final Metrics.Histogram runTime;
+        private final LongAdder started = new LongAdder();
+        private final LongAdder totalWaitNanos = new LongAdder();
+        private final AtomicLong maxWaitNanos = new AtomicLong();
+
+        Pool(String name, int threads) {
+            AtomicInteger count = new AtomicInteger();
+            ThreadFactory factory = runnable -> {
+                Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            };
+            executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                    new PriorityBlockingQueue<>(), factory);
+            String metric = name.replace('-', '.');
+            waitTime = Metrics.histogram(metric + ".wait", Metrics.Unit.NANOS);
+            runTime = Metrics.histogram(metric + ".run", Metrics.Unit.NANOS);
+        }
+
+        // Only Jobs go in, the queue compares them; submit() would wrap them in a plain FutureTask
+        <V> Job<V> submit(Job<V> job) {
+            job.enqueuedAtNanos = System.nanoTime();
+            executor.execute(job);
+            return job;
+        }
+
+        void recordWait(long waitNanos) {
+            started.increment();
+            totalWaitNanos.add(waitNanos);
+            maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+            waitTime.record(waitNanos);
+        }
+
+        Stats stats() {
+            return new Stats(executor.getQueue().size(), started.sum(),
+                    TimeUnit.NANOSECONDS.toMillis(totalWaitNanos.sum()),
+                    TimeUnit.NANOSECONDS.toMillis(maxWaitNanos.get()));
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package hua.dit.mobdev.micalendari.data;
+
+import hua.dit.mobdev.micalendari.entity.Task;
+
+// One entry of a calendar window: a one-off task, or one occurrence of a recurring series
+// Built by OccurrenceExpander, never stored
+public final class Occurrence {
+    // occurrenceAt of one-off tasks
+    public static final long NONE = Long.MIN_VALUE;
+
+    // The task row: the one-off task itself or the whole series
+    public final Task task;
+    // Start the rule gives this occurrence, its key in task_exceptions; NONE for one-off tasks
+    public final long occurrenceAt;
+    // Actual times, moved ones included
+    public final long startAt;
+    public final long endAt;
+    public final String statusName;
+
+    Occurrence(Task task, long occurrenceAt, long startAt, long endAt, String statusName) {
+        this.task = task;
+        this.occurrenceAt = occurrenceAt;
+        this.startAt = startAt;
+        this.endAt = endAt;
+        this.statusName = statusName;
+    }
+
+    public boolean isRecurring() {
+        return occurrenceAt != NONE;
+    }
+}
@@ -0,0 +1,220 @@
+package hua.dit.mobdev.micalendari.data;
+
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import hua.dit.mobdev.micalendari.core.TaskStatusRules;
+import hua.dit.mobdev.micalendari.dao.TaskDao;
+import hua.dit.mobdev.micalendari.dao.TaskExceptionDao;
+import hua.dit.mobdev.micalendari.entity.RecurrenceRule;
+import hua.dit.mobdev.micalendari.entity.Status;
+import hua.dit.mobdev.micalendari.entity.Task;
+import hua.dit.mobdev.micalendari.entity.TaskException;
+
+// Expands recurring tasks into occurrences on demand, only for the window being looked at
+// Occurrences follow RecurrenceRule, then the sparse task_exceptions rows: cancelled ones are
+// dropped, moved ones take their new times and completed ones keep the completed status
+// The status of other occurrences follows the clock, like the sweep does for one-off tasks
+public final class OccurrenceExpander {
+    private OccurrenceExpander() {}
+
+    // One-off tasks and occurrences overlapping [fromMillis, toMillis), by start time
+    // One range query for each kind, plus one exception lookup for the series found
+    // Run inside a transaction so both see the same data
+    public static List<Occurrence> overlapping(AppDatabase db, long fromMillis, long toMillis, long now, ZoneId zone) {
+        TaskDao taskDao = db.taskDao();
+        StatusRegistry statuses = db.statusRegistry();
+        List<Occurrence> occurrences = new ArrayList<>();
+        for (Task task : taskDao.getTasksOverlapping(fromMillis, toMillis)) {
+            occurrences.add(new Occurrence(task, Occurrence.NONE, task.getStartAt(), task.getEndAt(),
+                    statuses.getNameById(task.getStatus_id())));
+        }
+
+        List<Task> series = taskDao.getRecurringTasksOverlapping(fromMillis, toMillis);
+        if (!series.isEmpty()) {
+            Map<Integer, Map<Long, TaskException>> exceptions =
+                    exceptionsBetween(db.taskExceptionDao(), series, fromMillis, toMillis);
+            for (Task task : series) {
+                occurrences.addAll(expand(task, exceptions.get(task.getUid()), fromMillis, toMillis, now, zone));
+            }
+            // Each list is sorted already; moved occurrences may not be
+            Collections.sort(occurrences, (a, b) -> {
+                int byStart = Long.compare(a.startAt, b.startAt);
+                return byStart != 0 ? byStart : Integer.compare(a.task.getUid(), b.task.getUid());
+            });
+        }
+        return occurrences;
+    }
+
+    // Occurrences of one series overlapping [fromMillis, toMillis), exceptions applied
+    // exceptions maps occurrenceAt to its row, null when there are none
+    public static List<Occurrence> expand(Task series, Map<Long, TaskException> exceptions,
+                                         long fromMillis, long toMillis, long now, ZoneId zone) {
+        List<Occurrence> occurrences = new ArrayList<>();
+        RecurrenceRule rule = series.getRecurrence();
+        if (rule == null) return occurrences;
+        long duration = series.getEndAt() - series.getStartAt();
+        for (long start : rule.startsOverlapping(series.getStartAt(), duration, fromMillis, toMillis, zone)) {
+            TaskException exception = exceptions != null ? exceptions.get(start) : null;
+            Occurrence occurrence = occurrenceOf(series, start, duration, exception, now);
+            // A moved occurrence may have left the window
+            if (occurrence != null && overlaps(occurrence, fromMillis, toMillis)) {
+                occurrences.add(occurrence);
+            }
+        }
+        // Occurrences moved here from outside the window
+        if (exceptions != null) {
+            for (TaskException exception : exceptions.values()) {
+                if (exception.getStartAt() == null || exception.isCancelled()) continue;
+                long occurrenceAt = exception.getOccurrenceAt();
+                boolean ruleInWindow = occurrenceAt < toMillis && occurrenceAt + Math.max(duration, 1) > fromMillis;
+                if (ruleInWindow) continue;
+                Occurrence moved = occurrenceOf(series, occurrenceAt, duration, exception, now);
+                if (moved != null && overlaps(moved, fromMillis, toMillis)) {
+                    occurrences.add(moved);
+                }
+            }
+        }
+        return occurrences;
+    }
+
+    // The occurrence of a series running at now, or else the next one; null when none is left
+    // Cancelled and completed occurrences are skipped
+    public static Occurrence currentOrNext(Task series, Map<Long, TaskException> exceptions, long now, ZoneId zone) {
+        RecurrenceRule rule = series.getRecurrence();
+        if (rule == null) return null;
+        long duration = series.getEndAt() - series.getStartAt();
+        Iterator<Long> starts = rule.startsEndingAfter(series.getStartAt(), duration, now, zone);
+        while (starts.hasNext()) {
+            long start = starts.next();
+            TaskException exception = exceptions != null ? exceptions.get(start) : null;
+            Occurrence occurrence = occurrenceOf(series, start, duration, exception, now);
+            if (occurrence != null && !Status.COMPLETED.equals(occurrence.statusName) && occurrence.endAt > now) {
+                return occurrence;
+            }
+        }
+        return null;
+    }
+
+    // Same, with the exceptions read from the database
+    public static Occurrence currentOrNext(AppDatabase db, Task series, long now, ZoneId zone) {
+        Map<Integer, Map<Long, TaskException>> exceptions = exceptionsBetween(db.taskExceptionDao(),
+                Collections.singletonList(series), now, Long.MAX_VALUE);
+        return currentOrNext(series, exceptions.get(series.getUid()), now, zone);
+    }
+
+    // Status a recurring series shows at now: that of its current or next occurrence,
+    // expired once no occurrence is left
+    public static String seriesStatusAt(Task series, Map<Long, TaskException> exceptions, long now, ZoneId zone) {
+        Occurrence occurrence = currentOrNext(series, exceptions, now, zone);
+        return occurrence != null ? occurrence.statusName : Status.EXPIRED;
+    }
+
+    // Outcome of updateSeriesStatuses: the series looked at, and the uids of those that changed
+    public static final class SeriesUpdate {
+        public final int scanned;
+        public final List<Integer> changed;
+
+        SeriesUpdate(int scanned, List<Integer> changed) {
+            this.scanned = scanned;
+            this.changed = changed;
+        }
+    }
+
+    // Bring the status of every unfinished recurring series in line with its occurrences at now
+    // Run inside the sweep's transaction
+    public static SeriesUpdate updateSeriesStatuses(AppDatabase db, long now, ZoneId zone) {
+        List<Integer> changed = new ArrayList<>();
+        List<Task> series = db.taskDao().getUnfinishedRecurringTasks(now);
+        if (series.isEmpty()) return new SeriesUpdate(0, changed);
+        StatusRegistry statuses = db.statusRegistry();
+        Map<Integer, Map<Long, TaskException>> exceptions = exceptionsBetween(db.taskExceptionDao(), series, now, Long.MAX_VALUE);
+        for (Task task : series) {
+            int statusId = statuses.getIdByName(seriesStatusAt(task, exceptions.get(task.getUid()), now, zone));
+            if (statusId != task.getStatus_id()) {
+                db.taskDao().updateTaskStatus(task.getUid(), statusId);
+                changed.add(task.getUid());
+            }
+        }
+        return new SeriesUpdate(series.size(), changed);
+    }
+
+    // Earliest moment after which some recurring series shows another status, null if none will
+    // A value at or before now means a change is already due
+    public static Long nextSeriesChangeAt(AppDatabase db, long now, ZoneId zone) {
+        List<Task> series = db.taskDao().getUnfinishedRecurringTasks(now);
+        if (series.isEmpty()) return null;
+        StatusRegistry statuses = db.statusRegistry();
+        Map<Integer, Map<Long, TaskException>> exceptions = exceptionsBetween(db.taskExceptionDao(), series, now, Long.MAX_VALUE);
+        Long next = null;
+        for (Task task : series) {
+            Occurrence occurrence = currentOrNext(task, exceptions.get(task.getUid()), now, zone);
+            long changeAt;
+            if (occurrence == null) {
+                // Over; due now unless the sweep marked it expired already
+                if (task.getStatus_id() == statuses.getIdByName(Status.EXPIRED)) continue;
+                changeAt = now;
+            } else {
+                changeAt = occurrence.startAt > now ? occurrence.startAt : occurrence.endAt;
+            }
+            if (next == null || changeAt < next) next = changeAt;
+        }
+        return next;
+    }
+
+    // Mark one occurrence of a series completed, keeping the rest of its exception
+    public static void markCompleted(AppDatabase db, int taskUid, long occurrenceAt) {
+        TaskExceptionDao dao = db.taskExceptionDao();
+        TaskException exception = dao.getException(taskUid, occurrenceAt);
+        if (exception == null) {
+            exception = new TaskException(taskUid, occurrenceAt);
+        }
+        exception.setCompleted(true);
+        dao.upsertException(exception);
+    }
+
+    // Exceptions of the given series that may touch [fromMillis, toMillis), by task and occurrence
+    public static Map<Integer, Map<Long, TaskException>> exceptionsBetween(TaskExceptionDao dao, List<Task> series,
+                                                                           long fromMillis, long toMillis) {
+        List<Integer> uids = new ArrayList<>(series.size());
+        long longest = 0;
+        for (Task task : series) {
+            uids.add(task.getUid());
+            longest = Math.max(longest, task.getEndAt() - task.getStartAt());
+        }
+        Map<Integer, Map<Long, TaskException>> byTask = new HashMap<>();
+        // Keep under SQLite's 999 bound parameters
+        for (int from = 0; from < uids.size(); from += 900) {
+            List<Integer> chunk = uids.subList(from, Math.min(uids.size(), from + 900));
+            for (TaskException exception : dao.getExceptionsBetween(chunk, fromMillis - longest, fromMillis, toMillis)) {
+                byTask.computeIfAbsent(exception.getTaskUid(), uid -> new HashMap<>())
+                        .put(exception.getOccurrenceAt(), exception);
+            }
+        }
+        return byTask;
+    }
+
+    // Occurrence starting at start by the rule, with its exception applied; null if cancelled
+    private static Occurrence occurrenceOf(Task series, long start, long duration, TaskException exception, long now) {
+        long startAt = start;
+        long endAt = start + duration;
+        boolean completed = false;
+        if (exception != null) {
+            if (exception.isCancelled()) return null;
+            if (exception.getStartAt() != null) startAt = exception.getStartAt();
+            if (exception.getEndAt() != null) endAt = exception.getEndAt();
+            completed = exception.isCompleted();
+        }
+        return new Occurrence(series, start, startAt, endAt, TaskStatusRules.statusAt(startAt, endAt, completed, now));
+    }
+
+    // Same overlap rule as TaskDao.getTasksOverlapping, zero-length occurrences included
+    private static boolean overlaps(Occurrence occurrence, long fromMillis, long toMillis) {
+        return occurrence.startAt < toMillis && Math.max(occurrence.endAt, occurrence.startAt + 1) > fromMillis;
+    }
+}
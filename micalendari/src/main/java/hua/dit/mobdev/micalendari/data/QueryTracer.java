@@ -0,0 +1,171 @@
+package hua.dit.mobdev.micalendari.data;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.database.Cursor;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+// Opt-in statement tracing for AppDatabase: times every statement and aggregates them per SQL
+// template (literals and IN lists folded, so "uid IN (?,?,?)" and "uid IN (?)" count as one)
+// The first time a template runs over the slow threshold its EXPLAIN QUERY PLAN is captured,
+// which tells whether it searches an index or scans the table
+// Off unless enabled on the debug screen or through TaskContentProvider; the setting is read
+// when the database is opened, so it takes effect on the next start of the app
+public final class QueryTracer {
+    private static final String TAG = "QueryTracer";
+
+    // Settings, in their own preferences file
+    private static final String PREFS = "query_tracing";
+    private static final String PREF_ENABLED = "enabled";
+    private static final String PREF_SLOW_MILLIS = "slowMillis";
+    public static final long DEFAULT_SLOW_MILLIS = 16;
+
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("(?<![\\w.])-?\\d+(?:\\.\\d+)?(?![\\w.])");
+    private static final Pattern IN_LIST = Pattern.compile("\\(\\s*\\?(?:\\s*,\\s*\\?)*\\s*\\)");
+    private static final Pattern SPACES = Pattern.compile("\\s+");
+    // Statements EXPLAIN QUERY PLAN has something to say about
+    private static final Pattern EXPLAINABLE = Pattern.compile("^\\s*(?:WITH|SELECT|INSERT|UPDATE|DELETE|REPLACE)\\b",
+            Pattern.CASE_INSENSITIVE);
+
+    private final long slowNanos;
+    private final ConcurrentMap<String, TemplateStats> templates = new ConcurrentHashMap<>();
+
+    // Runs the plan of a statement, rows of (id, parent, notused, detail); null if it cannot
+    interface PlanReader {
+        Cursor explain(String sql);
+    }
+
+    // Aggregate of one SQL template
+    static final class TemplateStats {
+        final String template;
+        final LongAdder count = new LongAdder();
+        final LongAdder totalNanos = new LongAdder();
+        final LongAdder slowCount = new LongAdder();
+        final AtomicLong maxNanos = new AtomicLong();
+        // EXPLAIN QUERY PLAN of its first slow run, null until there was one
+        volatile String plan;
+
+        TemplateStats(String template) {
+            this.template = template;
+        }
+    }
+
+    QueryTracer(long slowMillis) {
+        slowNanos = TimeUnit.MILLISECONDS.toNanos(slowMillis);
+    }
+
+    // The tracer for a database being opened, null when tracing is off
+    static QueryTracer fromSettings(Context context) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+        if (!prefs.getBoolean(PREF_ENABLED, false)) return null;
+        long slowMillis = prefs.getLong(PREF_SLOW_MILLIS, DEFAULT_SLOW_MILLIS);
+        Log.i(TAG, "Tracing statements, plans of those over " + slowMillis + " ms");
+        return new QueryTracer(slowMillis);
+    }
+
+    // Turn tracing on with the given slow threshold, or off when slowMillis is negative
+    // Applies from the next start of the app
+    public static void setEnabled(Context context, long slowMillis) {
+        context.getSharedPreferences(PREFS, Context.MODE_PRIVATE).edit()
+                .putBoolean(PREF_ENABLED, slowMillis >= 0)
+                .putLong(PREF_SLOW_MILLIS, Math.max(slowMillis, 0))
+                .apply();
+    }
+
+    public static boolean isEnabled(Context context) {
+        return context.getSharedPreferences(PREFS, Context.MODE_PRIVATE).getBoolean(PREF_ENABLED, false);
+    }
+
+    // Count one run of a statement; captures its plan if it is the template's first slow run
+    void record(String sql, long elapsedNanos, PlanReader planReader) {
+        String template = templateOf(sql);
+        TemplateStats stats = templates.get(template);
+        if (stats == null) {
+            stats = templates.computeIfAbsent(template, TemplateStats::new);
+        }
+        stats.count.increment();
+        stats.totalNanos.add(elapsedNanos);
+        long max = stats.maxNanos.get();
+        while (elapsedNanos > max && !stats.maxNanos.compareAndSet(max, elapsedNanos)) {
+            max = stats.maxNanos.get();
+        }
+        if (elapsedNanos < slowNanos) return;
+
+        stats.slowCount.increment();
+        if (stats.plan == null && EXPLAINABLE.matcher(sql).find()) {
+            stats.plan = readPlan(planReader, sql);
+            Log.w(TAG, "Slow statement (" + TimeUnit.NANOSECONDS.toMillis(elapsedNanos) + " ms): "
+                    + template + "\n" + stats.plan);
+        }
+    }
+
+    // Templates by total time, slowest first, with their plans
+    @NonNull
+    public String report() {
+        List<TemplateStats> all = new ArrayList<>(templates.values());
+        all.sort(Comparator.comparingLong((TemplateStats stats) -> stats.totalNanos.sum()).reversed());
+        StringBuilder sb = new StringBuilder();
+        for (TemplateStats stats : all) {
+            long count = stats.count.sum();
+            long totalMicros = TimeUnit.NANOSECONDS.toMicros(stats.totalNanos.sum());
+            sb.append(String.format(Locale.US, "n=%d total=%dus avg=%dus max=%dus slow=%d\n",
+                    count, totalMicros, count > 0 ? totalMicros / count : 0,
+                    TimeUnit.NANOSECONDS.toMicros(stats.maxNanos.get()), stats.slowCount.sum()));
+            sb.append(stats.template).append('\n');
+            if (stats.plan != null) {
+                sb.append(stats.plan).append('\n');
+            }
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
+    // Forget every aggregate and captured plan
+    public void reset() {
+        templates.clear();
+    }
+
+    // SQL with literals replaced by ?, IN lists folded to (?...) and whitespace collapsed
+    static String templateOf(String sql) {
+        String template = STRING_LITERAL.matcher(sql).replaceAll("?");
+        template = NUMBER_LITERAL.matcher(template).replaceAll("?");
+        template = IN_LIST.matcher(template).replaceAll("(?...)");
+        return SPACES.matcher(template).replaceAll(" ").trim();
+    }
+
+    // Plan rows as an indented tree, e.g. "SEARCH tasks USING INDEX index_tasks_status_id (status_id=?)"
+    static String readPlan(PlanReader planReader, String sql) {
+        try (Cursor cursor = planReader.explain("EXPLAIN QUERY PLAN " + sql)) {
+            if (cursor == null) return "(no plan)";
+            Map<Integer, Integer> depths = new HashMap<>();
+            StringBuilder sb = new StringBuilder();
+            while (cursor.moveToNext()) {
+                Integer parentDepth = depths.get(cursor.getInt(1));
+                int depth = parentDepth != null ? parentDepth + 1 : 0;
+                depths.put(cursor.getInt(0), depth);
+                if (sb.length() > 0) sb.append('\n');
+                for (int i = 0; i <= depth; i++) sb.append("  ");
+                sb.append(cursor.getString(3));
+            }
+            return sb.toString();
+        } catch (RuntimeException e) {
+            return "(no plan: " + e.getMessage() + ")";
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package hua.dit.mobdev.micalendari.data;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import hua.dit.mobdev.micalendari.dao.StatusDao;
+import hua.dit.mobdev.micalendari.entity.Status;
+
+// Process-wide name <-> id dictionary of the status table
+// The table is tiny and practically immutable, so it is read once and then served from memory
+public class StatusRegistry {
+    private final StatusDao statusDao;
+
+    // Immutable view of the table, swapped as a whole on reload
+    private volatile Snapshot snapshot;
+
+    public StatusRegistry(StatusDao statusDao) {
+        this.statusDao = statusDao;
+    }
+
+    // Get the id of a status by its name, 0 if unknown (same as StatusDao.getIdByName)
+    public int getIdByName(String statusName) {
+        Integer id = snapshot().idsByName.get(statusName);
+        return id != null ? id : 0;
+    }
+
+    // Get the name of a status by its id, null if unknown (same as StatusDao.getNameById)
+    public String getNameById(int statusId) {
+        return snapshot().namesById.get(statusId);
+    }
+
+    // Insert a status row and refresh the dictionary so the new row is visible right away
+    public long insertStatus(Status status) {
+        long id = statusDao.insertStatus(status);
+        reload();
+        return id;
+    }
+
+    // Re-read the status table, e.g. after AppDatabase seeded it
+    public synchronized void reload() {
+        Snapshot loaded = load();
+        snapshot = loaded.isEmpty() ? null : loaded;
+    }
+
+    // Load lazily on first use; an empty table (not seeded yet) is never cached
+    private Snapshot snapshot() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            synchronized (this) {
+                current = snapshot;
+                if (current == null) {
+                    current = load();
+                    if (!current.isEmpty()) {
+                        snapshot = current;
+                    }
+                }
+            }
+        }
+        return current;
+    }
+
+    private Snapshot load() {
+        List<Status> statuses = statusDao.getAllStatuses();
+        Map<String, Integer> idsByName = new HashMap<>();
+        Map<Integer, String> namesById = new HashMap<>();
+        for (Status status : statuses) {
+            idsByName.put(status.getName(), status.getId());
+            namesById.put(status.getId(), status.getName());
+        }
+        return new Snapshot(idsByName, namesById);
+    }
+
+    private static final class Snapshot {
+        final Map<String, Integer> idsByName;
+        final Map<Integer, String> namesById;
+
+        Snapshot(Map<String, Integer> idsByName, Map<Integer, String> namesById) {
+            this.idsByName = Collections.unmodifiableMap(idsByName);
+            this.namesById = Collections.unmodifiableMap(namesById);
+        }
+
+        boolean isEmpty() {
+            return idsByName.isEmpty();
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package hua.dit.mobdev.micalendari.data;
+
+import androidx.room.ColumnInfo;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+// In-memory interval tree over task [start_at, end_at) times, for conflict checks
+// A treap keyed by (start, uid), each node also holding the latest end in its subtree, so a query
+// skips every subtree that ends before the range: O(log n + k) expected for k overlapping tasks
+// Thread safe; see crud.TaskConflictDetector for how it is filled and kept in sync
+public final class TaskIntervalIndex {
+    // Row of TaskDao.getScheduledIntervals() and getIntervalsByIds()
+    public static class Interval {
+        public int uid;
+        @ColumnInfo(name = "start_at")
+        public long startAt;
+        @ColumnInfo(name = "end_at")
+        public long endAt;
+    }
+
+    private static final class Node {
+        final int uid;
+        final long start;
+        final long end;
+        final int priority;
+        long maxEnd;
+        Node left;
+        Node right;
+
+        Node(int uid, long start, long end, int priority) {
+            this.uid = uid;
+            this.start = start;
+            this.end = end;
+            this.priority = priority;
+            this.maxEnd = end;
+        }
+    }
+
+    private final Random random = new Random();
+    private final Map<Integer, Node> nodesByUid = new HashMap<>();
+    private Node root;
+
+    // Add or move a task; end is exclusive
+    // A zero-length task is kept as lasting 1 ms, so it overlaps the ranges it starts in
+    public synchronized void put(int uid, long start, long end) {
+        remove(uid);
+        Node node = new Node(uid, start, Math.max(end, start + 1), random.nextInt());
+        root = insert(root, node);
+        nodesByUid.put(uid, node);
+    }
+
+    // Add or move every interval of the list
+    public synchronized void putAll(List<Interval> intervals) {
+        for (Interval interval : intervals) {
+            put(interval.uid, interval.startAt, interval.endAt);
+        }
+    }
+
+    // Forget a task, false if it was not indexed
+    public synchronized boolean remove(int uid) {
+        Node node = nodesByUid.remove(uid);
+        if (node == null) return false;
+        root = remove(root, node.start, node.uid);
+        return true;
+    }
+
+    public synchronized void clear() {
+        nodesByUid.clear();
+        root = null;
+    }
+
+    public synchronized int size() {
+        return nodesByUid.size();
+    }
+
+    // uids of up to limit tasks other than excludeUid that overlap [from, to), by start time
+    public synchronized List<Integer> findOverlapping(long from, long to, int excludeUid, int limit) {
+        List<Integer> uids = new ArrayList<>();
+        collect(root, from, to, excludeUid, limit, uids);
+        return uids;
+    }
+
+    // In-order walk, pruned by maxEnd on the left and by start on the right
+    private static void collect(Node node, long from, long to, int excludeUid, int limit, List<Integer> out) {
+        if (node == null || node.maxEnd <= from || out.size() >= limit) return;
+        collect(node.left, from, to, excludeUid, limit, out);
+        // Everything to the right starts no earlier than this node
+        if (node.start >= to || out.size() >= limit) return;
+        if (node.end > from && node.uid != excludeUid) {
+            out.add(node.uid);
+        }
+        collect(node.right, from, to, excludeUid, limit, out);
+    }
+
+    // Order of the key (start, uid) against a node
+    private static int compare(long start, int uid, Node node) {
+        int byStart = Long.compare(start, node.start);
+        return byStart != 0 ? byStart : Integer.compare(uid, node.uid);
+    }
+
+    private static Node insert(Node tree, Node node) {
+        if (tree == null) return node;
+        if (node.priority > tree.priority) {
+            Node[] parts = split(tree, node.start, node.uid);
+            node.left = parts[0];
+            node.right = parts[1];
+            update(node);
+            return node;
+        }
+        if (compare(node.start, node.uid, tree) < 0) {
+            tree.left = insert(tree.left, node);
+        } else {
+            tree.right = insert(tree.right, node);
+        }
+        update(tree);
+        return tree;
+    }
+
+    private static Node remove(Node tree, long start, int uid) {
+        if (tree == null) return null;
+        int c = compare(start, uid, tree);
+        if (c == 0) return merge(tree.left, tree.right);
+        if (c < 0) {
+            tree.left = remove(tree.left, start, uid);
+        } else {
+            tree.right = remove(tree.right, start, uid);
+        }
+        update(tree);
+        return tree;
+    }
+
+    // Nodes before the key (start, uid), and the others
+    private static Node[] split(Node tree, long start, int uid) {
+        if (tree == null) return new Node[2];
+        if (compare(start, uid, tree) > 0) {
+            Node[] parts = split(tree.right, start, uid);
+            tree.right = parts[0];
+            update(tree);
+            parts[0] = tree;
+            return parts;
+        }
+        Node[] parts = split(tree.left, start, uid);
+        tree.left = parts[1];
+        update(tree);
+        parts[1] = tree;
+        return parts;
+    }
+
+    // Join two treaps whose keys do not interleave, a before b
+    private static Node merge(Node a, Node b) {
+        if (a == null) return b;
+        if (b == null) return a;
+        if (a.priority > b.priority) {
+            a.right = merge(a.right, b);
+            update(a);
+            return a;
+        }
+        b.left = merge(a, b.left);
+        update(b);
+        return b;
+    }
+
+    private static void update(Node node) {
+        long maxEnd = node.end;
+        if (node.left != null) maxEnd = Math.max(maxEnd, node.left.maxEnd);
+        if (node.right != null) maxEnd = Math.max(maxEnd, node.right.maxEnd);
+        node.maxEnd = maxEnd;
+    }
+}
@@ -0,0 +1,106 @@
+package hua.dit.mobdev.micalendari.data;
+
+import androidx.room.ColumnInfo;
+import androidx.room.Embedded;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import hua.dit.mobdev.micalendari.entity.Task;
+
+// Search over the tasks_fts index: turns user input into an FTS query and ranks the matches
+public final class TaskSearch {
+    // Candidate rows fetched for ranking; a one letter prefix can match most of the table
+    // TaskDao.searchTasks orders the matches by a coarse score first, so the cut keeps the best
+    public static final int MAX_CANDIDATES = 1000;
+
+    // tasks_fts columns, in the order of COLUMN_WEIGHTS
+    public static final String SHORT_NAME = "shortName", DESCRIPTION = "description", LOCATION = "location";
+
+    // Weight of a hit in shortName, description and location, the order of the tasks_fts columns
+    private static final double[] COLUMN_WEIGHTS = {3.0, 1.0, 2.0};
+
+    // One matching task with its matchinfo(tasks_fts, 'pcx') blob, see TaskDao.searchTasks
+    public static class Match {
+        @Embedded
+        public Task task;
+
+        @ColumnInfo(name = "match_info")
+        public byte[] matchInfo;
+
+        // Filled by rank()
+        transient double score;
+    }
+
+    private TaskSearch() {}
+
+    // FTS MATCH expression of the user's input: every word, as a prefix, must appear
+    // Operators and quotes typed by the user are dropped; null when there is no word at all
+    public static String toMatchQuery(String input) {
+        if (input == null) return null;
+        StringBuilder query = new StringBuilder();
+        for (String word : input.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (word.isEmpty()) continue;
+            if (query.length() > 0) query.append(' ');
+            query.append(word).append('*');
+        }
+        return query.length() > 0 ? query.toString() : null;
+    }
+
+    // The words of a toMatchQuery() expression restricted to one column, any of them may match,
+    // e.g. "shortName:team* OR shortName:meet*"
+    public static String toColumnQuery(String matchQuery, String column) {
+        StringBuilder query = new StringBuilder();
+        for (String word : matchQuery.split(" ")) {
+            if (query.length() > 0) query.append(" OR ");
+            query.append(column).append(':').append(word);
+        }
+        return query.toString();
+    }
+
+    // Tasks of the matches, best first
+    // The score sums, over the query words and columns, the column weight times the word's hits in
+    // the task, scaled down for words that are common across the index (tf-idf like)
+    public static List<Task> rank(List<Match> matches) {
+        for (Match match : matches) {
+            match.score = score(match.matchInfo);
+        }
+        List<Match> sorted = new ArrayList<>(matches);
+        Collections.sort(sorted, (a, b) -> {
+            int byScore = Double.compare(b.score, a.score);
+            return byScore != 0 ? byScore : Integer.compare(b.task.getUid(), a.task.getUid());
+        });
+        List<Task> tasks = new ArrayList<>(sorted.size());
+        for (Match match : sorted) {
+            tasks.add(match.task);
+        }
+        return tasks;
+    }
+
+    // Score of one matchinfo 'pcx' blob: phrase count, column count, then for every
+    // (phrase, column) pair the hits in this row, in all rows, and the number of rows with a hit
+    static double score(byte[] matchInfo) {
+        if (matchInfo == null || matchInfo.length < 8) return 0;
+        // 32-bit unsigned integers in the byte order of the device
+        ByteBuffer ints = ByteBuffer.wrap(matchInfo).order(ByteOrder.nativeOrder());
+        int phrases = ints.getInt(0);
+        int columns = ints.getInt(4);
+        double score = 0;
+        for (int p = 0; p < phrases; p++) {
+            for (int c = 0; c < columns; c++) {
+                int at = 8 + 12 * (p * columns + c);
+                if (at + 12 > matchInfo.length) return score;
+                long hitsThisRow = ints.getInt(at) & 0xFFFFFFFFL;
+                long hitsAllRows = ints.getInt(at + 4) & 0xFFFFFFFFL;
+                if (hitsThisRow == 0) continue;
+                double weight = c < COLUMN_WEIGHTS.length ? COLUMN_WEIGHTS[c] : 1.0;
+                score += weight * hitsThisRow / Math.log(2 + hitsAllRows);
+            }
+        }
+        return score;
+    }
+}
@@ -0,0 +1,519 @@
+package hua.dit.mobdev.micalendari.data;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.SQLException;
+import android.database.sqlite.SQLiteTransactionListener;
+import android.os.CancellationSignal;
+import android.util.Pair;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.SupportSQLiteOpenHelper;
+import androidx.sqlite.db.SupportSQLiteProgram;
+import androidx.sqlite.db.SupportSQLiteQuery;
+import androidx.sqlite.db.SupportSQLiteStatement;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+// Open helper factory that hands Room a database timing every statement into a QueryTracer
+// Queries are timed up to their first window of rows: the cursor is moved to its first row and
+// back before it is returned, so the window the caller would fill on its first move is filled
+// here instead; tracing moves that cost into the traced call rather than adding a pass over the rows
+// Plans are read from the wrapped database, so EXPLAIN itself is not traced
+final class TracingOpenHelperFactory implements SupportSQLiteOpenHelper.Factory {
+    private final SupportSQLiteOpenHelper.Factory delegate;
+    private final QueryTracer tracer;
+
+    TracingOpenHelperFactory(SupportSQLiteOpenHelper.Factory delegate, QueryTracer tracer) {
+        this.delegate = delegate;
+        this.tracer = tracer;
+    }
+
+    @NonNull
+    @Override
+    public SupportSQLiteOpenHelper create(@NonNull SupportSQLiteOpenHelper.Configuration configuration) {
+        return new TracingOpenHelper(delegate.create(configuration), tracer);
+    }
+
+    private static final class TracingOpenHelper implements SupportSQLiteOpenHelper {
+        private final SupportSQLiteOpenHelper delegate;
+        private final QueryTracer tracer;
+        // Wrapper of the last database the delegate returned, so Room keeps getting the same one
+        private volatile TracingDatabase wrapped;
+
+        TracingOpenHelper(SupportSQLiteOpenHelper delegate, QueryTracer tracer) {
+            this.delegate = delegate;
+            this.tracer = tracer;
+        }
+
+        private SupportSQLiteDatabase wrap(SupportSQLiteDatabase database) {
+            TracingDatabase current = wrapped;
+            if (current == null || current.delegate != database) {
+                current = new TracingDatabase(database, tracer);
+                wrapped = current;
+            }
+            return current;
+        }
+
+        @Nullable
+        @Override
+        public String getDatabaseName() {
+            return delegate.getDatabaseName();
+        }
+
+        @Override
+        public void setWriteAheadLoggingEnabled(boolean enabled) {
+            delegate.setWriteAheadLoggingEnabled(enabled);
+        }
+
+        @NonNull
+        @Override
+        public SupportSQLiteDatabase getWritableDatabase() {
+            return wrap(delegate.getWritableDatabase());
+        }
+
+        @NonNull
+        @Override
+        public SupportSQLiteDatabase getReadableDatabase() {
+            return wrap(delegate.getReadableDatabase());
+        }
+
+        @Override
+        public void close() {
+            delegate.close();
+        }
+    }
+
+    private static final class TracingDatabase implements SupportSQLiteDatabase {
+        // OR clause of each SQLiteDatabase.CONFLICT_* value, as the framework writes it
+        private static final String[] CONFLICT_CLAUSES = {"", " OR ROLLBACK", " OR ABORT", " OR FAIL", " OR IGNORE", " OR REPLACE"};
+
+        final SupportSQLiteDatabase delegate;
+        private final QueryTracer tracer;
+        private final QueryTracer.PlanReader planReader;
+
+        TracingDatabase(SupportSQLiteDatabase delegate, QueryTracer tracer) {
+            this.delegate = delegate;
+            this.tracer = tracer;
+            planReader = sql -> delegate.query(sql);
+        }
+
+        // Plans of queries that bind arguments, read with the same arguments
+        private QueryTracer.PlanReader planReaderOf(Object[] bindArgs) {
+            return sql -> delegate.query(sql, bindArgs);
+        }
+
+        private QueryTracer.PlanReader planReaderOf(SupportSQLiteQuery query) {
+            return sql -> delegate.query(new SupportSQLiteQuery() {
+                @NonNull
+                @Override
+                public String getSql() {
+                    return sql;
+                }
+
+                @Override
+                public void bindTo(@NonNull SupportSQLiteProgram statement) {
+                    query.bindTo(statement);
+                }
+
+                @Override
+                public int getArgCount() {
+                    return query.getArgCount();
+                }
+            });
+        }
+
+        // Run the query and its first window of rows, then hand the cursor back before its first row
+        private Cursor timed(String sql, QueryTracer.PlanReader plans, CursorSupplier query) {
+            long startNanos = System.nanoTime();
+            Cursor cursor = query.get();
+            cursor.moveToFirst();
+            tracer.record(sql, System.nanoTime() - startNanos, plans);
+            // Within the filled window, so this does not run the query again
+            cursor.moveToPosition(-1);
+            return cursor;
+        }
+
+        private interface CursorSupplier {
+            Cursor get();
+        }
+
+        @NonNull
+        @Override
+        public SupportSQLiteStatement compileStatement(@NonNull String sql) {
+            return new TracingStatement(delegate.compileStatement(sql), sql, this);
+        }
+
+        @NonNull
+        @Override
+        public Cursor query(@NonNull String query) {
+            return timed(query, planReader, () -> delegate.query(query));
+        }
+
+        @NonNull
+        @Override
+        public Cursor query(@NonNull String query, @NonNull Object[] bindArgs) {
+            return timed(query, planReaderOf(bindArgs), () -> delegate.query(query, bindArgs));
+        }
+
+        @NonNull
+        @Override
+        public Cursor query(@NonNull SupportSQLiteQuery query) {
+            return timed(query.getSql(), planReaderOf(query), () -> delegate.query(query));
+        }
+
+        @NonNull
+        @Override
+        public Cursor query(@NonNull SupportSQLiteQuery query, @Nullable CancellationSignal cancellationSignal) {
+            return timed(query.getSql(), planReaderOf(query), () -> delegate.query(query, cancellationSignal));
+        }
+
+        // insert(), delete() and update() are recorded as the statements they run, so they are
+        // aggregated and explained, with their arguments, like any other statement
+
+        @Override
+        public long insert(@NonNull String table, int conflictAlgorithm, @NonNull ContentValues values) throws SQLException {
+            long startNanos = System.nanoTime();
+            long rowId = delegate.insert(table, conflictAlgorithm, values);
+            StringBuilder columns = new StringBuilder();
+            StringBuilder placeholders = new StringBuilder();
+            List<Object> args = new ArrayList<>(values.size());
+            for (String column : values.keySet()) {
+                if (!args.isEmpty()) {
+                    columns.append(',');
+                    placeholders.append(',');
+                }
+                columns.append(column);
+                placeholders.append('?');
+                args.add(values.get(column));
+            }
+            String sql = "INSERT" + CONFLICT_CLAUSES[conflictAlgorithm] + " INTO " + table
+                    + "(" + columns + ") VALUES (" + placeholders + ")";
+            tracer.record(sql, System.nanoTime() - startNanos, planReaderOf(args.toArray()));
+            return rowId;
+        }
+
+        @Override
+        public int delete(@NonNull String table, @Nullable String whereClause, @Nullable Object[] whereArgs) {
+            long startNanos = System.nanoTime();
+            int rows = delegate.delete(table, whereClause, whereArgs);
+            String sql = "DELETE FROM " + table + where(whereClause);
+            tracer.record(sql, System.nanoTime() - startNanos, planReaderOf(whereArgs != null ? whereArgs : new Object[0]));
+            return rows;
+        }
+
+        @Override
+        public int update(@NonNull String table, int conflictAlgorithm, @NonNull ContentValues values,
+                          @Nullable String whereClause, @Nullable Object[] whereArgs) {
+            long startNanos = System.nanoTime();
+            int rows = delegate.update(table, conflictAlgorithm, values, whereClause, whereArgs);
+            StringBuilder sql = new StringBuilder("UPDATE").append(CONFLICT_CLAUSES[conflictAlgorithm])
+                    .append(' ').append(table).append(" SET ");
+            List<Object> args = new ArrayList<>(values.size() + (whereArgs != null ? whereArgs.length : 0));
+            for (String column : values.keySet()) {
+                if (!args.isEmpty()) sql.append(',');
+                sql.append(column).append("=?");
+                args.add(values.get(column));
+            }
+            if (whereArgs != null) {
+                args.addAll(Arrays.asList(whereArgs));
+            }
+            sql.append(where(whereClause));
+            tracer.record(sql.toString(), System.nanoTime() - startNanos, planReaderOf(args.toArray()));
+            return rows;
+        }
+
+        // " WHERE clause", or nothing for every row
+        private static String where(String whereClause) {
+            return whereClause == null || whereClause.isEmpty() ? "" : " WHERE " + whereClause;
+        }
+
+        @Override
+        public void execSQL(@NonNull String sql) throws SQLException {
+            long startNanos = System.nanoTime();
+            delegate.execSQL(sql);
+            tracer.record(sql, System.nanoTime() - startNanos, planReader);
+        }
+
+        @Override
+        public void execSQL(@NonNull String sql, @NonNull Object[] bindArgs) throws SQLException {
+            long startNanos = System.nanoTime();
+            delegate.execSQL(sql, bindArgs);
+            tracer.record(sql, System.nanoTime() - startNanos, planReaderOf(bindArgs));
+        }
+
+        // Commit (or rollback) of the outermost transaction, where the journal is written
+        @Override
+        public void endTransaction() {
+            long startNanos = System.nanoTime();
+            delegate.endTransaction();
+            tracer.record("endTransaction()", System.nanoTime() - startNanos, planReader);
+        }
+
+        @Override
+        public void beginTransaction() {
+            delegate.beginTransaction();
+        }
+
+        @Override
+        public void beginTransactionNonExclusive() {
+            delegate.beginTransactionNonExclusive();
+        }
+
+        @Override
+        public void beginTransactionWithListener(@NonNull SQLiteTransactionListener transactionListener) {
+            delegate.beginTransactionWithListener(transactionListener);
+        }
+
+        @Override
+        public void beginTransactionWithListenerNonExclusive(@NonNull SQLiteTransactionListener transactionListener) {
+            delegate.beginTransactionWithListenerNonExclusive(transactionListener);
+        }
+
+        @Override
+        public void setTransactionSuccessful() {
+            delegate.setTransactionSuccessful();
+        }
+
+        @Override
+        public boolean inTransaction() {
+            return delegate.inTransaction();
+        }
+
+        @Override
+        public boolean isDbLockedByCurrentThread() {
+            return delegate.isDbLockedByCurrentThread();
+        }
+
+        @Override
+        public boolean yieldIfContendedSafely() {
+            return delegate.yieldIfContendedSafely();
+        }
+
+        @Override
+        public boolean yieldIfContendedSafely(long sleepAfterYieldDelayMillis) {
+            return delegate.yieldIfContendedSafely(sleepAfterYieldDelayMillis);
+        }
+
+        @Override
+        public boolean isExecPerConnectionSQLSupported() {
+            return delegate.isExecPerConnectionSQLSupported();
+        }
+
+        @Override
+        public void execPerConnectionSQL(@NonNull String sql, @Nullable Object[] bindArgs) {
+            delegate.execPerConnectionSQL(sql, bindArgs);
+        }
+
+        @Override
+        public int getVersion() {
+            return delegate.getVersion();
+        }
+
+        @Override
+        public void setVersion(int version) {
+            delegate.setVersion(version);
+        }
+
+        @Override
+        public long getMaximumSize() {
+            return delegate.getMaximumSize();
+        }
+
+        @Override
+        public long setMaximumSize(long numBytes) {
+            return delegate.setMaximumSize(numBytes);
+        }
+
+        @Override
+        public long getPageSize() {
+            return delegate.getPageSize();
+        }
+
+        @Override
+        public void setPageSize(long numBytes) {
+            delegate.setPageSize(numBytes);
+        }
+
+        @Override
+        public boolean isReadOnly() {
+            return delegate.isReadOnly();
+        }
+
+        @Override
+        public boolean isOpen() {
+            return delegate.isOpen();
+        }
+
+        @Override
+        public boolean needUpgrade(int newVersion) {
+            return delegate.needUpgrade(newVersion);
+        }
+
+        @Nullable
+        @Override
+        public String getPath() {
+            return delegate.getPath();
+        }
+
+        @Override
+        public void setLocale(@NonNull Locale locale) {
+            delegate.setLocale(locale);
+        }
+
+        @Override
+        public void setMaxSqlCacheSize(int cacheSize) {
+            delegate.setMaxSqlCacheSize(cacheSize);
+        }
+
+        @Override
+        public void setForeignKeyConstraintsEnabled(boolean enabled) {
+            delegate.setForeignKeyConstraintsEnabled(enabled);
+        }
+
+        @Override
+        public boolean enableWriteAheadLogging() {
+            return delegate.enableWriteAheadLogging();
+        }
+
+        @Override
+        public void disableWriteAheadLogging() {
+            delegate.disableWriteAheadLogging();
+        }
+
+        @Override
+        public boolean isWriteAheadLoggingEnabled() {
+            return delegate.isWriteAheadLoggingEnabled();
+        }
+
+        @Nullable
+        @Override
+        public List<Pair<String, String>> getAttachedDbs() {
+            return delegate.getAttachedDbs();
+        }
+
+        @Override
+        public boolean isDatabaseIntegrityOk() {
+            return delegate.isDatabaseIntegrityOk();
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+    }
+
+    // Prepared statement that remembers its arguments, so a slow run can be explained as it ran
+    private static final class TracingStatement implements SupportSQLiteStatement {
+        private final SupportSQLiteStatement delegate;
+        private final String sql;
+        private final TracingDatabase database;
+        private final List<Object> bindArgs = new ArrayList<>();
+
+        TracingStatement(SupportSQLiteStatement delegate, String sql, TracingDatabase database) {
+            this.delegate = delegate;
+            this.sql = sql;
+            this.database = database;
+        }
+
+        private void bind(int index, Object value) {
+            while (bindArgs.size() < index) {
+                bindArgs.add(null);
+            }
+            bindArgs.set(index - 1, value);
+        }
+
+        private void record(long startNanos) {
+            // Explained before the arguments can change, so they are read then
+            database.tracer.record(sql, System.nanoTime() - startNanos,
+                    explainSql -> database.delegate.query(explainSql, bindArgs.toArray()));
+        }
+
+        @Override
+        public void execute() {
+            long startNanos = System.nanoTime();
+            delegate.execute();
+            record(startNanos);
+        }
+
+        @Override
+        public int executeUpdateDelete() {
+            long startNanos = System.nanoTime();
+            int rows = delegate.executeUpdateDelete();
+            record(startNanos);
+            return rows;
+        }
+
+        @Override
+        public long executeInsert() {
+            long startNanos = System.nanoTime();
+            long rowId = delegate.executeInsert();
+            record(startNanos);
+            return rowId;
+        }
+
+        @Override
+        public long simpleQueryForLong() {
+            long startNanos = System.nanoTime();
+            long value = delegate.simpleQueryForLong();
+            record(startNanos);
+            return value;
+        }
+
+        @Nullable
+        @Override
+        public String simpleQueryForString() {
+            long startNanos = System.nanoTime();
+            String value = delegate.simpleQueryForString();
+            record(startNanos);
+            return value;
+        }
+
+        @Override
+        public void bindNull(int index) {
+            delegate.bindNull(index);
+            bind(index, null);
+        }
+
+        @Override
+        public void bindLong(int index, long value) {
+            delegate.bindLong(index, value);
+            bind(index, value);
+        }
+
+        @Override
+        public void bindDouble(int index, double value) {
+            delegate.bindDouble(index, value);
+            bind(index, value);
+        }
+
+        @Override
+        public void bindString(int index, @NonNull String value) {
+            delegate.bindString(index, value);
+            bind(index, value);
+        }
+
+        @Override
+        public void bindBlob(int index, @NonNull byte[] value) {
+            delegate.bindBlob(index, value);
+            bind(index, value);
+        }
+
+        @Override
+        public void clearBindings() {
+            delegate.clearBindings();
+            bindArgs.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+    }
+}
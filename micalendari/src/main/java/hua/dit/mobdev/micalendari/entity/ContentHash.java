@@ -0,0 +1,60 @@
+package hua.dit.mobdev.micalendari.entity;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+// SHA-1 of the user visible fields of a task, as 40 hex digits, stored in tasks.content_hash
+// The importer skips tasks whose hash is stored already, so every insert and every edit of
+// these fields stores the hash too
+// Reuses one digest: not thread-safe, keep an instance per thread or per loop
+public final class ContentHash {
+    private final MessageDigest sha1;
+
+    public ContentHash() {
+        try {
+            sha1 = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform must provide SHA-1
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public String of(Task task) {
+        return of(task.getShortName(), task.getDescription(), task.getDate(), task.getStartTime(),
+                task.getDurationHours(), task.getLocation(), task.getRecurrenceRule());
+    }
+
+    public String of(String shortName, String description, String date, String startTime, int durationHours,
+                     String location, String recurrenceRule) {
+        sha1.reset();
+        update(shortName);
+        update(description);
+        update(date);
+        update(startTime);
+        update(Integer.toString(durationHours));
+        update(location);
+        // Only for series, so hashes of one-off tasks stay as they were
+        if (recurrenceRule != null) {
+            update(recurrenceRule);
+        }
+
+        byte[] digest = sha1.digest();
+        char[] hex = new char[digest.length * 2];
+        for (int i = 0; i < digest.length; i++) {
+            hex[2 * i] = Character.forDigit((digest[i] >> 4) & 0xF, 16);
+            hex[2 * i + 1] = Character.forDigit(digest[i] & 0xF, 16);
+        }
+        return new String(hex);
+    }
+
+    // Fields are separated by a byte that never occurs in UTF-8 text, null and "" differ
+    private void update(String field) {
+        if (field != null) {
+            sha1.update(field.getBytes(StandardCharsets.UTF_8));
+            sha1.update((byte) 0xFF);
+        } else {
+            sha1.update((byte) 0xFE);
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package hua.dit.mobdev.micalendari.entity;
+
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+
+// Repetition of a task, stored in tasks.recurrence_rule as an RFC 5545 RRULE value, e.g.
+// "FREQ=WEEKLY;INTERVAL=2;COUNT=10"; only FREQ, INTERVAL, COUNT and UNTIL are supported
+// Occurrences repeat the wall-clock time of the first one in a time zone, so they stay at
+// the same hour across DST changes; monthly ones skip months without that day, as in RFC 5545
+// Immutable; occurrences are computed on demand, never stored
+public final class RecurrenceRule {
+    public enum Frequency { DAILY, WEEKLY, MONTHLY }
+
+    // untilAt of rules without an UNTIL
+    public static final long NO_UNTIL = Long.MAX_VALUE;
+    // Occurrences walked at most when looking for the end of a series
+    static final int MAX_OCCURRENCES = 100_000;
+
+    private static final long DAY_MILLIS = 24 * 60 * 60 * 1000L;
+    private static final DateTimeFormatter UTC_DATE_TIME =
+            DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'").withZone(ZoneOffset.UTC);
+
+    private final Frequency frequency;
+    private final int interval;
+    // 0 when the series is not limited by a count
+    private final int count;
+    // Last possible start, inclusive
+    private final long untilAt;
+
+    public RecurrenceRule(Frequency frequency, int interval, int count, long untilAt) {
+        if (frequency == null || interval < 1 || count < 0) {
+            throw new IllegalArgumentException("Invalid recurrence: " + frequency + " every " + interval + " count " + count);
+        }
+        this.frequency = frequency;
+        this.interval = interval;
+        this.count = count;
+        this.untilAt = untilAt;
+    }
+
+    // Parse an RRULE value, throws IllegalArgumentException for malformed or unsupported rules
+    // A DATE UNTIL ("UNTIL=20261231") is the end of that day in the default time zone
+    public static RecurrenceRule parse(String rule) {
+        return parse(rule, ZoneId.systemDefault());
+    }
+
+    // As parse(rule), with DATE UNTIL values in the given time zone
+    public static RecurrenceRule parse(String rule, ZoneId zone) {
+        if (rule == null) throw new IllegalArgumentException("No recurrence rule");
+        Frequency frequency = null;
+        int interval = 1;
+        int count = 0;
+        long untilAt = NO_UNTIL;
+        for (String part : rule.trim().split(";")) {
+            int eq = part.indexOf('=');
+            if (eq < 0) throw new IllegalArgumentException("Malformed recurrence rule: " + rule);
+            String name = part.substring(0, eq).trim().toUpperCase(Locale.ROOT);
+            String value = part.substring(eq + 1).trim();
+            try {
+                switch (name) {
+                    case "FREQ":
+                        frequency = Frequency.valueOf(value.toUpperCase(Locale.ROOT));
+                        break;
+                    case "INTERVAL":
+                        interval = Integer.parseInt(value);
+                        break;
+                    case "COUNT":
+                        count = Integer.parseInt(value);
+                        if (count < 1) throw new IllegalArgumentException("Invalid COUNT: " + rule);
+                        break;
+                    case "UNTIL":
+                        untilAt = value.length() == 8
+                                // Every occurrence on that day, stored as the last second of it
+                                ? LocalDate.parse(value, DateTimeFormatter.BASIC_ISO_DATE).plusDays(1)
+                                        .atStartOfDay(zone).toInstant().toEpochMilli() - 1000
+                                : Instant.from(UTC_DATE_TIME.parse(value)).toEpochMilli();
+                        break;
+                    case "WKST":
+                        // Only matters together with BYDAY, which is not supported
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unsupported recurrence part " + name + ": " + rule);
+                }
+            } catch (NumberFormatException | DateTimeException e) {
+                throw new IllegalArgumentException("Malformed recurrence rule: " + rule, e);
+            }
+        }
+        if (frequency == null) throw new IllegalArgumentException("Recurrence rule without FREQ: " + rule);
+        return new RecurrenceRule(frequency, interval, count, untilAt);
+    }
+
+    // Parsed rule, or null for null, malformed and unsupported rules
+    public static RecurrenceRule parseOrNull(String rule) {
+        return parseOrNull(rule, ZoneId.systemDefault());
+    }
+
+    public static RecurrenceRule parseOrNull(String rule, ZoneId zone) {
+        if (rule == null) return null;
+        try {
+            return parse(rule, zone);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    public Frequency getFrequency() {
+        return frequency;
+    }
+
+    public int getInterval() {
+        return interval;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public long getUntilAt() {
+        return untilAt;
+    }
+
+    // The RRULE value, as stored
+    @Override
+    public String toString() {
+        StringBuilder rule = new StringBuilder("FREQ=").append(frequency.name());
+        if (interval != 1) rule.append(";INTERVAL=").append(interval);
+        if (count > 0) rule.append(";COUNT=").append(count);
+        if (untilAt != NO_UNTIL) rule.append(";UNTIL=").append(UTC_DATE_TIME.format(Instant.ofEpochMilli(untilAt)));
+        return rule.toString();
+    }
+
+    // Starts of the occurrences that end after fromMillis, in order, computed as they are read
+    // The first one is found by arithmetic, not by walking the series from its start
+    // Unbounded series never end: stop reading at the end of the window of interest
+    public Iterator<Long> startsEndingAfter(long firstStartAt, long durationMillis, long fromMillis, ZoneId zone) {
+        return new Starts(firstStartAt, durationMillis, fromMillis, zone);
+    }
+
+    // Starts of the occurrences overlapping [fromMillis, toMillis)
+    public List<Long> startsOverlapping(long firstStartAt, long durationMillis, long fromMillis, long toMillis, ZoneId zone) {
+        List<Long> starts = new ArrayList<>();
+        Iterator<Long> it = startsEndingAfter(firstStartAt, durationMillis, fromMillis, zone);
+        while (it.hasNext()) {
+            long start = it.next();
+            if (start >= toMillis) break;
+            starts.add(start);
+        }
+        return starts;
+    }
+
+    // End of the last occurrence, NO_UNTIL for series without COUNT or UNTIL
+    public long lastEndAt(long firstStartAt, long durationMillis, ZoneId zone) {
+        if (count == 0 && untilAt == NO_UNTIL) return NO_UNTIL;
+        long lastStart = firstStartAt;
+        Iterator<Long> it = startsEndingAfter(firstStartAt, durationMillis, Long.MIN_VALUE, zone);
+        for (int i = 0; i < MAX_OCCURRENCES && it.hasNext(); i++) {
+            lastStart = it.next();
+        }
+        return it.hasNext() ? NO_UNTIL : lastStart + durationMillis;
+    }
+
+    // Lazy walk over the candidate dates of the rule
+    private final class Starts implements Iterator<Long> {
+        private final LocalDateTime first;
+        private final long durationMillis;
+        private final long fromMillis;
+        private final ZoneId zone;
+        // Candidate step and occurrence number; they differ only for skipped monthly dates
+        private long step;
+        private long number;
+        private Long next;
+        private boolean done;
+
+        Starts(long firstStartAt, long durationMillis, long fromMillis, ZoneId zone) {
+            this.first = LocalDateTime.ofInstant(Instant.ofEpochMilli(firstStartAt), zone);
+            this.durationMillis = Math.max(durationMillis, 0);
+            this.fromMillis = fromMillis;
+            this.zone = zone;
+            // Jump to a step that starts no later than needed: steps are at most maxStep long,
+            // plus an hour of DST shift, so one step of margin is enough
+            // Monthly counted series skip dates, so their numbering needs the walk from the start
+            if (fromMillis != Long.MIN_VALUE && !(frequency == Frequency.MONTHLY && count > 0)) {
+                long maxStep = (long) interval * DAY_MILLIS * (frequency == Frequency.DAILY ? 1
+                        : frequency == Frequency.WEEKLY ? 7 : 31);
+                long ahead = fromMillis - this.durationMillis - firstStartAt;
+                if (ahead > 0) {
+                    step = Math.max(0, ahead / maxStep - 1);
+                    number = step;
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null && !done) {
+                if (count > 0 && number >= count) {
+                    done = true;
+                    break;
+                }
+                LocalDateTime candidate = candidate(step++);
+                if (candidate == null) {
+                    // Monthly date that does not exist in this month
+                    continue;
+                }
+                long start = candidate.atZone(zone).toInstant().toEpochMilli();
+                if (start > untilAt) {
+                    done = true;
+                    break;
+                }
+                number++;
+                // Zero-length occurrences count as 1 ms, as in TaskDao.getTasksOverlapping
+                if (start + Math.max(durationMillis, 1) > fromMillis) {
+                    next = start;
+                }
+            }
+            return next != null;
+        }
+
+        @Override
+        public Long next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            Long start = next;
+            next = null;
+            return start;
+        }
+
+        // Local start of the n-th step, null if that date does not exist
+        private LocalDateTime candidate(long n) {
+            long amount = n * interval;
+            switch (frequency) {
+                case DAILY:
+                    return first.plusDays(amount);
+                case WEEKLY:
+                    return first.plusWeeks(amount);
+                default:
+                    LocalDateTime month = first.plusMonths(amount);
+                    return month.getDayOfMonth() == first.getDayOfMonth() ? month : null;
+            }
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package hua.dit.mobdev.micalendari.entity;
+
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.ForeignKey;
+import androidx.room.Ignore;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+import java.time.ZoneId;
+import java.util.Iterator;
+import java.util.function.LongFunction;
+
+// Next pending reminder of a task, one row per task with a reminder still to fire
+// The reminders table is the persistent queue of ReminderScheduler: its head is the row with
+// the smallest fire_at, found through the index without reading the tasks table
+// Rows go away with their task
+@Entity(
+        tableName = "reminders",
+        foreignKeys = @ForeignKey(
+                entity = Task.class,
+                parentColumns = "uid",
+                childColumns = "task_uid",
+                onDelete = ForeignKey.CASCADE
+        ),
+        indices = {@Index("fire_at")}
+)
+public class Reminder {
+    // Occurrences of a series skipped at most when looking for the next one to remind of
+    static final int MAX_SKIPPED_OCCURRENCES = 1000;
+
+    private static final long MINUTE_MILLIS = 60 * 1000;
+
+    @PrimaryKey
+    @ColumnInfo(name = "task_uid")
+    private int taskUid;
+    // Start of the occurrence reminded of, as the rule gives it (start_at for one-off tasks)
+    @ColumnInfo(name = "occurrence_at")
+    private long occurrenceAt;
+    // Actual start of that occurrence, which differs for moved occurrences
+    @ColumnInfo(name = "start_at")
+    private long startAt;
+    // When the reminder is due, epoch millis
+    @ColumnInfo(name = "fire_at")
+    private long fireAt;
+
+    // Default no-arg constructor (used by Room)
+    public Reminder() {}
+
+    @Ignore
+    public Reminder(int taskUid, long occurrenceAt, long startAt, long fireAt) {
+        this.taskUid = taskUid;
+        this.occurrenceAt = occurrenceAt;
+        this.startAt = startAt;
+        this.fireAt = fireAt;
+    }
+
+    // First reminder of a task due after the given time, null when there is none
+    // exceptions looks up the exception row of an occurrence of a series, null when it has none;
+    // cancelled and completed occurrences are skipped. Completed one-off tasks are the caller's
+    // to leave out, the status is not part of the Task row
+    public static Reminder next(Task task, long after, ZoneId zone, LongFunction<TaskException> exceptions) {
+        Integer minutes = task.getReminderMinutes();
+        if (minutes == null || task.getStartAt() == Task.UNSCHEDULED) return null;
+        long offset = minutes * MINUTE_MILLIS;
+
+        RecurrenceRule rule = task.isRecurring() ? task.getRecurrence() : null;
+        if (rule == null) {
+            long fireAt = task.getStartAt() - offset;
+            return fireAt > after ? new Reminder(task.getUid(), task.getStartAt(), task.getStartAt(), fireAt) : null;
+        }
+
+        // Occurrences starting after after + offset; earlier ones are due already
+        Iterator<Long> starts = rule.startsEndingAfter(task.getStartAt(), 0, after + offset, zone);
+        for (int i = 0; i < MAX_SKIPPED_OCCURRENCES && starts.hasNext(); i++) {
+            long occurrenceAt = starts.next();
+            long startAt = occurrenceAt;
+            TaskException exception = exceptions.apply(occurrenceAt);
+            if (exception != null) {
+                if (exception.isCancelled() || exception.isCompleted()) continue;
+                if (exception.getStartAt() != null) startAt = exception.getStartAt();
+            }
+            if (startAt - offset > after) {
+                return new Reminder(task.getUid(), occurrenceAt, startAt, startAt - offset);
+            }
+        }
+        return null;
+    }
+
+    public int getTaskUid() {
+        return taskUid;
+    }
+
+    public void setTaskUid(int taskUid) {
+        this.taskUid = taskUid;
+    }
+
+    public long getOccurrenceAt() {
+        return occurrenceAt;
+    }
+
+    public void setOccurrenceAt(long occurrenceAt) {
+        this.occurrenceAt = occurrenceAt;
+    }
+
+    public long getStartAt() {
+        return startAt;
+    }
+
+    public void setStartAt(long startAt) {
+        this.startAt = startAt;
+    }
+
+    public long getFireAt() {
+        return fireAt;
+    }
+
+    public void setFireAt(long fireAt) {
+        this.fireAt = fireAt;
+    }
+}
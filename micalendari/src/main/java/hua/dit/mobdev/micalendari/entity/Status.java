@@ -4,9 +4,17 @@ import androidx.annotation.NonNull;
 import androidx.room.Entity;
 import androidx.room.PrimaryKey;
 
+import hua.dit.mobdev.micalendari.core.TaskStatusRules;
+
 @Entity(tableName = "status")
 public class Status {
 
+    // Status names seeded by AppDatabase, in state transition order
+    public static final String RECORDED = TaskStatusRules.RECORDED;
+    public static final String IN_PROGRESS = TaskStatusRules.IN_PROGRESS;
+    public static final String EXPIRED = TaskStatusRules.EXPIRED;
+    public static final String COMPLETED = TaskStatusRules.COMPLETED;
+
     @PrimaryKey(autoGenerate = true)
     private int id;
 
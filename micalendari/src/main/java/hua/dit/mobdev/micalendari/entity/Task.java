@@ -1,11 +1,19 @@
 package hua.dit.mobdev.micalendari.entity;
 
+import androidx.room.ColumnInfo;
 import androidx.room.Entity;
 import androidx.room.ForeignKey;
 import androidx.room.Ignore;
 import androidx.room.Index;
 import androidx.room.PrimaryKey;
 
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+
+import hua.dit.mobdev.micalendari.core.ScheduledTask;
+import hua.dit.mobdev.micalendari.core.TaskSchedule;
+
 @Entity(
         tableName = "tasks",
         foreignKeys = @ForeignKey(
@@ -13,9 +21,21 @@ import androidx.room.PrimaryKey;
                 parentColumns = "id",
                 childColumns = "status_id"
         ),
-        indices = {@Index("status_id")}
+        // status_id first, so it also serves the foreign key lookups
+        // content_hash lets the importer find duplicates without scanning the table
+        // (start_at, end_at) serves date range queries without reading the rows, and durationHours
+        // gives them the longest task in one index lookup, see TaskDao.getTasksOverlapping
+        indices = {@Index({"status_id", "start_at"}), @Index("content_hash"),
+                @Index({"start_at", "end_at"}), @Index("durationHours"),
+                // Finds the recurring series still running in a window; NULL for one-off tasks
+                @Index("series_end_at"),
+                // Finds the few tasks with a reminder when the reminder queue is rebuilt
+                @Index("reminder_minutes")}
 )
-public class Task {
+public class Task implements ScheduledTask {
+    // start_at/end_at value of tasks whose date or start time cannot be parsed, see TaskSchedule
+    public static final long UNSCHEDULED = TaskSchedule.UNSCHEDULED;
+
     @PrimaryKey(autoGenerate = true)
     private int uid;
 
@@ -27,6 +47,34 @@ public class Task {
     private String date;
     private int status_id; // Foreign key to Status table
 
+    // Epoch millis derived from date, startTime and durationHours, see updateSchedule()
+    @ColumnInfo(name = "start_at")
+    private long startAt = UNSCHEDULED;
+    @ColumnInfo(name = "end_at")
+    private long endAt = UNSCHEDULED;
+
+    // Hash of the user visible fields, see ContentHash; lets the importer skip duplicates
+    // Kept up to date by every insert and edit, see updateContentHash()
+    @ColumnInfo(name = "content_hash")
+    private String contentHash;
+
+    // RRULE value of a recurring task, null for a one-off task, see RecurrenceRule
+    // start_at/end_at are then those of the first occurrence, the others are never stored
+    @ColumnInfo(name = "recurrence_rule")
+    private String recurrenceRule;
+    // End of the last occurrence (UNSCHEDULED when the series never ends), null for one-off tasks
+    @ColumnInfo(name = "series_end_at")
+    private Long seriesEndAt;
+
+    // Minutes before the start to remind the user, null for no reminder, see ReminderScheduler
+    @ColumnInfo(name = "reminder_minutes")
+    private Integer reminderMinutes;
+
+    // Changes to occurrences read along with an imported series, task_uid not yet set
+    // Stored with the task by TaskDao.insertNewTasks, never loaded
+    @Ignore
+    private List<TaskException> importedExceptions;
+
     // Default no-arg constructor (used by Room)
     public Task() {}
 
@@ -40,6 +88,49 @@ public class Task {
         this.location = location;
         this.date = date;
         this.status_id = status_id;
+        updateSchedule();
+    }
+
+    // Recompute start_at/end_at from the date, start time and duration fields
+    // Must be called after changing any of them
+    public void updateSchedule() {
+        startAt = parseStartAt(date, startTime);
+        endAt = endAtOf(startAt, durationHours);
+        updateSeriesEnd();
+    }
+
+    // Derive series_end_at from the recurrence rule and the first occurrence
+    // Unscheduled tasks and unsupported rules are treated as one-off tasks
+    public void updateSeriesEnd() {
+        RecurrenceRule rule = getRecurrence();
+        seriesEndAt = rule == null || startAt == UNSCHEDULED
+                ? null
+                : rule.lastEndAt(startAt, endAt - startAt, ZoneId.systemDefault());
+    }
+
+    // Recompute content_hash from the fields; must be called after changing any of them
+    public void updateContentHash() {
+        contentHash = new ContentHash().of(this);
+    }
+
+    // Parsed recurrence rule, null for one-off tasks
+    public RecurrenceRule getRecurrence() {
+        return RecurrenceRule.parseOrNull(recurrenceRule);
+    }
+
+    // Whether the row is a recurring series rather than a single task
+    public boolean isRecurring() {
+        return seriesEndAt != null;
+    }
+
+    // Parse "dd/MM/yyyy" + "HH:mm" in the default time zone, UNSCHEDULED if not possible
+    public static long parseStartAt(String date, String startTime) {
+        return TaskSchedule.parseStartAt(date, startTime);
+    }
+
+    // End time of a task starting at startAt and lasting durationHours
+    public static long endAtOf(long startAt, int durationHours) {
+        return TaskSchedule.endAtOf(startAt, durationHours);
     }
 
     // Getters and setters
@@ -106,4 +197,61 @@ public class Task {
     public void setStatus_id(int status_id) {
         this.status_id = status_id;
     }
+
+    public long getStartAt() {
+        return startAt;
+    }
+
+    public void setStartAt(long startAt) {
+        this.startAt = startAt;
+    }
+
+    public long getEndAt() {
+        return endAt;
+    }
+
+    public void setEndAt(long endAt) {
+        this.endAt = endAt;
+    }
+
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
+    }
+
+    public String getRecurrenceRule() {
+        return recurrenceRule;
+    }
+
+    public void setRecurrenceRule(String recurrenceRule) {
+        this.recurrenceRule = recurrenceRule;
+    }
+
+    public Long getSeriesEndAt() {
+        return seriesEndAt;
+    }
+
+    public void setSeriesEndAt(Long seriesEndAt) {
+        this.seriesEndAt = seriesEndAt;
+    }
+
+    public List<TaskException> getImportedExceptions() {
+        return importedExceptions != null ? importedExceptions : new ArrayList<>();
+    }
+
+    public void addImportedException(TaskException exception) {
+        if (importedExceptions == null) importedExceptions = new ArrayList<>();
+        importedExceptions.add(exception);
+    }
+
+    public Integer getReminderMinutes() {
+        return reminderMinutes;
+    }
+
+    public void setReminderMinutes(Integer reminderMinutes) {
+        this.reminderMinutes = reminderMinutes;
+    }
 }
@@ -0,0 +1,93 @@
+package hua.dit.mobdev.micalendari.entity;
+
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.ForeignKey;
+
+// Change to one occurrence of a recurring task; occurrences without a row follow the rule
+// Keyed by the task and the start the rule gives the occurrence, so a moved occurrence keeps its key
+// Rows go away with their task
+@Entity(
+        tableName = "task_exceptions",
+        primaryKeys = {"task_uid", "occurrence_at"},
+        foreignKeys = @ForeignKey(
+                entity = Task.class,
+                parentColumns = "uid",
+                childColumns = "task_uid",
+                onDelete = ForeignKey.CASCADE
+        )
+)
+public class TaskException {
+    @ColumnInfo(name = "task_uid")
+    private int taskUid;
+    // Start of the occurrence according to the rule, epoch millis
+    @ColumnInfo(name = "occurrence_at")
+    private long occurrenceAt;
+
+    // The occurrence does not take place
+    private boolean cancelled;
+    // The occurrence was marked completed
+    private boolean completed;
+
+    // New start and end of a moved occurrence, null when it keeps the rule's times
+    @ColumnInfo(name = "start_at")
+    private Long startAt;
+    @ColumnInfo(name = "end_at")
+    private Long endAt;
+
+    // Default no-arg constructor (used by Room)
+    public TaskException() {}
+
+    public TaskException(int taskUid, long occurrenceAt) {
+        this.taskUid = taskUid;
+        this.occurrenceAt = occurrenceAt;
+    }
+
+    public int getTaskUid() {
+        return taskUid;
+    }
+
+    public void setTaskUid(int taskUid) {
+        this.taskUid = taskUid;
+    }
+
+    public long getOccurrenceAt() {
+        return occurrenceAt;
+    }
+
+    public void setOccurrenceAt(long occurrenceAt) {
+        this.occurrenceAt = occurrenceAt;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public void setCancelled(boolean cancelled) {
+        this.cancelled = cancelled;
+    }
+
+    public boolean isCompleted() {
+        return completed;
+    }
+
+    public void setCompleted(boolean completed) {
+        this.completed = completed;
+    }
+
+    public Long getStartAt() {
+        return startAt;
+    }
+
+    public void setStartAt(Long startAt) {
+        this.startAt = startAt;
+    }
+
+    public Long getEndAt() {
+        return endAt;
+    }
+
+    public void setEndAt(Long endAt) {
+        this.endAt = endAt;
+    }
+}
@@ -0,0 +1,41 @@
+package hua.dit.mobdev.micalendari.entity;
+
+import androidx.room.Entity;
+import androidx.room.Fts4;
+import androidx.room.FtsOptions;
+
+// Full-text index over the searchable text of tasks
+// External content table: the text stays in tasks only, and Room's triggers keep the index in
+// sync with every insert, update and delete; docid is the task uid
+// unicode61 folds case and diacritics of non-Latin scripts too, e.g. Greek
+@Fts4(contentEntity = Task.class, tokenizer = FtsOptions.TOKENIZER_UNICODE61)
+@Entity(tableName = "tasks_fts")
+public class TaskFts {
+    private String shortName;
+    private String description;
+    private String location;
+
+    public String getShortName() {
+        return shortName;
+    }
+
+    public void setShortName(String shortName) {
+        this.shortName = shortName;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public void setDescription(String description) {
+        this.description = description;
+    }
+
+    public String getLocation() {
+        return location;
+    }
+
+    public void setLocation(String location) {
+        this.location = location;
+    }
+}
@@ -0,0 +1,117 @@
+package hua.dit.mobdev.micalendari.export;
+
+import android.content.ContentResolver;
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.Environment;
+import android.provider.MediaStore;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.work.Data;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import hua.dit.mobdev.micalendari.core.Metrics;
+import hua.dit.mobdev.micalendari.data.AppDatabase;
+import hua.dit.mobdev.micalendari.data.DatabaseExecutors;
+
+// Background export of the uncompleted tasks into the Downloads directory
+// Input: KEY_FORMAT, the name of a TaskExportFormat
+// Progress: KEY_EXPORTED out of KEY_TOTAL rows; output: KEY_EXPORTED
+public class ExportWorker extends Worker {
+    private static final String TAG = "ExportWorker";
+
+    // Successful exports: time from the count query to the file being published, and rows written
+    private static final Metrics.Histogram EXPORT_TIME = Metrics.histogram("export.run", Metrics.Unit.NANOS);
+    private static final Metrics.Histogram EXPORT_ROWS = Metrics.histogram("export.rows", Metrics.Unit.COUNT);
+    private static final Metrics.Counter FAILED_EXPORTS = Metrics.counter("export.failed");
+
+    public static final String KEY_FORMAT = "format";
+    public static final String KEY_EXPORTED = "exported";
+    public static final String KEY_TOTAL = "total";
+
+    private final AppDatabase db;
+
+    // Constructor required for WorkManager, initializes database instance
+    public ExportWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+        db = AppDatabase.getDatabase(context);
+    }
+
+    // Input data for an export in the given format
+    public static Data inputFor(String formatName) {
+        return new Data.Builder().putString(KEY_FORMAT, formatName).build();
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        TaskExportFormat format;
+        try {
+            format = TaskExportFormat.forName(getInputData().getString(KEY_FORMAT));
+        } catch (IllegalArgumentException | NullPointerException e) {
+            Log.e(TAG, "Invalid export format", e);
+            return Result.failure();
+        }
+
+        ContentResolver resolver = getApplicationContext().getContentResolver();
+        // Pending until fully written, so other apps never see a partial file
+        ContentValues cv = new ContentValues();
+        cv.put(MediaStore.MediaColumns.DISPLAY_NAME, format.getFileName());
+        cv.put(MediaStore.MediaColumns.MIME_TYPE, format.getMimeType());
+        cv.put(MediaStore.MediaColumns.RELATIVE_PATH, Environment.DIRECTORY_DOWNLOADS);
+        cv.put(MediaStore.MediaColumns.IS_PENDING, 1);
+
+        Uri fileUri = resolver.insert(MediaStore.Downloads.EXTERNAL_CONTENT_URI, cv);
+        if (fileUri == null) {
+            Log.e(TAG, "Could not create " + format.getFileName());
+            return Result.failure();
+        }
+
+        long startNanos = System.nanoTime();
+        try {
+            // A BACKGROUND job of the read pool: refreshes queued meanwhile run on the other reader
+            int total = DatabaseExecutors.getInstance()
+                    .readAndWait(DatabaseExecutors.Priority.BACKGROUND, () -> db.taskDao().countUncompletedTasks());
+            int exported = DatabaseExecutors.getInstance()
+                    .readAndWait(DatabaseExecutors.Priority.BACKGROUND, () -> export(format, fileUri, total));
+
+            cv.clear();
+            cv.put(MediaStore.MediaColumns.IS_PENDING, 0);
+            resolver.update(fileUri, cv, null, null);
+            EXPORT_TIME.recordSince(startNanos);
+            EXPORT_ROWS.record(exported);
+            Log.d(TAG, "Exported " + exported + " tasks to " + format.getFileName());
+            return Result.success(progress(exported, total));
+        } catch (Exception e) {
+            FAILED_EXPORTS.increment();
+            Log.e(TAG, "Error exporting tasks", e);
+            resolver.delete(fileUri, null, null);
+            return Result.failure();
+        }
+    }
+
+    // Stream the export cursors into the file, returns the number of exported tasks
+    private int export(TaskExportFormat format, Uri fileUri, int total) throws IOException {
+        try (Cursor cursor = db.taskDao().getExportCursor();
+             Cursor exceptions = db.taskExceptionDao().getExportCursor();
+             OutputStream os = getApplicationContext().getContentResolver().openOutputStream(fileUri, "w")) {
+            if (os == null) throw new IOException("No output stream for " + fileUri);
+            return new TaskExporter(format).export(cursor, exceptions, os,
+                    done -> setProgressAsync(progress(done, total)));
+        }
+    }
+
+    private static Data progress(int exported, int total) {
+        return new Data.Builder()
+                .putInt(KEY_EXPORTED, exported)
+                .putInt(KEY_TOTAL, total)
+                .build();
+    }
+}
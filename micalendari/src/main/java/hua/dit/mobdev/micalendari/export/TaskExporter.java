@@ -0,0 +1,107 @@
+package hua.dit.mobdev.micalendari.export;
+
+import android.database.Cursor;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import hua.dit.mobdev.micalendari.core.OccurrenceChange;
+import hua.dit.mobdev.micalendari.entity.Task;
+
+// Streams the rows of a task cursor through a TaskExportFormat into an output stream
+// Only one row is held in memory at a time, and the output goes through a buffered UTF-8 writer
+public class TaskExporter {
+    // Receives the number of rows written so far
+    public interface ProgressListener {
+        void onProgress(int exported);
+    }
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    // Rows between two progress reports
+    static final int PROGRESS_INTERVAL = 1000;
+
+    private final TaskExportFormat format;
+
+    public TaskExporter(TaskExportFormat format) {
+        this.format = format;
+    }
+
+    // Export every row of a cursor from TaskDao.getExportCursor(), returns the number of rows
+    // exceptions, from TaskExceptionDao.getExportCursor() or null, is read alongside it: both are
+    // ordered by task uid, so the changes of each series are met right after it
+    // The stream is flushed but not closed
+    public int export(Cursor cursor, Cursor exceptions, OutputStream os, ProgressListener progress) throws IOException {
+        Writer out = new BufferedWriter(new OutputStreamWriter(os, StandardCharsets.UTF_8), BUFFER_SIZE);
+        int uid = cursor.getColumnIndexOrThrow("uid");
+        int shortName = cursor.getColumnIndexOrThrow("shortName");
+        int description = cursor.getColumnIndexOrThrow("description");
+        int startTime = cursor.getColumnIndexOrThrow("startTime");
+        int durationHours = cursor.getColumnIndexOrThrow("durationHours");
+        int location = cursor.getColumnIndexOrThrow("location");
+        int date = cursor.getColumnIndexOrThrow("date");
+        int startAt = cursor.getColumnIndexOrThrow("start_at");
+        int endAt = cursor.getColumnIndexOrThrow("end_at");
+        int statusName = cursor.getColumnIndexOrThrow("status_name");
+        // Optional, -1 for cursors of one-off tasks only
+        int recurrenceRule = cursor.getColumnIndex("recurrence_rule");
+
+        int exceptionTaskUid = -1, occurrenceAt = -1, cancelled = -1, exceptionStartAt = -1, exceptionEndAt = -1;
+        boolean moreExceptions = exceptions != null && exceptions.moveToFirst();
+        if (moreExceptions) {
+            exceptionTaskUid = exceptions.getColumnIndexOrThrow("task_uid");
+            occurrenceAt = exceptions.getColumnIndexOrThrow("occurrence_at");
+            cancelled = exceptions.getColumnIndexOrThrow("cancelled");
+            exceptionStartAt = exceptions.getColumnIndexOrThrow("start_at");
+            exceptionEndAt = exceptions.getColumnIndexOrThrow("end_at");
+        }
+
+        // One Task and one list of changes are reused for every row
+        Task task = new Task();
+        List<OccurrenceChange> changes = new ArrayList<>();
+        int exported = 0;
+        format.writeHeader(out);
+        while (cursor.moveToNext()) {
+            task.setUid(cursor.getInt(uid));
+            task.setShortName(cursor.getString(shortName));
+            task.setDescription(cursor.getString(description));
+            task.setStartTime(cursor.getString(startTime));
+            task.setDurationHours(cursor.getInt(durationHours));
+            task.setLocation(cursor.getString(location));
+            task.setDate(cursor.getString(date));
+            task.setStartAt(cursor.getLong(startAt));
+            task.setEndAt(cursor.getLong(endAt));
+            task.setRecurrenceRule(recurrenceRule >= 0 ? cursor.getString(recurrenceRule) : null);
+            if (task.getRecurrenceRule() == null) {
+                format.writeTask(out, task, cursor.getString(statusName));
+            } else {
+                // Exceptions of tasks that are not exported, e.g. completed ones, are passed over
+                changes.clear();
+                while (moreExceptions && exceptions.getInt(exceptionTaskUid) < task.getUid()) {
+                    moreExceptions = exceptions.moveToNext();
+                }
+                while (moreExceptions && exceptions.getInt(exceptionTaskUid) == task.getUid()) {
+                    changes.add(new OccurrenceChange(exceptions.getLong(occurrenceAt),
+                            exceptions.getInt(cancelled) != 0,
+                            exceptions.isNull(exceptionStartAt) ? null : exceptions.getLong(exceptionStartAt),
+                            exceptions.isNull(exceptionEndAt) ? null : exceptions.getLong(exceptionEndAt)));
+                    moreExceptions = exceptions.moveToNext();
+                }
+                format.writeSeries(out, task, cursor.getString(statusName), changes);
+            }
+
+            exported++;
+            if (progress != null && exported % PROGRESS_INTERVAL == 0) {
+                progress.onProgress(exported);
+            }
+        }
+        format.writeFooter(out);
+        out.flush();
+        return exported;
+    }
+}
@@ -0,0 +1,151 @@
+package hua.dit.mobdev.micalendari.importer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+import hua.dit.mobdev.micalendari.entity.RecurrenceRule;
+import hua.dit.mobdev.micalendari.entity.Task;
+
+// Reads tasks from an RFC 4180 CSV file, like the one written by CsvExportFormat
+// The header row names the columns, in any order; unknown columns (id, status) are ignored
+// and imported tasks start as recorded
+// A recurrence this app does not support (see RecurrenceRule) skips the record, rather than
+// importing the series as a single task
+public class CsvTaskParser implements TaskParser {
+    private static final String[] COLUMNS =
+            {"shortName", "description", "date", "startTime", "durationHours", "location", "recurrence"};
+    private static final int SHORT_NAME = 0, DESCRIPTION = 1, DATE = 2, START_TIME = 3, DURATION = 4, LOCATION = 5,
+            RECURRENCE = 6;
+
+    private final BufferedReader reader;
+    // Reused for every record
+    private final StringBuilder field = new StringBuilder();
+    private final List<String> record = new ArrayList<>();
+    // Record index of each of COLUMNS, -1 when the file has no such column
+    private int[] columnIndex;
+    private int skipped;
+
+    public CsvTaskParser(Reader in) {
+        reader = in instanceof BufferedReader ? (BufferedReader) in : new BufferedReader(in, 64 * 1024);
+    }
+
+    @Override
+    public Task next() throws IOException {
+        if (columnIndex == null) {
+            readHeader();
+        }
+        while (readRecord()) {
+            // Blank line
+            if (record.size() == 1 && record.get(0).isEmpty()) continue;
+
+            int duration;
+            try {
+                String durationText = column(DURATION);
+                duration = durationText == null || durationText.isEmpty() ? 0 : Integer.parseInt(durationText.trim());
+            } catch (NumberFormatException e) {
+                skipped++;
+                continue;
+            }
+            RecurrenceRule rule = null;
+            String recurrence = column(RECURRENCE);
+            if (recurrence != null && !recurrence.trim().isEmpty()) {
+                rule = RecurrenceRule.parseOrNull(recurrence);
+                if (rule == null) {
+                    skipped++;
+                    continue;
+                }
+            }
+            Task task = new Task(column(SHORT_NAME), column(DESCRIPTION), column(START_TIME), duration,
+                    column(LOCATION), column(DATE), 0);
+            if (rule != null) {
+                task.setRecurrenceRule(rule.toString());
+                task.updateSeriesEnd();
+            }
+            return task;
+        }
+        return null;
+    }
+
+    @Override
+    public int getSkippedCount() {
+        return skipped;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private void readHeader() throws IOException {
+        columnIndex = new int[COLUMNS.length];
+        if (!readRecord()) {
+            return;
+        }
+        // Spreadsheet apps often start a UTF-8 file with a byte order mark
+        if (record.get(0).startsWith("\uFEFF")) {
+            record.set(0, record.get(0).substring(1));
+        }
+        boolean known = false;
+        for (int c = 0; c < COLUMNS.length; c++) {
+            columnIndex[c] = -1;
+            for (int i = 0; i < record.size(); i++) {
+                if (COLUMNS[c].equalsIgnoreCase(record.get(i).trim())) {
+                    columnIndex[c] = i;
+                    known = true;
+                }
+            }
+        }
+        if (!known) {
+            throw new IOException("Not a task CSV file, header: " + record);
+        }
+    }
+
+    // Value of a column in the current record, null if missing
+    private String column(int column) {
+        int i = columnIndex[column];
+        return i >= 0 && i < record.size() ? record.get(i) : null;
+    }
+
+    // Read the next record into `record`, false at the end of the file
+    // Quoted fields may contain separators, doubled quotes and line breaks
+    private boolean readRecord() throws IOException {
+        record.clear();
+        field.setLength(0);
+        int c = reader.read();
+        if (c == -1) {
+            return false;
+        }
+        boolean inQuotes = false;
+        while (true) {
+            if (c == -1) {
+                record.add(field.toString());
+                return true;
+            }
+            if (inQuotes) {
+                if (c == '"') {
+                    c = reader.read();
+                    if (c != '"') {
+                        // Closing quote, c is the character after it
+                        inQuotes = false;
+                        continue;
+                    }
+                }
+                field.append((char) c);
+            } else if (c == '"') {
+                inQuotes = true;
+            } else if (c == ',') {
+                record.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\n') {
+                record.add(field.toString());
+                return true;
+            } else if (c != '\r') {
+                field.append((char) c);
+            }
+            c = reader.read();
+        }
+    }
+}
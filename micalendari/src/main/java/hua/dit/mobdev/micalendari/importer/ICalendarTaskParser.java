@@ -0,0 +1,358 @@
+package hua.dit.mobdev.micalendari.importer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.time.DateTimeException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import hua.dit.mobdev.micalendari.entity.RecurrenceRule;
+import hua.dit.mobdev.micalendari.entity.Task;
+import hua.dit.mobdev.micalendari.entity.TaskException;
+
+// Reads the VEVENTs of an RFC 5545 iCalendar file as tasks
+// SUMMARY, DESCRIPTION and LOCATION map to the text fields; DTSTART and DTEND (or DURATION)
+// to the date, start time and whole hours of duration, in the device time zone
+// An RRULE this app supports (see RecurrenceRule) makes a recurring task; events with any
+// other RRULE are skipped rather than imported as a single task
+// EXDATEs of a series and the VEVENTs with a RECURRENCE-ID that follow it (same UID) become its
+// task exceptions, cancelled or moved occurrences; overrides anywhere else are skipped
+// Events without a DTSTART and cancelled events are skipped
+public class ICalendarTaskParser implements TaskParser {
+    private static final DateTimeFormatter BASIC_DATE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss");
+    private static final DateTimeFormatter BASIC_DATE = DateTimeFormatter.BASIC_ISO_DATE;
+    private static final DateTimeFormatter TASK_DATE = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+    private static final DateTimeFormatter TASK_TIME = DateTimeFormatter.ofPattern("HH:mm");
+    private static final long HOUR_MILLIS = 60 * 60 * 1000;
+    private static final long MINUTE_MILLIS = 60 * 1000;
+
+    private final BufferedReader reader;
+    private final ZoneId zone;
+    // Physical line read ahead to find folded continuations
+    private String lookahead;
+    private boolean started;
+    private int skipped;
+    // Task of the last event read, returned once the next event shows it has no more overrides
+    private Task pending;
+    private String pendingUid;
+
+    // Fields of the event being read
+    private String uid, summary, description, location;
+    private Long startAt, endAt, recurrenceId;
+    private Duration duration;
+    // Normalised RRULE value, null when absent or unsupported
+    private String recurrenceRule;
+    private boolean unsupportedRule;
+    private final List<Long> excludedStarts = new ArrayList<>();
+    private boolean allDay, cancelled;
+
+    public ICalendarTaskParser(Reader in) {
+        this(in, ZoneId.systemDefault());
+    }
+
+    // zone is the time zone of the task date and start time, and of floating event times
+    ICalendarTaskParser(Reader in, ZoneId zone) {
+        this.reader = in instanceof BufferedReader ? (BufferedReader) in : new BufferedReader(in, 64 * 1024);
+        this.zone = zone;
+    }
+
+    @Override
+    public Task next() throws IOException {
+        while (readEvent()) {
+            if (recurrenceId != null) {
+                if (pending != null && pending.isRecurring() && uid != null && uid.equals(pendingUid)) {
+                    TaskException exception = toException(pending);
+                    if (exception != null) pending.addImportedException(exception);
+                } else {
+                    skipped++;
+                }
+                continue;
+            }
+            Task task = toTask();
+            if (task == null) {
+                skipped++;
+                continue;
+            }
+            Task previous = pending;
+            pending = task;
+            pendingUid = uid;
+            if (previous != null) return previous;
+        }
+        Task last = pending;
+        pending = null;
+        return last;
+    }
+
+    @Override
+    public int getSkippedCount() {
+        return skipped;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    // Read the properties of the next VEVENT, false at the end of the file
+    private boolean readEvent() throws IOException {
+        boolean inEvent = false;
+        // Nesting depth of components inside the event, e.g. VALARM
+        int nested = 0;
+        String line;
+        while ((line = nextContentLine()) != null) {
+            if (!inEvent) {
+                if (line.equalsIgnoreCase("BEGIN:VEVENT")) {
+                    inEvent = true;
+                    resetEvent();
+                }
+                continue;
+            }
+            if (regionStartsWith(line, "BEGIN:")) {
+                nested++;
+            } else if (nested > 0) {
+                if (regionStartsWith(line, "END:")) nested--;
+            } else if (line.equalsIgnoreCase("END:VEVENT")) {
+                return true;
+            } else {
+                readProperty(line);
+            }
+        }
+        return false;
+    }
+
+    // Next logical line, with folded continuation lines joined back
+    private String nextContentLine() throws IOException {
+        if (!started) {
+            lookahead = reader.readLine();
+            started = true;
+        }
+        String line = lookahead;
+        if (line == null) return null;
+        lookahead = reader.readLine();
+        if (!isContinuation(lookahead)) return line;
+
+        StringBuilder unfolded = new StringBuilder(line);
+        while (isContinuation(lookahead)) {
+            unfolded.append(lookahead, 1, lookahead.length());
+            lookahead = reader.readLine();
+        }
+        return unfolded.toString();
+    }
+
+    private static boolean isContinuation(String line) {
+        return line != null && !line.isEmpty() && (line.charAt(0) == ' ' || line.charAt(0) == '\t');
+    }
+
+    private static boolean regionStartsWith(String line, String prefix) {
+        return line.regionMatches(true, 0, prefix, 0, prefix.length());
+    }
+
+    private void resetEvent() {
+        uid = summary = description = location = null;
+        startAt = endAt = recurrenceId = null;
+        duration = null;
+        recurrenceRule = null;
+        unsupportedRule = false;
+        excludedStarts.clear();
+        allDay = cancelled = false;
+    }
+
+    // Store the value of one event property, NAME;PARAM=...:value
+    private void readProperty(String line) {
+        int colon = valueSeparator(line);
+        if (colon < 0) return;
+        int nameEnd = line.indexOf(';');
+        if (nameEnd < 0 || nameEnd > colon) nameEnd = colon;
+        String name = line.substring(0, nameEnd).toUpperCase(Locale.ROOT);
+        String params = line.substring(nameEnd, colon);
+        String value = line.substring(colon + 1);
+
+        switch (name) {
+            case "UID":
+                uid = value.trim();
+                break;
+            case "SUMMARY":
+                summary = unescape(value);
+                break;
+            case "DESCRIPTION":
+                description = unescape(value);
+                break;
+            case "LOCATION":
+                location = unescape(value);
+                break;
+            case "DTSTART":
+                startAt = parseDateTime(value, params);
+                allDay = value.length() == 8;
+                break;
+            case "DTEND":
+                endAt = parseDateTime(value, params);
+                break;
+            case "DURATION":
+                try {
+                    duration = Duration.parse(value.trim());
+                } catch (RuntimeException e) {
+                    duration = null;
+                }
+                break;
+            case "RRULE":
+                RecurrenceRule rule = RecurrenceRule.parseOrNull(value, zone);
+                recurrenceRule = rule != null ? rule.toString() : null;
+                unsupportedRule = rule == null;
+                break;
+            case "EXDATE":
+                // One or more comma separated values
+                for (String excluded : value.split(",")) {
+                    Long excludedAt = parseDateTime(excluded, params);
+                    if (excludedAt != null) excludedStarts.add(excludedAt);
+                }
+                break;
+            case "RECURRENCE-ID":
+                recurrenceId = parseDateTime(value, params);
+                break;
+            case "STATUS":
+                cancelled = value.trim().equalsIgnoreCase("CANCELLED");
+                break;
+        }
+    }
+
+    // Index of the colon between name/parameters and value; quoted parameter values may contain colons
+    private static int valueSeparator(String line) {
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '"') quoted = !quoted;
+            else if (c == ':' && !quoted) return i;
+        }
+        return -1;
+    }
+
+    // Epoch millis of a DATE or DATE-TIME value: UTC ("Z"), with a TZID parameter, or floating
+    // null if it cannot be parsed
+    private Long parseDateTime(String value, String params) {
+        value = value.trim();
+        try {
+            if (value.length() == 8) {
+                return LocalDate.parse(value, BASIC_DATE).atStartOfDay(zone).toInstant().toEpochMilli();
+            }
+            if (value.endsWith("Z")) {
+                return LocalDateTime.parse(value.substring(0, value.length() - 1), BASIC_DATE_TIME)
+                        .toInstant(ZoneOffset.UTC).toEpochMilli();
+            }
+            return LocalDateTime.parse(value, BASIC_DATE_TIME).atZone(zoneOf(params)).toInstant().toEpochMilli();
+        } catch (DateTimeException e) {
+            return null;
+        }
+    }
+
+    // Zone named by a TZID parameter, the device zone if absent or unknown
+    private ZoneId zoneOf(String params) {
+        int at = params.toUpperCase(Locale.ROOT).indexOf(";TZID=");
+        if (at < 0) return zone;
+        int end = params.indexOf(';', at + 1);
+        String tzid = params.substring(at + 6, end < 0 ? params.length() : end).replace("\"", "");
+        try {
+            return ZoneId.of(tzid);
+        } catch (DateTimeException e) {
+            return zone;
+        }
+    }
+
+    // TEXT value unescaping: \\n, \\, \; and \\\\
+    static String unescape(String value) {
+        if (value.indexOf('\\') < 0) return value;
+        StringBuilder sb = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' && i + 1 < value.length()) {
+                char next = value.charAt(++i);
+                sb.append(next == 'n' || next == 'N' ? '\n' : next);
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    // Task of the event just read, null if it has to be skipped
+    private Task toTask() {
+        if (startAt == null || cancelled || unsupportedRule) return null;
+
+        long lengthMillis;
+        if (endAt != null) {
+            lengthMillis = endAt - startAt;
+        } else if (duration != null) {
+            lengthMillis = duration.toMillis();
+        } else {
+            // RFC 5545: a DATE start alone lasts one day, a DATE-TIME start alone has no length
+            lengthMillis = allDay ? 24 * HOUR_MILLIS : 0;
+        }
+        // Tasks last whole hours, rounded up so the task covers the whole event
+        int durationHours = (int) Math.max(0, (lengthMillis + HOUR_MILLIS - 1) / HOUR_MILLIS);
+
+        // Tasks start on a whole minute
+        ZonedDateTime start = ZonedDateTime.ofInstant(Instant.ofEpochMilli(startAt), zone)
+                .truncatedTo(ChronoUnit.MINUTES);
+        Task task = new Task();
+        task.setShortName(summary != null ? summary : "");
+        task.setDescription(description);
+        task.setLocation(location);
+        task.setDate(start.format(TASK_DATE));
+        task.setStartTime(start.format(TASK_TIME));
+        task.setDurationHours(durationHours);
+        // The schedule is known already, no need to parse the strings back (see Task.updateSchedule)
+        task.setStartAt(start.toInstant().toEpochMilli());
+        task.setEndAt(Task.endAtOf(task.getStartAt(), durationHours));
+        task.setRecurrenceRule(recurrenceRule);
+        task.updateSeriesEnd();
+        if (task.isRecurring()) {
+            for (long excludedAt : excludedStarts) {
+                TaskException exception = new TaskException(0, toMinute(excludedAt));
+                exception.setCancelled(true);
+                task.addImportedException(exception);
+            }
+        }
+        return task;
+    }
+
+    // Exception of the series for the override event just read, null if it changes nothing the
+    // app keeps per occurrence (only the text, say)
+    private TaskException toException(Task series) {
+        TaskException exception = new TaskException(0, toMinute(recurrenceId));
+        if (cancelled) {
+            exception.setCancelled(true);
+            return exception;
+        }
+        if (startAt == null) return null;
+        long start = toMinute(startAt);
+        long end;
+        if (endAt != null) {
+            end = endAt;
+        } else if (duration != null) {
+            end = start + duration.toMillis();
+        } else {
+            end = start + series.getEndAt() - series.getStartAt();
+        }
+        if (start == exception.getOccurrenceAt() && end - start == series.getEndAt() - series.getStartAt()) {
+            return null;
+        }
+        exception.setStartAt(start);
+        exception.setEndAt(end);
+        return exception;
+    }
+
+    // Tasks start on a whole minute, and so do the occurrences of a series
+    private static long toMinute(long epochMillis) {
+        return epochMillis - Math.floorMod(epochMillis, MINUTE_MILLIS);
+    }
+}
@@ -0,0 +1,112 @@
+package hua.dit.mobdev.micalendari.importer;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.net.Uri;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.work.Data;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+
+import hua.dit.mobdev.micalendari.crud.TaskChangeNotifier;
+import hua.dit.mobdev.micalendari.data.AppDatabase;
+import hua.dit.mobdev.micalendari.data.DatabaseExecutors;
+import hua.dit.mobdev.micalendari.entity.Status;
+import hua.dit.mobdev.micalendari.entity.Task;
+import hua.dit.mobdev.micalendari.worker.TaskStatusScheduler;
+
+// Background import of an iCalendar or CSV file picked by the user
+// Input: KEY_URI of the file; progress: KEY_READ tasks read so far
+// Output: KEY_IMPORTED, KEY_DUPLICATES and KEY_SKIPPED counts
+public class ImportWorker extends Worker {
+    private static final String TAG = "ImportWorker";
+
+    public static final String KEY_URI = "uri";
+    public static final String KEY_READ = "read";
+    public static final String KEY_IMPORTED = "imported";
+    public static final String KEY_DUPLICATES = "duplicates";
+    public static final String KEY_SKIPPED = "skipped";
+
+    private final AppDatabase db;
+
+    // Constructor required for WorkManager, initializes database instance
+    public ImportWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+        db = AppDatabase.getDatabase(context);
+    }
+
+    // Input data for importing the given file
+    public static Data inputFor(Uri uri) {
+        return new Data.Builder().putString(KEY_URI, uri.toString()).build();
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        String uriString = getInputData().getString(KEY_URI);
+        if (uriString == null) return Result.failure();
+        Uri uri = Uri.parse(uriString);
+        ContentResolver resolver = getApplicationContext().getContentResolver();
+
+        // Each batch is one BACKGROUND job of the writer, so a user's save waits one batch at most
+        TaskImporter importer = new TaskImporter(this::insertBatch, db.statusRegistry().getIdByName(Status.RECORDED));
+        TaskImporter.Result result;
+        try (InputStream is = resolver.openInputStream(uri)) {
+            if (is == null) throw new FileNotFoundException(uriString);
+            Reader reader = new InputStreamReader(is, StandardCharsets.UTF_8);
+            try (TaskParser parser = isCsv(resolver.getType(uri), uri)
+                    ? new CsvTaskParser(reader)
+                    : new ICalendarTaskParser(reader)) {
+                result = importer.importTasks(parser, read ->
+                        setProgressAsync(new Data.Builder().putInt(KEY_READ, read).build()));
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Error importing " + uri, e);
+            return Result.failure();
+        }
+        Log.d(TAG, "Imported " + result.imported + ", duplicates " + result.duplicates
+                + ", skipped " + result.skipped);
+
+        if (result.imported > 0) {
+            // One notification for the whole import
+            TaskChangeNotifier.getInstance(getApplicationContext()).tasksChanged();
+            // Imported tasks start as recorded, the sweep moves past ones to in_progress/expired
+            TaskStatusScheduler.sweepNow(getApplicationContext());
+        }
+        return Result.success(new Data.Builder()
+                .putInt(KEY_IMPORTED, result.imported)
+                .putInt(KEY_DUPLICATES, result.duplicates)
+                .putInt(KEY_SKIPPED, result.skipped)
+                .build());
+    }
+
+    private int insertBatch(List<Task> tasks) throws IOException {
+        try {
+            return DatabaseExecutors.getInstance()
+                    .writeAndWait(DatabaseExecutors.Priority.BACKGROUND, () -> db.taskDao().insertNewTasks(tasks));
+        } catch (InterruptedException | ExecutionException e) {
+            throw new IOException("Batch insert failed", e);
+        }
+    }
+
+    // CSV by MIME type or file name, anything else is read as iCalendar
+    private static boolean isCsv(String mimeType, Uri uri) {
+        if (mimeType != null && (mimeType.equals("text/csv") || mimeType.equals("text/comma-separated-values"))) {
+            return true;
+        }
+        String path = uri.getLastPathSegment();
+        return path != null && path.toLowerCase(Locale.ROOT).endsWith(".csv");
+    }
+}
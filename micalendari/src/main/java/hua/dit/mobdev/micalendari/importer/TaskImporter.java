@@ -0,0 +1,77 @@
+package hua.dit.mobdev.micalendari.importer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import hua.dit.mobdev.micalendari.entity.ContentHash;
+import hua.dit.mobdev.micalendari.entity.Task;
+
+// Inserts the tasks of a TaskParser in batches, one transaction per batch
+// Each task gets a content hash; tasks whose hash is already stored are skipped, so
+// importing the same file twice adds nothing, nor a task entered by hand with the same fields
+public class TaskImporter {
+    // Stores one batch, returns the number of tasks actually inserted; see TaskDao.insertNewTasks
+    public interface BatchInserter {
+        int insertNewTasks(List<Task> tasks) throws IOException;
+    }
+
+    // Receives the number of tasks read so far
+    public interface ProgressListener {
+        void onProgress(int read);
+    }
+
+    // Counts of one import
+    public static final class Result {
+        public final int imported;
+        public final int duplicates;
+        public final int skipped;
+
+        Result(int imported, int duplicates, int skipped) {
+            this.imported = imported;
+            this.duplicates = duplicates;
+            this.skipped = skipped;
+        }
+    }
+
+    // Tasks per transaction, also the size of the duplicate lookup (under SQLite's 999 parameters)
+    static final int BATCH_SIZE = 500;
+
+    private final BatchInserter inserter;
+    private final int statusId;
+    private final ContentHash contentHash = new ContentHash();
+
+    // Imported tasks get the given status id, normally recorded; the next status sweep corrects it
+    public TaskImporter(BatchInserter inserter, int statusId) {
+        this.inserter = inserter;
+        this.statusId = statusId;
+    }
+
+    public Result importTasks(TaskParser parser, ProgressListener progress) throws IOException {
+        List<Task> batch = new ArrayList<>(BATCH_SIZE);
+        int read = 0;
+        int imported = 0;
+        Task task;
+        while ((task = parser.next()) != null) {
+            task.setStatus_id(statusId);
+            task.setContentHash(contentHashOf(task));
+            batch.add(task);
+            read++;
+            if (batch.size() == BATCH_SIZE) {
+                imported += inserter.insertNewTasks(batch);
+                batch.clear();
+                if (progress != null) progress.onProgress(read);
+            }
+        }
+        if (!batch.isEmpty()) {
+            imported += inserter.insertNewTasks(batch);
+        }
+        if (progress != null) progress.onProgress(read);
+        return new Result(imported, read - imported, parser.getSkippedCount());
+    }
+
+    // See ContentHash
+    String contentHashOf(Task task) {
+        return contentHash.of(task);
+    }
+}
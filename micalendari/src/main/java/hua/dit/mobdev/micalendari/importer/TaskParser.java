@@ -0,0 +1,18 @@
+package hua.dit.mobdev.micalendari.importer;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+import hua.dit.mobdev.micalendari.entity.Task;
+
+// Streaming source of imported tasks, read one at a time by TaskImporter
+// Returned tasks have their fields and schedule set, but no status and no uid; series may
+// carry exceptions read along with them, see Task.getImportedExceptions()
+public interface TaskParser extends Closeable {
+
+    // Next task of the file, null at the end
+    Task next() throws IOException;
+
+    // Entries skipped so far because they could not be mapped to a task
+    int getSkippedCount();
+}
@@ -0,0 +1,14 @@
+package hua.dit.mobdev.micalendari.worker;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+
+// Receives the reminder alarm armed by ReminderScheduler
+// Also listens to reboots, which drop the armed alarm; the worker posts what was missed and re-arms
+public class ReminderAlarmReceiver extends BroadcastReceiver {
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        ReminderScheduler.fireNow(context);
+    }
+}
@@ -0,0 +1,179 @@
+package hua.dit.mobdev.micalendari.worker;
+
+import android.app.AlarmManager;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkManager;
+
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+
+import hua.dit.mobdev.micalendari.crud.TaskChangeNotifier;
+import hua.dit.mobdev.micalendari.dao.ReminderDao;
+import hua.dit.mobdev.micalendari.data.AppDatabase;
+import hua.dit.mobdev.micalendari.data.DatabaseExecutors;
+import hua.dit.mobdev.micalendari.data.DatabaseExecutors.Priority;
+import hua.dit.mobdev.micalendari.entity.Reminder;
+import hua.dit.mobdev.micalendari.entity.Status;
+import hua.dit.mobdev.micalendari.entity.Task;
+
+// Keeps the reminders queue in step with the tasks, and one alarm armed for its head
+// Follows TaskChangeNotifier: the rows of the changed tasks are recomputed by uid, so the tasks
+// table is never rescanned; only a change of unknown tasks (e.g. an import) rebuilds the queue,
+// from the tasks that have a reminder
+// Queue writes run on the database writer thread, which also keeps them in order
+public final class ReminderScheduler implements TaskChangeNotifier.Listener {
+    private static final String TAG = "ReminderScheduler";
+
+    // Unique name of the work that posts due reminders
+    private static final String FIRE_WORK_NAME = "reminderFire";
+    // armedAt before this process armed anything, and while no alarm is armed
+    private static final long UNKNOWN = Long.MIN_VALUE;
+    private static final long NONE = Long.MAX_VALUE;
+
+    private static volatile ReminderScheduler INSTANCE;
+
+    private final Context context;
+    private final AppDatabase db;
+    // Fire time of the armed alarm, so an unchanged head does not re-arm it; writer thread only
+    private long armedAt = UNKNOWN;
+
+    // A reminder taken off the queue, with its task as it is now
+    public static final class Due {
+        public final Reminder reminder;
+        public final Task task;
+
+        Due(Reminder reminder, Task task) {
+            this.reminder = reminder;
+            this.task = task;
+        }
+    }
+
+    private ReminderScheduler(Context context) {
+        this.context = context;
+        db = AppDatabase.getDatabase(context);
+        TaskChangeNotifier.getInstance(context).addListener(this);
+    }
+
+    public static ReminderScheduler getInstance(Context context) {
+        if (INSTANCE == null) {
+            synchronized (ReminderScheduler.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new ReminderScheduler(context.getApplicationContext());
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    // Post the due reminders as soon as possible; the worker re-arms the alarm when done
+    public static void fireNow(Context context) {
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(ReminderWorker.class).build();
+        WorkManager.getInstance(context)
+                .enqueueUniqueWork(FIRE_WORK_NAME, ExistingWorkPolicy.APPEND_OR_REPLACE, request);
+    }
+
+    // Called after each committed write, on the writing thread
+    @Override
+    public void onTasksChanged(@Nullable long[] uids) {
+        DatabaseExecutors.getInstance().write(Priority.BACKGROUND, () -> {
+            if (uids == null) {
+                rebuild();
+            } else {
+                update(uids);
+            }
+            rearm();
+        });
+    }
+
+    // Take the reminders due at now off the queue, queueing the next one of each recurring task
+    // Reminders missed while the device was off are only returned if their occurrence has not ended
+    // Runs on the writer thread
+    public List<Due> pollDue(long now) {
+        List<Due> due = new ArrayList<>();
+        db.runInTransaction(() -> {
+            ReminderDao reminderDao = db.reminderDao();
+            for (Reminder reminder : reminderDao.getDueReminders(now)) {
+                Task task = db.taskDao().getTaskById(reminder.getTaskUid());
+                if (task == null) continue;
+                if (reminder.getStartAt() + (task.getEndAt() - task.getStartAt()) > now) {
+                    due.add(new Due(reminder, task));
+                }
+                Reminder next = nextReminder(task, now);
+                if (next != null) {
+                    reminderDao.upsertReminder(next);
+                } else {
+                    reminderDao.deleteReminderOf(task.getUid());
+                }
+            }
+        });
+        rearm();
+        return due;
+    }
+
+    // Recompute the queued reminder of each given task
+    private void update(long[] uids) {
+        db.runInTransaction(() -> {
+            long now = System.currentTimeMillis();
+            int completedId = db.statusRegistry().getIdByName(Status.COMPLETED);
+            for (long uid : uids) {
+                Task task = db.taskDao().getTaskById((int) uid);
+                Reminder next = task == null || task.getStatus_id() == completedId ? null : nextReminder(task, now);
+                if (next != null) {
+                    db.reminderDao().upsertReminder(next);
+                } else {
+                    db.reminderDao().deleteReminderOf((int) uid);
+                }
+            }
+        });
+    }
+
+    // Refill the queue from the tasks that have a reminder
+    private void rebuild() {
+        db.runInTransaction(() -> {
+            long now = System.currentTimeMillis();
+            List<Reminder> reminders = new ArrayList<>();
+            for (Task task : db.taskDao().getTasksWithReminders()) {
+                Reminder next = nextReminder(task, now);
+                if (next != null) reminders.add(next);
+            }
+            db.reminderDao().deleteAllReminders();
+            db.reminderDao().upsertReminders(reminders);
+        });
+        Log.d(TAG, "Reminder queue rebuilt");
+    }
+
+    // First reminder of a task after the given time, occurrence exceptions applied
+    private Reminder nextReminder(Task task, long after) {
+        return Reminder.next(task, after, ZoneId.systemDefault(),
+                occurrenceAt -> db.taskExceptionDao().getException(task.getUid(), occurrenceAt));
+    }
+
+    // Arm the alarm for the head of the queue, or cancel it when the queue is empty
+    // Same PendingIntent every time, so setting it replaces the previous alarm
+    private void rearm() {
+        Long head = db.reminderDao().getNextFireAt();
+        long fireAt = head != null ? head : NONE;
+        if (fireAt == armedAt) return;
+
+        AlarmManager alarmManager = context.getSystemService(AlarmManager.class);
+        PendingIntent alarmIntent = PendingIntent.getBroadcast(context, 0,
+                new Intent(context, ReminderAlarmReceiver.class),
+                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
+        if (head == null) {
+            alarmManager.cancel(alarmIntent);
+            Log.d(TAG, "No pending reminder, alarm cancelled");
+        } else {
+            TaskStatusScheduler.setWakeUpAlarm(alarmManager, head, alarmIntent);
+            Log.d(TAG, "Next reminder armed at " + head);
+        }
+        armedAt = fireAt;
+    }
+}
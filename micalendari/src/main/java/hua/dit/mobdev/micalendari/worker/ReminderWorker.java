@@ -0,0 +1,100 @@
+package hua.dit.mobdev.micalendari.worker;
+
+import android.Manifest;
+import android.app.Notification;
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.os.Build;
+import android.text.TextUtils;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.core.app.NotificationCompat;
+import androidx.core.app.NotificationManagerCompat;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+import hua.dit.mobdev.micalendari.CreateTaskActivity;
+import hua.dit.mobdev.micalendari.R;
+import hua.dit.mobdev.micalendari.data.DatabaseExecutors;
+
+// Posts the reminders that are due, when ReminderScheduler's alarm fires or after a reboot
+// Taking them off the queue also arms the alarm for the next one
+public class ReminderWorker extends Worker {
+    private static final String TAG = "ReminderWorker";
+
+    // Notification channel of every reminder
+    public static final String CHANNEL_ID = "reminders";
+
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("HH:mm");
+
+    public ReminderWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    // Create the reminders channel; does nothing if it exists already
+    public static void createNotificationChannel(Context context) {
+        NotificationChannel channel = new NotificationChannel(CHANNEL_ID,
+                context.getString(R.string.reminders_channel), NotificationManager.IMPORTANCE_HIGH);
+        context.getSystemService(NotificationManager.class).createNotificationChannel(channel);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        Context context = getApplicationContext();
+        ReminderScheduler scheduler = ReminderScheduler.getInstance(context);
+        List<ReminderScheduler.Due> due;
+        try {
+            due = DatabaseExecutors.getInstance().writeAndWait(DatabaseExecutors.Priority.INTERACTIVE,
+                    () -> scheduler.pollDue(System.currentTimeMillis()));
+        } catch (InterruptedException | ExecutionException e) {
+            Log.e(TAG, "Reading due reminders failed", e);
+            return Result.retry();
+        }
+
+        // Taken off the queue either way: a reminder the user did not allow is not shown later
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU
+                && context.checkSelfPermission(Manifest.permission.POST_NOTIFICATIONS) != PackageManager.PERMISSION_GRANTED) {
+            Log.d(TAG, due.size() + " reminders not shown, notifications are not allowed");
+            return Result.success();
+        }
+        NotificationManagerCompat notificationManager = NotificationManagerCompat.from(context);
+        for (ReminderScheduler.Due reminder : due) {
+            notificationManager.notify(reminder.task.getUid(), buildNotification(context, reminder));
+        }
+        return Result.success();
+    }
+
+    // "Short name" / "Starts at HH:mm, location", opening the task when tapped
+    private static Notification buildNotification(Context context, ReminderScheduler.Due due) {
+        String startsAt = TIME.format(Instant.ofEpochMilli(due.reminder.getStartAt()).atZone(ZoneId.systemDefault()));
+        String text = context.getString(R.string.reminder_text, startsAt);
+        if (!TextUtils.isEmpty(due.task.getLocation())) {
+            text += ", " + due.task.getLocation();
+        }
+        PendingIntent openTask = PendingIntent.getActivity(context, due.task.getUid(),
+                CreateTaskActivity.editIntent(context, due.task),
+                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
+
+        return new NotificationCompat.Builder(context, CHANNEL_ID)
+                .setSmallIcon(android.R.drawable.ic_popup_reminder)
+                .setContentTitle(due.task.getShortName())
+                .setContentText(text)
+                .setWhen(due.reminder.getStartAt())
+                .setCategory(NotificationCompat.CATEGORY_REMINDER)
+                .setPriority(NotificationCompat.PRIORITY_HIGH)
+                .setContentIntent(openTask)
+                .setAutoCancel(true)
+                .build();
+    }
+}
@@ -0,0 +1,14 @@
+package hua.dit.mobdev.micalendari.worker;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+
+// Receives the status change alarm armed by TaskStatusScheduler
+// Also listens to reboots and clock changes, which drop or shift the armed alarm
+public class TaskStatusAlarmReceiver extends BroadcastReceiver {
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        TaskStatusScheduler.sweepNow(context);
+    }
+}
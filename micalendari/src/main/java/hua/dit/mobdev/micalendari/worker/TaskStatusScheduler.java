@@ -0,0 +1,80 @@
+package hua.dit.mobdev.micalendari.worker;
+
+import android.app.AlarmManager;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.os.Build;
+import android.util.Log;
+
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkManager;
+
+import java.time.ZoneId;
+
+import hua.dit.mobdev.micalendari.data.AppDatabase;
+import hua.dit.mobdev.micalendari.data.OccurrenceExpander;
+
+// Deadline driven scheduling of TaskStatusWorker
+// Instead of polling, one alarm is armed for the next moment any task changes state
+public final class TaskStatusScheduler {
+    private static final String TAG = "TaskStatusScheduler";
+
+    // Unique name of the one-shot status sweep
+    private static final String SWEEP_WORK_NAME = "taskStatusSweep";
+    // Name of the old fixed-interval work, cancelled on upgrade
+    private static final String LEGACY_PERIODIC_WORK_NAME = "taskStatusCheck";
+
+    private TaskStatusScheduler() {}
+
+    // Run a status sweep as soon as possible; the worker re-arms the alarm when done
+    // Call after saving a task, the saved task may be due already or be the new earliest deadline
+    public static void sweepNow(Context context) {
+        OneTimeWorkRequest sweepRequest = new OneTimeWorkRequest.Builder(TaskStatusWorker.class).build();
+        // Append so a save made during a running sweep still gets its own sweep afterwards
+        WorkManager.getInstance(context)
+                .enqueueUniqueWork(SWEEP_WORK_NAME, ExistingWorkPolicy.APPEND_OR_REPLACE, sweepRequest);
+    }
+
+    // Drop the periodic work enqueued by older versions of the app
+    public static void cancelLegacyPeriodicWork(Context context) {
+        WorkManager.getInstance(context).cancelUniqueWork(LEGACY_PERIODIC_WORK_NAME);
+    }
+
+    // Arm the alarm for the next state change, or cancel it when nothing is pending
+    // Queries the database, so it must not run on the main thread
+    public static void scheduleNext(Context context, AppDatabase db) {
+        long now = System.currentTimeMillis();
+        Long nextChangeAt = db.taskDao().getNextStatusChangeAt(now);
+        // Recurring series change with their occurrences, which only the expander knows
+        Long nextSeriesChangeAt = OccurrenceExpander.nextSeriesChangeAt(db, now, ZoneId.systemDefault());
+        if (nextSeriesChangeAt != null && (nextChangeAt == null || nextSeriesChangeAt < nextChangeAt)) {
+            nextChangeAt = nextSeriesChangeAt;
+        }
+        AlarmManager alarmManager = context.getSystemService(AlarmManager.class);
+        // Same PendingIntent every time, so setting it replaces the previous alarm
+        PendingIntent alarmIntent = PendingIntent.getBroadcast(context, 0,
+                new Intent(context, TaskStatusAlarmReceiver.class),
+                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
+
+        if (nextChangeAt == null) {
+            Log.d(TAG, "No pending status change, alarm cancelled");
+            alarmManager.cancel(alarmIntent);
+            return;
+        }
+
+        setWakeUpAlarm(alarmManager, nextChangeAt, alarmIntent);
+        Log.d(TAG, "Next status change armed at " + nextChangeAt);
+    }
+
+    // Wake the device at the given time, replacing the alarm of the same PendingIntent
+    static void setWakeUpAlarm(AlarmManager alarmManager, long triggerAt, PendingIntent alarmIntent) {
+        // Exact alarms may be denied by the user, an inexact one is still better than none
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.S || alarmManager.canScheduleExactAlarms()) {
+            alarmManager.setExactAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, triggerAt, alarmIntent);
+        } else {
+            alarmManager.setAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, triggerAt, alarmIntent);
+        }
+    }
+}
@@ -1,23 +1,33 @@
 package hua.dit.mobdev.micalendari.worker;
 
 import android.content.Context;
-import android.icu.text.SimpleDateFormat;
+import android.util.Log;
 
 import androidx.annotation.NonNull;
-import androidx.core.net.ParseException;
 import androidx.work.Worker;
 import androidx.work.WorkerParameters;
 
-import java.util.Date;
+import java.time.ZoneId;
 import java.util.List;
-import java.util.Locale;
+import java.util.concurrent.ExecutionException;
 
-import hua.dit.mobdev.micalendari.crud.TaskContentProvider;
+import hua.dit.mobdev.micalendari.core.Metrics;
+import hua.dit.mobdev.micalendari.crud.TaskChangeNotifier;
 import hua.dit.mobdev.micalendari.data.AppDatabase;
-import hua.dit.mobdev.micalendari.entity.Task;
+import hua.dit.mobdev.micalendari.data.DatabaseExecutors;
+import hua.dit.mobdev.micalendari.data.OccurrenceExpander;
 
-// Worker class to periodically check and update task statuses in the background
+// Worker class to check and update task statuses in the background
+// Runs when TaskStatusScheduler's alarm fires or a task is saved, then arms the next alarm
 public class TaskStatusWorker extends Worker {
+    private static final String TAG = "TaskStatusWorker";
+
+    // Whole sweep, queue wait included, and the rows it looked at and moved
+    private static final Metrics.Histogram SWEEP_TIME = Metrics.histogram("status.sweep", Metrics.Unit.NANOS);
+    private static final Metrics.Histogram ROWS_SCANNED = Metrics.histogram("status.rowsScanned", Metrics.Unit.COUNT);
+    private static final Metrics.Histogram ROWS_CHANGED = Metrics.histogram("status.rowsChanged", Metrics.Unit.COUNT);
+    private static final Metrics.Counter FAILED_SWEEPS = Metrics.counter("status.failed");
+
     private final AppDatabase db;
 
     // Constructor required for WorkManager, initializes database instance
@@ -29,64 +39,46 @@ public class TaskStatusWorker extends Worker {
     @NonNull
     @Override
     public Result doWork() {
-        // Track if any task status changes occur
-        boolean hasChanges = false;
-        // Get only uncompleted tasks to optimize performance
-        List<Task> tasks = db.taskDao().getAllUncompletedTasks();
-
-        // Check each task's status and update if needed
-        for (Task task : tasks) {
-            int oldStatus = task.getStatus_id();
-            updateTaskStatus(task);
-            if (oldStatus != task.getStatus_id()) {
-                db.taskDao().updateTask(task);
-                hasChanges = true;
-            }
+        // Move every due task in a few set-based UPDATEs instead of loading them one by one
+        // Runs on the writer thread, behind the user's own saves
+        TaskChangeNotifier notifier = TaskChangeNotifier.getInstance(getApplicationContext());
+        long startNanos = System.nanoTime();
+        try {
+            int changedTasks = DatabaseExecutors.getInstance()
+                    .writeAndWait(DatabaseExecutors.Priority.UI_REFRESH, () -> updateStatuses(db, notifier));
+            SWEEP_TIME.recordSince(startNanos);
+            ROWS_CHANGED.record(changedTasks);
+            Log.d(TAG, "Status sweep changed " + changedTasks + " tasks");
+        } catch (InterruptedException | ExecutionException e) {
+            FAILED_SWEEPS.increment();
+            Log.e(TAG, "Status sweep failed", e);
+            return Result.retry();
         }
 
-        // Notify ContentProvider observers only if changes occurred
-        // This is an optimization to prevent unnecessary UI updates
-        if (hasChanges) {
-            getApplicationContext().getContentResolver().notifyChange(TaskContentProvider.CONTENT_URI, null);
-        }
+        // Sleep until the next task actually changes state
+        TaskStatusScheduler.scheduleNext(getApplicationContext(), db);
 
         return Result.success();
     }
 
-    // Update task status based on current time and task schedule
-    private void updateTaskStatus(Task task) {
-        try {
-            long currentTime = System.currentTimeMillis();
-            // Using SimpleDateFormat for date parsing
-            SimpleDateFormat dateTimeFormat = new SimpleDateFormat("dd/MM/yyyy HH:mm", Locale.getDefault());
-            String dateTimeStr = task.getDate() + " " + task.getStartTime();
-            Date taskDateTime = dateTimeFormat.parse(dateTimeStr);
-
-            if (taskDateTime != null) {
-                // Calculate task timing boundaries
-                long taskStartTime = taskDateTime.getTime();
-                // Convert hours to milliseconds for comparison
-                long taskEndTime = taskStartTime + ((long) task.getDurationHours() * 60 * 60 * 1000);
-
-                // Get status IDs once to avoid multiple database calls
-                int expiredStatusId = db.statusDao().getIdByName("expired");
-                int inProgressStatusId = db.statusDao().getIdByName("in_progress");
-                int completedStatusId = db.statusDao().getIdByName("completed");
-                int recordedStatusId = db.statusDao().getIdByName("recorded");
-
-                // Only update non-completed tasks
-                if (task.getStatus_id() != completedStatusId) {
-                    if (currentTime >= taskEndTime) {
-                        task.setStatus_id(expiredStatusId);
-                    } else if (currentTime >= taskStartTime) {
-                        task.setStatus_id(inProgressStatusId);
-                    } else {
-                        task.setStatus_id(recordedStatusId);
-                    }
-                }
+    // Apply every status transition due now, returns the number of tasks that changed
+    // Observers are notified about exactly those tasks, once the transaction commits
+    // Recurring series take the status of their current or next occurrence, expanded on the spot
+    private static int updateStatuses(AppDatabase db, TaskChangeNotifier notifier) {
+        long now = System.currentTimeMillis();
+        return notifier.runInTransaction(db, () -> {
+            List<Long> due = db.taskDao().getTasksDueForStatusChange(now);
+            for (long uid : due) {
+                notifier.taskChanged(uid);
             }
-        } catch (ParseException | java.text.ParseException e) {
-            e.printStackTrace();
-        }
+            int changed = db.taskDao().updateStatusesAt(now);
+            OccurrenceExpander.SeriesUpdate series = OccurrenceExpander.updateSeriesStatuses(db, now, ZoneId.systemDefault());
+            for (int uid : series.changed) {
+                notifier.taskChanged(uid);
+                changed++;
+            }
+            ROWS_SCANNED.record(due.size() + series.scanned);
+            return changed;
+        });
     }
-}
\ No newline at end of file
+}
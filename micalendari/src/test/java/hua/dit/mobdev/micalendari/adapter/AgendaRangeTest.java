@@ -0,0 +1,54 @@
+package hua.dit.mobdev.micalendari.adapter;
+
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the day, week and month ranges of {@link AgendaRange}.
+ */
+public class AgendaRangeTest {
+    private static final ZoneId ATHENS = ZoneId.of("Europe/Athens");
+    private static final long HOUR_MILLIS = 60 * 60 * 1000;
+
+    @Test
+    public void week_runsMondayToSunday() {
+        AgendaRange week = AgendaRange.containing(AgendaRange.Mode.WEEK, LocalDate.of(2025, 10, 16));
+
+        assertEquals(LocalDate.of(2025, 10, 13), week.first);
+        assertEquals(LocalDate.of(2025, 10, 20), week.end());
+        assertEquals(LocalDate.of(2025, 10, 20), week.next().first);
+        assertEquals(LocalDate.of(2025, 10, 6), week.previous().first);
+    }
+
+    @Test
+    public void month_coversWholeMonth() {
+        AgendaRange month = AgendaRange.containing(AgendaRange.Mode.MONTH, LocalDate.of(2024, 2, 29));
+
+        assertEquals(LocalDate.of(2024, 2, 1), month.first);
+        assertEquals(LocalDate.of(2024, 3, 1), month.end());
+        assertEquals(LocalDate.of(2024, 1, 1), month.previous().first);
+    }
+
+    @Test
+    public void withMode_keepsFirstDay() {
+        AgendaRange month = AgendaRange.containing(AgendaRange.Mode.MONTH, LocalDate.of(2025, 10, 16));
+        AgendaRange day = month.withMode(AgendaRange.Mode.DAY);
+
+        assertEquals(LocalDate.of(2025, 10, 1), day.first);
+        assertEquals(LocalDate.of(2025, 10, 2), day.end());
+    }
+
+    @Test
+    public void millis_followDaylightSavingChanges() {
+        // Clocks go back an hour on 26/10/2025 in Athens
+        AgendaRange day = AgendaRange.containing(AgendaRange.Mode.DAY, LocalDate.of(2025, 10, 26));
+        assertEquals(25 * HOUR_MILLIS, day.toMillis(ATHENS) - day.fromMillis(ATHENS));
+
+        AgendaRange week = AgendaRange.containing(AgendaRange.Mode.WEEK, LocalDate.of(2025, 10, 26));
+        assertEquals(week.toMillis(ATHENS), week.next().fromMillis(ATHENS));
+    }
+}
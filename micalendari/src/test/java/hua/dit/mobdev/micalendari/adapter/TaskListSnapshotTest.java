@@ -0,0 +1,66 @@
+package hua.dit.mobdev.micalendari.adapter;
+
+import org.junit.Test;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+import hua.dit.mobdev.micalendari.entity.Status;
+import hua.dit.mobdev.micalendari.entity.Task;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the binary format of {@link TaskListSnapshot}.
+ */
+public class TaskListSnapshotTest {
+
+    @Test
+    public void decode_restoresRowsAndTheirTasks() {
+        Task plain = new Task("Dentist", null, "09:30", 1, "", "17/10/2026", 1);
+        plain.setUid(7);
+        plain.updateSchedule();
+        Task weekly = new Task("Gym ü", "Leg day", "18:00", 2, "Gym", "12/10/2026", 2);
+        weekly.setUid(8);
+        weekly.setRecurrenceRule("FREQ=WEEKLY");
+        weekly.setReminderMinutes(30);
+        weekly.updateSchedule();
+        List<TaskRow> rows = Arrays.asList(TaskRow.of(plain, Status.RECORDED), TaskRow.of(weekly, Status.IN_PROGRESS));
+
+        List<TaskRow> decoded = TaskListSnapshot.decode(ByteBuffer.wrap(TaskListSnapshot.encode(rows)));
+
+        assertEquals(2, decoded.size());
+        for (int i = 0; i < rows.size(); i++) {
+            TaskRow row = rows.get(i);
+            TaskRow copy = decoded.get(i);
+            assertEquals(row.itemId, copy.itemId);
+            assertTrue(row.sameDetails(copy));
+            assertTrue(row.sameStatus(copy));
+            assertEquals(row.task.getStartAt(), copy.task.getStartAt());
+            assertEquals(row.task.getSeriesEndAt(), copy.task.getSeriesEndAt());
+            assertEquals(row.task.getReminderMinutes(), copy.task.getReminderMinutes());
+            assertEquals(row.task.getStatus_id(), copy.task.getStatus_id());
+        }
+        assertNull(decoded.get(0).task.getDescription());
+        assertTrue(decoded.get(1).task.isRecurring());
+    }
+
+    @Test
+    public void decode_rejectsOtherVersionsAndTruncatedFiles() {
+        Task task = new Task("Call", "", "10:00", 1, "", "", 1);
+        byte[] bytes = TaskListSnapshot.encode(Arrays.asList(TaskRow.of(task, Status.RECORDED)));
+
+        byte[] otherVersion = bytes.clone();
+        otherVersion[7]++;
+        assertTrue(TaskListSnapshot.decode(ByteBuffer.wrap(otherVersion)).isEmpty());
+
+        try {
+            TaskListSnapshot.decode(ByteBuffer.wrap(Arrays.copyOf(bytes, bytes.length - 3)));
+            fail("Truncated snapshot decoded");
+        } catch (IllegalArgumentException | BufferUnderflowException expected) {
+            // read() treats it as no snapshot
+        }
+    }
+}
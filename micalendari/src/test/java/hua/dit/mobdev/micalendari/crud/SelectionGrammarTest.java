@@ -0,0 +1,41 @@
+package hua.dit.mobdev.micalendari.crud;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the selection checks of {@link SelectionGrammar}.
+ */
+public class SelectionGrammarTest {
+
+    @Test
+    public void rejectReason_acceptsExpressionsOverColumns() {
+        assertNull(SelectionGrammar.rejectReason("status_id = ? AND durationHours > 2"));
+        assertNull(SelectionGrammar.rejectReason("shortName LIKE '%select%' OR location IN ('a', 'b')"));
+        assertNull(SelectionGrammar.rejectReason("\"select\" IS NULL"));
+    }
+
+    @Test
+    public void rejectReason_rejectsSubqueries() {
+        assertNotNull(SelectionGrammar.rejectReason("uid IN (SELECT id FROM status)"));
+        assertNotNull(SelectionGrammar.rejectReason("EXISTS (select 1 from sqlite_master)"));
+        // Comments do not hide the keyword
+        assertNotNull(SelectionGrammar.rejectReason("1 = (/* x */ SeLeCt 1)"));
+    }
+
+    @Test
+    public void rejectReason_rejectsInOverATable() {
+        assertNotNull(SelectionGrammar.rejectReason("status_id IN status"));
+        assertNotNull(SelectionGrammar.rejectReason("shortName IN pragma_table_info('status')"));
+        assertNotNull(SelectionGrammar.rejectReason("uid IN"));
+    }
+
+    @Test
+    public void tokens_skipsLiteralsAndComments() {
+        assertEquals(Arrays.asList("A", "=", "B", "\"it\"\"s\""),
+                SelectionGrammar.tokens("a = 'it''s' -- note\nb /* c */ \"it\"\"s\""));
+    }
+}
@@ -0,0 +1,75 @@
+package hua.dit.mobdev.micalendari.data;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import hua.dit.mobdev.micalendari.data.DatabaseExecutors.Job;
+import hua.dit.mobdev.micalendari.data.DatabaseExecutors.Priority;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the queue ordering, cancellation and wait metrics of
+ * {@link DatabaseExecutors}.
+ */
+public class DatabaseExecutorsTest {
+
+    @Test
+    public void write_runsQueuedJobsByPriorityThenInOrder() throws Exception {
+        DatabaseExecutors executors = DatabaseExecutors.getInstance();
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> order = new CopyOnWriteArrayList<>();
+
+        // Hold the single writer so the next jobs queue up
+        executors.write(Priority.INTERACTIVE, () -> await(release));
+        executors.write(Priority.BACKGROUND, () -> order.add("export"));
+        executors.write(Priority.UI_REFRESH, () -> order.add("refresh 1"));
+        executors.write(Priority.INTERACTIVE, () -> order.add("save"));
+        Job<Void> last = executors.write(Priority.UI_REFRESH, () -> order.add("refresh 2"));
+        Job<Void> export = executors.write(Priority.BACKGROUND, () -> order.add("export 2"));
+        assertTrue(executors.getWriterStats().queued >= 5);
+
+        release.countDown();
+        export.get(5, TimeUnit.SECONDS);
+        assertTrue(last.isDone());
+        assertEquals(List.of("save", "refresh 1", "refresh 2", "export", "export 2"), order);
+    }
+
+    @Test
+    public void cancel_dropsJobBeforeItStarts() throws Exception {
+        DatabaseExecutors executors = DatabaseExecutors.getInstance();
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> ran = new CopyOnWriteArrayList<>();
+
+        executors.write(Priority.INTERACTIVE, () -> await(release));
+        Job<Void> cancelled = executors.write(Priority.INTERACTIVE, () -> ran.add("cancelled"));
+        Job<Void> kept = executors.write(Priority.INTERACTIVE, () -> ran.add("kept"));
+        assertTrue(cancelled.cancel(false));
+
+        release.countDown();
+        kept.get(5, TimeUnit.SECONDS);
+        assertEquals(List.of("kept"), ran);
+    }
+
+    @Test
+    public void writeAndWait_returnsResultAndRecordsWait() throws Exception {
+        DatabaseExecutors executors = DatabaseExecutors.getInstance();
+        long startedBefore = executors.getWriterStats().started;
+
+        assertEquals(Integer.valueOf(42), executors.writeAndWait(Priority.BACKGROUND, () -> 42));
+        assertTrue(executors.getWriterStats().started > startedBefore);
+        assertTrue(executors.getWriterStats().maxWaitMillis >= 0);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package hua.dit.mobdev.micalendari.data;
+
+import android.database.Cursor;
+
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the SQL templates, plan formatting and aggregates of {@link QueryTracer}.
+ */
+public class QueryTracerTest {
+
+    @Test
+    public void templateOf_foldsLiteralsAndInLists() {
+        assertEquals("SELECT * FROM tasks WHERE uid IN (?...) AND status_id != ?",
+                QueryTracer.templateOf("SELECT * FROM tasks\n  WHERE uid IN (?, ?,?) AND status_id != 4"));
+        assertEquals("SELECT * FROM tasks WHERE uid IN (?...)",
+                QueryTracer.templateOf("SELECT * FROM tasks WHERE uid IN (1, 2)"));
+        // Names keep their digits, strings with quotes inside go as a whole
+        assertEquals("DELETE FROM index_tasks_1 WHERE name = ?",
+                QueryTracer.templateOf("DELETE FROM index_tasks_1 WHERE name = 'it''s'"));
+    }
+
+    @Test
+    public void readPlan_indentsChildrenUnderTheirParent() {
+        Object[][] rows = {
+                {2, 0, 0, "SEARCH tasks USING INDEX index_tasks_status_id (status_id=?)"},
+                {6, 0, 0, "SCALAR SUBQUERY 1"},
+                {9, 6, 0, "SCAN status"},
+        };
+        String plan = QueryTracer.readPlan(sql -> {
+            assertTrue(sql.startsWith("EXPLAIN QUERY PLAN SELECT"));
+            return cursorOf(rows);
+        }, "SELECT * FROM tasks WHERE status_id = (SELECT id FROM status WHERE name = 'expired')");
+
+        assertEquals("  SEARCH tasks USING INDEX index_tasks_status_id (status_id=?)\n"
+                + "  SCALAR SUBQUERY 1\n"
+                + "    SCAN status", plan);
+    }
+
+    @Test
+    public void report_aggregatesRunsOfOneTemplate() {
+        // High threshold: nothing is slow, so no plan is read
+        QueryTracer tracer = new QueryTracer(60_000);
+        QueryTracer.PlanReader noPlans = sql -> {
+            throw new AssertionError("explained " + sql);
+        };
+        tracer.record("SELECT * FROM tasks WHERE uid = 1", 3_000, noPlans);
+        tracer.record("SELECT * FROM tasks WHERE uid = 2", 5_000, noPlans);
+
+        String report = tracer.report();
+        assertTrue(report, report.startsWith("n=2 total=8us avg=4us max=5us slow=0"));
+        assertTrue(report, report.contains("SELECT * FROM tasks WHERE uid = ?"));
+
+        tracer.reset();
+        assertEquals("", tracer.report());
+    }
+
+    // Cursor over fixed (id, parent, notused, detail) rows
+    private static Cursor cursorOf(Object[][] rows) {
+        int[] position = {-1};
+        return (Cursor) Proxy.newProxyInstance(Cursor.class.getClassLoader(), new Class<?>[]{Cursor.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "moveToNext":
+                            return ++position[0] < rows.length;
+                        case "getInt":
+                            return rows[position[0]][(int) args[0]];
+                        case "getString":
+                            return rows[position[0]][(int) args[0]].toString();
+                        case "close":
+                            return null;
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+}
@@ -0,0 +1,121 @@
+package hua.dit.mobdev.micalendari.data;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import hua.dit.mobdev.micalendari.dao.StatusDao;
+import hua.dit.mobdev.micalendari.entity.Status;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link StatusRegistry}, using an in-memory {@link StatusDao}
+ * that counts how many queries reach the "database".
+ */
+public class StatusRegistryTest {
+
+    // Fake DAO backed by a list, counting every query
+    private static class CountingStatusDao implements StatusDao {
+        final List<Status> rows = new ArrayList<>();
+        int queries;
+
+        @Override
+        public int getIdByName(String statusName) {
+            queries++;
+            for (Status status : rows) {
+                if (status.getName().equals(statusName)) return status.getId();
+            }
+            return 0;
+        }
+
+        @Override
+        public long insertStatus(Status status) {
+            status.setId(rows.size() + 1);
+            rows.add(status);
+            return status.getId();
+        }
+
+        @Override
+        public List<Status> getAllStatuses() {
+            queries++;
+            return new ArrayList<>(rows);
+        }
+
+        @Override
+        public String getNameById(int statusId) {
+            queries++;
+            for (Status status : rows) {
+                if (status.getId() == statusId) return status.getName();
+            }
+            return null;
+        }
+    }
+
+    private CountingStatusDao dao;
+    private StatusRegistry registry;
+
+    @Before
+    public void setUp() {
+        dao = new CountingStatusDao();
+        dao.insertStatus(new Status(Status.RECORDED));
+        dao.insertStatus(new Status(Status.IN_PROGRESS));
+        dao.insertStatus(new Status(Status.EXPIRED));
+        dao.insertStatus(new Status(Status.COMPLETED));
+        registry = new StatusRegistry(dao);
+    }
+
+    @Test
+    public void perTaskLookups_issueNoStatusQueries() {
+        int tasks = 5000;
+        long sum = 0;
+        for (int i = 0; i < tasks; i++) {
+            // Same four lookups the worker does for every task, plus the adapter's name lookup
+            sum += registry.getIdByName(Status.EXPIRED);
+            sum += registry.getIdByName(Status.IN_PROGRESS);
+            sum += registry.getIdByName(Status.COMPLETED);
+            sum += registry.getIdByName(Status.RECORDED);
+            assertNotNull(registry.getNameById(1 + i % 4));
+        }
+
+        assertEquals(tasks * 10L, sum);
+        // One load for the whole run, zero queries per task
+        assertEquals(1, dao.queries);
+    }
+
+    @Test
+    public void lookups_matchStatusTable() {
+        assertEquals(1, registry.getIdByName(Status.RECORDED));
+        assertEquals(4, registry.getIdByName(Status.COMPLETED));
+        assertEquals(Status.EXPIRED, registry.getNameById(3));
+        assertEquals(0, registry.getIdByName("unknown"));
+        assertNull(registry.getNameById(42));
+    }
+
+    @Test
+    public void insertStatus_refreshesRegistry() {
+        assertEquals(0, registry.getIdByName("archived"));
+
+        long id = registry.insertStatus(new Status("archived"));
+
+        assertEquals(id, registry.getIdByName("archived"));
+        assertEquals("archived", registry.getNameById((int) id));
+    }
+
+    @Test
+    public void emptyTable_isNotCached() {
+        CountingStatusDao emptyDao = new CountingStatusDao();
+        StatusRegistry lazyRegistry = new StatusRegistry(emptyDao);
+
+        // Table not seeded yet: nothing to cache
+        assertEquals(0, lazyRegistry.getIdByName(Status.RECORDED));
+
+        // Seeded afterwards: picked up on the next lookup
+        emptyDao.insertStatus(new Status(Status.RECORDED));
+        assertEquals(1, lazyRegistry.getIdByName(Status.RECORDED));
+        assertEquals(1, lazyRegistry.getIdByName(Status.RECORDED));
+        assertEquals(2, emptyDao.queries);
+    }
+}
@@ -0,0 +1,96 @@
+package hua.dit.mobdev.micalendari.data;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link TaskIntervalIndex}, checked against a linear scan.
+ */
+public class TaskIntervalIndexTest {
+
+    @Test
+    public void findOverlapping_usesHalfOpenRanges() {
+        TaskIntervalIndex index = new TaskIntervalIndex();
+        index.put(1, 10, 20);
+        index.put(2, 20, 30);
+        index.put(3, 5, 40);
+
+        assertEquals(Arrays.asList(3, 1), index.findOverlapping(10, 20, -1, 10));
+        assertEquals(Arrays.asList(3, 2), index.findOverlapping(20, 25, -1, 10));
+        assertEquals(Collections.singletonList(3), index.findOverlapping(0, 10, 1, 10));
+        assertTrue(index.findOverlapping(40, 50, -1, 10).isEmpty());
+    }
+
+    @Test
+    public void findOverlapping_countsZeroLengthTasksWhereTheyStart() {
+        TaskIntervalIndex index = new TaskIntervalIndex();
+        index.put(1, 10, 10);
+
+        assertEquals(Collections.singletonList(1), index.findOverlapping(10, 11, -1, 10));
+        assertTrue(index.findOverlapping(0, 10, -1, 10).isEmpty());
+        assertTrue(index.findOverlapping(11, 20, -1, 10).isEmpty());
+    }
+
+    @Test
+    public void put_movesAndRemoveForgets() {
+        TaskIntervalIndex index = new TaskIntervalIndex();
+        index.put(1, 10, 20);
+        index.put(1, 100, 200);
+
+        assertEquals(1, index.size());
+        assertTrue(index.findOverlapping(10, 20, -1, 10).isEmpty());
+        assertEquals(Collections.singletonList(1), index.findOverlapping(150, 160, -1, 10));
+
+        assertTrue(index.remove(1));
+        assertFalse(index.remove(1));
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    public void findOverlapping_matchesLinearScan() {
+        Random random = new Random(42);
+        TaskIntervalIndex index = new TaskIntervalIndex();
+        long[][] intervals = new long[2000][];
+        for (int round = 0; round < 20000; round++) {
+            int uid = random.nextInt(intervals.length);
+            if (random.nextInt(4) == 0) {
+                index.remove(uid);
+                intervals[uid] = null;
+            } else {
+                long start = random.nextInt(100000);
+                long end = start + random.nextInt(500);
+                index.put(uid, start, end);
+                intervals[uid] = new long[]{start, end};
+            }
+            if (round % 100 == 0) {
+                long from = random.nextInt(100000);
+                long to = from + 1 + random.nextInt(1000);
+                assertEquals(scan(intervals, from, to), sorted(index.findOverlapping(from, to, -1, Integer.MAX_VALUE)));
+            }
+        }
+    }
+
+    private static List<Integer> scan(long[][] intervals, long from, long to) {
+        List<Integer> uids = new ArrayList<>();
+        for (int uid = 0; uid < intervals.length; uid++) {
+            long[] interval = intervals[uid];
+            if (interval != null && interval[0] < to && Math.max(interval[1], interval[0] + 1) > from) {
+                uids.add(uid);
+            }
+        }
+        return uids;
+    }
+
+    private static List<Integer> sorted(List<Integer> uids) {
+        List<Integer> copy = new ArrayList<>(uids);
+        Collections.sort(copy);
+        return copy;
+    }
+}
@@ -0,0 +1,79 @@
+package hua.dit.mobdev.micalendari.data;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.List;
+
+import hua.dit.mobdev.micalendari.entity.Task;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the query building and ranking of {@link TaskSearch}.
+ */
+public class TaskSearchTest {
+
+    @Test
+    public void toMatchQuery_prefixesEveryWord() {
+        assertEquals("team* meet*", TaskSearch.toMatchQuery("  Team meet "));
+    }
+
+    @Test
+    public void toMatchQuery_dropsFtsSyntax() {
+        assertEquals("a* b* c* d*", TaskSearch.toMatchQuery("\"a\" -b* (c:d)"));
+        // Greek letters are words too
+        assertEquals("\u03b1\u03b8\u03ae\u03bd\u03b1*", TaskSearch.toMatchQuery("\u0391\u03b8\u03ae\u03bd\u03b1!"));
+    }
+
+    @Test
+    public void toMatchQuery_nullWithoutWords() {
+        assertNull(TaskSearch.toMatchQuery(null));
+        assertNull(TaskSearch.toMatchQuery(" *-\" "));
+    }
+
+    @Test
+    public void toColumnQuery_matchesAnyWordInTheColumn() {
+        assertEquals("shortName:team* OR shortName:meet*",
+                TaskSearch.toColumnQuery("team* meet*", TaskSearch.SHORT_NAME));
+        assertEquals("location:athens*", TaskSearch.toColumnQuery("athens*", TaskSearch.LOCATION));
+    }
+
+    @Test
+    public void rank_namesBeforeDescriptionsAndRareWordsFirst() {
+        // One phrase, three columns: hits in this row, in all rows, rows with a hit
+        TaskSearch.Match inDescription = match(1, new int[][]{{0, 5, 5}, {1, 5, 5}, {0, 0, 0}});
+        TaskSearch.Match inName = match(2, new int[][]{{1, 5, 5}, {0, 5, 5}, {0, 0, 0}});
+        TaskSearch.Match inLocation = match(3, new int[][]{{0, 5, 5}, {0, 5, 5}, {1, 1, 1}});
+
+        List<Task> ranked = TaskSearch.rank(Arrays.asList(inDescription, inName, inLocation));
+
+        assertEquals(3, ranked.get(0).getUid());
+        assertEquals(2, ranked.get(1).getUid());
+        assertEquals(1, ranked.get(2).getUid());
+    }
+
+    @Test
+    public void score_toleratesMissingMatchInfo() {
+        assertEquals(0, TaskSearch.score(null), 0);
+        assertEquals(0, TaskSearch.score(new byte[3]), 0);
+    }
+
+    // A match of task uid with a single phrase matchinfo 'pcx' blob
+    private static TaskSearch.Match match(int uid, int[][] columns) {
+        ByteBuffer blob = ByteBuffer.allocate(8 + 12 * columns.length).order(ByteOrder.nativeOrder());
+        blob.putInt(1).putInt(columns.length);
+        for (int[] column : columns) {
+            for (int value : column) {
+                blob.putInt(value);
+            }
+        }
+        TaskSearch.Match match = new TaskSearch.Match();
+        match.task = new Task();
+        match.task.setUid(uid);
+        match.matchInfo = blob.array();
+        return match;
+    }
+}
@@ -0,0 +1,121 @@
+package hua.dit.mobdev.micalendari.entity;
+
+import org.junit.Test;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for parsing and lazily expanding a {@link RecurrenceRule}.
+ */
+public class RecurrenceRuleTest {
+    private static final ZoneId ATHENS = ZoneId.of("Europe/Athens");
+    private static final long HOUR_MILLIS = 60 * 60 * 1000L;
+
+    @Test
+    public void parse_roundTrips() {
+        String rule = "FREQ=WEEKLY;INTERVAL=2;COUNT=10";
+        assertEquals(rule, RecurrenceRule.parse(rule).toString());
+        assertEquals("FREQ=DAILY;UNTIL=20251231T220000Z",
+                RecurrenceRule.parse("freq=daily;until=20251231T220000Z;wkst=MO").toString());
+    }
+
+    @Test
+    public void parse_readsDateUntilAsTheEndOfThatDay() {
+        RecurrenceRule rule = RecurrenceRule.parse("FREQ=DAILY;UNTIL=20261231", ATHENS);
+        assertEquals(millis(LocalDateTime.of(2026, 12, 31, 23, 59, 59)), rule.getUntilAt());
+        // Stored in the DATE-TIME form
+        assertEquals("FREQ=DAILY;UNTIL=20261231T215959Z", rule.toString());
+
+        long first = millis(LocalDateTime.of(2026, 12, 29, 22, 0));
+        assertEquals(3, rule.startsOverlapping(first, HOUR_MILLIS, first, Long.MAX_VALUE, ATHENS).size());
+    }
+
+    @Test
+    public void parseOrNull_rejectsUnsupportedRules() {
+        assertNull(RecurrenceRule.parseOrNull("FREQ=WEEKLY;BYDAY=MO,WE"));
+        assertNull(RecurrenceRule.parseOrNull("FREQ=HOURLY"));
+        assertNull(RecurrenceRule.parseOrNull("FREQ=DAILY;COUNT=x"));
+        assertNull(RecurrenceRule.parseOrNull("INTERVAL=2"));
+        assertNull(RecurrenceRule.parseOrNull(null));
+    }
+
+    @Test
+    public void weekly_keepsWallClockTimeAcrossDst() {
+        long first = millis(LocalDateTime.of(2025, 10, 20, 10, 0));
+        RecurrenceRule rule = RecurrenceRule.parse("FREQ=WEEKLY");
+
+        List<Long> starts = rule.startsOverlapping(first, HOUR_MILLIS, first, first + 21 * 24 * HOUR_MILLIS, ATHENS);
+
+        assertEquals(3, starts.size());
+        assertEquals(millis(LocalDateTime.of(2025, 10, 27, 10, 0)), (long) starts.get(1));
+        // One hour more than a week: clocks went back on 26/10
+        assertEquals(7 * 24 * HOUR_MILLIS + HOUR_MILLIS, starts.get(1) - starts.get(0));
+    }
+
+    @Test
+    public void startsEndingAfter_jumpsIntoWindowAndHonoursCount() {
+        long first = millis(LocalDateTime.of(2025, 1, 1, 9, 0));
+        RecurrenceRule rule = RecurrenceRule.parse("FREQ=DAILY;INTERVAL=3;COUNT=100");
+        long from = millis(LocalDateTime.of(2025, 3, 1, 0, 0));
+
+        Iterator<Long> it = rule.startsEndingAfter(first, 2 * HOUR_MILLIS, from, ATHENS);
+
+        // 01/01 + 20 * 3 days
+        assertEquals(millis(LocalDateTime.of(2025, 3, 2, 9, 0)), (long) it.next());
+        int left = 1;
+        while (it.hasNext()) {
+            it.next();
+            left++;
+        }
+        assertEquals(100 - 20, left);
+    }
+
+    @Test
+    public void startsOverlapping_includesOccurrenceRunningAtWindowStart() {
+        long first = millis(LocalDateTime.of(2025, 5, 1, 23, 0));
+        RecurrenceRule rule = RecurrenceRule.parse("FREQ=DAILY");
+        long from = millis(LocalDateTime.of(2025, 5, 10, 0, 0));
+
+        List<Long> starts = rule.startsOverlapping(first, 2 * HOUR_MILLIS, from, from + 24 * HOUR_MILLIS, ATHENS);
+
+        assertEquals(millis(LocalDateTime.of(2025, 5, 9, 23, 0)), (long) starts.get(0));
+        assertEquals(millis(LocalDateTime.of(2025, 5, 10, 23, 0)), (long) starts.get(1));
+        assertEquals(2, starts.size());
+    }
+
+    @Test
+    public void monthly_skipsMonthsWithoutTheDay() {
+        long first = millis(LocalDateTime.of(2025, 1, 31, 12, 0));
+        RecurrenceRule rule = RecurrenceRule.parse("FREQ=MONTHLY;COUNT=3");
+
+        List<Long> starts = new ArrayList<>();
+        rule.startsEndingAfter(first, HOUR_MILLIS, Long.MIN_VALUE, ATHENS).forEachRemaining(starts::add);
+
+        assertEquals(3, starts.size());
+        assertEquals(millis(LocalDateTime.of(2025, 3, 31, 12, 0)), (long) starts.get(1));
+        assertEquals(millis(LocalDateTime.of(2025, 5, 31, 12, 0)), (long) starts.get(2));
+        assertEquals(starts.get(2) + HOUR_MILLIS, rule.lastEndAt(first, HOUR_MILLIS, ATHENS));
+    }
+
+    @Test
+    public void lastEndAt_untilIsInclusiveAndUnboundedHasNoEnd() {
+        long first = millis(LocalDateTime.of(2025, 6, 2, 8, 0));
+        long until = millis(LocalDateTime.of(2025, 6, 16, 8, 0));
+
+        RecurrenceRule weekly = new RecurrenceRule(RecurrenceRule.Frequency.WEEKLY, 1, 0, until);
+        assertEquals(until + HOUR_MILLIS, weekly.lastEndAt(first, HOUR_MILLIS, ATHENS));
+
+        RecurrenceRule forever = RecurrenceRule.parse("FREQ=DAILY");
+        assertEquals(RecurrenceRule.NO_UNTIL, forever.lastEndAt(first, HOUR_MILLIS, ATHENS));
+    }
+
+    private static long millis(LocalDateTime localTime) {
+        return localTime.atZone(ATHENS).toInstant().toEpochMilli();
+    }
+}
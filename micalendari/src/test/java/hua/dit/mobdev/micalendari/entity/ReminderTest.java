@@ -0,0 +1,79 @@
+package hua.dit.mobdev.micalendari.entity;
+
+import org.junit.Test;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for finding the next {@link Reminder} of one-off and recurring tasks.
+ */
+public class ReminderTest {
+    private static final ZoneId ATHENS = ZoneId.of("Europe/Athens");
+    private static final long MINUTE_MILLIS = 60 * 1000L;
+    private static final long HOUR_MILLIS = 60 * MINUTE_MILLIS;
+
+    private final Map<Long, TaskException> exceptions = new HashMap<>();
+
+    @Test
+    public void oneOff_firesBeforeStartOnlyOnce() {
+        long start = millis(LocalDateTime.of(2025, 3, 15, 10, 0));
+        Task task = task(start, null, 10);
+
+        Reminder reminder = Reminder.next(task, start - HOUR_MILLIS, ATHENS, exceptions::get);
+        assertEquals(start - 10 * MINUTE_MILLIS, reminder.getFireAt());
+        assertEquals(start, reminder.getStartAt());
+        // Once the fire time has passed there is nothing left to remind of
+        assertNull(Reminder.next(task, reminder.getFireAt(), ATHENS, exceptions::get));
+    }
+
+    @Test
+    public void withoutReminderOrSchedule_noReminder() {
+        long start = millis(LocalDateTime.of(2025, 3, 15, 10, 0));
+        assertNull(Reminder.next(task(start, null, null), 0, ATHENS, exceptions::get));
+        assertNull(Reminder.next(task(Task.UNSCHEDULED, null, 10), 0, ATHENS, exceptions::get));
+    }
+
+    @Test
+    public void series_skipsDoneOccurrencesAndFollowsMovedOnes() {
+        long first = millis(LocalDateTime.of(2025, 3, 3, 9, 0));
+        long second = millis(LocalDateTime.of(2025, 3, 10, 9, 0));
+        long third = millis(LocalDateTime.of(2025, 3, 17, 9, 0));
+        Task task = task(first, "FREQ=WEEKLY", 30);
+
+        // Deep into the series: the next occurrence is found without walking from the first one
+        Reminder reminder = Reminder.next(task, first + HOUR_MILLIS, ATHENS, exceptions::get);
+        assertEquals(second, reminder.getOccurrenceAt());
+        assertEquals(second - 30 * MINUTE_MILLIS, reminder.getFireAt());
+
+        TaskException completed = new TaskException(task.getUid(), second);
+        completed.setCompleted(true);
+        exceptions.put(second, completed);
+        TaskException moved = new TaskException(task.getUid(), third);
+        moved.setStartAt(third + 2 * HOUR_MILLIS);
+        exceptions.put(third, moved);
+
+        reminder = Reminder.next(task, first + HOUR_MILLIS, ATHENS, exceptions::get);
+        assertEquals(third, reminder.getOccurrenceAt());
+        assertEquals(third + 2 * HOUR_MILLIS - 30 * MINUTE_MILLIS, reminder.getFireAt());
+    }
+
+    private static Task task(long startAt, String rule, Integer reminderMinutes) {
+        Task task = new Task();
+        task.setUid(1);
+        task.setStartAt(startAt);
+        task.setEndAt(startAt == Task.UNSCHEDULED ? Task.UNSCHEDULED : startAt + HOUR_MILLIS);
+        task.setRecurrenceRule(rule);
+        task.setSeriesEndAt(rule != null ? RecurrenceRule.NO_UNTIL : null);
+        task.setReminderMinutes(reminderMinutes);
+        return task;
+    }
+
+    private static long millis(LocalDateTime local) {
+        return local.atZone(ATHENS).toInstant().toEpochMilli();
+    }
+}
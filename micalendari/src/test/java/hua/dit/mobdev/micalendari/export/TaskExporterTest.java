@@ -0,0 +1,147 @@
+package hua.dit.mobdev.micalendari.export;
+
+import android.database.Cursor;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link TaskExporter} over a generated 100k-row cursor: every row is
+ * exported, and the output reaches the stream in buffer-sized pieces while the cursor is read.
+ * Throughput and the live heap, sampled after a GC every 10k rows, are printed for each format;
+ * the heap must stay within a few megabytes of where it started, far below the size of the output.
+ */
+public class TaskExporterTest {
+    private static final int ROWS = 100_000;
+    private static final List<String> COLUMNS = Arrays.asList("uid", "shortName", "description", "startTime",
+            "durationHours", "location", "date", "start_at", "end_at", "status_name", "recurrence_rule");
+    private static final long HOUR_MILLIS = 3_600_000L;
+    private static final long FIRST_START = 1_741_000_000_000L;
+    private static final int HEAP_SAMPLE_INTERVAL = 10_000;
+    // Bound on the live heap growth during an export: the 64k character buffer and one row, with
+    // room for the JVM's own noise; the smallest output is over 9 MB
+    private static final long MAX_HEAP_GROWTH = 4L * 1024 * 1024;
+
+    // Cursor over ROWS generated one-off tasks, holding no row but the current position
+    private static final class GeneratedRows {
+        int position = -1;
+
+        Cursor cursor() {
+            return (Cursor) Proxy.newProxyInstance(Cursor.class.getClassLoader(), new Class<?>[]{Cursor.class},
+                    (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "moveToNext":
+                                return ++position < ROWS;
+                            case "getColumnIndex":
+                            case "getColumnIndexOrThrow":
+                                return COLUMNS.indexOf((String) args[0]);
+                            case "getInt":
+                                return (int) value((Integer) args[0]);
+                            case "getLong":
+                                return (long) value((Integer) args[0]);
+                            case "getString":
+                                Object value = value((Integer) args[0]);
+                                return value != null ? value.toString() : null;
+                            case "isNull":
+                                return value((Integer) args[0]) == null;
+                            case "close":
+                                return null;
+                            default:
+                                throw new UnsupportedOperationException(method.getName());
+                        }
+                    });
+        }
+
+        private Object value(int column) {
+            switch (COLUMNS.get(column)) {
+                case "uid": return position + 1;
+                case "shortName": return "Task " + position;
+                case "description": return "Notes <" + position + ">, \"quoted\"; with a comma";
+                case "startTime": return "10:00";
+                case "durationHours": return 1;
+                case "location": return "Room " + (position % 50);
+                case "date": return "15/03/2025";
+                case "start_at": return FIRST_START + position * HOUR_MILLIS;
+                case "end_at": return FIRST_START + (position + 1) * HOUR_MILLIS;
+                case "status_name": return "recorded";
+                default: return null;
+            }
+        }
+    }
+
+    // Stream that only counts, remembering its largest write and the row being read at its first
+    private static final class RecordingStream extends OutputStream {
+        private final GeneratedRows rows;
+        long bytes;
+        int largestWrite;
+        int firstWriteRow = -1;
+
+        RecordingStream(GeneratedRows rows) {
+            this.rows = rows;
+        }
+
+        @Override
+        public void write(int b) {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] buffer, int offset, int length) {
+            if (firstWriteRow < 0) firstWriteRow = rows.position;
+            bytes += length;
+            largestWrite = Math.max(largestWrite, length);
+        }
+    }
+
+    @Test
+    public void export_streams100kRowsThroughTheBuffer() throws IOException {
+        Runtime runtime = Runtime.getRuntime();
+        for (String name : new String[]{"html", "csv", "ics"}) {
+            GeneratedRows rows = new GeneratedRows();
+            RecordingStream out = new RecordingStream(rows);
+            TaskExporter exporter = new TaskExporter(TaskExportFormat.forName(name));
+            long elapsedMillis = export(exporter, new GeneratedRows(), new RecordingStream(new GeneratedRows()), null);
+
+            // Again, with the live heap sampled along the way, which slows the export down
+            System.gc();
+            long baseHeap = liveHeap(runtime);
+            long[] peakHeap = {baseHeap};
+            export(exporter, rows, out, done -> {
+                if (done % HEAP_SAMPLE_INTERVAL == 0) {
+                    System.gc();
+                    peakHeap[0] = Math.max(peakHeap[0], liveHeap(runtime));
+                }
+            });
+            int exported = rows.position;
+
+            assertEquals(ROWS, exported);
+            // Written while the cursor is read, never more than the 64k character buffer at once
+            assertTrue(name + ": first write at row " + out.firstWriteRow, out.firstWriteRow < ROWS / 10);
+            assertTrue(name + ": write of " + out.largestWrite + " bytes", out.largestWrite <= 3 * 64 * 1024);
+            assertTrue(name + ": heap grew by " + (peakHeap[0] - baseHeap) + " bytes",
+                    peakHeap[0] - baseHeap < MAX_HEAP_GROWTH);
+            System.out.printf("TaskExporter %s: %d rows, %d KiB in %d ms, %d rows/s, live heap +%d KiB at most%n",
+                    name, exported, out.bytes / 1024, elapsedMillis, ROWS * 1000L / elapsedMillis,
+                    (peakHeap[0] - baseHeap) / 1024);
+        }
+    }
+
+    // Export every generated row, returns the time taken in milliseconds
+    private static long export(TaskExporter exporter, GeneratedRows rows, RecordingStream out,
+                               TaskExporter.ProgressListener progress) throws IOException {
+        long startNanos = System.nanoTime();
+        assertEquals(ROWS, exporter.export(rows.cursor(), null, out, progress));
+        return Math.max(1, (System.nanoTime() - startNanos) / 1_000_000);
+    }
+
+    private static long liveHeap(Runtime runtime) {
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
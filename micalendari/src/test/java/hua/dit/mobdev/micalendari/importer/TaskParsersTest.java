@@ -0,0 +1,242 @@
+package hua.dit.mobdev.micalendari.importer;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+
+import hua.dit.mobdev.micalendari.entity.Status;
+import hua.dit.mobdev.micalendari.entity.Task;
+import hua.dit.mobdev.micalendari.entity.TaskException;
+import hua.dit.mobdev.micalendari.export.CsvExportFormat;
+import hua.dit.mobdev.micalendari.export.ICalendarExportFormat;
+import hua.dit.mobdev.micalendari.export.TaskExportFormat;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the {@link TaskParser} implementations and the content hash of
+ * {@link TaskImporter}, including round trips through the matching export formats.
+ */
+public class TaskParsersTest {
+    private static final ZoneId ATHENS = ZoneId.of("Europe/Athens");
+
+    @Test
+    public void ics_mapsEventFields() throws IOException {
+        String ics = "BEGIN:VCALENDAR\r\n" +
+                "BEGIN:VEVENT\r\n" +
+                "SUMMARY:Lunch\\; then\\, coffee\r\n" +
+                "DESCRIPTION:Line 1\\nLine 2 that is folded \r\n" +
+                " onto two lines\r\n" +
+                "DTSTART:20250315T080000Z\r\n" +
+                "DTEND:20250315T093000Z\r\n" +
+                "LOCATION:Athens\r\n" +
+                "BEGIN:VALARM\r\n" +
+                "DESCRIPTION:Alarm text\r\n" +
+                "END:VALARM\r\n" +
+                "END:VEVENT\r\n" +
+                "END:VCALENDAR\r\n";
+        ICalendarTaskParser parser = new ICalendarTaskParser(new StringReader(ics), ATHENS);
+        Task task = parser.next();
+
+        assertEquals("Lunch; then, coffee", task.getShortName());
+        assertEquals("Line 1\nLine 2 that is folded onto two lines", task.getDescription());
+        assertEquals("Athens", task.getLocation());
+        // 08:00 UTC is 10:00 in Athens in March
+        assertEquals("15/03/2025", task.getDate());
+        assertEquals("10:00", task.getStartTime());
+        // 90 minutes round up to 2 hours
+        assertEquals(2, task.getDurationHours());
+        assertNull(parser.next());
+    }
+
+    @Test
+    public void ics_readsZonedAndAllDayStarts() throws IOException {
+        String ics = "BEGIN:VEVENT\nSUMMARY:Zoned\nDTSTART;TZID=Europe/London:20250315T080000\nDURATION:PT3H\nEND:VEVENT\n" +
+                "BEGIN:VEVENT\nSUMMARY:All day\nDTSTART;VALUE=DATE:20250316\nEND:VEVENT\n";
+        ICalendarTaskParser parser = new ICalendarTaskParser(new StringReader(ics), ATHENS);
+
+        Task zoned = parser.next();
+        assertEquals("10:00", zoned.getStartTime());
+        assertEquals(3, zoned.getDurationHours());
+
+        Task allDay = parser.next();
+        assertEquals("16/03/2025", allDay.getDate());
+        assertEquals("00:00", allDay.getStartTime());
+        assertEquals(24, allDay.getDurationHours());
+    }
+
+    @Test
+    public void ics_skipsEventsWithoutStartAndCancelledEvents() throws IOException {
+        String ics = "BEGIN:VEVENT\nSUMMARY:No start\nEND:VEVENT\n" +
+                "BEGIN:VEVENT\nSUMMARY:Cancelled\nDTSTART:20250315T080000Z\nSTATUS:CANCELLED\nEND:VEVENT\n";
+        ICalendarTaskParser parser = new ICalendarTaskParser(new StringReader(ics), ATHENS);
+        assertNull(parser.next());
+        assertEquals(2, parser.getSkippedCount());
+    }
+
+    @Test
+    public void ics_skipsUnsupportedRulesAndReadsDateUntil() throws IOException {
+        String ics = "BEGIN:VEVENT\nUID:a\nSUMMARY:Yoga\nDTSTART:20250315T080000Z\nRRULE:FREQ=WEEKLY;BYDAY=MO,WE\nEND:VEVENT\n" +
+                "BEGIN:VEVENT\nUID:b\nSUMMARY:Standup\nDTSTART:20250315T080000Z\nDTEND:20250315T090000Z\n" +
+                "RRULE:FREQ=DAILY;UNTIL=20250317\nEND:VEVENT\n";
+        ICalendarTaskParser parser = new ICalendarTaskParser(new StringReader(ics), ATHENS);
+
+        // The weekly series on two days is not imported as a single task
+        Task standup = parser.next();
+        assertEquals("Standup", standup.getShortName());
+        assertEquals("FREQ=DAILY;UNTIL=20250317T215959Z", standup.getRecurrenceRule());
+        assertNull(parser.next());
+        assertEquals(1, parser.getSkippedCount());
+    }
+
+    @Test
+    public void ics_readsExdatesAndOverridesOfTheSeriesBeforeThem() throws IOException {
+        String ics = "BEGIN:VEVENT\nUID:s@x\nSUMMARY:Standup\n" +
+                "DTSTART;TZID=Europe/Athens:20250315T100000\nDTEND;TZID=Europe/Athens:20250315T110000\n" +
+                "RRULE:FREQ=WEEKLY;COUNT=4\nEXDATE;TZID=Europe/Athens:20250322T100000\nEND:VEVENT\n" +
+                "BEGIN:VEVENT\nUID:s@x\nRECURRENCE-ID;TZID=Europe/Athens:20250405T100000\n" +
+                "DTSTART;TZID=Europe/Athens:20250405T120000\nDTEND;TZID=Europe/Athens:20250405T130000\nEND:VEVENT\n" +
+                "BEGIN:VEVENT\nUID:s@x\nRECURRENCE-ID;TZID=Europe/Athens:20250329T100000\nSTATUS:CANCELLED\nEND:VEVENT\n" +
+                // Override of a series that is not the one before it
+                "BEGIN:VEVENT\nUID:other\nRECURRENCE-ID:20250301T080000Z\nDTSTART:20250301T090000Z\nEND:VEVENT\n" +
+                "BEGIN:VEVENT\nUID:o\nSUMMARY:Once\nDTSTART:20250315T080000Z\nEND:VEVENT\n";
+        ICalendarTaskParser parser = new ICalendarTaskParser(new StringReader(ics), ATHENS);
+
+        Task series = parser.next();
+        List<TaskException> exceptions = series.getImportedExceptions();
+        assertEquals(3, exceptions.size());
+        assertEquals(athens(LocalDateTime.of(2025, 3, 22, 10, 0)), exceptions.get(0).getOccurrenceAt());
+        assertTrue(exceptions.get(0).isCancelled());
+        assertEquals(athens(LocalDateTime.of(2025, 4, 5, 10, 0)), exceptions.get(1).getOccurrenceAt());
+        assertFalse(exceptions.get(1).isCancelled());
+        assertEquals(athens(LocalDateTime.of(2025, 4, 5, 12, 0)), (long) exceptions.get(1).getStartAt());
+        assertEquals(athens(LocalDateTime.of(2025, 4, 5, 13, 0)), (long) exceptions.get(1).getEndAt());
+        assertEquals(athens(LocalDateTime.of(2025, 3, 29, 10, 0)), exceptions.get(2).getOccurrenceAt());
+        assertTrue(exceptions.get(2).isCancelled());
+
+        assertEquals("Once", parser.next().getShortName());
+        assertNull(parser.next());
+        assertEquals(1, parser.getSkippedCount());
+    }
+
+    @Test
+    public void csv_readsQuotedFieldsInAnyColumnOrder() throws IOException {
+        String csv = "location,shortName,description,date,startTime,durationHours\r\n" +
+                "Athens,\"Say \"\"hi\"\", then\nleave\",,15/03/2025,10:00,2\r\n" +
+                "\r\n" +
+                "Rome,Bad duration,,15/03/2025,10:00,two\r\n";
+        CsvTaskParser parser = new CsvTaskParser(new StringReader(csv));
+        Task task = parser.next();
+
+        assertEquals("Say \"hi\", then\nleave", task.getShortName());
+        assertEquals("", task.getDescription());
+        assertEquals("Athens", task.getLocation());
+        assertEquals("15/03/2025", task.getDate());
+        assertEquals(2, task.getDurationHours());
+        assertNull(parser.next());
+        assertEquals(1, parser.getSkippedCount());
+    }
+
+    @Test
+    public void csv_readsRecurrenceAndSkipsUnsupportedOnes() throws IOException {
+        String csv = "shortName,date,startTime,durationHours,recurrence\n" +
+                "Standup,15/03/2025,09:30,1,FREQ=WEEKLY;COUNT=4\n" +
+                "Yoga,15/03/2025,18:00,1,\"FREQ=WEEKLY;BYDAY=MO,WE\"\n" +
+                "Once,15/03/2025,10:00,1,\n";
+        CsvTaskParser parser = new CsvTaskParser(new StringReader(csv));
+
+        Task series = parser.next();
+        assertEquals("FREQ=WEEKLY;COUNT=4", series.getRecurrenceRule());
+        assertTrue(series.isRecurring());
+        Task once = parser.next();
+        assertEquals("Once", once.getShortName());
+        assertFalse(once.isRecurring());
+        assertNull(parser.next());
+        assertEquals(1, parser.getSkippedCount());
+    }
+
+    @Test
+    public void csv_ignoresByteOrderMark() throws IOException {
+        String csv = "\uFEFFshortName,date,startTime,durationHours\r\nDentist,15/03/2025,10:00,1\r\n";
+        Task task = new CsvTaskParser(new StringReader(csv)).next();
+        assertEquals("Dentist", task.getShortName());
+        assertEquals("10:00", task.getStartTime());
+    }
+
+    @Test(expected = IOException.class)
+    public void csv_rejectsUnknownHeader() throws IOException {
+        new CsvTaskParser(new StringReader("a,b,c\n1,2,3\n")).next();
+    }
+
+    @Test
+    public void roundTrip_throughCsvAndIcsExports() throws IOException {
+        Task original = new Task("Meeting, weekly", "Notes; \"quoted\"\nsecond line", "09:30", 2,
+                "Room 3", "15/03/2025", 1);
+        original.setUid(42);
+
+        Task fromCsv = new CsvTaskParser(new StringReader(export(new CsvExportFormat(), original))).next();
+        Task fromIcs = new ICalendarTaskParser(new StringReader(export(new ICalendarExportFormat(0), original))).next();
+
+        TaskImporter importer = new TaskImporter(null, 1);
+        String hash = importer.contentHashOf(original);
+        assertEquals(hash, importer.contentHashOf(fromCsv));
+        assertEquals(hash, importer.contentHashOf(fromIcs));
+    }
+
+    @Test
+    public void roundTrip_keepsRecurrenceRuleThroughCsvAndIcs() throws IOException {
+        Task original = new Task("Standup", null, "09:30", 1, null, "15/03/2025", 1);
+        original.setRecurrenceRule("FREQ=WEEKLY;COUNT=4");
+        original.updateSeriesEnd();
+        original.setUid(7);
+
+        String ics = export(new ICalendarExportFormat(0), original);
+        assertTrue(ics.contains("RRULE:FREQ=WEEKLY;COUNT=4\r\n"));
+        Task fromIcs = new ICalendarTaskParser(new StringReader(ics)).next();
+        assertEquals("FREQ=WEEKLY;COUNT=4", fromIcs.getRecurrenceRule());
+        assertTrue(fromIcs.isRecurring());
+        Task fromCsv = new CsvTaskParser(new StringReader(export(new CsvExportFormat(), original))).next();
+        assertEquals("FREQ=WEEKLY;COUNT=4", fromCsv.getRecurrenceRule());
+
+        // The rule is part of the hash, so a series and a one-off task with the same fields differ
+        TaskImporter importer = new TaskImporter(null, 1);
+        assertEquals(importer.contentHashOf(original), importer.contentHashOf(fromIcs));
+        assertNotEquals(importer.contentHashOf(original),
+                importer.contentHashOf(new Task("Standup", null, "09:30", 1, null, "15/03/2025", 1)));
+    }
+
+    @Test
+    public void contentHash_isTheOneStoredForTasksEnteredByHand() {
+        Task entered = new Task("Dentist", "", "10:00", 1, "", "15/03/2025", 1);
+        entered.updateContentHash();
+        assertEquals(entered.getContentHash(), new TaskImporter(null, 1).contentHashOf(entered));
+    }
+
+    @Test
+    public void contentHash_separatesFields() {
+        TaskImporter importer = new TaskImporter(null, 1);
+        Task a = new Task("ab", "c", "10:00", 1, null, "15/03/2025", 1);
+        Task b = new Task("a", "bc", "10:00", 1, null, "15/03/2025", 1);
+        Task c = new Task("ab", "c", "10:00", 1, "", "15/03/2025", 1);
+        assertEquals(40, importer.contentHashOf(a).length());
+        assertNotEquals(importer.contentHashOf(a), importer.contentHashOf(b));
+        assertNotEquals(importer.contentHashOf(a), importer.contentHashOf(c));
+    }
+
+    private static long athens(LocalDateTime localTime) {
+        return localTime.atZone(ATHENS).toInstant().toEpochMilli();
+    }
+
+    private static String export(TaskExportFormat format, Task task) throws IOException {
+        StringWriter out = new StringWriter();
+        format.writeHeader(out);
+        format.writeTask(out, task, Status.RECORDED);
+        format.writeFooter(out);
+        return out.toString();
+    }
+}
@@ -21,3 +21,6 @@ dependencyResolutionManagement {
 
 rootProject.name = "MiCalendariAPK"
 include(":micalendari")
+// Plain Java scheduling, status and export code, and its JMH benchmarks
+include(":core")
+include(":benchmarks")